@@ -0,0 +1,19 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.asm.X86Program;
+
+public class AsmWriterBenchmark extends PhaseBenchmark {
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.WRITE_ASSEMBLY);
+    }
+
+    @Benchmark
+    public X86Program writeAssembly() {
+        return pipeline.writeAssembly();
+    }
+}
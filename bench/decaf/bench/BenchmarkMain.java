@@ -0,0 +1,23 @@
+package decaf.bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks on every input of {@link Inputs#all()}, unless {@code -p input=...} picks some; any other
+ * argument is passed on to JMH, e.g. {@code FrontEnd -rf json}
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var commandLineOptions = new CommandLineOptions(args);
+        var options = new OptionsBuilder().parent(commandLineOptions);
+        if (!commandLineOptions.getParameter("input")
+                               .hasValue())
+            options.param("input", Inputs.all()
+                                         .toArray(String[]::new));
+        new Runner(options.build()).run();
+    }
+}
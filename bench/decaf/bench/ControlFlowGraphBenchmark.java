@@ -0,0 +1,19 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.cfg.ControlFlowGraph;
+
+public class ControlFlowGraphBenchmark extends PhaseBenchmark {
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.BUILD_CFG);
+    }
+
+    @Benchmark
+    public ControlFlowGraph buildCfg() {
+        return pipeline.buildCfg();
+    }
+}
@@ -0,0 +1,22 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import decaf.ast.Program;
+import decaf.exceptions.DecafException;
+import decaf.grammar.TokenBuffer;
+
+/**
+ * Scanning, and parsing, which includes scanning since the parser pulls its tokens from the scanner
+ */
+public class FrontEndBenchmark extends PhaseBenchmark {
+    @Benchmark
+    public TokenBuffer scan() throws DecafException {
+        return new Pipeline(sourceCode).scan();
+    }
+
+    @Benchmark
+    public Program parse() {
+        return new Pipeline(sourceCode).parse();
+    }
+}
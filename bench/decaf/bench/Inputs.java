@@ -0,0 +1,134 @@
+package decaf.bench;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import decaf.common.TestRunner;
+
+/**
+ * The programs the benchmarks compile, named by the {@code input} parameter of each benchmark:
+ * <ul>
+ *     <li>{@code codegen/<file>}: a file of {@value #CODEGEN_TESTS_ROOT}</li>
+ *     <li>{@code optimizer/<file>}: a file of {@value TestRunner#DEFAULT_DATAFLOW_TESTS_ROOT}</li>
+ *     <li>{@code synthetic/<n>}: a program of {@code n} methods made by {@link ProgramGenerator}, otherwise of the
+ *     {@link ProgramGenerator.Shape#defaults() default} shape</li>
+ *     <li>{@code arrays/<n>} and {@code branches/<n>}: the same, with global arrays or with {@code if}s, which the
+ *     default shape leaves out because the compiler does not compile them every time yet; they are
+ *     {@link #expectedToFail() expected to fail}</li>
+ * </ul>
+ * The test programs are in the {@code tests} git submodule; when it is not checked out
+ * ({@code git submodule update --init tests}), only the generated programs are benchmarked.
+ */
+public class Inputs {
+    public static final String CODEGEN_TESTS_ROOT = "tests/codegen/input";
+    private static final String CODEGEN = "codegen/";
+    private static final String OPTIMIZER = "optimizer/";
+    private static final String SYNTHETIC = "synthetic/";
+    private static final String ARRAYS = "arrays/";
+    private static final String BRANCHES = "branches/";
+    private static final int N_ARRAYS = 2;
+    private static final double BRANCHINESS = 0.2;
+
+    /**
+     * The number of methods of the synthetic programs which are always benchmarked
+     */
+    public static final List<Integer> SYNTHETIC_SCALES = List.of(1, 8, 64);
+
+    public static String sourceOf(String input) {
+        if (input.startsWith(CODEGEN))
+            return readTest(CODEGEN_TESTS_ROOT, input.substring(CODEGEN.length()));
+        if (input.startsWith(OPTIMIZER))
+            return readTest(TestRunner.DEFAULT_DATAFLOW_TESTS_ROOT, input.substring(OPTIMIZER.length()));
+        if (input.endsWith(".dcf") && Files.isRegularFile(Path.of(input)))
+            return readString(Path.of(input));
+        return ProgramGenerator.generate(shapeOf(input));
+    }
+
+    /**
+     * @param input a generated input, e.g. {@code arrays/8}
+     */
+    public static ProgramGenerator.Shape shapeOf(String input) {
+        final String series = input.substring(0, input.indexOf('/') + 1);
+        checkArgument(List.of(SYNTHETIC, ARRAYS, BRANCHES)
+                          .contains(series), "unknown input: %s", input);
+        var shape = ProgramGenerator.Shape.defaults()
+                                          .withMethods(Integer.parseInt(input.substring(series.length())));
+        return switch (series) {
+            case ARRAYS -> shape.withGlobals(shape.nGlobals(), N_ARRAYS);
+            case BRANCHES -> shape.withBranchiness(BRANCHINESS);
+            default -> shape;
+        };
+    }
+
+    /**
+     * @return the name of every test program which exists under the working directory, and of every synthetic
+     * program of {@link #SYNTHETIC_SCALES}
+     */
+    public static List<String> all() {
+        var inputs = new ArrayList<>(tests());
+        SYNTHETIC_SCALES.forEach(scale -> inputs.add(SYNTHETIC + scale));
+        return inputs;
+    }
+
+    /**
+     * @return the generated programs of the shapes which the default one leaves out, at every scale of
+     * {@link #SYNTHETIC_SCALES}; some of them crash the compiler or compile to executables which crash, so they are
+     * reported apart from the others
+     */
+    public static List<String> expectedToFail() {
+        var inputs = new ArrayList<String>();
+        for (var series : List.of(ARRAYS, BRANCHES))
+            SYNTHETIC_SCALES.forEach(scale -> inputs.add(series + scale));
+        return inputs;
+    }
+
+    public static boolean isExpectedToFail(String input) {
+        return input.startsWith(ARRAYS) || input.startsWith(BRANCHES);
+    }
+
+    /**
+     * @return the name of every test program which exists under the working directory
+     */
+    public static List<String> tests() {
+        var inputs = new ArrayList<String>();
+        inputs.addAll(filesIn(CODEGEN_TESTS_ROOT, CODEGEN));
+        inputs.addAll(filesIn(TestRunner.DEFAULT_DATAFLOW_TESTS_ROOT, OPTIMIZER));
+        return inputs;
+    }
+
+    private static String readTest(String directory, String file) {
+        checkArgument(Files.isDirectory(Path.of(directory)),
+                      "%s is in the tests submodule, which is not checked out: git submodule update --init tests",
+                      directory);
+        return readString(Path.of(directory, file));
+    }
+
+    private static String readString(Path path) {
+        try {
+            return Files.readString(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> filesIn(String directory, String prefix) {
+        if (!Files.isDirectory(Path.of(directory)))
+            return List.of();
+        try (Stream<Path> files = Files.list(Path.of(directory))) {
+            return files.filter(file -> file.toString()
+                                            .endsWith(".dcf"))
+                        .map(file -> prefix + file.getFileName())
+                        .sorted()
+                        .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package decaf.bench;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.common.ProgramIr;
+import decaf.dataflow.OptimizationPassType;
+
+/**
+ * One pass of {@link decaf.dataflow.DataflowOptimizer#PASSES}, run alone to its fixed point on the SSA form of every
+ * method
+ */
+public class OptimizationPassBenchmark extends PhaseBenchmark {
+    @Param({
+            "PeepHoleOptimization",
+            "SccpSsa",
+            "CopyPropagationSsa",
+            "RedundantPhiEliminationPass",
+            "DeadStoreEliminationSsa",
+            "LoopAnalysisPass"
+    })
+    public OptimizationPassType pass;
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.OPTIMIZE);
+    }
+
+    @Benchmark
+    public ProgramIr optimize() {
+        return pipeline.optimize(List.of(pass));
+    }
+}
@@ -0,0 +1,48 @@
+package decaf.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The settings shared by the benchmarks of single phases.
+ * <p>
+ * Most phases rewrite the IR they are given, so a benchmark of such a phase runs the pipeline up to the phase in an
+ * invocation-level setup, outside of the measurement. Phases take milliseconds on the larger inputs, which is long
+ * enough for the setup overhead of JMH not to matter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class PhaseBenchmark {
+    /**
+     * See {@link Inputs}; {@link BenchmarkMain} benchmarks every input there is
+     */
+    @Param({"synthetic/1", "synthetic/8", "synthetic/64"})
+    public String input;
+
+    protected String sourceCode;
+    protected Pipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void readSource() {
+        sourceCode = Inputs.sourceOf(input);
+    }
+
+    protected Pipeline pipelineUpTo(Pipeline.Step step) {
+        return new Pipeline(sourceCode).runUpTo(step);
+    }
+}
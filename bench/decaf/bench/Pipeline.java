@@ -0,0 +1,165 @@
+package decaf.bench;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.List;
+
+import decaf.asm.X86AsmWriter;
+import decaf.asm.X86Program;
+import decaf.asm.X86Register;
+import decaf.ast.Program;
+import decaf.cfg.ControlFlowGraph;
+import decaf.codegen.BasicBlockToInstructionListConverter;
+import decaf.common.CompilationContext;
+import decaf.common.DecafExceptionProcessor;
+import decaf.common.ProgramIr;
+import decaf.dataflow.DataflowOptimizer;
+import decaf.dataflow.OptimizationPassType;
+import decaf.dataflow.passes.InstructionSimplifyIrPass;
+import decaf.exceptions.DecafException;
+import decaf.grammar.DecafParser;
+import decaf.grammar.DecafScanner;
+import decaf.grammar.ScannerInput;
+import decaf.grammar.TokenBuffer;
+import decaf.ir.SemanticCheckingManager;
+import decaf.regalloc.LinearScan;
+import decaf.regalloc.LiveIntervalsManager;
+import decaf.regalloc.RegisterAllocator;
+import decaf.ssa.SSA;
+
+/**
+ * The phases of {@link decaf.common.Compilation}, run one at a time so that a benchmark can prepare the input of a
+ * phase outside of its measurement.
+ * <p>
+ * Each step expects the previous ones to have run; {@link #runUpTo} runs every step before a given one. The steps
+ * mirror the order in which {@code Compilation} runs them, with optimization on.
+ */
+public class Pipeline {
+    public enum Step {
+        SCAN, PARSE, CHECK_SEMANTICS, BUILD_CFG, GENERATE_IR, CONSTRUCT_SSA, OPTIMIZE, DECONSTRUCT_SSA, ALLOCATE_REGISTERS,
+        WRITE_ASSEMBLY
+    }
+
+    private final CompilationContext compilationContext = new CompilationContext();
+    private final String sourceCode;
+    private final DecafExceptionProcessor decafExceptionProcessor;
+    private Program program;
+    private SemanticCheckingManager semanticChecker;
+    private ControlFlowGraph cfg;
+    private BasicBlockToInstructionListConverter basicBlockToInstructionListConverter;
+    private ProgramIr programIr;
+    private RegisterAllocator registerAllocator;
+
+    public Pipeline(String sourceCode) {
+        this.sourceCode = sourceCode;
+        this.decafExceptionProcessor = new DecafExceptionProcessor(sourceCode);
+    }
+
+    /**
+     * Runs the steps before {@code step}
+     */
+    public Pipeline runUpTo(Step step) {
+        for (var previous : List.of(Step.values())
+                                .subList(0, step.ordinal()))
+            run(previous);
+        return this;
+    }
+
+    private void run(Step step) {
+        switch (step) {
+            // parsing scans the source itself
+            case SCAN -> {
+            }
+            case PARSE -> parse();
+            case CHECK_SEMANTICS -> checkSemantics();
+            case BUILD_CFG -> buildCfg();
+            case GENERATE_IR -> generateIr();
+            case CONSTRUCT_SSA -> constructSsa();
+            case OPTIMIZE -> optimize(DataflowOptimizer.PASSES);
+            case DECONSTRUCT_SSA -> deconstructSsa();
+            case ALLOCATE_REGISTERS -> allocateRegisters();
+            case WRITE_ASSEMBLY -> writeAssembly();
+        }
+    }
+
+    public TokenBuffer scan() throws DecafException {
+        return new DecafScanner(ScannerInput.of(sourceCode), decafExceptionProcessor).tokenize();
+    }
+
+    public Program parse() {
+        var parser = new DecafParser(new DecafScanner(ScannerInput.of(sourceCode), decafExceptionProcessor));
+        parser.program();
+        checkState(!parser.hasError(), "the source does not parse: %s", parser.errors);
+        program = parser.getRoot();
+        return program;
+    }
+
+    public SemanticCheckingManager checkSemantics() {
+        semanticChecker = new SemanticCheckingManager(program);
+        semanticChecker.runChecks(decafExceptionProcessor);
+        checkState(!semanticChecker.hasError(), "the source has semantic errors");
+        return semanticChecker;
+    }
+
+    public ControlFlowGraph buildCfg() {
+        InstructionSimplifyIrPass.run(program);
+        cfg = new ControlFlowGraph(program, semanticChecker.getGlobalDescriptor());
+        cfg.build();
+        return cfg;
+    }
+
+    public ProgramIr generateIr() {
+        basicBlockToInstructionListConverter = new BasicBlockToInstructionListConverter(
+                cfg,
+                compilationContext.getIndexManager()
+        );
+        programIr = basicBlockToInstructionListConverter.getProgramIr();
+        return programIr;
+    }
+
+    public ProgramIr constructSsa() {
+        programIr.getMethods()
+                 .forEach(method -> SSA.construct(method, compilationContext));
+        return programIr;
+    }
+
+    /**
+     * Runs {@code passes} on every method until none of them changes anything
+     */
+    public ProgramIr optimize(List<OptimizationPassType> passes) {
+        programIr.setGlobals(basicBlockToInstructionListConverter.getGlobalNames());
+        var dataflowOptimizer = new DataflowOptimizer(programIr, compilationContext);
+        passes.forEach(dataflowOptimizer::addPass);
+        dataflowOptimizer.optimize();
+        programIr.setMethods(dataflowOptimizer.getOptimizedMethods());
+        return programIr;
+    }
+
+    public ProgramIr deconstructSsa() {
+        programIr.getMethods()
+                 .forEach(method -> SSA.deconstruct(method, programIr, compilationContext));
+        programIr.renumberLabels(compilationContext.getIndexManager());
+        return programIr;
+    }
+
+    public LiveIntervalsManager computeLiveIntervals() {
+        return new LiveIntervalsManager(programIr);
+    }
+
+    public LinearScan linearScan(LiveIntervalsManager liveIntervalsManager) {
+        var linearScan = new LinearScan(List.copyOf(X86Register.regsToAllocate),
+                liveIntervalsManager.methodToLiveIntervalsMap);
+        linearScan.allocate();
+        return linearScan;
+    }
+
+    public RegisterAllocator allocateRegisters() {
+        registerAllocator = new RegisterAllocator(programIr, compilationContext.getRegisterAllocationStrategy());
+        programIr.findGlobals();
+        return registerAllocator;
+    }
+
+    public X86Program writeAssembly() {
+        return new X86AsmWriter(programIr, registerAllocator, compilationContext).getX86Program();
+    }
+}
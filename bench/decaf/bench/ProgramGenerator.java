@@ -0,0 +1,252 @@
+package decaf.bench;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Decaf programs which pass the semantic checks, in the shape described by a {@link Shape}.
+ * <p>
+ * The source of a generated program is well defined: loops count up to a small constant, a method only calls methods
+ * generated before it, arrays are indexed by loop variables or constants within bounds, and only constants divide.
+ * That does not make the executable the compiler emits run: programs with arrays or branches can still crash the
+ * compiler or compile to executables which crash, which is why the {@link Shape#defaults() default shape} has neither.
+ * The same shape always generates the same program.
+ */
+public class ProgramGenerator {
+    private static final int ARRAY_SIZE = 32;
+    private static final int N_LOCALS = 4;
+    private static final int MAX_EXPRESSION_DEPTH = 2;
+    private static final double LOOP_PROBABILITY = 0.2;
+
+    private final Shape shape;
+    private final Random random;
+    private final StringBuilder source = new StringBuilder();
+    private int indentation;
+    // the loop variables in scope, i0 to i{loopDepth - 1}
+    private int loopDepth;
+    private int currentMethod;
+
+    /**
+     * @param nMethods           the number of methods besides {@code main}
+     * @param nStatements        the number of statements of each method, counting the statements nested in loops
+     *                           and branches
+     * @param maxLoopDepth       how deeply loops may nest
+     * @param nGlobals           the number of global {@code int}s
+     * @param nArrays            the number of global arrays
+     * @param callDensity        the probability that an operand is a call to another method
+     * @param branchiness        the probability that a statement is an {@code if}
+     * @param seed               picks one program among those of the same shape
+     */
+    public record Shape(int nMethods, int nStatements, int maxLoopDepth, int nGlobals, int nArrays,
+                        double callDensity, double branchiness, long seed) {
+        public Shape {
+            checkArgument(nMethods >= 0 && nStatements > 0 && maxLoopDepth >= 0 && nGlobals >= 0 && nArrays >= 0,
+                    "counts must not be negative: %s", this);
+            checkArgument(callDensity >= 0 && callDensity <= 1 && branchiness >= 0 && branchiness <= 1,
+                    "probabilities must be between 0 and 1: %s", this);
+        }
+
+        /**
+         * A shape the compiler currently compiles and runs whatever the seed: it has no arrays and no branches. Global
+         * arrays accessed in loops crash the compiler or the executable for most seeds, and {@code if}s over
+         * reassigned locals still crash the back end once there are enough of them; {@link Inputs#expectedToFail()}
+         * keeps track of both
+         */
+        public static Shape defaults() {
+            return new Shape(8, 16, 2, 4, 0, 0.05, 0, 0);
+        }
+
+        public Shape withMethods(int nMethods) {
+            return new Shape(nMethods, nStatements, maxLoopDepth, nGlobals, nArrays, callDensity, branchiness, seed);
+        }
+
+        public Shape withStatements(int nStatements) {
+            return new Shape(nMethods, nStatements, maxLoopDepth, nGlobals, nArrays, callDensity, branchiness, seed);
+        }
+
+        public Shape withMaxLoopDepth(int maxLoopDepth) {
+            return new Shape(nMethods, nStatements, maxLoopDepth, nGlobals, nArrays, callDensity, branchiness, seed);
+        }
+
+        public Shape withGlobals(int nGlobals, int nArrays) {
+            return new Shape(nMethods, nStatements, maxLoopDepth, nGlobals, nArrays, callDensity, branchiness, seed);
+        }
+
+        public Shape withCallDensity(double callDensity) {
+            return new Shape(nMethods, nStatements, maxLoopDepth, nGlobals, nArrays, callDensity, branchiness, seed);
+        }
+
+        public Shape withBranchiness(double branchiness) {
+            return new Shape(nMethods, nStatements, maxLoopDepth, nGlobals, nArrays, callDensity, branchiness, seed);
+        }
+    }
+
+    private ProgramGenerator(Shape shape) {
+        this.shape = shape;
+        this.random = new Random(shape.seed());
+    }
+
+    public static String generate(Shape shape) {
+        return new ProgramGenerator(shape).generateProgram();
+    }
+
+    private String generateProgram() {
+        source.append("import printf;\n");
+        for (int i = 0; i < shape.nGlobals(); i++)
+            source.append(String.format("int x%d;\n", i));
+        for (int i = 0; i < shape.nArrays(); i++)
+            source.append(String.format("int a%d[%d];\n", i, ARRAY_SIZE));
+        for (currentMethod = 0; currentMethod < shape.nMethods(); currentMethod++)
+            generateMethod();
+        generateMain();
+        return source.toString();
+    }
+
+    private void generateMethod() {
+        source.append(String.format("int m%d(int p, int q) {\n", currentMethod));
+        indentation = 1;
+        declareLocals();
+        int remaining = shape.nStatements();
+        while (remaining > 0)
+            remaining -= generateStatement(remaining);
+        line("return " + expression(0) + ";");
+        source.append("}\n");
+    }
+
+    private void generateMain() {
+        source.append("void main() {\n");
+        indentation = 1;
+        line("int t;");
+        line("t = 0;");
+        for (int i = 0; i < shape.nMethods(); i++)
+            line(String.format("t += m%d(%d, %d);", i, i + 1, i + 2));
+        line("printf(\"%d\\n\", t);");
+        source.append("}\n");
+    }
+
+    private void declareLocals() {
+        var locals = new ArrayList<String>();
+        for (int i = 0; i < N_LOCALS; i++)
+            locals.add("v" + i);
+        for (int i = 0; i < shape.maxLoopDepth(); i++)
+            locals.add("i" + i);
+        line("int " + String.join(", ", locals) + ";");
+        for (int i = 0; i < N_LOCALS; i++)
+            line(String.format("v%d = %s;", i, i % 2 == 0 ? "p": "q"));
+    }
+
+    /**
+     * @param budget how many statements may be generated at most
+     * @return how many were generated
+     */
+    private int generateStatement(int budget) {
+        final double choice = random.nextDouble();
+        if (budget > 2 && choice < shape.branchiness())
+            return generateIf(budget);
+        if (budget > 2 && loopDepth < shape.maxLoopDepth() && choice < shape.branchiness() + LOOP_PROBABILITY)
+            return generateLoop(budget);
+        final String assignable = assignable();
+        // the compiler only lowers compound assignments of an operand to a local
+        if (assignable.startsWith("v") && random.nextBoolean())
+            line(assignable + " " + pick("+=", "-=") + " " + operand() + ";");
+        else
+            line(assignable + " = " + binaryExpression(0) + ";");
+        return 1;
+    }
+
+    private int generateIf(int budget) {
+        line("if (" + expression(0) + " " + pick("<", "<=", "==", "!=", ">", ">=") + " " + expression(0) + ") {");
+        int used = 1 + generateBlock((budget - 1) / 2);
+        if (used < budget && random.nextBoolean()) {
+            line("} else {");
+            used += generateBlock(budget - used);
+        }
+        line("}");
+        return used;
+    }
+
+    private int generateLoop(int budget) {
+        final String variable = "i" + loopDepth;
+        line(String.format("for (%1$s = 0; %1$s < %2$d; %1$s++) {", variable, 2 + random.nextInt(7)));
+        loopDepth++;
+        final int used = 1 + generateBlock(budget - 1);
+        loopDepth--;
+        line("}");
+        return used;
+    }
+
+    /**
+     * Generates between 1 and {@code budget} statements at one more level of indentation
+     */
+    private int generateBlock(int budget) {
+        indentation++;
+        final int size = 1 + random.nextInt(Math.max(1, Math.min(budget, 8)));
+        int used = 0;
+        while (used < size)
+            used += generateStatement(size - used);
+        indentation--;
+        return used;
+    }
+
+    private String assignable() {
+        var candidates = new ArrayList<String>();
+        for (int i = 0; i < N_LOCALS; i++)
+            candidates.add("v" + i);
+        for (int i = 0; i < shape.nGlobals(); i++)
+            candidates.add("x" + i);
+        for (int i = 0; i < shape.nArrays(); i++)
+            candidates.add("a" + i + "[" + index() + "]");
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private String expression(int depth) {
+        if (depth < MAX_EXPRESSION_DEPTH && random.nextDouble() < 0.5)
+            return "(" + binaryExpression(depth) + ")";
+        return operand();
+    }
+
+    private String binaryExpression(int depth) {
+        return switch (random.nextInt(5)) {
+            case 0 -> expression(depth + 1) + " / " + (2 + random.nextInt(7));
+            case 1 -> expression(depth + 1) + " % " + (2 + random.nextInt(7));
+            default -> expression(depth + 1) + " " + pick("+", "-", "*") + " " + expression(depth + 1);
+        };
+    }
+
+    private String operand() {
+        if (currentMethod > 0 && random.nextDouble() < shape.callDensity())
+            return String.format("m%d(%s, %s)", random.nextInt(currentMethod), operand(), operand());
+        var candidates = new ArrayList<>(List.of("p", "q", String.valueOf(random.nextInt(100))));
+        for (int i = 0; i < N_LOCALS; i++)
+            candidates.add("v" + i);
+        for (int i = 0; i < loopDepth; i++)
+            candidates.add("i" + i);
+        for (int i = 0; i < shape.nGlobals(); i++)
+            candidates.add("x" + i);
+        for (int i = 0; i < shape.nArrays(); i++)
+            candidates.add("a" + i + "[" + index() + "]");
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    /**
+     * @return a loop variable in scope, which counts to less than {@link #ARRAY_SIZE}, or a constant index
+     */
+    private String index() {
+        if (loopDepth > 0 && random.nextBoolean())
+            return "i" + random.nextInt(loopDepth);
+        return String.valueOf(random.nextInt(ARRAY_SIZE));
+    }
+
+    private String pick(String... choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+
+    private void line(String text) {
+        source.append("  ".repeat(indentation))
+              .append(text)
+              .append('\n');
+    }
+}
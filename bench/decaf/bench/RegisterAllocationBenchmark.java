@@ -0,0 +1,28 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.regalloc.LinearScan;
+import decaf.regalloc.LiveIntervalsManager;
+
+public class RegisterAllocationBenchmark extends PhaseBenchmark {
+    private LiveIntervalsManager liveIntervalsManager;
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.ALLOCATE_REGISTERS);
+        liveIntervalsManager = pipeline.computeLiveIntervals();
+    }
+
+    @Benchmark
+    public LiveIntervalsManager liveIntervals() {
+        return pipeline.computeLiveIntervals();
+    }
+
+    @Benchmark
+    public LinearScan linearScan() {
+        return pipeline.linearScan(liveIntervalsManager);
+    }
+}
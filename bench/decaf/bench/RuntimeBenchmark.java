@@ -0,0 +1,190 @@
+package decaf.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.common.Compilation;
+import decaf.common.CompilationContext;
+import decaf.common.NativeExecutable;
+
+/**
+ * Measures how fast the code the compiler emits runs, by linking each input twice, once through the full pipeline and
+ * once with optimization off, and timing both executables.
+ * <p>
+ * Usage: {@code RuntimeBenchmark [runs] [input...]}, where the inputs are named as in {@link Inputs} and default to
+ * {@link Inputs#all() every input}, followed by {@link Inputs#expectedToFail() those expected to fail}. Each executable
+ * runs once to warm the caches up, then {@code runs} times (5 by default); the
+ * median wall time of the runs is reported. If {@code perf} is on the path, each executable also runs once under
+ * {@code perf stat} to count its cycles and instructions; counters perf cannot read are left empty.
+ * <p>
+ * Prints a CSV with one row per input: the median times in milliseconds, the speedup of the optimized executable, the
+ * counters of both and a status. The unoptimized build is only a valid baseline when it computes what the optimized
+ * one does, so an input whose executables print different output or exit codes is flagged {@code different_output},
+ * and one where either executable runs past the timeout is flagged {@code baseline_timeout} or
+ * {@code optimized_timeout}, with its times left empty. The rows of inputs expected to fail are flagged
+ * {@code expected_to_fail} whatever they print. Then prints the geometric mean of the speedups of the inputs flagged
+ * {@code ok}, and the inputs it left out.
+ */
+public class RuntimeBenchmark {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final List<String> PERF_EVENTS = List.of("cycles", "instructions");
+
+    private record Measurement(String output, double medianMillis, Map<String, Long> counters) {
+        static final Measurement TIMED_OUT = new Measurement("", Double.NaN, Map.of());
+
+        boolean timedOut() {
+            return this == TIMED_OUT;
+        }
+
+        String millis() {
+            return timedOut() ? "": String.format("%.3f", medianMillis);
+        }
+
+        String counter(String event) {
+            return counters.containsKey(event) ? String.valueOf(counters.get(event)): "";
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int runs = args.length > 0 ? Integer.parseInt(args[0]): 5;
+        final List<String> inputs = new ArrayList<>();
+        if (args.length > 1) {
+            inputs.addAll(Arrays.asList(args)
+                                .subList(1, args.length));
+        } else {
+            inputs.addAll(Inputs.all());
+            inputs.addAll(Inputs.expectedToFail());
+        }
+        final boolean perfAvailable = isOnPath("perf");
+        final Path directory = Files.createTempDirectory("decaf-runtime");
+
+        var header = new StringBuilder("input,baseline_ms,optimized_ms,speedup");
+        for (var event : PERF_EVENTS)
+            header.append(",baseline_")
+                  .append(event)
+                  .append(",optimized_")
+                  .append(event);
+        System.out.println(header.append(",status"));
+
+        double sumOfLogSpeedups = 0;
+        int nSpeedups = 0;
+        var excluded = new ArrayList<String>();
+        var expectedToFail = new ArrayList<String>();
+        for (var input : inputs) {
+            final boolean inputExpectedToFail = Inputs.isExpectedToFail(input);
+            final String sourceCode = Inputs.sourceOf(input);
+            final Measurement baseline, optimized;
+            try {
+                baseline = measure(sourceCode, false, directory, runs, perfAvailable);
+                optimized = measure(sourceCode, true, directory, runs, perfAvailable);
+            } catch (IOException | RuntimeException e) {
+                System.err.println((inputExpectedToFail ? "failed as expected, ": "skipping ") + input + ": " + e);
+                (inputExpectedToFail ? expectedToFail: excluded).add(input);
+                continue;
+            }
+            final String status = inputExpectedToFail ? "expected_to_fail": status(baseline, optimized);
+            final double speedup = baseline.medianMillis() / optimized.medianMillis();
+            var row = new StringBuilder(input).append(',')
+                                              .append(baseline.millis())
+                                              .append(',')
+                                              .append(optimized.millis())
+                                              .append(',')
+                                              .append(Double.isNaN(speedup) ? "": String.format("%.3f", speedup));
+            for (var event : PERF_EVENTS)
+                row.append(',')
+                   .append(baseline.counter(event))
+                   .append(',')
+                   .append(optimized.counter(event));
+            System.out.println(row.append(',')
+                                  .append(status));
+            if (!status.equals("ok")) {
+                (inputExpectedToFail ? expectedToFail: excluded).add(input);
+                continue;
+            }
+            sumOfLogSpeedups += Math.log(speedup);
+            nSpeedups++;
+        }
+        Files.deleteIfExists(directory);
+        if (nSpeedups > 0)
+            System.err.format("geometric mean speedup over %d inputs: %.3f%n", nSpeedups,
+                    Math.exp(sumOfLogSpeedups / nSpeedups));
+        if (!excluded.isEmpty())
+            System.err.format("left out of the mean: %s%n", String.join(" ", excluded));
+        if (!expectedToFail.isEmpty())
+            System.err.format("expected to fail, left out of the mean: %s%n", String.join(" ", expectedToFail));
+    }
+
+    private static String status(Measurement baseline, Measurement optimized) {
+        if (baseline.timedOut())
+            return "baseline_timeout";
+        if (optimized.timedOut())
+            return "optimized_timeout";
+        return baseline.output()
+                       .equals(optimized.output()) ? "ok": "different_output";
+    }
+
+    private static Measurement measure(String sourceCode, boolean optimize, Path directory, int runs,
+                                       boolean perfAvailable) throws IOException {
+        var compilationContext = new CompilationContext();
+        compilationContext.setOptimizationOn(optimize);
+        final String assembly = new Compilation(sourceCode, compilationContext).compileToAssembly();
+        var executable = NativeExecutable.link(assembly, directory, optimize ? "optimized": "baseline");
+        try {
+            var warmUp = executable.run(TIMEOUT);
+            if (warmUp.timedOut())
+                return Measurement.TIMED_OUT;
+            final double[] millis = new double[runs];
+            for (int i = 0; i < runs; i++)
+                millis[i] = executable.run(TIMEOUT)
+                                      .wallNanos() / 1e6;
+            Arrays.sort(millis);
+            final double median = runs % 2 == 1 ? millis[runs / 2]: (millis[runs / 2 - 1] + millis[runs / 2]) / 2;
+            return new Measurement(
+                    warmUp.stdout() + warmUp.stderr() + "exit " + warmUp.exitCode(),
+                    median,
+                    perfAvailable ? countEvents(executable, directory): Map.of()
+            );
+        } finally {
+            executable.delete();
+        }
+    }
+
+    /**
+     * Runs {@code executable} under {@code perf stat}, whose machine readable output has one line per event:
+     * {@code <count>,<unit>,<event>,...}, with a count of {@code <not supported>} or {@code <not counted>} when the
+     * event cannot be read
+     */
+    private static Map<String, Long> countEvents(NativeExecutable executable, Path directory) throws IOException {
+        final Path statistics = directory.resolve("perf.csv");
+        executable.run(List.of("perf", "stat", "-x,", "-o", statistics.toString(), "-e",
+                String.join(",", PERF_EVENTS), "--"), TIMEOUT);
+        var counters = new LinkedHashMap<String, Long>();
+        if (!Files.exists(statistics))
+            return counters;
+        for (var line : Files.readAllLines(statistics)) {
+            final String[] fields = line.split(",");
+            if (fields.length < 3)
+                continue;
+            final String event = fields[2].replaceFirst(":.*", "");
+            if (PERF_EVENTS.contains(event) && fields[0].matches("\\d+"))
+                counters.put(event, Long.parseLong(fields[0]));
+        }
+        Files.delete(statistics);
+        return counters;
+    }
+
+    private static boolean isOnPath(String program) {
+        final String path = System.getenv("PATH");
+        if (path == null)
+            return false;
+        return Arrays.stream(path.split(java.io.File.pathSeparator))
+                     .anyMatch(directory -> Files.isExecutable(Path.of(directory, program)));
+    }
+}
@@ -0,0 +1,126 @@
+package decaf.bench;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import decaf.common.Compilation;
+import decaf.common.CompilationContext;
+import decaf.common.CompilationProfile;
+
+/**
+ * Times each phase of {@link Compilation} on generated programs of doubling size, to find the phases which grow faster
+ * than their input.
+ * <p>
+ * Usage: {@code ScalingBenchmark [methods|statements] [largest size] [repetitions]}. The {@code methods} series grows
+ * the number of methods of the default {@link ProgramGenerator.Shape shape}; the {@code statements} series grows the
+ * only method of a program, which is what exposes passes that are quadratic in the size of a method. The
+ * {@code arrays} and {@code branches} series grow the number of methods of the default shape with global arrays or
+ * with {@code if}s added; like the inputs of {@link Inputs#expectedToFail()}, they are expected to fail at some sizes,
+ * which are skipped.
+ * <p>
+ * Prints a CSV with one row per size and one column per phase, in milliseconds, the minimum over the repetitions; plot
+ * it with e.g. {@code plot for [col=3:*] 'scaling.csv' using 1:col with lines title columnhead} in gnuplot. Then
+ * prints, for each phase, the slope of its time against the size on a log-log scale: about 1 for a linear phase and
+ * 2 for a quadratic one.
+ */
+public class ScalingBenchmark {
+    private static final double SUPERLINEAR_SLOPE = 1.3;
+
+    public static void main(String[] args) {
+        final String series = args.length > 0 ? args[0]: "methods";
+        final int largestSize = args.length > 1 ? Integer.parseInt(args[1]): 256;
+        final int repetitions = args.length > 2 ? Integer.parseInt(args[2]): 3;
+        final IntFunction<ProgramGenerator.Shape> shapeOfSize = switch (series) {
+            case "methods" -> size -> ProgramGenerator.Shape.defaults()
+                                                            .withMethods(size);
+            case "statements" -> size -> ProgramGenerator.Shape.defaults()
+                                                               .withMethods(1)
+                                                               .withStatements(size);
+            case "arrays", "branches" -> size -> Inputs.shapeOf(series + "/" + size);
+            default -> throw new IllegalArgumentException("unknown series: " + series);
+        };
+        if (series.equals("arrays") || series.equals("branches"))
+            System.err.println("the " + series + " series is expected to fail at some sizes, which are skipped");
+
+        // warms the compiler up, so the smallest size is not charged for class loading and interpretation
+        for (int i = 0; i < repetitions; i++)
+            timePhases(ProgramGenerator.generate(shapeOfSize.apply(8)));
+
+        final var sizes = new ArrayList<Integer>();
+        final var phaseToMillis = new LinkedHashMap<String, List<Double>>();
+        for (int size = 1; size <= largestSize; size *= 2) {
+            final String sourceCode = ProgramGenerator.generate(shapeOfSize.apply(size));
+            Map<String, Double> fastest = new LinkedHashMap<>();
+            try {
+                for (int i = 0; i < repetitions; i++)
+                    timePhases(sourceCode).forEach((phase, millis) -> fastest.merge(phase, millis, Math::min));
+            } catch (RuntimeException e) {
+                System.err.println("skipping size " + size + ", which does not compile: " + e);
+                continue;
+            }
+            if (sizes.isEmpty())
+                System.out.println(series + ",source_lines," + String.join(",", fastest.keySet()));
+            sizes.add(size);
+            fastest.forEach((phase, millis) -> phaseToMillis.computeIfAbsent(phase, key -> new ArrayList<>())
+                                                            .add(millis));
+            var row = new StringBuilder().append(size)
+                                         .append(',')
+                                         .append(sourceCode.lines()
+                                                           .count());
+            fastest.values()
+                   .forEach(millis -> row.append(String.format(",%.3f", millis)));
+            System.out.println(row);
+        }
+
+        System.err.println("log-log slope of each phase:");
+        phaseToMillis.forEach((phase, millis) -> {
+            final double slope = logLogSlope(sizes, millis);
+            System.err.format("  %-20s %5.2f%s%n", phase, slope, slope > SUPERLINEAR_SLOPE ? "  superlinear": "");
+        });
+    }
+
+    /**
+     * @return the wall time of each phase of compiling {@code sourceCode} to assembly, in milliseconds
+     */
+    private static Map<String, Double> timePhases(String sourceCode) {
+        var compilationContext = new CompilationContext();
+        var compilationProfile = new CompilationProfile();
+        compilationContext.setCompilationProfile(compilationProfile);
+        try {
+            new Compilation(sourceCode, compilationContext).compileToAssembly();
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        var phaseToMillis = new LinkedHashMap<String, Double>();
+        for (var phaseRecord : compilationProfile.getPhaseRecords())
+            phaseToMillis.put(phaseRecord.phase(), phaseRecord.cost()
+                                                              .wallNanos() / 1e6);
+        return phaseToMillis;
+    }
+
+    /**
+     * @return the slope of the least squares line through {@code (log size, log millis)}, ignoring phases too fast to
+     * measure
+     */
+    private static double logLogSlope(List<Integer> sizes, List<Double> millis) {
+        double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        int n = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            if (millis.get(i) <= 0)
+                continue;
+            final double x = Math.log(sizes.get(i));
+            final double y = Math.log(millis.get(i));
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+            n++;
+        }
+        final double denominator = n * sumXX - sumX * sumX;
+        return denominator == 0 ? 0: (n * sumXY - sumX * sumY) / denominator;
+    }
+}
@@ -0,0 +1,19 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.ir.SemanticCheckingManager;
+
+public class SemanticCheckBenchmark extends PhaseBenchmark {
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.CHECK_SEMANTICS);
+    }
+
+    @Benchmark
+    public SemanticCheckingManager checkSemantics() {
+        return pipeline.checkSemantics();
+    }
+}
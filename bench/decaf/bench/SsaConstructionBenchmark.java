@@ -0,0 +1,19 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.common.ProgramIr;
+
+public class SsaConstructionBenchmark extends PhaseBenchmark {
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.CONSTRUCT_SSA);
+    }
+
+    @Benchmark
+    public ProgramIr constructSsa() {
+        return pipeline.constructSsa();
+    }
+}
@@ -0,0 +1,19 @@
+package decaf.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import decaf.common.ProgramIr;
+
+public class SsaDeconstructionBenchmark extends PhaseBenchmark {
+    @Setup(Level.Invocation)
+    public void prepare() {
+        pipeline = pipelineUpTo(Pipeline.Step.DECONSTRUCT_SSA);
+    }
+
+    @Benchmark
+    public ProgramIr deconstructSsa() {
+        return pipeline.deconstructSsa();
+    }
+}
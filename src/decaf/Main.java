@@ -4,12 +4,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 
 import decaf.common.Compilation;
-import decaf.common.CompilationContext;
 import decaf.common.TestRunner;
 
 class Main {
     public static void main(String[] args) throws IOException {
-        CompilationContext.setAsmOutputFilename("test.s");
 //        String sourceCode = "import printf; \n void main() {int x; x = (1 + 6 * 3); printf(\"%d\", x);}";
 //        new Compilation(sourceCode).run();
 //          new Compilation(new FileInputStream("tests/misc/simple.dcf"), true).run();
@@ -22,8 +20,7 @@ class Main {
 //            if (!res)
 //                break;
 //        }
-        CompilationContext.setDebugModeOn(true);
-        var res = TestRunner.testCodegenSingleFile("11-big-array.dcf");
+        var res = TestRunner.testCodegenSingleFile("11-big-array.dcf", true);
 
     }
 }
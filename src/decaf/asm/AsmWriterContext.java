@@ -5,11 +5,6 @@ import org.jetbrains.annotations.Nullable;
 import decaf.codegen.codes.FunctionCall;
 
 public class AsmWriterContext {
-    /**
-     * keeps track of whether the {@code .text} label has been added or not
-     */
-    private boolean textAdded = false;
-
     /**
      * Keeps track of the last comparison operator used
      * This is useful for evaluating conditionals
@@ -27,14 +22,6 @@ public class AsmWriterContext {
         this.maxStackSpaceForArgs = Math.max(maxStackSpaceForArgs, (functionCall.getNumArguments() - X86Register.N_ARG_REGISTERS) * 8);
     }
 
-    public boolean isTextLabelAdded() {
-        return textAdded;
-    }
-
-    public void setTextLabelAdded() {
-        textAdded = true;
-    }
-
     @Nullable public String getLastComparisonOperator() {
         return lastComparisonOperator;
     }
@@ -20,7 +20,6 @@ import decaf.asm.instructions.X64NoOperandInstruction;
 import decaf.asm.instructions.X64UnaryInstruction;
 import decaf.asm.instructions.X86MetaData;
 import decaf.asm.operands.X86MemoryAddressComputation;
-import decaf.asm.operands.X86MemoryAddressInRegister;
 import decaf.asm.operands.X86StackMappedValue;
 import decaf.asm.operands.X86Value;
 import decaf.asm.types.X64BinaryInstructionType;
@@ -43,6 +42,7 @@ import decaf.asm.operands.X64CallOperand;
 import decaf.asm.operands.X64JumpTargetOperand;
 import decaf.asm.operands.X86ConstantValue;
 import decaf.asm.operands.X86RegisterMappedValue;
+import decaf.codegen.InstructionList;
 import decaf.codegen.TraceScheduler;
 import decaf.codegen.codes.ArrayBoundsCheck;
 import decaf.codegen.codes.BinaryInstruction;
@@ -62,7 +62,7 @@ import decaf.regalloc.RegisterAllocator;
 
 public class X86AsmWriter implements AsmWriter {
   @NotNull
-  private static final X86Register COPY_TEMP_REGISTER = X86Register.R10;
+  private static final X86Register COPY_TEMP_REGISTER = X86Register.SCRATCH;
   @NotNull
   private final RegisterAllocator registerAllocator;
   @NotNull
@@ -83,7 +83,8 @@ public class X86AsmWriter implements AsmWriter {
 
   public X86AsmWriter(
       @NotNull ProgramIr programIr,
-      @NotNull RegisterAllocator registerAllocator
+      @NotNull RegisterAllocator registerAllocator,
+      @NotNull CompilationContext compilationContext
   ) {
     this.registerAllocator = registerAllocator;
     this.programIr = programIr;
@@ -91,7 +92,7 @@ public class X86AsmWriter implements AsmWriter {
         programIr,
         registerAllocator
     );
-    if (CompilationContext.isDebugModeOn()) {
+    if (compilationContext.isDebugModeOn()) {
       System.out.println(registerAllocator.getVariableToRegisterMap());
     }
     emit();
@@ -113,9 +114,17 @@ public class X86AsmWriter implements AsmWriter {
   }
 
   private void emitProgramPrologue() {
+    x86Program.addPrologue(emitPrologue(programIr.getPrologue()));
+  }
+
+  /**
+   * @return the data section holding the globals and string constants allocated in {@code programPrologue}, followed
+   * by the start of the text section
+   */
+  public static List<X86MetaData> emitPrologue(@NotNull InstructionList programPrologue) {
     var prologue = new ArrayList<X86MetaData>();
     prologue.add(new X86MetaData(".data"));
-    for (Instruction instruction : programIr.getPrologue()) {
+    for (Instruction instruction : programPrologue) {
       if (instruction instanceof StringConstantAllocation stringConstantAllocation) {
         prologue.add(new X86MetaData(stringConstantAllocation.getASM()));
       } else if (instruction instanceof GlobalAllocation globalAllocation) {
@@ -129,11 +138,16 @@ public class X86AsmWriter implements AsmWriter {
         throw new IllegalStateException();
       }
     }
-    x86Program.addPrologue(prologue);
+    prologue.add(new X86MetaData(".text"));
+    return prologue;
   }
 
   private void emitProgramEpilogue() {
-    x86Program.addEpilogue(List.of(new X86MetaData(".subsections_via_symbols")));
+    x86Program.addEpilogue(emitEpilogue());
+  }
+
+  public static List<X86MetaData> emitEpilogue() {
+    return List.of(new X86MetaData(".subsections_via_symbols"));
   }
 
   private void emitMethods() {
@@ -367,9 +381,13 @@ public class X86AsmWriter implements AsmWriter {
       X86Value resolvedArgument,
       X86Value registerCache
   ) {
-    if (resolvedArgument instanceof X86MemoryAddressComputation) {
+    // only a register can go straight to the stack: movq cannot read and write memory at once, and the address of a
+    // string is taken with leaq
+    if (!(resolvedArgument instanceof X86RegisterMappedValue)) {
       x86Method.addLine(new X64BinaryInstruction(
-          X64BinaryInstructionType.movq,
+          resolvedArgument instanceof X86ConstantValue x86ConstantValue &&
+              x86ConstantValue.getValue() instanceof IrStringConstant ? X64BinaryInstructionType.leaq:
+              X64BinaryInstructionType.movq,
           resolvedArgument,
           X86RegisterMappedValue.unassigned(COPY_TEMP_REGISTER)
       ));
@@ -419,11 +437,12 @@ public class X86AsmWriter implements AsmWriter {
       var resolvedArgument = resolvedArguments.get(indexOfArgument);
       var destinationRegister = destinationRegisters.get(indexOfArgument);
 
+      // the moves below are emitted from the last argument to the first, so an argument's register may be
+      // written before an argument on either side of it has been read from it
+      var otherArguments = new ArrayList<>(resolvedArguments);
+      otherArguments.remove(indexOfArgument);
       if (anyResolvedValuesUseRegister(
-          resolvedArguments.subList(
-              indexOfArgument,
-              resolvedArguments.size()
-          ),
+          otherArguments,
           destinationRegister
       )) {
         // we need to schedule the move
@@ -541,11 +560,6 @@ public class X86AsmWriter implements AsmWriter {
     asmWriterContext.setLastComparisonOperator(null);
     currentMethod = method;
 
-    if (!asmWriterContext.isTextLabelAdded()) {
-      x86Method.addLine(new X86MetaData(".text"));
-      asmWriterContext.setTextLabelAdded();
-    }
-
     if (method.isMain()) x86Method.addLine(new X86MetaData(".global _main"))
                                   .addLine(new X86MetaData(".p2align  4, 0x90"));
 
@@ -627,6 +641,8 @@ public class X86AsmWriter implements AsmWriter {
         Type.Int
     ));
 
+    // the locals start right below %rbp, so the callee-saved registers are pushed below them
+    calleeSave();
     x86Method.addAtIndex(
         asmWriterContext.getLocationOfSubqInst(),
         new X64BinaryInstruction(
@@ -635,7 +651,6 @@ public class X86AsmWriter implements AsmWriter {
             X86RegisterMappedValue.unassigned(X86Register.RSP)
         )
     );
-    calleeSave();
     x86Method.addAtIndex(
         asmWriterContext.getLocationOfSubqInst(),
         new X64BinaryInstruction(
@@ -657,13 +672,12 @@ public class X86AsmWriter implements AsmWriter {
         X86RegisterMappedValue.unassigned(X86Register.EAX)
     )): x86Method);
 
+    calleeRestore();
     x86Method.addLine(new X64BinaryInstruction(
         X64BinaryInstructionType.addq,
         space,
         X86RegisterMappedValue.unassigned(X86Register.RSP)
     ));
-
-    calleeRestore();
     x86Method.addLine(new X64BinaryInstruction(
                  X64BinaryInstructionType.movq,
                  X86RegisterMappedValue.unassigned(X86Register.RBP),
@@ -745,9 +759,10 @@ public class X86AsmWriter implements AsmWriter {
   @Override
   public void emitInstruction(@NotNull CopyInstruction copyInstruction) {
     if (!resolveIrValue(copyInstruction.getValue()).equals(resolveIrValue(copyInstruction.getDestination()))) {
+      // movq cannot read and write memory at once, so a load into a spilled value goes through the temp register
       if (resolveIrValue(copyInstruction.getValue()) instanceof X86RegisterMappedValue ||
           resolveIrValue(copyInstruction.getValue()) instanceof X86ConstantValue ||
-      resolveIrValue(copyInstruction.getValue()) instanceof X86MemoryAddressInRegister)
+          resolveIrValue(copyInstruction.getDestination()) instanceof X86RegisterMappedValue)
         x86Method.addLine(new X64BinaryInstruction(
             X64BinaryInstructionType.movq,
             resolveIrValue(copyInstruction.getValue()),
@@ -772,9 +787,80 @@ public class X86AsmWriter implements AsmWriter {
     x86ValueResolver.processGetAddress(getAddress);
   }
 
+  /**
+   * Multiplies by 2^n with a shift, by 3, 5 and 9 with a {@code leaq}, and divides by 2^n with shifts, rounding the
+   * quotient towards zero like {@code idivq}
+   *
+   * @return false if the constant has no cheaper sequence than {@code imulq} or {@code idivq}
+   */
+  private boolean emitByConstant(@NotNull BinaryInstruction binaryInstruction, long constant) {
+    final boolean isPowerOfTwo = constant > 1 && Long.bitCount(constant) == 1;
+    final var shift = new X86ConstantValue(new IrIntegerConstant((long) Long.numberOfTrailingZeros(constant), Type.Int));
+    final var temp = X86RegisterMappedValue.unassigned(COPY_TEMP_REGISTER);
+    switch (binaryInstruction.operator) {
+      case Operators.MULTIPLY -> {
+        if (!isPowerOfTwo && constant != 3 && constant != 5 && constant != 9)
+          return false;
+        x86Method.addLine(new X64BinaryInstruction(
+            X64BinaryInstructionType.movq,
+            resolveIrValue(binaryInstruction.fstOperand),
+            temp
+        ));
+        if (isPowerOfTwo)
+          x86Method.addLine(new X64BinaryInstruction(X64BinaryInstructionType.shlq, shift, temp));
+        else
+          x86Method.addLine(new X64BinaryInstruction(
+              X64BinaryInstructionType.leaq,
+              new X86MemoryAddressComputation(temp, temp, (int) constant - 1),
+              temp
+          ));
+      }
+      case Operators.DIVIDE, Operators.MOD -> {
+        if (!isPowerOfTwo)
+          return false;
+        // a negative dividend is biased by 2^n - 1 so that the arithmetic shift rounds towards zero
+        final var dividend = X86RegisterMappedValue.unassigned(X86Register.RAX);
+        x86Method.addLine(new X64BinaryInstruction(
+                     X64BinaryInstructionType.movq,
+                     resolveIrValue(binaryInstruction.fstOperand),
+                     dividend
+                 ))
+                 .addLine(new X64BinaryInstruction(X64BinaryInstructionType.movq, dividend, temp))
+                 .addLine(new X64BinaryInstruction(
+                     X64BinaryInstructionType.sarq,
+                     new X86ConstantValue(new IrIntegerConstant(63L, Type.Int)),
+                     temp
+                 ))
+                 .addLine(new X64BinaryInstruction(
+                     X64BinaryInstructionType.shrq,
+                     new X86ConstantValue(new IrIntegerConstant(64L - Long.numberOfTrailingZeros(constant), Type.Int)),
+                     temp
+                 ))
+                 .addLine(new X64BinaryInstruction(X64BinaryInstructionType.addq, dividend, temp))
+                 .addLine(new X64BinaryInstruction(X64BinaryInstructionType.sarq, shift, temp));
+        if (binaryInstruction.operator.equals(Operators.MOD))
+          x86Method.addLine(new X64BinaryInstruction(X64BinaryInstructionType.shlq, shift, temp))
+                   .addLine(new X64BinaryInstruction(X64BinaryInstructionType.subq, temp, dividend))
+                   .addLine(new X64BinaryInstruction(X64BinaryInstructionType.movq, dividend, temp));
+      }
+      default -> {
+        return false;
+      }
+    }
+    x86Method.addLine(new X64BinaryInstruction(
+        X64BinaryInstructionType.movq,
+        temp,
+        resolveIrValue(binaryInstruction.getDestination())
+    ));
+    return true;
+  }
+
   @Override
   public void emitInstruction(@NotNull BinaryInstruction binaryInstruction) {
     x86Method.addLine(X86MetaData.blockComment(binaryInstruction.getSource().getSourceCode()));
+    if (binaryInstruction.sndOperand instanceof IrIntegerConstant constant &&
+        emitByConstant(binaryInstruction, constant.getValue()))
+      return;
     switch (binaryInstruction.operator) {
       case Operators.PLUS, Operators.MINUS, Operators.MULTIPLY, Operators.CONDITIONAL_OR, Operators.CONDITIONAL_AND ->
           x86Method.addLine(new X64BinaryInstruction(
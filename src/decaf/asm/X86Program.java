@@ -8,6 +8,8 @@ import decaf.asm.instructions.X64Instruction;
 import decaf.asm.instructions.X86MetaData;
 
 public class X86Program extends ArrayList<X64Instruction> {
+    private final List<X86Method> methods = new ArrayList<>();
+
     public X86Program() {
     }
 
@@ -19,9 +21,17 @@ public class X86Program extends ArrayList<X64Instruction> {
     }
 
     public void addMethod(X86Method x86Method) {
+        methods.add(x86Method);
         addAll(x86Method);
     }
 
+    /**
+     * @return the methods in the order they were added
+     */
+    public List<X86Method> getMethods() {
+        return methods;
+    }
+
     @Override
     public String toString() {
         return stream().map(X64Instruction::toString).collect(Collectors.joining("\n")) + "\n";
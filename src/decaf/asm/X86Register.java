@@ -1,5 +1,7 @@
 package decaf.asm;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -37,6 +39,12 @@ public enum X86Register {
     // this is the order to allocate registers
     // note the argument registers are accessed in reverse order
     public static final List<X86Register> regsToAllocate = List.of(R11, R12, R13, R14, R15, RDX, RCX, R9, R8, RSI, RDI); // use in this order
+    /**
+     * Never allocated nor used to pass arguments, so the code emitted for a single IR instruction may use it as a
+     * temporary, as long as it does not expect the value to survive into the code of the next instruction; every
+     * temporary of {@link X86AsmWriter} and {@link X86ValueResolver} is this register, on those terms
+     */
+    public static final X86Register SCRATCH = R10;
 
     static {
         argumentRegistersOrdering.put(RDI, 1);
@@ -56,6 +64,8 @@ public enum X86Register {
         argumentRegistersOrdering.put(RBP, 15);
         argumentRegistersOrdering.put(RSP, 16);
         argumentRegistersOrdering.put(STACK, 17);
+        checkState(!regsToAllocate.contains(SCRATCH) && !argumentRegisters.contains(SCRATCH),
+                   "%s holds the temporaries of single instructions, it cannot also hold values", SCRATCH);
     }
 
     @Override
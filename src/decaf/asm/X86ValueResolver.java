@@ -4,13 +4,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.min;
 
-import com.google.common.collect.Sets;
-
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -52,6 +51,9 @@ import decaf.regalloc.RegisterAllocator;
  * Resolve names
  */
 public class X86ValueResolver {
+  // the copy temporary of X86AsmWriter too, which is free here since a GetAddress is emitted on its own
+  private static final X86Register INDEX_TEMP_REGISTER = X86Register.SCRATCH;
+
   @NotNull
   private final Map<Method, Map<IrValue, X86RegisterMappedValue>> registerMappedIrValues = new HashMap<>();
   @NotNull
@@ -61,7 +63,8 @@ public class X86ValueResolver {
   @NotNull
   private final Map<Method, Map<IrValue, Integer>> stackOffsets = new HashMap<>();
   @NotNull
-  private final Map<X86Value, Integer> temporarySaveLocations = new HashMap<>();
+  // each method saves registers into its own frame, so a slot must never be reused by another method
+  private final Map<Method, Map<X86Value, Integer>> temporarySaveLocations = new HashMap<>();
   @NotNull
   private final Map<Method, Integer> largestStackOffset = new HashMap<>();
   @NotNull
@@ -282,11 +285,11 @@ public class X86ValueResolver {
     if (irValue instanceof IrIntegerConstant) {
       return Collections.emptySet();
     } else {
-      return Utils.genRegAllocatableValuesFromInstructions(registerAllocator.getLiveIntervalsManager()
-                                                                            .genInstructionsInLiveIntervalOf(
-                                                                                irValue,
-                                                                                currentMethod
-                                                                            ));
+      return registerAllocator.getLiveIntervalsManager()
+                              .genValuesLiveInLiveIntervalOf(
+                                  irValue,
+                                  currentMethod
+                              );
     }
   }
 
@@ -301,23 +304,22 @@ public class X86ValueResolver {
     } else {
       destination = new X86MemoryAddressInStack(resolveStackMappedIrValue(getAddress.getDestination()));
     }
+    preparatoryInstructions.clear();
     // get base index
     var indexValue = resolveIrValueInternal(getAddress.getIndex());
     if (indexValue instanceof X86StackMappedValue || indexValue instanceof X86MemoryAddressComputation ||
         (getAddress.getBaseAddress() instanceof IrGlobalArray && !(indexValue instanceof X86RegisterMappedValue))) {
-      // we should spill
-      // try to avoid base register if possible
-      var toAvoid = new ArrayList<X86Register>();
-      if (isRegisterMappedIrValue(getAddress.getBaseAddress()))
-        toAvoid.add(getRegisterOrFail(getAddress.getBaseAddress()));
-
+      // the index only has to be in a register for the leaq, and a constant has no live interval to pick a free
+      // register by, so it goes through the register nothing is allocated to
       indexRegister = new X86RegisterMappedValue(
-          genRegisterToSpill(
-              getAddress.getIndex(),
-              toAvoid
-          ),
+          INDEX_TEMP_REGISTER,
           getAddress.getIndex()
       );
+      currentX86Method.add(new X64BinaryInstruction(
+          X64BinaryInstructionType.movq,
+          indexValue,
+          indexRegister
+      ));
       indexValue = indexRegister;
     }
     if (getAddress.getBaseAddress() instanceof IrStackArray irStackArray) {
@@ -344,6 +346,7 @@ public class X86ValueResolver {
             ),
             getAddress.getBaseAddress()
         );
+        currentX86Method.addAll(preparatoryInstructions);
       } else {
         baseRegister = (X86RegisterMappedValue) baseValue;
       }
@@ -374,7 +377,7 @@ public class X86ValueResolver {
       ArrayList<X86Register> toAvoid
   ) {
     final var liveValuesInInterval = getVariablesInLiveIntervalOf(irValue);
-    final var m = new HashMap<X86Register, Set<IrValue>>();
+    final var m = new EnumMap<X86Register, Set<IrValue>>(X86Register.class);
     for (var irSsaRegister : liveValuesInInterval) {
       var location = registerMappedIrValues.get(currentMethod)
                                            .get(irSsaRegister);
@@ -602,13 +605,11 @@ public class X86ValueResolver {
         0,
         nUsedArgRegisters
     ));
-    return List.copyOf(Sets.difference(
-        Set.copyOf(X86Register.regsToAllocate),
-        Sets.union(
-            usedArgRegisters,
-            valueMappedRegisters
-        )
-    ));
+    // keep the allocation order, so that the choice does not depend on how the sets happen to iterate
+    return X86Register.regsToAllocate.stream()
+                                     .filter(register -> !usedArgRegisters.contains(register) &&
+                                         !valueMappedRegisters.contains(register))
+                                     .toList();
   }
 
   public void prepareForMethod(
@@ -632,13 +633,17 @@ public class X86ValueResolver {
   }
 
   public X86Value resolveNextStackLocation(@NotNull X86Value x86Value) {
-    if (temporarySaveLocations.containsKey(x86Value)) return new X86StackMappedValue(
+    var saveLocations = temporarySaveLocations.computeIfAbsent(
+        currentMethod,
+        k -> new HashMap<>()
+    );
+    if (saveLocations.containsKey(x86Value)) return new X86StackMappedValue(
         X86Register.RBP,
-        temporarySaveLocations.get(x86Value)
+        saveLocations.get(x86Value)
     );
     else {
       var newLocation = pushStack();
-      temporarySaveLocations.put(
+      saveLocations.put(
           x86Value,
           newLocation
       );
@@ -14,17 +14,31 @@ import decaf.codegen.names.IrIntegerConstant;
 public class X86MemoryAddressComputation extends X86Value {
   private final X86Value base;
   private final X86Value index;
+  private final int scale;
 
   public X86MemoryAddressComputation(
       @NotNull X86Value base,
       @NotNull X86Value index
+  ) {
+    this(base, index, Utils.WORD_SIZE);
+  }
+
+  /**
+   * @param scale what {@code index} is multiplied by, 1, 2, 4 or 8
+   */
+  public X86MemoryAddressComputation(
+      @NotNull X86Value base,
+      @NotNull X86Value index,
+      int scale
   ) {
     super(null);
+    checkState(scale == 1 || scale == 2 || scale == 4 || scale == 8, "scale = " + scale);
       checkState(base instanceof X86RegisterMappedValue && index instanceof X86RegisterMappedValue ||
           base instanceof X86StackMappedValue &&
               (index instanceof X86ConstantValue || index instanceof X86RegisterMappedValue), String.format("base = %s, index = %s", base, index));
     this.base = base;
     this.index = index;
+    this.scale = scale;
   }
 
   public X86Value getBase() {
@@ -45,7 +59,7 @@ public class X86MemoryAddressComputation extends X86Value {
       return String.format("(%s,%s,%s)",
           base,
           index,
-          8);
+          scale);
     }
     else {
       var stackMappedArray = (X86StackMappedValue) base;
@@ -53,7 +67,7 @@ public class X86MemoryAddressComputation extends X86Value {
         checkState(x86ConstantValue.getValue() instanceof IrIntegerConstant);
         var offset = ((IrIntegerConstant) x86ConstantValue.getValue()).getValue();
         return String.format("%s(%s)",
-            stackMappedArray.getOffset() + (offset * Utils.WORD_SIZE),
+            stackMappedArray.getOffset() + (offset * scale),
             X86Register.RBP);
       } else {
         checkState(index instanceof X86RegisterMappedValue);
@@ -61,7 +75,7 @@ public class X86MemoryAddressComputation extends X86Value {
             stackMappedArray.getOffset(),
             X86Register.RBP,
             index,
-            8);
+            scale);
       }
     }
   }
@@ -12,7 +12,10 @@ public enum X64BinaryInstructionType {
     xorl,
     leaq,
     movq,
-    movzbq, xorq;
+    movzbq, xorq,
+    shlq,
+    sarq,
+    shrq;
 
     public static X64BinaryInstructionType getX64BinaryInstruction(String operator) {
         switch (operator) {
@@ -380,7 +380,10 @@ public class BasicBlock {
   }
 
 
-  public BasicBlock split(int index) {
+  public BasicBlock split(
+      int index,
+      @NotNull IndexManager indexManager
+  ) {
     checkArgument(index >= 0);
     checkArgument(index < getInstructionList().size());
 
@@ -403,7 +406,7 @@ public class BasicBlock {
 
     this.getTributaries().clear();
     newBasicBlock.getInstructionList().setLabel(this.getInstructionList().getLabel());
-    this.getInstructionList().setLabel(IndexManager.genLabelIndex());
+    this.getInstructionList().setLabel(indexManager.genLabelIndex());
     return newBasicBlock;
   }
 
@@ -56,14 +56,17 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
   private final SymbolTable symbolTable;
   private final HashMap<String, IrStringConstant> stringLiteralMapping;
   private final Map<String, IrValue> cachedAddresses = new HashMap<>();
+  private final IndexManager indexManager;
 
   public AstToInstructionListConverter(
       SymbolTable symbolTable,
       HashMap<String, IrStringConstant> stringLiteralMapping,
-      Set<IrValue> irGlobals
+      Set<IrValue> irGlobals,
+      IndexManager indexManager
   ) {
     this.symbolTable = symbolTable;
     this.stringLiteralMapping = stringLiteralMapping;
+    this.indexManager = indexManager;
     for (var global : irGlobals) {
       cachedAddresses.put(
           global.getLabel(),
@@ -115,7 +118,7 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
     if (!(indexInstructionList.getPlace() instanceof IrIntegerConstant)) {
       locationArrayInstructionList.add(new ArrayBoundsCheck(
           getAddressInstruction,
-          IndexManager.getNextArrayBoundsCheckLabelIndex()
+          indexManager.getNextArrayBoundsCheckLabelIndex()
       ));
     }
     locationArrayInstructionList.setPlace(getAddressInstruction.getDestination());
@@ -139,7 +142,10 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
   }
 
   private IrAssignable resolveStoreLocation(Type type) {
-    return IrSsaRegister.gen(type);
+    return IrSsaRegister.gen(
+        type,
+        indexManager
+    );
   }
 
   private IrAssignable resolveStoreLocation(
@@ -154,7 +160,7 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
       Type type
   ) {
     return new IrMemoryAddress(
-        IndexManager.genRegisterIndex(),
+        indexManager.genRegisterIndex(),
         Type.lower(type)
     );
   }
@@ -330,7 +336,10 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
             1L,
             Type.Int
         );
-        var dest = IrSsaRegister.gen(lhs.getType());
+        var dest = IrSsaRegister.gen(
+            lhs.getType(),
+            indexManager
+        );
         var inst = switch (op) {
           case Operators.ADD_ASSIGN -> new BinaryInstruction(
               dest,
@@ -406,7 +415,10 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
         var type = assignment.assignExpr.expression.getType();
         operandInstructionList = assignment.assignExpr.expression.accept(
             this,
-            IrSsaRegister.gen(type)
+            IrSsaRegister.gen(
+                type,
+                indexManager
+            )
         );
       } else {
         operandInstructionList = assignment.assignExpr.expression.accept(
@@ -607,7 +619,10 @@ class AstToInstructionListConverter implements CodegenAstVisitor<InstructionList
           Type.Int
       ));
     } else {
-      var temporaryVariable = IrSsaRegister.gen(expressionParameter.expression.getType());
+      var temporaryVariable = IrSsaRegister.gen(
+          expressionParameter.expression.getType(),
+          indexManager
+      );
       InstructionList expressionInstructionList = expressionParameter.expression.accept(
           this,
           resultLocation
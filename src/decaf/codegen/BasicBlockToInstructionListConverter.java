@@ -40,12 +40,15 @@ public class BasicBlockToInstructionListConverter {
   private final HashMap<String, SymbolTable> perMethodSymbolTables;
   private final ProgramIr programIr;
   private final HashMap<String, IrStringConstant> stringConstantsMap = new HashMap<>();
+  private final IndexManager indexManager;
 
   private AstToInstructionListConverter currentAstToInstructionListConverter;
   private NOP currentMethodExitNop;
 
     public BasicBlockToInstructionListConverter(
-            ControlFlowGraph controlFlowGraph) {
+            ControlFlowGraph controlFlowGraph,
+            IndexManager indexManager) {
+        this.indexManager = indexManager;
         var symbolTableFlattener = new SymbolTableFlattener(controlFlowGraph.getGlobalDescriptor());
         this.perMethodSymbolTables = symbolTableFlattener.createCFGSymbolTables();
         var prologue = getPrologue(controlFlowGraph.getProgram());
@@ -61,7 +64,7 @@ public class BasicBlockToInstructionListConverter {
                                         .orElseThrow(() -> new IllegalStateException("expected to find method " + methodName))
                                 , entryBlock.getSuccessor(), perMethodSymbolTables.get(methodName))));
         this.programIr = new ProgramIr(prologue, methods);
-        this.programIr.renumberLabels();
+        this.programIr.renumberLabels(indexManager);
     }
 
   public HashMap<String, SymbolTable> getPerMethodSymbolTables() {
@@ -79,7 +82,8 @@ public class BasicBlockToInstructionListConverter {
   ) {
     currentAstToInstructionListConverter = new AstToInstructionListConverter(currentSymbolTable,
         stringConstantsMap,
-        globalNames);
+        globalNames,
+        indexManager);
 
 //
 //        methodInstructionList.addAll(
@@ -117,6 +121,24 @@ public class BasicBlockToInstructionListConverter {
   }
 
   private InstructionList getPrologue(Program program) {
+    var prologue = createPrologue(program, indexManager);
+    globalNames.addAll(prologue.stream()
+                               .flatMap(instruction -> instruction.genIrValuesFiltered(IrValuePredicates.isGlobal())
+                                                                  .stream())
+                               .collect(Collectors.toUnmodifiableSet()));
+    for (var instruction : prologue) {
+      if (instruction instanceof StringConstantAllocation stringConstantAllocation)
+        stringConstantsMap.put(stringConstantAllocation.getStringConstant()
+                                                       .getValue(),
+            stringConstantAllocation.getStringConstant());
+    }
+    return prologue;
+  }
+
+  /**
+   * @return the allocations of the global variables of {@code program} and of the string literals in its methods
+   */
+  public static InstructionList createPrologue(Program program, IndexManager indexManager) {
     var prologue = new InstructionList();
     for (var fieldDeclaration : program.fieldDeclarationList) {
       for (var name : fieldDeclaration.names) {
@@ -141,21 +163,13 @@ public class BasicBlockToInstructionListConverter {
             "# " + array.getSourceCode()));
       }
     }
-    globalNames.addAll(prologue.stream()
-                               .flatMap(instruction -> instruction.genIrValuesFiltered(IrValuePredicates.isGlobal())
-                                                                  .stream())
-                               .collect(Collectors.toUnmodifiableSet()));
-
     for (String stringLiteral : findAllStringLiterals(program)) {
-      final var stringConstant = new IrStringConstant(stringLiteral);
-      prologue.add(new StringConstantAllocation(stringConstant));
-      stringConstantsMap.put(stringLiteral,
-          stringConstant);
+      prologue.add(new StringConstantAllocation(new IrStringConstant(stringLiteral, indexManager)));
     }
     return prologue;
   }
 
-  private Set<String> findAllStringLiterals(Program program) {
+  private static Set<String> findAllStringLiterals(Program program) {
     var literalList = new HashSet<String>();
     var toExplore = new Stack<AST>();
 
@@ -207,7 +221,7 @@ public class BasicBlockToInstructionListConverter {
     var condition = basicBlockWithBranch.getBranchCondition()
                                         .orElseThrow();
     var conditionInstructionList = condition.accept(currentAstToInstructionListConverter,
-                                                    IrSsaRegister.gen(Type.Bool));
+                                                    IrSsaRegister.gen(Type.Bool, indexManager));
 
     visit(basicBlockWithBranch.getTrueTarget());
     visit(basicBlockWithBranch.getFalseTarget());
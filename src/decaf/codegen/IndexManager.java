@@ -1,48 +1,77 @@
 package decaf.codegen;
 
+import com.google.common.hash.Hashing;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hands out the register, label, string literal and bounds check indices of a single compilation.
+ * <p>
+ * The methods are synchronized because the per-method optimization passes of one compilation may run in parallel.
+ * <p>
+ * With {@link #setStableLabels stable labels}, the labels of string constants and basic blocks do not depend on the
+ * rest of the program, so the assembly of a method can be reused in a later compilation of a different program.
+ */
 public class IndexManager {
-    public static int boundsCheckIndex = -1;
-    public static int highestValue = 0;
-    private static int variableIndex = -1;
-    private static int labelIndex = -1;
-    private static int stringLiteralIndex = -1;
+    private int boundsCheckIndex = -1;
+    private int highestValue = 0;
+    private int variableIndex = -1;
+    private int labelIndex = -1;
+    private int stringLiteralIndex = -1;
+    private boolean stableLabels;
 
 
-    private IndexManager() {
+    public IndexManager() {
     }
 
-    public static int getNextArrayBoundsCheckLabelIndex() {
+    public synchronized int getNextArrayBoundsCheckLabelIndex() {
         ++boundsCheckIndex;
         return boundsCheckIndex;
     }
 
-    public static void setTempVariableIndexToHighestValue() {
+    public synchronized void setTempVariableIndexToHighestValue() {
         highestValue = Math.max(highestValue, variableIndex);
         variableIndex = highestValue;
     }
 
-    public static void reset() {
+    public synchronized void reset() {
         highestValue = Math.max(highestValue, variableIndex);
         variableIndex = -1;
     }
 
-    public static int genRegisterIndex() {
+    public synchronized int genRegisterIndex() {
         ++variableIndex;
         return variableIndex;
     }
 
-    public static int genLabelIndex() {
+    public synchronized int genLabelIndex() {
         ++labelIndex;
         return labelIndex;
     }
 
-    public static void resetLabels() {
+    public synchronized void resetLabels() {
         labelIndex = 0;
     }
 
-    public static String genStringConstantLabel() {
+    public synchronized String genStringConstantLabel(String content) {
+        if (stableLabels)
+            return "string_" + Hashing.sha256()
+                                      .hashString(content, StandardCharsets.UTF_8)
+                                      .toString()
+                                      .substring(0, 16);
         ++stringLiteralIndex;
         return "string_" + stringLiteralIndex;
     }
-}
\ No newline at end of file
+
+    public synchronized boolean hasStableLabels() {
+        return stableLabels;
+    }
+
+    /**
+     * Names string constants by a hash of their content and basic blocks by their method and position in it, instead
+     * of by counters shared by the whole program
+     */
+    public synchronized void setStableLabels(boolean stableLabels) {
+        this.stableLabels = stableLabels;
+    }
+}
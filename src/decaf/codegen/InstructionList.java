@@ -83,6 +83,21 @@ public class InstructionList extends ArrayList<Instruction> {
         addAll(newCodes);
     }
 
+    /**
+     * A counter which changes whenever instructions are added, removed or replaced in this list.
+     * Analyses computed over a list can compare this value to decide whether their results are stale.
+     */
+    public int getModificationCount() {
+        return modCount;
+    }
+
+    @Override
+    public Instruction set(int index, Instruction instruction) {
+        // ArrayList does not treat set as a structural modification, but replacing an instruction invalidates analyses
+        modCount++;
+        return super.set(index, instruction);
+    }
+
     public void replaceIfContainsInstructionAtIndex(int indexOfOldCode, Instruction oldCode, Instruction newCode) {
         if (get(indexOfOldCode) != oldCode) {
             throw new IllegalArgumentException(oldCode + "not found in Instruction List");
@@ -7,7 +7,6 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.function.Predicate;
 
 import decaf.asm.AsmWriter;
@@ -20,7 +19,11 @@ import decaf.codegen.names.IrValue;
 public abstract class Instruction {
   public static final String INDENT = "    ";
   public static final String DOUBLE_INDENT = INDENT + INDENT;
-  private final UUID uuid;
+  /**
+   * Marks an instruction which has not been numbered by {@link Method#numberInstructions()} yet
+   */
+  public static final int UNNUMBERED = -1;
+  private int id = UNNUMBERED;
   private AST source;
   private String comment;
 
@@ -30,7 +33,6 @@ public abstract class Instruction {
   ) {
     this.comment = comment;
     this.setSource(source);
-    uuid = UUID.randomUUID();
   }
 
   public Instruction(AST source) {
@@ -47,8 +49,17 @@ public abstract class Instruction {
     );
   }
 
-  public UUID getUuid() {
-    return uuid;
+  /**
+   * @return the dense index of this instruction within its method, or {@link #UNNUMBERED}
+   * @implNote ids are only meaningful until the method is changed and numbered again, so any array keyed by them
+   * should also keep the instruction it was built for and check it before trusting the slot
+   */
+  public int getId() {
+    return id;
+  }
+
+  void setId(int id) {
+    this.id = id;
   }
 
   public Optional<String> getComment() {
@@ -1,5 +1,6 @@
 package decaf.codegen.codes;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -8,6 +9,7 @@ import decaf.asm.AsmWriter;
 import decaf.ast.MethodDefinition;
 import decaf.codegen.InstructionList;
 import decaf.codegen.names.IrSsaRegister;
+import decaf.common.StronglyConnectedComponentsTarjan;
 import decaf.common.Utils;
 import decaf.cfg.BasicBlock;
 import decaf.codegen.names.IrValue;
@@ -133,6 +135,24 @@ public class Method extends Instruction {
     this.exitBlock = exitBlock;
   }
 
+  /**
+   * Gives every instruction reachable from the entry block an id from a monotonic counter which starts at zero for
+   * this method, visiting the basic blocks in reverse post order.
+   * The ids are dense, so analyses can key arrays by {@link Instruction#getId()} instead of hashing instructions.
+   *
+   * @return the numbered instructions, such that {@code numberInstructions().get(i).getId() == i}
+   */
+  public List<Instruction> numberInstructions() {
+    var instructions = new ArrayList<Instruction>();
+    for (var basicBlock : StronglyConnectedComponentsTarjan.getReversePostOrder(entryBlock)) {
+      for (var instruction : basicBlock.getInstructionList()) {
+        instruction.setId(instructions.size());
+        instructions.add(instruction);
+      }
+    }
+    return instructions;
+  }
+
   public boolean isHasRuntimeException() {
     return hasRuntimeException;
   }
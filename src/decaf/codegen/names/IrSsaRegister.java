@@ -42,8 +42,8 @@ public class IrSsaRegister extends IrRegister implements IrRegisterAllocatable {
         this.versionNumber = irSsaRegister.versionNumber;
     }
 
-    public static IrSsaRegister gen(Type type) {
-        return new IrSsaRegister(IndexManager.genRegisterIndex(), type);
+    public static IrSsaRegister gen(Type type, IndexManager indexManager) {
+        return new IrSsaRegister(indexManager.genRegisterIndex(), type);
     }
 
 
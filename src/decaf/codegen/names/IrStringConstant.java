@@ -9,8 +9,8 @@ public class IrStringConstant extends IrConstant {
     private final String content;
     private final String contentEscaped;
 
-    public IrStringConstant(String content) {
-        super(Type.String, IndexManager.genStringConstantLabel());
+    public IrStringConstant(String content, IndexManager indexManager) {
+        super(Type.String, indexManager.genStringConstantLabel(content));
         this.content = content;
         this.contentEscaped = content.substring(1, content.length() - 1).translateEscapes();
     }
@@ -1,11 +1,8 @@
 package decaf.codegen.names;
 
-import java.util.UUID;
-
 import decaf.ast.Type;
 
 public abstract class IrValue {
-  protected final UUID uuid;
   protected Type type;
   protected String label;
 
@@ -15,11 +12,6 @@ public abstract class IrValue {
   ) {
     this.type = type;
     this.label = label;
-    uuid = UUID.randomUUID();
-  }
-
-  public UUID getUuid() {
-    return uuid;
   }
 
   public Type getType() {
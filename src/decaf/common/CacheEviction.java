@@ -0,0 +1,70 @@
+package decaf.common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bounds the size of a cache kept as one file per entry: the modification time of an entry is the last time it was
+ * used, and the entries used least recently are deleted first.
+ */
+final class CacheEviction {
+    private CacheEviction() {
+    }
+
+    /**
+     * Marks the entry at {@code path} as just used
+     */
+    static void touch(Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+    }
+
+    /**
+     * Deletes the least recently used entries of {@code directory}, the files whose name ends with {@code suffix},
+     * until they hold at most {@code maxBytes}
+     *
+     * @return the number of entries deleted
+     */
+    static int evictLeastRecentlyUsed(Path directory, String suffix, long maxBytes) {
+        record CachedFile(Path path, long size, FileTime lastUsed) {
+        }
+        final List<CachedFile> cachedFiles = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (var path : paths.filter(path -> path.getFileName()
+                                                     .toString()
+                                                     .endsWith(suffix))
+                                 .toList()) {
+                try {
+                    cachedFiles.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path)));
+                } catch (IOException e) {
+                    // evicted by a concurrent compilation
+                }
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+        long size = cachedFiles.stream()
+                               .mapToLong(CachedFile::size)
+                               .sum();
+        cachedFiles.sort(Comparator.comparing(CachedFile::lastUsed));
+        int evictions = 0;
+        for (int i = 0; i < cachedFiles.size() && size > maxBytes; i++) {
+            try {
+                if (Files.deleteIfExists(cachedFiles.get(i)
+                                                    .path()))
+                    evictions++;
+            } catch (IOException e) {
+                continue;
+            }
+            size -= cachedFiles.get(i)
+                               .size();
+        }
+        return evictions;
+    }
+}
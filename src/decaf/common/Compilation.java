@@ -1,16 +1,27 @@
 package decaf.common;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Set;
 
 import decaf.dataflow.DataflowOptimizer;
+import decaf.dataflow.OptimizationPassType;
+import decaf.exceptions.CompilationFailedException;
 import decaf.grammar.DecafParser;
 import decaf.ssa.SSA;
 import decaf.asm.X86AsmWriter;
@@ -19,20 +30,27 @@ import decaf.cfg.ControlFlowGraph;
 import decaf.codegen.BasicBlockToInstructionListConverter;
 import decaf.dataflow.passes.InstructionSimplifyIrPass;
 import decaf.grammar.DecafScanner;
+import decaf.grammar.ScannerInput;
 import decaf.grammar.Token;
 import decaf.ir.SemanticCheckingManager;
+import decaf.regalloc.RegisterAllocationStrategy;
 import decaf.regalloc.RegisterAllocator;
 
 public class Compilation {
-  private final static String osName = System.getProperty("os.name")
-                                             .replaceAll(
-                                                 "\\s",
-                                                 ""
-                                             )
-                                             .toLowerCase(Locale.ROOT);
+  /**
+   * Bump whenever a change to the compiler changes the assembly it emits; it only tells builds apart when their class
+   * files cannot be found, see {@link #COMPILER_VERSION}
+   */
+  private static final String RELEASE = "2";
+  /**
+   * Identifies the code generator in cache keys: a hash of the class files of the compiler, or of the jar they are
+   * packaged in, so that a rebuilt compiler never reuses assembly cached by an earlier build
+   */
+  public static final String COMPILER_VERSION = compilerVersion();
   private final int nLinesRemovedByAssemblyOptimizer = 0;
+  private final CompilationContext compilationContext;
   String output = null;
-  private String sourceCode;
+  private ScannerInput sourceCode;
   private DecafScanner scanner;
   private DecafParser parser;
   private SemanticCheckingManager semanticChecker;
@@ -43,34 +61,83 @@ public class Compilation {
   private PrintStream outputStream;
   private CompilationState compilationState;
   private double nLinesOfCodeReductionFactor = 0.0D;
+  private String assembly;
+  // set when the context has an incremental cache directory
+  private IncrementalCompilation incrementalCompilation;
+  // set when the context has a compilation cache and the whole source is at hand
+  private String compilationCacheKey;
+  private boolean compilationCacheHit;
+  // set by compileToAssembly: errors are thrown instead of exiting and nothing is written to the output stream
+  private boolean embedded;
 
   public Compilation(
       String filenameOrSourceCode,
       boolean debug,
       boolean isFilename
   ) throws FileNotFoundException {
+    this.compilationContext = new CompilationContext();
     if (isFilename) {
-      CompilationContext.setAsmOutputFilename(filenameOrSourceCode);
+      compilationContext.setAsmOutputFilename(filenameOrSourceCode);
       specificTestFileInitialize(new FileInputStream(filenameOrSourceCode));
     } else {
-      this.sourceCode = filenameOrSourceCode;
+      this.sourceCode = ScannerInput.of(filenameOrSourceCode);
     }
     initialize();
-    CompilationContext.setDebugModeOn(debug);
+    compilationContext.setDebugModeOn(debug);
+  }
+
+  public Compilation(
+      String sourceCode,
+      CompilationContext compilationContext
+  ) throws FileNotFoundException {
+    this.compilationContext = compilationContext;
+    this.sourceCode = ScannerInput.of(sourceCode);
+    initialize();
+  }
+
+  /**
+   * Compiles the file at {@code path}, which is mapped into memory rather than read into a string
+   */
+  public Compilation(
+      Path path,
+      CompilationContext compilationContext
+  ) throws IOException {
+    this.compilationContext = compilationContext;
+    this.sourceCode = ScannerInput.map(path);
+    initialize();
   }
 
-  public Compilation() throws FileNotFoundException {
+  /**
+   * Scans and parses {@code reader} in step, without reading the whole source into memory first; error messages
+   * only quote the lines which are still buffered
+   */
+  public Compilation(
+      Reader reader,
+      CompilationContext compilationContext
+  ) throws FileNotFoundException {
+    this.compilationContext = compilationContext;
+    this.sourceCode = ScannerInput.of(reader);
+    initialize();
+  }
+
+  public Compilation(CompilationContext compilationContext) throws IOException {
+    this.compilationContext = compilationContext;
     defaultInitialize();
     initialize();
   }
 
+  public Compilation() throws IOException {
+    this(new CompilationContext());
+  }
+
   public Compilation(
       InputStream inputStream,
       boolean debug
   ) throws FileNotFoundException {
+    this.compilationContext = new CompilationContext();
     specificTestFileInitialize(inputStream);
     initialize();
-    CompilationContext.setDebugModeOn(debug);
+    compilationContext.setDebugModeOn(debug);
   }
 
   public Compilation(
@@ -85,10 +152,15 @@ public class Compilation {
   }
 
   public Compilation(InputStream inputStream) throws FileNotFoundException {
+    this.compilationContext = new CompilationContext();
     specificTestFileInitialize(inputStream);
     initialize();
   }
 
+  public CompilationContext getCompilationContext() {
+    return compilationContext;
+  }
+
   public int getNLinesRemovedByAssemblyOptimizer() {
     return nLinesRemovedByAssemblyOptimizer;
   }
@@ -101,9 +173,53 @@ public class Compilation {
     return parser.getRoot();
   }
 
+  /**
+   * @return the methods whose assembly was taken from the incremental cache instead of being compiled
+   */
+  public Set<String> getReusedMethods() {
+    return incrementalCompilation == null ? Set.of(): incrementalCompilation.getReusedMethods();
+  }
+
+  /**
+   * @return whether the assembly was taken from the context's {@link CompilationCache} instead of being compiled
+   */
+  public boolean isCompilationCacheHit() {
+    return compilationCacheHit;
+  }
+
+  /**
+   * @return the hits, misses and evictions of the context's {@link CompilationCache}, over every compilation which
+   * shares it
+   */
+  public CompilationCache.Statistics getCompilationCacheStatistics() {
+    var compilationCache = compilationContext.getCompilationCache();
+    return compilationCache == null ? new CompilationCache.Statistics(0, 0, 0): compilationCache.getStatistics();
+  }
+
   private void runNextStep() {
+    runPhase(this::runStep);
+  }
+
+  /**
+   * Runs {@code phase} and, if the context has a profile, records its cost under the state it reaches
+   */
+  private void runPhase(Runnable phase) {
+    var compilationProfile = compilationContext.getCompilationProfile();
+    if (compilationProfile == null) {
+      phase.run();
+      return;
+    }
+    var start = CompilationProfile.Sample.now();
+    phase.run();
+    if (programIr == null) compilationProfile.recordPhase(compilationState.name(), start);
+    else compilationProfile.recordPhase(compilationState.name(), start, programIr.getMethods());
+  }
+
+  private void runStep() {
     switch (compilationState) {
-      case INITIALIZED -> System.out.println("starting!");
+      case INITIALIZED -> {
+        if (compilationContext.isDebugModeOn()) System.err.println("starting!");
+      }
       case SCANNED -> runParser();
       case PARSED -> runSemanticsChecker();
       case SEM_CHECKED -> generateCFGs();
@@ -112,109 +228,152 @@ public class Compilation {
       case SSA_GENERATED -> runDataflowOptimizationPasses();
       case DATAFLOW_OPTIMIZED -> generateAssembly();
       case ASSEMBLED -> compileAssembly();
-      case COMPLETED -> System.out.println("done!");
+      case COMPLETED -> {
+        if (compilationContext.isDebugModeOn()) System.err.println("done!");
+      }
       default -> throw new IllegalStateException("Unexpected value: " + compilationState);
     }
   }
 
+  /**
+   * Links the assembly into an executable with the system C compiler, runs it for at most 30 seconds and keeps what
+   * it printed in {@link #output}
+   */
   private void compileAssembly() {
     assert compilationState == CompilationState.ASSEMBLED;
-    if (osName.equals("macosx")) {
-      try {
-        var process = Runtime.getRuntime()
-                             .exec("clang " + "/Users/erastusmurungi/IdeaProjects/compiler/test.s" +
-                                       " -mllvm --x86-asm-syntax=att -o main");
-        process.waitFor();
-        if (CompilationContext.isDebugModeOn()) {
-          System.out.println(Utils.getStringFromInputStream(process.getErrorStream()));
-          System.out.println(Utils.getStringFromInputStream(process.getInputStream()));
-        }
-      } catch (IOException e) {
-        e.printStackTrace();
-      } catch (InterruptedException e) {
-        throw new RuntimeException(e);
-      }
-      try {
-        var process = Runtime.getRuntime()
-                             .exec("/Users/erastusmurungi/IdeaProjects/compiler/main");
-        process.waitFor(
-            30,
-            TimeUnit.SECONDS
-        );
-        if (process.exitValue() == 0 || process.isAlive()) output =
-            Utils.getStringFromInputStream(process.getErrorStream()) +
-                Utils.getStringFromInputStream(process.getInputStream());
-        else output = "TIMEOUT";
-        if (CompilationContext.isDebugModeOn()) System.out.println(output);
-      } catch (IOException e) {
-        e.printStackTrace();
-      } catch (InterruptedException e) {
-        throw new RuntimeException(e);
-      }
-    } else {
-      throw new IllegalStateException("only darwin platform is supported not : " + osName);
+    try {
+      var directory = Files.createTempDirectory("decaf");
+      var executable = NativeExecutable.link(
+          assembly,
+          directory,
+          "main"
+      );
+      var execution = executable.run(Duration.ofSeconds(30));
+      if (execution.timedOut()) output = "TIMEOUT";
+      else output = execution.stderr() + execution.stdout();
+      if (compilationContext.isDebugModeOn()) System.out.println(output);
+      executable.delete();
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      e.printStackTrace();
     }
     compilationState = CompilationState.COMPLETED;
   }
 
+  /**
+   * Runs every phase up to and including code generation and returns the assembly, without writing it to the output
+   * stream or invoking the system assembler.
+   * <p>
+   * Scanner, parser and semantic errors are thrown as a {@link CompilationFailedException} instead of exiting the JVM,
+   * so this is safe to call from a long-running process.
+   */
+  public String compileToAssembly() {
+    embedded = true;
+    if (!loadCachedAssembly()) runPhase(this::runScanner);
+    while (compilationState != CompilationState.ASSEMBLED) {
+      runNextStep();
+    }
+    return assembly;
+  }
+
   public void run() {
-    runScanner();
+    if (!loadCachedAssembly()) runPhase(this::runScanner);
     while (compilationState != CompilationState.COMPLETED) {
       runNextStep();
     }
   }
 
   private void specificTestFileInitialize(InputStream inputStream) {
-    CompilationContext.setDebugModeOn(true);
-    sourceCode = Utils.getStringFromInputStream(inputStream);
+    compilationContext.setDebugModeOn(true);
+    sourceCode = ScannerInput.of(Utils.getStringFromInputStream(inputStream));
   }
 
-  private void defaultInitialize() throws FileNotFoundException {
-    InputStream inputStream = CompilationContext.getSourceFilename() ==
-        null ? System.in: new FileInputStream(CompilationContext.getSourceFilename());
-    sourceCode = Utils.getStringFromInputStream(inputStream);
+  private void defaultInitialize() throws IOException {
+    sourceCode = compilationContext.getSourceFilename() ==
+        null ? ScannerInput.of(Utils.getStringFromInputStream(System.in)): ScannerInput.map(Path.of(compilationContext.getSourceFilename()));
   }
 
   private void initialize() throws FileNotFoundException {
-    outputStream = CompilationContext.getAsmOutputFilename() ==
-        null ? System.out: new java.io.PrintStream(new FileOutputStream(CompilationContext.getAsmOutputFilename()));
+    outputStream = compilationContext.getAsmOutputFilename() ==
+        null ? System.out: new java.io.PrintStream(new FileOutputStream(compilationContext.getAsmOutputFilename()));
     decafExceptionProcessor = new DecafExceptionProcessor(sourceCode);
     compilationState = CompilationState.INITIALIZED;
   }
 
+  /**
+   * Skips every phase up to code generation if the context's cache holds the assembly of this source, compiled by
+   * the same compiler with the same passes and register allocator
+   *
+   * @return whether the assembly was found
+   */
+  private boolean loadCachedAssembly() {
+    var compilationCache = compilationContext.getCompilationCache();
+    if (compilationCache == null || sourceCode.source()
+                                              .isEmpty()) return false;
+    final Hasher hasher = Hashing.sha256()
+                                 .newHasher()
+                                 .putString(cacheConfiguration(), StandardCharsets.UTF_8)
+                                 .putBoolean(compilationContext.getIncrementalCacheDirectory() != null)
+                                 .putString(sourceCode.source()
+                                                      .get(), StandardCharsets.UTF_8);
+    compilationCacheKey = hasher.hash()
+                                .toString();
+    var cachedAssembly = compilationCache.get(compilationCacheKey);
+    if (cachedAssembly.isEmpty()) return false;
+    compilationCacheHit = true;
+    emitAssembly(cachedAssembly.get());
+    return true;
+  }
+
   private void runScanner() {
     assert compilationState == CompilationState.INITIALIZED;
     scanner = new DecafScanner(
         sourceCode,
         decafExceptionProcessor
     );
-    scanner.setTrace(CompilationContext.isDebugModeOn());
+    scanner.setTrace(compilationContext.isDebugModeOn());
     compilationState = CompilationState.SCANNED;
   }
 
   private void runParser() {
     assert compilationState == CompilationState.SCANNED;
     parser = new DecafParser(scanner);
-    parser.setTrace(CompilationContext.isDebugModeOn());
+    parser.setTrace(compilationContext.isDebugModeOn());
     parser.program();
 
     if (parser.hasError()) {
+      if (embedded) throw new CompilationFailedException(parser.errors.stream()
+                                                                           .map(Throwable::getMessage)
+                                                                           .toList());
       parser.errors.forEach(Throwable::printStackTrace);
       System.exit(1);
     }
     compilationState = CompilationState.PARSED;
-    if (CompilationContext.isDebugModeOn()) System.out.println(parser.getRoot()
+    if (compilationContext.isDebugModeOn()) System.out.println(parser.getRoot()
                                                                      .getSourceCode());
   }
 
   private void runSemanticsChecker() {
     assert compilationState == CompilationState.PARSED;
     semanticChecker = new SemanticCheckingManager(parser.getRoot());
-    semanticChecker.setTrace(CompilationContext.isDebugModeOn());
+    semanticChecker.setTrace(compilationContext.isDebugModeOn());
     semanticChecker.runChecks(decafExceptionProcessor);
     if (semanticChecker.hasError()) {
+      if (embedded) throw new CompilationFailedException(semanticChecker.getContextualExceptions(decafExceptionProcessor)
+                                                                            .stream()
+                                                                            .map(Throwable::getMessage)
+                                                                            .toList());
       System.exit(1);
     }
+    if (compilationContext.getIncrementalCacheDirectory() != null) {
+      compilationContext.getIndexManager()
+                        .setStableLabels(true);
+      incrementalCompilation = new IncrementalCompilation(
+          parser.getRoot(),
+          new MethodCache(compilationContext.getIncrementalCacheDirectory()),
+          cacheConfiguration()
+      );
+    }
     compilationState = CompilationState.SEM_CHECKED;
   }
 
@@ -229,7 +388,64 @@ public class Compilation {
   }
 
   private boolean shouldOptimize() {
-    return true;
+    return compilationContext.isOptimizationOn();
+  }
+
+  private static String compilerVersion() {
+    final Path classes;
+    try {
+      classes = Path.of(Compilation.class.getProtectionDomain()
+                                         .getCodeSource()
+                                         .getLocation()
+                                         .toURI());
+    } catch (URISyntaxException | RuntimeException e) {
+      return RELEASE;
+    }
+    final Hasher hasher = Hashing.sha256()
+                                 .newHasher()
+                                 .putString(RELEASE, StandardCharsets.UTF_8);
+    try {
+      if (Files.isRegularFile(classes)) {
+        hasher.putBytes(Files.readAllBytes(classes));
+      } else {
+        final List<Path> classFiles;
+        try (var paths = Files.walk(classes)) {
+          classFiles = paths.filter(path -> path.toString()
+                                                .endsWith(".class"))
+                            .sorted()
+                            .toList();
+        }
+        for (var classFile : classFiles)
+          hasher.putString(classes.relativize(classFile)
+                                  .toString(), StandardCharsets.UTF_8)
+                .putBytes(Files.readAllBytes(classFile));
+      }
+    } catch (IOException e) {
+      return RELEASE;
+    }
+    return RELEASE + "-" + hasher.hash()
+                                 .toString()
+                                 .substring(0, 16);
+  }
+
+  private String cacheConfiguration() {
+    return cacheConfiguration(
+        shouldOptimize() ? DataflowOptimizer.PASSES: List.of(),
+        compilationContext.getRegisterAllocationStrategy()
+    );
+  }
+
+  /**
+   * Everything besides the source which the assembly depends on, shared by the keys of the whole-program and the
+   * per-method caches
+   *
+   * @param passes the optimization passes which are run, none when optimization is off
+   */
+  static String cacheConfiguration(
+      List<OptimizationPassType> passes,
+      RegisterAllocationStrategy registerAllocationStrategy
+  ) {
+    return COMPILER_VERSION + " " + passes + " " + registerAllocationStrategy.name();
   }
 
   private void generateSymbolTablePdfs() {
@@ -241,22 +457,29 @@ public class Compilation {
 
   private void generateCFGs() {
     assert compilationState == CompilationState.SEM_CHECKED;
+    var program = incrementalCompilation == null ? parser.getRoot(): incrementalCompilation.getProgramToCompile();
+    if (program.methodDefinitionList.isEmpty()) {
+      // every method is cached
+      emitAssembly(incrementalCompilation.assemble(BasicBlockToInstructionListConverter.createPrologue(
+          parser.getRoot(),
+          compilationContext.getIndexManager()
+      )));
+      return;
+    }
     if (shouldOptimize()) {
-      if (CompilationContext.isDebugModeOn()) {
+      if (compilationContext.isDebugModeOn()) {
         System.out.println("before InstructionSimplifyPass");
-        System.out.println(parser.getRoot()
-                                 .getSourceCode());
+        System.out.println(program.getSourceCode());
       }
-      InstructionSimplifyIrPass.run(parser.getRoot());
-      if (CompilationContext.isDebugModeOn()) {
+      InstructionSimplifyIrPass.run(program);
+      if (compilationContext.isDebugModeOn()) {
         System.out.println("after InstructionSimplifyPass");
-        System.out.println(parser.getRoot()
-                                 .getSourceCode());
+        System.out.println(program.getSourceCode());
       }
     }
 
     cfg = new ControlFlowGraph(
-        parser.getRoot(),
+        program,
         semanticChecker.getGlobalDescriptor()
     );
     cfg.build();
@@ -265,16 +488,22 @@ public class Compilation {
 
   private void generateIr() {
     assert compilationState == CompilationState.CFG_GENERATED;
-    basicBlockToInstructionListConverter = new BasicBlockToInstructionListConverter(cfg);
+    basicBlockToInstructionListConverter = new BasicBlockToInstructionListConverter(
+        cfg,
+        compilationContext.getIndexManager()
+    );
     programIr = basicBlockToInstructionListConverter.getProgramIr();
-    if (CompilationContext.isDebugModeOn()) {
+    if (incrementalCompilation != null) {
+      programIr.setExternallyCalledMethods(incrementalCompilation.getMethodsCalledByReusedMethods());
+    }
+    if (compilationContext.isDebugModeOn()) {
       generateSymbolTablePdfs();
     }
-    if (CompilationContext.isDebugModeOn()) {
+    if (compilationContext.isDebugModeOn()) {
       generateCFGVisualizationPdfs();
     }
     compilationState = CompilationState.IR_GENERATED;
-    if (CompilationContext.isDebugModeOn()) {
+    if (compilationContext.isDebugModeOn()) {
       System.out.println(programIr.mergeProgram());
     }
   }
@@ -287,7 +516,10 @@ public class Compilation {
   private void generateSsa() {
     assert compilationState == CompilationState.IR_GENERATED;
     programIr.getMethods()
-             .forEach(SSA::construct);
+             .forEach(method -> SSA.construct(
+                 method,
+                 compilationContext
+             ));
     compilationState = CompilationState.SSA_GENERATED;
   }
 
@@ -297,12 +529,15 @@ public class Compilation {
     oldNLinesOfCode = countLinesOfCode();
 
     if (shouldOptimize()) {
-      if (CompilationContext.isDebugModeOn()) {
+      if (compilationContext.isDebugModeOn()) {
         System.out.println("Before optimization");
         System.out.println(programIr.mergeProgram());
       }
       programIr.setGlobals(basicBlockToInstructionListConverter.getGlobalNames());
-      var dataflowOptimizer = new DataflowOptimizer(programIr);
+      var dataflowOptimizer = new DataflowOptimizer(
+          programIr,
+          compilationContext
+      );
       dataflowOptimizer.initialize();
       dataflowOptimizer.optimize();
       programIr.setMethods(dataflowOptimizer.getOptimizedMethods());
@@ -318,13 +553,14 @@ public class Compilation {
     programIr.getMethods()
              .forEach(method -> SSA.deconstruct(
                  method,
-                 programIr
+                 programIr,
+                 compilationContext
              ));
 //        Interpreter interpreter = new Interpreter(programIr.mergeProgram());
 //        interpreter.interpret();
-    programIr.renumberLabels();
+    programIr.renumberLabels(compilationContext.getIndexManager());
 
-    if (CompilationContext.isDebugModeOn()) {
+    if (compilationContext.isDebugModeOn()) {
       System.out.println("After optimization");
       System.out.println(programIr.mergeProgram());
       System.out.format(
@@ -333,15 +569,41 @@ public class Compilation {
       );
     }
 
-    var registerAllocator = new RegisterAllocator(programIr);
+    var registerAllocator = new RegisterAllocator(
+        programIr,
+        compilationContext.getRegisterAllocationStrategy()
+    );
     programIr.findGlobals();
     var x64AsmWriter = new X86AsmWriter(
         programIr,
-        registerAllocator
+        registerAllocator,
+        compilationContext
     );
     var x86Program = x64AsmWriter.getX86Program();
-    outputStream.println(x86Program);
-    if (CompilationContext.isDebugModeOn()) System.out.println(x86Program);
+    if (incrementalCompilation == null) {
+      emitAssembly(x86Program.toString());
+      return;
+    }
+    for (int i = 0; i < programIr.getMethods()
+                                 .size(); i++)
+      incrementalCompilation.store(
+          programIr.getMethods()
+                   .get(i),
+          x86Program.getMethods()
+                    .get(i)
+      );
+    emitAssembly(incrementalCompilation.assemble(BasicBlockToInstructionListConverter.createPrologue(
+        parser.getRoot(),
+        compilationContext.getIndexManager()
+    )));
+  }
+
+  private void emitAssembly(String assembly) {
+    this.assembly = assembly;
+    if (compilationCacheKey != null && !compilationCacheHit) compilationContext.getCompilationCache()
+                                                                               .put(compilationCacheKey, assembly);
+    if (!embedded) outputStream.println(assembly);
+    if (compilationContext.isDebugModeOn()) System.out.println(assembly);
     compilationState = CompilationState.ASSEMBLED;
   }
 
@@ -366,7 +628,7 @@ public class Compilation {
         }
         done = true;
       } catch (Exception e) {
-        System.err.println(CompilationContext.getSourceFilename() + " " + e);
+        System.err.println(compilationContext.getSourceFilename() + " " + e);
         error = true;
       }
       if (error) {
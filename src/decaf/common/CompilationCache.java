@@ -0,0 +1,86 @@
+package decaf.common;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The assembly of whole programs, kept on disk between compilations and addressed by a hash of everything the
+ * assembly depends on: the source, the optimization passes, the register allocator and the compiler version.
+ * <p>
+ * The cache holds at most {@code maxBytes} of assembly: a hit refreshes the modification time of its entry, and a
+ * store evicts the entries which were least recently used until the cache fits again. Entries are written to a
+ * temporary file and moved into place, so a concurrent compilation never reads a partial entry. Like
+ * {@link MethodCache}, an entry which cannot be read is a miss and one which cannot be written is dropped.
+ * <p>
+ * One cache can be shared by the contexts of many compilations, in which case its {@link #getStatistics statistics}
+ * add up over all of them.
+ */
+public class CompilationCache {
+    private static final String SUFFIX = ".s";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CompilationCache(Path directory, long maxBytes) {
+        checkArgument(maxBytes > 0, "the cache must be able to hold some bytes: %s", maxBytes);
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public record Statistics(long hits, long misses, long evictions) {
+        public double hitRate() {
+            return hits + misses == 0 ? 0.0: (double) hits / (hits + misses);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        final Path path = pathOf(key);
+        try {
+            final String assembly = Files.readString(path, StandardCharsets.UTF_8);
+            CacheEviction.touch(path);
+            hits.incrementAndGet();
+            return Optional.of(assembly);
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, String assembly) {
+        final byte[] bytes = assembly.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes)
+            return;
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, pathOf(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the program is compiled again next time
+            if (temporary != null)
+                temporary.toFile()
+                         .delete();
+            return;
+        }
+        evictions.addAndGet(CacheEviction.evictLeastRecentlyUsed(directory, SUFFIX, maxBytes));
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(hits.get(), misses.get(), evictions.get());
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
@@ -1,30 +1,114 @@
 package decaf.common;
 
+import java.nio.file.Path;
+
+import decaf.codegen.IndexManager;
+import decaf.regalloc.RegisterAllocationStrategy;
+
+/**
+ * Per-compilation settings and counters.
+ * <p>
+ * Every {@link Compilation} owns its own context, so several compilations can run concurrently in one JVM.
+ */
 public class CompilationContext {
-    private static String asmOutputFilename;
-    private static String sourceFilename;
-    private static boolean debugModeOn;
+    private final IndexManager indexManager = new IndexManager();
+    private String asmOutputFilename;
+    private String sourceFilename;
+    private boolean debugModeOn;
+    private boolean parallelOptimizationOn;
+    private boolean optimizationOn = true;
+    private RegisterAllocationStrategy registerAllocationStrategy = RegisterAllocationStrategy.LINEAR_SCAN;
+    private Path incrementalCacheDirectory;
+    private CompilationCache compilationCache;
+    private CompilationProfile compilationProfile;
+
+    public IndexManager getIndexManager() {
+        return indexManager;
+    }
 
-    public static void setDebugModeOn(boolean debugModeOn) {
-        CompilationContext.debugModeOn = debugModeOn;
+    public void setDebugModeOn(boolean debugModeOn) {
+        this.debugModeOn = debugModeOn;
     }
 
-    public static String getAsmOutputFilename() {
+    public String getAsmOutputFilename() {
         return asmOutputFilename;
     }
 
-    public static void setAsmOutputFilename(String asmOutputFilename) {
-        CompilationContext.asmOutputFilename = asmOutputFilename;
+    public void setAsmOutputFilename(String asmOutputFilename) {
+        this.asmOutputFilename = asmOutputFilename;
     }
 
-    public static String getSourceFilename() {
+    public String getSourceFilename() {
         return sourceFilename;
     }
 
-    public static void setSourceFilename(String sourceFilename) {
-        CompilationContext.sourceFilename = sourceFilename;
+    public void setSourceFilename(String sourceFilename) {
+        this.sourceFilename = sourceFilename;
     }
-    public static boolean isDebugModeOn() {
+    public boolean isDebugModeOn() {
         return debugModeOn;
     }
+
+    public boolean isParallelOptimizationOn() {
+        return parallelOptimizationOn;
+    }
+
+    public void setParallelOptimizationOn(boolean parallelOptimizationOn) {
+        this.parallelOptimizationOn = parallelOptimizationOn;
+    }
+
+    public boolean isOptimizationOn() {
+        return optimizationOn;
+    }
+
+    /**
+     * Turns the IR simplification and the dataflow optimization passes on or off; off gives the baseline against
+     * which the optimizations are measured
+     */
+    public void setOptimizationOn(boolean optimizationOn) {
+        this.optimizationOn = optimizationOn;
+    }
+
+    public RegisterAllocationStrategy getRegisterAllocationStrategy() {
+        return registerAllocationStrategy;
+    }
+
+    public void setRegisterAllocationStrategy(RegisterAllocationStrategy registerAllocationStrategy) {
+        this.registerAllocationStrategy = registerAllocationStrategy;
+    }
+
+    public Path getIncrementalCacheDirectory() {
+        return incrementalCacheDirectory;
+    }
+
+    /**
+     * Compiles incrementally: the assembly of each method is cached in {@code incrementalCacheDirectory}, and methods
+     * whose source, callees and globals are unchanged since an earlier compilation are not compiled again
+     */
+    public void setIncrementalCacheDirectory(Path incrementalCacheDirectory) {
+        this.incrementalCacheDirectory = incrementalCacheDirectory;
+    }
+
+    public CompilationCache getCompilationCache() {
+        return compilationCache;
+    }
+
+    /**
+     * Looks the assembly of the whole program up in {@code compilationCache} before compiling it, and stores it there
+     * afterwards; a cache may be shared by the contexts of several compilations
+     */
+    public void setCompilationCache(CompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
+    }
+
+    public CompilationProfile getCompilationProfile() {
+        return compilationProfile;
+    }
+
+    /**
+     * Records the cost of every phase, and of every optimization pass on every method, in {@code compilationProfile}
+     */
+    public void setCompilationProfile(CompilationProfile compilationProfile) {
+        this.compilationProfile = compilationProfile;
+    }
 }
@@ -0,0 +1,195 @@
+package decaf.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.names.IrSsaRegister;
+
+/**
+ * Where a compilation spends its time and memory: one record per phase, and one per run of an optimization pass on a
+ * method in a round of {@link decaf.dataflow.DataflowOptimizer}.
+ * <p>
+ * Wall time, CPU time and allocated bytes are read from the {@link ThreadMXBean} of the thread which ran the phase or
+ * pass; a measurement the JVM does not support is {@code -1}. When optimization runs in parallel, the record of the
+ * optimization phase only covers the compiling thread, and the pass records cover the workers. The instruction, basic
+ * block and SSA value counts of a phase are taken after it ran, and are {@code -1} for phases before the IR exists.
+ * <p>
+ * Set a profile on a {@link CompilationContext} to fill it; {@link #toJson()} and {@link #toCsv()} render it for
+ * tools which track the compile time budget.
+ */
+public class CompilationProfile {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final List<PhaseRecord> phaseRecords = new ArrayList<>();
+    private final List<PassRecord> passRecords = new ArrayList<>();
+
+    public record Sample(long wallNanos, long cpuNanos, long allocatedBytes) {
+        public static Sample now() {
+            return new Sample(System.nanoTime(), currentThreadCpuTime(), currentThreadAllocatedBytes());
+        }
+
+        /**
+         * @return the cost of the work done on this thread since {@code start}
+         */
+        Sample since(Sample start) {
+            return new Sample(
+                    wallNanos - start.wallNanos,
+                    difference(cpuNanos, start.cpuNanos),
+                    difference(allocatedBytes, start.allocatedBytes)
+            );
+        }
+
+        private static long difference(long end, long start) {
+            return end < 0 || start < 0 ? -1: end - start;
+        }
+    }
+
+    public record PhaseRecord(String phase, Sample cost, int nInstructions, int nBasicBlocks, int nSsaValues) {
+    }
+
+    public record PassRecord(String pass, String method, int round, Sample cost, boolean changed) {
+    }
+
+    private static long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime(): -1;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean threadMXBean &&
+                threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled())
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+
+    /**
+     * Records a phase which ran before the IR was generated
+     */
+    public void recordPhase(String phase, Sample start) {
+        final Sample cost = Sample.now()
+                                  .since(start);
+        synchronized (this) {
+            phaseRecords.add(new PhaseRecord(phase, cost, -1, -1, -1));
+        }
+    }
+
+    /**
+     * @param methods the IR of the program after the phase ran
+     */
+    public void recordPhase(String phase, Sample start, Collection<Method> methods) {
+        final Sample cost = Sample.now()
+                                  .since(start);
+        int nInstructions = 0;
+        int nBasicBlocks = 0;
+        var ssaValues = new HashSet<IrSsaRegister>();
+        for (var method : methods) {
+            for (var basicBlock : StronglyConnectedComponentsTarjan.allBasicBlocks(method.getEntryBlock())) {
+                nBasicBlocks++;
+                nInstructions += basicBlock.getInstructionList()
+                                           .size();
+                for (var instruction : basicBlock.getInstructionList())
+                    if (instruction instanceof StoreInstruction storeInstruction &&
+                            storeInstruction.getDestination() instanceof IrSsaRegister irSsaRegister)
+                        ssaValues.add(irSsaRegister);
+            }
+        }
+        synchronized (this) {
+            phaseRecords.add(new PhaseRecord(phase, cost, nInstructions, nBasicBlocks, ssaValues.size()));
+        }
+    }
+
+    public void recordPass(String pass, Method method, int round, Sample start, boolean changed) {
+        final Sample cost = Sample.now()
+                                  .since(start);
+        synchronized (this) {
+            passRecords.add(new PassRecord(pass, method.methodName(), round, cost, changed));
+        }
+    }
+
+    public synchronized List<PhaseRecord> getPhaseRecords() {
+        return List.copyOf(phaseRecords);
+    }
+
+    public synchronized List<PassRecord> getPassRecords() {
+        return List.copyOf(passRecords);
+    }
+
+    /**
+     * @return {@code {"phases": [...], "passes": [...]}}, one object per record, times in nanoseconds
+     */
+    public String toJson() {
+        final String phases = getPhaseRecords().stream()
+                                               .map(record -> String.format(
+                                                       Locale.ROOT,
+                                                       "{\"phase\": \"%s\", %s, \"instructions\": %d, \"basicBlocks\": %d, \"ssaValues\": %d}",
+                                                       record.phase(),
+                                                       toJson(record.cost()),
+                                                       record.nInstructions(),
+                                                       record.nBasicBlocks(),
+                                                       record.nSsaValues()
+                                               ))
+                                               .collect(Collectors.joining(",\n    "));
+        final String passes = getPassRecords().stream()
+                                              .map(record -> String.format(
+                                                      Locale.ROOT,
+                                                      "{\"pass\": \"%s\", \"method\": \"%s\", \"round\": %d, %s, \"changed\": %b}",
+                                                      record.pass(),
+                                                      record.method(),
+                                                      record.round(),
+                                                      toJson(record.cost()),
+                                                      record.changed()
+                                              ))
+                                              .collect(Collectors.joining(",\n    "));
+        return "{\n  \"phases\": [\n    " + phases + "\n  ],\n  \"passes\": [\n    " + passes + "\n  ]\n}\n";
+    }
+
+    private static String toJson(Sample cost) {
+        return String.format(
+                Locale.ROOT,
+                "\"wallNanos\": %d, \"cpuNanos\": %d, \"allocatedBytes\": %d",
+                cost.wallNanos(),
+                cost.cpuNanos(),
+                cost.allocatedBytes()
+        );
+    }
+
+    /**
+     * @return one row per record, phases first; columns which do not apply to a row are empty
+     */
+    public String toCsv() {
+        var csv = new StringBuilder(
+                "kind,name,method,round,wall_nanos,cpu_nanos,allocated_bytes,instructions,basic_blocks,ssa_values,changed\n");
+        for (var record : getPhaseRecords())
+            csv.append(String.format(
+                    Locale.ROOT,
+                    "phase,%s,,,%s,%d,%d,%d,\n",
+                    record.phase(),
+                    toCsv(record.cost()),
+                    record.nInstructions(),
+                    record.nBasicBlocks(),
+                    record.nSsaValues()
+            ));
+        for (var record : getPassRecords())
+            csv.append(String.format(
+                    Locale.ROOT,
+                    "pass,%s,%s,%d,%s,,,,%b\n",
+                    record.pass(),
+                    record.method(),
+                    record.round(),
+                    toCsv(record.cost()),
+                    record.changed()
+            ));
+        return csv.toString();
+    }
+
+    private static String toCsv(Sample cost) {
+        return cost.wallNanos() + "," + cost.cpuNanos() + "," + cost.allocatedBytes();
+    }
+}
@@ -0,0 +1,81 @@
+package decaf.common;
+
+/**
+ * Evaluates Decaf operators over {@code long} constants with the semantics of the generated x86-64 code:
+ * <ul>
+ *     <li>{@code +}, {@code -}, {@code *} and unary {@code -} wrap around on overflow</li>
+ *     <li>{@code /} truncates towards zero and {@code %} takes the sign of the dividend</li>
+ *     <li>comparisons and the conditional operators evaluate to {@code 1} or {@code 0}</li>
+ * </ul>
+ * A division or remainder by zero, and {@code Long.MIN_VALUE / -1}, trap at runtime under {@code idiv}; they are
+ * never folded, see {@link #canFold(String, long, long)}.
+ * <p>
+ * Nothing here allocates, so the folder can be called from the inner loops of the optimizer.
+ */
+public class ConstantFolder {
+    private ConstantFolder() {
+    }
+
+    /**
+     * @return whether {@code left operator right} is a supported operator whose result is known at compile time
+     */
+    public static boolean canFold(String operator, long left, long right) {
+        return switch (operator) {
+            case Operators.DIVIDE, Operators.MOD -> right != 0 && !(left == Long.MIN_VALUE && right == -1L);
+            case Operators.PLUS, Operators.MINUS, Operators.MULTIPLY, Operators.ADD_ASSIGN, Operators.MINUS_ASSIGN, Operators.MULTIPLY_ASSIGN, Operators.LT, Operators.GT, Operators.LEQ, Operators.GEQ, Operators.EQ, Operators.NEQ, Operators.CONDITIONAL_AND, Operators.CONDITIONAL_OR ->
+                    true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return whether {@code operator operand} is a supported unary operator
+     */
+    public static boolean canFold(String operator) {
+        return operator.equals(Operators.MINUS) || operator.equals(Operators.NOT);
+    }
+
+    public static long fold(String operator, long left, long right) {
+        return switch (operator) {
+            case Operators.PLUS, Operators.ADD_ASSIGN -> left + right;
+            case Operators.MINUS, Operators.MINUS_ASSIGN -> left - right;
+            case Operators.MULTIPLY, Operators.MULTIPLY_ASSIGN -> left * right;
+            case Operators.DIVIDE -> {
+                checkDivisible(left, right);
+                yield left / right;
+            }
+            case Operators.MOD -> {
+                checkDivisible(left, right);
+                yield left % right;
+            }
+            case Operators.LT -> toLong(left < right);
+            case Operators.GT -> toLong(left > right);
+            case Operators.LEQ -> toLong(left <= right);
+            case Operators.GEQ -> toLong(left >= right);
+            case Operators.EQ -> toLong(left == right);
+            case Operators.NEQ -> toLong(left != right);
+            case Operators.CONDITIONAL_AND -> toLong(left != 0 && right != 0);
+            case Operators.CONDITIONAL_OR -> toLong(left != 0 || right != 0);
+            default -> throw new IllegalArgumentException("unsupported binary operator " + operator);
+        };
+    }
+
+    public static long fold(String operator, long operand) {
+        return switch (operator) {
+            case Operators.MINUS -> -operand;
+            case Operators.NOT -> operand == 1L ? 0L: 1L;
+            default -> throw new IllegalArgumentException("unsupported unary operator " + operator);
+        };
+    }
+
+    private static void checkDivisible(long left, long right) {
+        if (right == 0)
+            throw new ArithmeticException("division by zero");
+        if (left == Long.MIN_VALUE && right == -1L)
+            throw new ArithmeticException("division overflow");
+    }
+
+    private static long toLong(boolean value) {
+        return value ? 1L: 0L;
+    }
+}
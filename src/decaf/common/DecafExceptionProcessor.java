@@ -1,5 +1,8 @@
 package decaf.common;
 
+import java.util.Optional;
+
+import decaf.grammar.ScannerInput;
 import decaf.grammar.Token;
 import decaf.grammar.TokenPosition;
 import decaf.exceptions.DecafParserException;
@@ -11,15 +14,37 @@ public class DecafExceptionProcessor {
     public static final String TERNARY_COLON = ":";
     public static final String TILDE = "~";
     public final int MAX_NUM_CHARS = 30;
-    public String syntaxHighlightedSourceCode;
-    String sourceCode;
+    private final SyntaxHighlighter syntaxHighlighter = new SyntaxHighlighter();
+    private final ScannerInput sourceCode;
 
     public DecafExceptionProcessor(String sourceCode) {
+        this(ScannerInput.of(sourceCode));
+    }
+
+    /**
+     * @param sourceCode the input shared with the scanner; lines it no longer buffers are reported without an excerpt
+     */
+    public DecafExceptionProcessor(ScannerInput sourceCode) {
         this.sourceCode = sourceCode;
     }
 
+    public SyntaxHighlighter getSyntaxHighlighter() {
+        return syntaxHighlighter;
+    }
+
+    /**
+     * @return the source scanned so far with identifiers, literals and reserved words colored; it is rendered on demand,
+     * so it is only available while the whole source is, which is not the case for a source read from a stream
+     */
+    public String getSyntaxHighlightedSourceCode() {
+        return syntaxHighlighter.render(sourceCode);
+    }
+
     public String getContextualErrorMessage(TokenPosition tokenPosition, String errMessage) {
-        final String lineToPrint = sourceCode.split(NEW_LINE)[tokenPosition.line()];
+        final Optional<String> line = sourceCode.line(tokenPosition.line());
+        if (line.isEmpty())
+            return NEW_LINE + errMessage + NEW_LINE + tokenPosition.line() + TERNARY_COLON + tokenPosition.column();
+        final String lineToPrint = line.get();
         final int before = Math.min(tokenPosition.column(), MAX_NUM_CHARS);
         final int after = Math.min(lineToPrint.length() - tokenPosition.column(), MAX_NUM_CHARS);
 
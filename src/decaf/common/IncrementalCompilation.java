@@ -0,0 +1,182 @@
+package decaf.common;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import decaf.asm.X86AsmWriter;
+import decaf.asm.X86Method;
+import decaf.asm.X86Program;
+import decaf.asm.instructions.X86MetaData;
+import decaf.ast.AST;
+import decaf.ast.MethodCall;
+import decaf.ast.MethodCallStatement;
+import decaf.ast.MethodDefinition;
+import decaf.ast.Program;
+import decaf.codegen.InstructionList;
+import decaf.codegen.TraceScheduler;
+import decaf.codegen.codes.FunctionCall;
+import decaf.codegen.codes.Method;
+
+/**
+ * Decides which methods of a program have to be compiled, given the methods cached by earlier compilations, and puts
+ * the assembly of the compiled and the cached methods back together.
+ * <p>
+ * A method is cached under a hash of the compiler configuration, the global declarations, and the printed source of
+ * the method and of every method it can reach through calls: a caller may have inlined the body of any of them, so a
+ * change to a callee invalidates its callers. Only the methods which are not cached are compiled; a call from one of
+ * them to a cached method stays a call.
+ */
+class IncrementalCompilation {
+    private final MethodCache methodCache;
+    private final Program program;
+    private final Map<String, String> keys = new HashMap<>();
+    private final Map<String, MethodCache.Entry> reusedMethods = new LinkedHashMap<>();
+    private final Map<String, String> compiledMethods = new HashMap<>();
+    private final Program programToCompile = new Program();
+
+    IncrementalCompilation(Program program, MethodCache methodCache, String configuration) {
+        this.program = program;
+        this.methodCache = methodCache;
+
+        final var callGraph = new HashMap<String, Set<String>>();
+        final var sources = new HashMap<String, String>();
+        for (var methodDefinition : program.methodDefinitionList) {
+            callGraph.put(methodName(methodDefinition), findCallees(methodDefinition));
+            sources.put(methodName(methodDefinition), methodDefinition.getSourceCode());
+        }
+        final String globals = program.importDeclarationList.stream()
+                                                            .map(AST::getSourceCode)
+                                                            .collect(Collectors.joining("\n")) + "\n" +
+                program.fieldDeclarationList.stream()
+                                            .map(AST::getSourceCode)
+                                            .collect(Collectors.joining("\n"));
+
+        final var toCompile = new HashSet<String>();
+        for (var methodDefinition : program.methodDefinitionList) {
+            final String name = methodName(methodDefinition);
+            final Hasher hasher = Hashing.sha256()
+                                         .newHasher()
+                                         .putString(configuration, StandardCharsets.UTF_8)
+                                         .putString(globals, StandardCharsets.UTF_8);
+            for (var reachable : new TreeSet<>(reachableFrom(name, callGraph)))
+                hasher.putString(reachable, StandardCharsets.UTF_8)
+                      .putString(sources.get(reachable), StandardCharsets.UTF_8);
+            keys.put(name, hasher.hash()
+                                 .toString());
+            methodCache.get(keys.get(name))
+                       .ifPresentOrElse(entry -> reusedMethods.put(name, entry), () -> toCompile.add(name));
+        }
+
+        programToCompile.importDeclarationList.addAll(program.importDeclarationList);
+        programToCompile.fieldDeclarationList.addAll(program.fieldDeclarationList);
+        for (var methodDefinition : program.methodDefinitionList)
+            if (toCompile.contains(methodName(methodDefinition)))
+                programToCompile.methodDefinitionList.add(methodDefinition);
+    }
+
+    private static String methodName(MethodDefinition methodDefinition) {
+        return methodDefinition.methodName.getLabel();
+    }
+
+    private static Set<String> findCallees(MethodDefinition methodDefinition) {
+        var callees = new HashSet<String>();
+        var toExplore = new Stack<AST>();
+        toExplore.add(methodDefinition);
+        while (!toExplore.isEmpty()) {
+            AST node = toExplore.pop();
+            // a call statement lists the children of its call rather than the call itself
+            if (node instanceof MethodCallStatement methodCallStatement)
+                node = methodCallStatement.methodCall;
+            if (node instanceof MethodCall methodCall)
+                callees.add(methodCall.nameId.getLabel());
+            for (var child : node.getChildren())
+                toExplore.add(child.second());
+        }
+        return callees;
+    }
+
+    /**
+     * @return {@code methodName} and the methods of the program it calls, directly or not
+     */
+    private static Set<String> reachableFrom(String methodName, Map<String, Set<String>> callGraph) {
+        var reachable = new HashSet<String>();
+        var toExplore = new ArrayDeque<String>();
+        toExplore.add(methodName);
+        while (!toExplore.isEmpty()) {
+            final String name = toExplore.pop();
+            if (callGraph.containsKey(name) && reachable.add(name))
+                toExplore.addAll(callGraph.get(name));
+        }
+        return reachable;
+    }
+
+    /**
+     * @return the methods which are not cached, with all the global declarations
+     */
+    Program getProgramToCompile() {
+        return programToCompile;
+    }
+
+    /**
+     * @return the methods whose cached assembly is used as is
+     */
+    Set<String> getReusedMethods() {
+        return Set.copyOf(reusedMethods.keySet());
+    }
+
+    /**
+     * @return the methods called by the cached assembly, which the compiled program has to define
+     */
+    Set<String> getMethodsCalledByReusedMethods() {
+        return reusedMethods.values()
+                            .stream()
+                            .flatMap(entry -> entry.callees()
+                                                   .stream())
+                            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Caches the assembly of a method which was just compiled
+     */
+    void store(Method method, X86Method x86Method) {
+        final String assembly = x86Method.toString();
+        final Set<String> callees = TraceScheduler.flattenIr(method)
+                                                  .stream()
+                                                  .filter(instruction -> instruction instanceof FunctionCall)
+                                                  .map(instruction -> ((FunctionCall) instruction).getMethodName())
+                                                  .collect(Collectors.toUnmodifiableSet());
+        compiledMethods.put(method.methodName(), assembly);
+        methodCache.put(keys.get(method.methodName()), new MethodCache.Entry(assembly, callees));
+    }
+
+    /**
+     * @param prologue the allocations of the globals and string constants of the whole program
+     * @return the assembly of the program, with its methods in source order
+     */
+    String assemble(InstructionList prologue) {
+        var x86Program = new X86Program();
+        x86Program.addPrologue(X86AsmWriter.emitPrologue(prologue));
+        for (var methodDefinition : program.methodDefinitionList) {
+            final String name = methodName(methodDefinition);
+            if (compiledMethods.containsKey(name))
+                x86Program.add(new X86MetaData(compiledMethods.get(name)));
+            else if (reusedMethods.containsKey(name))
+                x86Program.add(new X86MetaData(reusedMethods.get(name)
+                                                            .assembly()));
+            // otherwise the method was inlined into all its callers
+        }
+        x86Program.addEpilogue(X86AsmWriter.emitEpilogue());
+        return x86Program.toString();
+    }
+}
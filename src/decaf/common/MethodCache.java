@@ -0,0 +1,89 @@
+package decaf.common;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The assembly emitted for single methods, kept on disk between compilations, one file per key.
+ * <p>
+ * An entry also records the methods its assembly calls, since those must be emitted alongside it even when they
+ * would otherwise be inlined away. Entries are written to a temporary file and moved into place, so a concurrent
+ * compilation never reads a partial entry. The cache is an optimization: an entry which cannot be read is a miss and
+ * one which cannot be written is dropped.
+ * <p>
+ * Every edit of a method adds an entry for it and for each of its callers, so the cache is bounded like
+ * {@link CompilationCache}: it holds at most {@code maxBytes} of assembly, and a store evicts the entries which were
+ * least recently used.
+ */
+public class MethodCache {
+    private static final String CALLS_HEADER = "# calls:";
+    private static final String SUFFIX = ".s";
+    private static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public MethodCache(Path directory) {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public MethodCache(Path directory, long maxBytes) {
+        checkArgument(maxBytes > 0, "the cache must be able to hold some bytes: %s", maxBytes);
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public record Entry(String assembly, Set<String> callees) {
+        public Entry {
+            callees = Set.copyOf(callees);
+        }
+    }
+
+    public Optional<Entry> get(String key) {
+        final Path path = pathOf(key);
+        final String contents;
+        try {
+            contents = Files.readString(path, StandardCharsets.UTF_8);
+            CacheEviction.touch(path);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        final int endOfHeader = contents.indexOf('\n');
+        if (endOfHeader == -1 || !contents.startsWith(CALLS_HEADER))
+            return Optional.empty();
+        final String calls = contents.substring(CALLS_HEADER.length(), endOfHeader)
+                                     .strip();
+        final Set<String> callees = calls.isEmpty() ? Set.of(): Set.of(calls.split(" "));
+        return Optional.of(new Entry(contents.substring(endOfHeader + 1), callees));
+    }
+
+    public void put(String key, Entry entry) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temporary, CALLS_HEADER + " " + String.join(" ", new TreeSet<>(entry.callees())) + "\n" +
+                    entry.assembly(), StandardCharsets.UTF_8);
+            Files.move(temporary, pathOf(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the method is recompiled next time
+            if (temporary != null)
+                temporary.toFile()
+                         .delete();
+            return;
+        }
+        CacheEviction.evictLeastRecentlyUsed(directory, SUFFIX, maxBytes);
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
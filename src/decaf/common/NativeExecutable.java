@@ -0,0 +1,133 @@
+package decaf.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * An executable assembled and linked from the output of {@link decaf.asm.X86AsmWriter} by the system C compiler:
+ * {@code clang} on macOS, and {@code gcc} elsewhere, or whichever compiler the {@code CC} environment variable names.
+ * <p>
+ * The writer emits Mach-O assembly. To link an ELF executable, the leading underscore of {@code main} and of the
+ * imported functions is dropped and the Mach-O only directives are removed first.
+ */
+public class NativeExecutable {
+    private static final boolean IS_MAC = System.getProperty("os.name")
+                                                .replaceAll("\\s", "")
+                                                .toLowerCase(Locale.ROOT)
+                                                .equals("macosx");
+
+    private final Path assemblyFile;
+    private final Path executableFile;
+
+    private NativeExecutable(Path assemblyFile, Path executableFile) {
+        this.assemblyFile = assemblyFile;
+        this.executableFile = executableFile;
+    }
+
+    /**
+     * The result of one run of an executable
+     *
+     * @param wallNanos the time from starting the process to its exit
+     * @param timedOut  whether the process was killed for running longer than its timeout
+     */
+    public record Execution(String stdout, String stderr, int exitCode, long wallNanos, boolean timedOut) {
+    }
+
+    /**
+     * Writes {@code assembly} to {@code <name>.s} in {@code directory} and links it into {@code <name>}
+     *
+     * @throws IOException if the compiler cannot be run or rejects the assembly, with the compiler's errors
+     */
+    public static NativeExecutable link(String assembly, Path directory, String name) throws IOException {
+        final Path assemblyFile = directory.resolve(name + ".s");
+        final Path executableFile = directory.resolve(name);
+        Files.writeString(assemblyFile, IS_MAC ? assembly: toElf(assembly), StandardCharsets.UTF_8);
+        var command = new ArrayList<String>();
+        final String cc = System.getenv("CC");
+        if (cc != null && !cc.isBlank()) command.add(cc);
+        else if (IS_MAC) command.addAll(List.of("clang", "-mllvm", "--x86-asm-syntax=att"));
+        else command.addAll(List.of("gcc", "-no-pie", "-z", "noexecstack"));
+        command.addAll(List.of(assemblyFile.toString(), "-o", executableFile.toString()));
+        var linking = execute(command, Duration.ofMinutes(1));
+        if (linking.exitCode() != 0 || linking.timedOut()) {
+            Files.deleteIfExists(assemblyFile);
+            throw new IOException(String.join(" ", command) + " failed:\n" + linking.stderr());
+        }
+        return new NativeExecutable(assemblyFile, executableFile);
+    }
+
+    private static String toElf(String assembly) {
+        return assembly.lines()
+                       .filter(line -> !line.equals(".subsections_via_symbols"))
+                       .map(line -> line.replaceFirst("^(\\.global\\s+)_", "$1")
+                                        .replaceFirst("^_main:", "main:")
+                                        .replaceFirst("^(\\s*callq\\s+)_", "$1"))
+                       .collect(Collectors.joining("\n", "", "\n"));
+    }
+
+    public Path getExecutableFile() {
+        return executableFile;
+    }
+
+    public Execution run(Duration timeout) throws IOException {
+        return run(List.of(), timeout);
+    }
+
+    /**
+     * Runs the executable under {@code wrapper}, e.g. {@code perf stat --}, with an empty standard input
+     */
+    public Execution run(List<String> wrapper, Duration timeout) throws IOException {
+        var command = new ArrayList<>(wrapper);
+        command.add(executableFile.toString());
+        return execute(command, timeout);
+    }
+
+    public void delete() {
+        assemblyFile.toFile()
+                    .delete();
+        executableFile.toFile()
+                      .delete();
+    }
+
+    private static Execution execute(List<String> command, Duration timeout) throws IOException {
+        // the output goes to files, so a chatty process never blocks on a full pipe
+        final Path stdout = Files.createTempFile("decaf", ".out");
+        final Path stderr = Files.createTempFile("decaf", ".err");
+        try {
+            final long start = System.nanoTime();
+            var process = new ProcessBuilder(command).redirectOutput(stdout.toFile())
+                                                     .redirectError(stderr.toFile())
+                                                     .start();
+            process.getOutputStream()
+                   .close();
+            final boolean exited = process.waitFor(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            final long wallNanos = System.nanoTime() - start;
+            if (!exited) {
+                process.destroyForcibly()
+                       .waitFor();
+            }
+            return new Execution(
+                    Files.readString(stdout, StandardCharsets.UTF_8),
+                    Files.readString(stderr, StandardCharsets.UTF_8),
+                    exited ? process.exitValue(): -1,
+                    wallNanos,
+                    !exited
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new IOException("interrupted while running " + command, e);
+        } finally {
+            Files.deleteIfExists(stdout);
+            Files.deleteIfExists(stderr);
+        }
+    }
+}
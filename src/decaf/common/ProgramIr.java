@@ -21,6 +21,7 @@ import decaf.codegen.codes.Instruction;
 import decaf.codegen.codes.Method;
 import decaf.codegen.names.IrSsaRegister;
 import decaf.codegen.names.IrValue;
+import decaf.dataflow.analyses.LiveVariableAnalysisCache;
 
 public class ProgramIr {
   @NotNull
@@ -29,6 +30,11 @@ public class ProgramIr {
   private List<Method> methodList;
   @NotNull
   private Set<IrValue> globals = new HashSet<>();
+  @NotNull
+  private final LiveVariableAnalysisCache liveVariableAnalysisCache = new LiveVariableAnalysisCache();
+  // methods called from code outside this program, such as previously compiled methods, which must not be removed
+  @NotNull
+  private Set<String> externallyCalledMethods = Set.of();
 
   public ProgramIr(
       @NotNull InstructionList prologue,
@@ -186,15 +192,36 @@ public class ProgramIr {
                       .collect(Collectors.toUnmodifiableSet());
   }
 
-  public void renumberLabels() {
-    IndexManager.resetLabels();
+  public void renumberLabels(@NotNull IndexManager indexManager) {
+    indexManager.resetLabels();
+    if (indexManager.hasStableLabels()) {
+      for (var method : methodList) {
+        int labelIndex = 0;
+        for (var instructionList : TraceScheduler.getInstructionTrace(method))
+          if (!instructionList.isEntry())
+            instructionList.setLabel("L" + method.methodName() + "_" + labelIndex++);
+      }
+      return;
+    }
     methodList.forEach(method -> TraceScheduler.getInstructionTrace(method)
                                                .forEach(instructionList -> {
                                                  if (!instructionList.isEntry())
-                                                   instructionList.setLabel(IndexManager.genLabelIndex());
+                                                   instructionList.setLabel(indexManager.genLabelIndex());
                                                }));
   }
 
+  public boolean isExternallyCalled(@NotNull Method method) {
+    return externallyCalledMethods.contains(method.methodName());
+  }
+
+  public void setExternallyCalledMethods(@NotNull Set<String> externallyCalledMethods) {
+    this.externallyCalledMethods = Set.copyOf(externallyCalledMethods);
+  }
+
+  public @NotNull LiveVariableAnalysisCache getLiveVariableAnalysisCache() {
+    return liveVariableAnalysisCache;
+  }
+
   public Set<IrValue> getGlobals() {
     return Set.copyOf(globals);
   }
@@ -2,24 +2,57 @@ package decaf.common;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Stack;
-import java.util.stream.Collectors;
 
 import decaf.cfg.BasicBlock;
 
 public class StronglyConnectedComponentsTarjan {
+  /**
+   * @return the blocks reachable from {@code entryPoint} in reverse post order of a depth-first search from
+   * {@code entryPoint}, so every block comes after its dominators and, outside of back edges, after its predecessors
+   */
   public static List<BasicBlock> getReversePostOrder(BasicBlock entryPoint) {
-    var stronglyConnectedComponents = findStronglyConnectedComponents(entryPoint);
-    Collections.reverse(stronglyConnectedComponents);
-    return stronglyConnectedComponents.stream()
-                                      .flatMap(Collection::stream)
-                                      .collect(Collectors.toList());
+    correctPredecessors(entryPoint);
+    var postOrder = new ArrayList<BasicBlock>();
+    var visited = new HashSet<BasicBlock>();
+    var toExplore = new ArrayDeque<Iterator<BasicBlock>>();
+    visited.add(entryPoint);
+    toExplore.push(successorsInVisitOrder(entryPoint));
+    var blocksOnPath = new ArrayDeque<BasicBlock>();
+    blocksOnPath.push(entryPoint);
+    while (!toExplore.isEmpty()) {
+      var successors = toExplore.peek();
+      if (successors.hasNext()) {
+        var successor = successors.next();
+        if (visited.add(successor)) {
+          blocksOnPath.push(successor);
+          toExplore.push(successorsInVisitOrder(successor));
+        }
+      } else {
+        toExplore.pop();
+        postOrder.add(blocksOnPath.pop());
+      }
+    }
+    Collections.reverse(postOrder);
+    return postOrder;
+  }
+
+  /**
+   * The successors are searched last to first so that, in the reverse post order, the first successor of a block
+   * comes before the others
+   */
+  private static Iterator<BasicBlock> successorsInVisitOrder(BasicBlock basicBlock) {
+    var successors = new ArrayList<>(basicBlock.getSuccessors());
+    Collections.reverse(successors);
+    return successors.iterator();
   }
 
   public static void correctPredecessors(BasicBlock block) {
@@ -36,8 +69,12 @@ public class StronglyConnectedComponentsTarjan {
     }
   }
 
+  /**
+   * @return every block reachable from {@code entryPoint}, in the order they are discovered, starting with
+   * {@code entryPoint}
+   */
   public static List<BasicBlock> allBasicBlocks(@NotNull BasicBlock entryPoint) {
-    var seen = new HashSet<BasicBlock>();
+    var seen = new LinkedHashSet<BasicBlock>();
     var toExplore = new Stack<BasicBlock>();
     toExplore.add(entryPoint);
     while (!toExplore.isEmpty()) {
@@ -0,0 +1,83 @@
+package decaf.common;
+
+import java.util.Arrays;
+
+import decaf.grammar.ScannerInput;
+import decaf.grammar.TokenType;
+
+/**
+ * Records the spans of the tokens which are colored when the source is printed, and renders the highlighted source
+ * only when it is asked for.
+ * <p>
+ * The scanner calls {@link #record} once per token, which only appends to three arrays; the text between the recorded
+ * spans, such as whitespace, comments and operators, is copied from the source uncolored.
+ */
+public class SyntaxHighlighter {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final String[] COLORS = {
+            Utils.ANSIColorConstants.ANSI_BLUE,
+            Utils.ANSIColorConstants.ANSI_GREEN,
+            Utils.ANSIColorConstants.ANSI_PURPLE
+    };
+    private static final byte IDENTIFIER_COLOR = 0;
+    private static final byte LITERAL_COLOR = 1;
+    private static final byte RESERVED_COLOR = 2;
+
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private byte[] colors = new byte[INITIAL_CAPACITY];
+    private int nSpans;
+    private int end;
+    private String rendered;
+    private int endRendered = -1;
+
+    private static byte colorOf(TokenType tokenType) {
+        return switch (tokenType) {
+            case ID -> IDENTIFIER_COLOR;
+            case CHAR_LITERAL, STRING_LITERAL, RESERVED_FALSE, RESERVED_TRUE, HEX_LITERAL, DECIMAL_LITERAL ->
+                    LITERAL_COLOR;
+            case RESERVED_IMPORT, RESERVED_INT, RESERVED_BOOL, RESERVED_IF, RESERVED_ELSE, RESERVED_FOR, RESERVED_RETURN, RESERVED_BREAK, RESERVED_CONTINUE, RESERVED_WHILE, RESERVED_VOID, RESERVED_LEN ->
+                    RESERVED_COLOR;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Notes a token of the source; spans must be recorded in increasing order of offset
+     */
+    public void record(int offset, int length, TokenType tokenType) {
+        end = Math.max(end, offset + length);
+        final byte color = colorOf(tokenType);
+        if (color < 0)
+            return;
+        if (nSpans == offsets.length) {
+            offsets = Arrays.copyOf(offsets, nSpans * 2);
+            lengths = Arrays.copyOf(lengths, nSpans * 2);
+            colors = Arrays.copyOf(colors, nSpans * 2);
+        }
+        offsets[nSpans] = offset;
+        lengths[nSpans] = length;
+        colors[nSpans] = color;
+        nSpans++;
+    }
+
+    /**
+     * @return {@code sourceCode} up to the end of the last recorded token, with identifiers, literals and reserved words
+     * colored
+     */
+    public String render(ScannerInput sourceCode) {
+        if (endRendered == end)
+            return rendered;
+        var highlighted = new StringBuilder();
+        int position = 0;
+        for (int i = 0; i < nSpans; i++) {
+            highlighted.append(sourceCode.substring(position, offsets[i]));
+            position = offsets[i] + lengths[i];
+            highlighted.append(Utils.coloredPrint(sourceCode.substring(offsets[i], position), COLORS[colors[i]]));
+        }
+        highlighted.append(sourceCode.substring(position, end));
+        rendered = highlighted.toString();
+        endRendered = end;
+        return rendered;
+    }
+}
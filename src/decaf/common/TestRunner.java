@@ -19,10 +19,15 @@ import java.util.stream.IntStream;
 
 public class TestRunner {
     public static final String DEFAULT_DATAFLOW_TESTS_ROOT = "tests/optimizer/dcf";
+    private static final String ASM_OUTPUT_FILENAME = "test.s";
 
     public static void run() {
+        run(false);
+    }
+
+    public static void run(boolean debug) {
         try {
-            compileTests();
+            compileTests(debug);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -48,6 +53,10 @@ public class TestRunner {
 
 
     public static void testCodegen() {
+        testCodegen(false);
+    }
+
+    public static void testCodegen(boolean debug) {
         final var filepath = "tests/codegen/input";
         var allTestFiles = getAllTestFiles(filepath);
 
@@ -56,7 +65,7 @@ public class TestRunner {
             Stopwatch stopwatch = Stopwatch.createStarted();
             System.out.print("compiling... " + file.getName());
             try {
-                var compilation = compileTest(file);
+                var compilation = compileTest(file, debug);
                 var expectedOutputFile = "./tests/codegen/output/" + file.getName() + ".out";
                 var expected = readFile(Paths.get(expectedOutputFile)
                                              .toFile());
@@ -80,13 +89,17 @@ public class TestRunner {
     }
 
     public static boolean testCodegenSingleFile(String filename) {
+        return testCodegenSingleFile(filename, false);
+    }
+
+    public static boolean testCodegenSingleFile(String filename, boolean debug) {
         final var filepath = "tests/codegen/input/";
         var file = Paths.get(filepath + filename)
                         .toFile();
         Stopwatch stopwatch = Stopwatch.createStarted();
         System.out.print("compiling... " + file.getName());
         try {
-            var compilation = compileTest(file);
+            var compilation = compileTest(file, debug);
             var expectedOutputFile = "./tests/codegen/output/" + file.getName() + ".out";
             var expected = readFile(Paths.get(expectedOutputFile)
                                          .toFile());
@@ -109,7 +122,7 @@ public class TestRunner {
         return false;
     }
 
-    private static void compileTests() throws IOException {
+    private static void compileTests(boolean debug) throws IOException {
         var allTestFiles = getAllTestFiles(TestRunner.DEFAULT_DATAFLOW_TESTS_ROOT);
         var nTestFiles = allTestFiles.size();
 
@@ -122,7 +135,7 @@ public class TestRunner {
                         .equals("test.dcf"))
                 continue;
             System.out.println(testFile.getAbsolutePath());
-            var compilation = compileTest(testFile);
+            var compilation = compileTest(testFile, debug);
             fileNames[indexOfTestFile] = testFile.getName();
             reductionRatios[indexOfTestFile] = compilation.getNLinesOfCodeReductionFactor();
             nLinesRemoved[indexOfTestFile] = compilation.getNLinesRemovedByAssemblyOptimizer();
@@ -140,9 +153,12 @@ public class TestRunner {
 
     }
 
-    private static Compilation compileTest(File testFile) throws IOException {
-        var compilation = new Compilation(readFile(testFile),
-                                          CompilationContext.isDebugModeOn()
+    private static Compilation compileTest(File testFile, boolean debug) throws IOException {
+        var compilationContext = new CompilationContext();
+        compilationContext.setAsmOutputFilename(ASM_OUTPUT_FILENAME);
+        compilationContext.setDebugModeOn(debug);
+        var compilation = new Compilation(testFile.toPath(),
+                                          compilationContext
         );
         compilation.run();
         return compilation;
@@ -11,8 +11,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 import java.util.Stack;
 import java.util.regex.Matcher;
@@ -132,35 +132,6 @@ public class Utils {
     return string.matches(".*[a-zA-Z]+.*");
   }
 
-  public static long symbolicallyEvaluateUnaryInstruction(
-      @NotNull String operator,
-      long value
-  ) {
-    if (operator.equals(Operators.NOT)) {
-      if (value == 1L) {
-        return 0L;
-      } else {
-        return 1L;
-      }
-    } else if (operator.equals(Operators.MINUS)) return -value;
-    throw new IllegalArgumentException("unsupported unary operator " + operator);
-  }
-
-  public static Optional<Long> symbolicallyEvaluate(String string) {
-    // this check is necessary because the evaluator evaluates variables like 'e' and 'pi'
-    if (containsAlphabeticCharacters(string)) {
-      return Optional.empty();
-    }
-    var expression = new com.udojava.evalex.Expression(string);
-    try {
-      var res = expression.setPrecision(100)
-                          .eval();
-      return Optional.of(res.longValue());
-    } catch (Exception e) {
-      return Optional.empty();
-    }
-  }
-
   public static void printSsaCfg(
       Collection<Method> methodCollection,
       String filename
@@ -194,7 +165,7 @@ public class Utils {
                                                         .stream())
                        .flatMap(instruction -> instruction.genIrValuesFiltered(IrSsaRegister.class)
                                                           .stream())
-                       .collect(Collectors.toUnmodifiableSet());
+                       .collect(Collectors.toCollection(LinkedHashSet::new));
   }
 
   public static Expression rotateBinaryOpExpression(Expression expr) {
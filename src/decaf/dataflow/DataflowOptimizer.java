@@ -1,7 +1,12 @@
 package decaf.dataflow;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import decaf.codegen.codes.Method;
 import decaf.dataflow.passes.BranchSimplificationPass;
@@ -13,23 +18,49 @@ import decaf.dataflow.passes.FunctionInlinePass;
 import decaf.dataflow.passes.InstructionSimplifyPass;
 import decaf.dataflow.passes.OptimizationPass;
 import decaf.dataflow.passes.PeepHoleOptimizationPass;
-import decaf.dataflow.ssapasses.CommonSubExpressionEliminationSsaPass;
+import decaf.dataflow.ssapasses.BoundsCheckEliminationPass;
 import decaf.dataflow.ssapasses.CopyPropagationSsaPass;
 import decaf.dataflow.ssapasses.DeadStoreEliminationSsaPass;
+import decaf.dataflow.ssapasses.GlobalValueNumberingPass;
+import decaf.dataflow.ssapasses.InstructionStrengthReductionPass;
 import decaf.dataflow.ssapasses.LoopAnalysisPass;
+import decaf.dataflow.ssapasses.LoopInvariantCodeMotionPass;
 import decaf.dataflow.ssapasses.RedundantPhiEliminationPass;
 import decaf.dataflow.ssapasses.SccpSsaPass;
 import decaf.common.CompilationContext;
+import decaf.common.CompilationProfile;
 import decaf.common.ProgramIr;
 import decaf.common.Utils;
 
 public class DataflowOptimizer {
   private static final int MAX_RUNS = 20;
+  /**
+   * The passes run on every method, in order, until none of them changes anything
+   */
+  public static final List<OptimizationPassType> PASSES = List.of(
+      OptimizationPassType.PeepHoleOptimization,
+      OptimizationPassType.SccpSsa,
+      OptimizationPassType.CopyPropagationSsa,
+      OptimizationPassType.GlobalValueNumbering,
+      OptimizationPassType.RedundantPhiEliminationPass,
+      OptimizationPassType.DeadStoreEliminationSsa,
+      OptimizationPassType.FunctionInlinePass,
+      OptimizationPassType.LoopAnalysisPass,
+      OptimizationPassType.LoopInvariantCodeMotion,
+      OptimizationPassType.BoundsCheckElimination,
+      OptimizationPassType.InstructionStrengthReduction,
+      OptimizationPassType.PeepHoleOptimization
+  );
   private final List<OptimizationPass> optimizationPassesList = new ArrayList<>();
   private final OptimizationContext optimizationContext;
+  private final CompilationContext compilationContext;
 
-  public DataflowOptimizer(ProgramIr programIr) {
+  public DataflowOptimizer(
+      ProgramIr programIr,
+      CompilationContext compilationContext
+  ) {
     this.optimizationContext = new OptimizationContext(programIr);
+    this.compilationContext = compilationContext;
   }
 
   public List<Method> getOptimizedMethods() {
@@ -37,35 +68,77 @@ public class DataflowOptimizer {
   }
 
   public void initialize() {
-    addPass(OptimizationPassType.PeepHoleOptimization);
-    addPass(OptimizationPassType.SccpSsa);
-    addPass(OptimizationPassType.CopyPropagationSsa);
-    addPass(OptimizationPassType.RedundantPhiEliminationPass);
-    addPass(OptimizationPassType.DeadStoreEliminationSsa);
-    addPass(OptimizationPassType.LoopAnalysisPass);
-    addPass(OptimizationPassType.PeepHoleOptimization);
+    PASSES.forEach(this::addPass);
   }
 
   public void optimize() {
+    if (compilationContext.isParallelOptimizationOn()) {
+      optimizeInParallel();
+      return;
+    }
     for (int run = 0; run < MAX_RUNS; run++) {
       boolean changesHappened = false;
       for (var optimizationPass : optimizationPassesList) {
-        var changesHappenedForOpt = optimizationPass.runFunctionPass();
-        changesHappened = changesHappened | changesHappenedForOpt;
-        if (CompilationContext.isDebugModeOn()) {
-          System.out.format(
-              "%s<%s> run = %s :: ",
-              optimizationPass.getClass()
-                              .getSimpleName(),
-              optimizationPass.getMethod()
-                              .methodName(),
-              run
-          );
-          System.out.println(Utils.coloredPrint(
-              String.valueOf(changesHappenedForOpt),
-              Utils.ANSIColorConstants.ANSI_GREEN_BOLD
+        changesHappened = changesHappened | runPass(
+            optimizationPass,
+            run
+        );
+      }
+      if (!changesHappened) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Runs the same rounds as the sequential schedule, but runs the passes of different methods at the same time on the
+   * common fork-join pool.
+   * <p>
+   * The pass list is cut into stages at every interprocedural pass (see {@link OptimizationPass#isInterprocedural()}),
+   * which may read or rewrite any method and so runs alone, as a barrier. Within any other stage each method runs its
+   * own passes in list order on one task. A pass only touches its own method, so every method sees exactly the
+   * sequence of passes the sequential schedule gives it, and the two modes produce the same program. Rounds repeat
+   * until no stage reports a change, or {@link #MAX_RUNS} rounds have run.
+   */
+  private void optimizeInParallel() {
+    final var stages = new ArrayList<List<List<OptimizationPass>>>();
+    LinkedHashMap<Method, List<OptimizationPass>> methodToPasses = null;
+    for (var optimizationPass : optimizationPassesList) {
+      if (optimizationPass.isInterprocedural()) {
+        stages.add(List.of(List.of(optimizationPass)));
+        methodToPasses = null;
+      } else {
+        if (methodToPasses == null) {
+          methodToPasses = new LinkedHashMap<>();
+          stages.add(new ArrayList<>());
+        }
+        final var isNewMethod = !methodToPasses.containsKey(optimizationPass.getMethod());
+        final var methodPasses = methodToPasses.computeIfAbsent(
+            optimizationPass.getMethod(),
+            method -> new ArrayList<>()
+        );
+        methodPasses.add(optimizationPass);
+        if (isNewMethod) {
+          stages.get(stages.size() - 1)
+                .add(methodPasses);
+        }
+      }
+    }
+
+    for (int run = 0; run < MAX_RUNS; run++) {
+      boolean changesHappened = false;
+      for (var stage : stages) {
+        final int thisRun = run;
+        final var tasks = new ArrayList<Callable<Boolean>>();
+        for (var methodPasses : stage) {
+          tasks.add(() -> runInOrder(
+              methodPasses,
+              thisRun
           ));
-          System.out.println(ProgramIr.mergeMethod(optimizationPass.getMethod()));
+        }
+        for (var future : ForkJoinPool.commonPool()
+                                      .invokeAll(tasks)) {
+          changesHappened = changesHappened | getResult(future);
         }
       }
       if (!changesHappened) {
@@ -74,6 +147,72 @@ public class DataflowOptimizer {
     }
   }
 
+  private boolean runInOrder(
+      List<OptimizationPass> methodPasses,
+      int run
+  ) {
+    boolean changesHappened = false;
+    for (var optimizationPass : methodPasses) {
+      changesHappened = changesHappened | runPass(
+          optimizationPass,
+          run
+      );
+    }
+    return changesHappened;
+  }
+
+  private static boolean getResult(Future<Boolean> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+            .interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private boolean runPass(
+      OptimizationPass optimizationPass,
+      int run
+  ) {
+    var compilationProfile = compilationContext.getCompilationProfile();
+    var start = compilationProfile == null ? null: CompilationProfile.Sample.now();
+    var changesHappenedForOpt = optimizationPass.runFunctionPass();
+    if (compilationProfile != null) {
+      compilationProfile.recordPass(
+          optimizationPass.getClass()
+                          .getSimpleName(),
+          optimizationPass.getMethod(),
+          run,
+          start,
+          changesHappenedForOpt
+      );
+    }
+    if (compilationContext.isDebugModeOn()) {
+      synchronized (System.out) {
+        System.out.format(
+            "%s<%s> run = %s :: ",
+            optimizationPass.getClass()
+                            .getSimpleName(),
+            optimizationPass.getMethod()
+                            .methodName(),
+            run
+        );
+        System.out.println(Utils.coloredPrint(
+            String.valueOf(changesHappenedForOpt),
+            Utils.ANSIColorConstants.ANSI_GREEN_BOLD
+        ));
+        System.out.println(ProgramIr.mergeMethod(optimizationPass.getMethod()));
+      }
+    }
+    return changesHappenedForOpt;
+  }
+
   public void addPass(OptimizationPassType optimizationPassType) {
     final var toOptimizeMethods = optimizationContext.getMethodsToOptimize();
     switch (optimizationPassType) {
@@ -111,8 +250,8 @@ public class DataflowOptimizer {
               optimizationContext,
               method
           )));
-      case CommonSubExpressionSsa ->
-          toOptimizeMethods.forEach(method -> optimizationPassesList.add(new CommonSubExpressionEliminationSsaPass(
+      case GlobalValueNumbering ->
+          toOptimizeMethods.forEach(method -> optimizationPassesList.add(new GlobalValueNumberingPass(
               optimizationContext,
               method
           )));
@@ -139,10 +278,29 @@ public class DataflowOptimizer {
           optimizationContext,
           method
       )));
-      case FunctionInlinePass -> toOptimizeMethods.forEach(method -> optimizationPassesList.add(new FunctionInlinePass(
-          optimizationContext,
-          method
-      )));
+      case LoopInvariantCodeMotion ->
+          toOptimizeMethods.forEach(method -> optimizationPassesList.add(new LoopInvariantCodeMotionPass(
+              optimizationContext,
+              method
+          )));
+      case BoundsCheckElimination ->
+          toOptimizeMethods.forEach(method -> optimizationPassesList.add(new BoundsCheckEliminationPass(
+              optimizationContext,
+              method
+          )));
+      case InstructionStrengthReduction ->
+          toOptimizeMethods.forEach(method -> optimizationPassesList.add(new InstructionStrengthReductionPass(
+              optimizationContext,
+              method
+          )));
+      // the inliner rewrites every method, so it is added once, on behalf of main
+      case FunctionInlinePass -> toOptimizeMethods.stream()
+                                                  .filter(Method::isMain)
+                                                  .forEach(method -> optimizationPassesList.add(new FunctionInlinePass(
+                                                      optimizationContext,
+                                                      method,
+                                                      compilationContext.getIndexManager()
+                                                  )));
       default -> throw new IllegalArgumentException();
     }
   }
@@ -0,0 +1,6 @@
+package decaf.dataflow;
+
+public enum MeetOperator {
+    UNION,
+    INTERSECTION
+}
@@ -2,10 +2,10 @@ package decaf.dataflow;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import decaf.codegen.names.IrValue;
 import decaf.common.ProgramIr;
@@ -14,11 +14,11 @@ import decaf.cfg.BasicBlock;
 import decaf.codegen.codes.Method;
 
 public class OptimizationContext {
-    private final Map<Method, List<BasicBlock>> methodToBlocks = new HashMap<>();
+    private final Map<Method, List<BasicBlock>> methodToBlocks = new ConcurrentHashMap<>();
 
     private final ProgramIr programIr;
 
-    private List<Method> methodsToOptimizeMethods = new ArrayList<>();
+    private volatile List<Method> methodsToOptimizeMethods = new ArrayList<>();
 
     public OptimizationContext(ProgramIr programIr) {
         this.programIr = programIr;
@@ -31,6 +31,10 @@ public class OptimizationContext {
         return programIr.getGlobals();
     }
 
+    public boolean isExternallyCalled(Method method) {
+        return programIr.isExternallyCalled(method);
+    }
+
     public void setBasicBlocks(Method method, Collection<BasicBlock> basicBlocks) {
         methodToBlocks.put(method, List.copyOf(basicBlocks));
     }
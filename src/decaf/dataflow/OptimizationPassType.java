@@ -8,11 +8,14 @@ public enum OptimizationPassType {
     ConstantPropagation,
     InstructionSimplification,
     BranchSimplification,
-    CommonSubExpressionSsa,
+    GlobalValueNumbering,
     CopyPropagationSsa,
     DeadStoreEliminationSsa,
     SccpSsa,
     RedundantPhiEliminationPass,
     LoopAnalysisPass,
+    LoopInvariantCodeMotion,
+    BoundsCheckElimination,
+    InstructionStrengthReduction,
     FunctionInlinePass
 }
\ No newline at end of file
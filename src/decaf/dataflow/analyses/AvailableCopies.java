@@ -1,9 +1,5 @@
 package decaf.dataflow.analyses;
 
-import com.google.common.collect.Sets;
-
-import java.util.ArrayDeque;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
@@ -16,6 +12,7 @@ import decaf.dataflow.operand.UnmodifiedOperand;
 import decaf.cfg.BasicBlock;
 import decaf.codegen.names.IrValue;
 import decaf.dataflow.Direction;
+import decaf.dataflow.MeetOperator;
 
 public class AvailableCopies extends DataFlowAnalysis<CopyQuadruple> {
     // each basicBlock maps to another map of (u -> v) pairs
@@ -30,7 +27,7 @@ public class AvailableCopies extends DataFlowAnalysis<CopyQuadruple> {
     public void computeUniversalSetsOfValues() {
         allTS = new HashSet<>();
         for (BasicBlock basicBlock : basicBlocks)
-            allTS.addAll(copy(basicBlock));
+            allTS.addAll(gen(basicBlock));
     }
 
     private void populateAvailableCopies() {
@@ -45,61 +42,32 @@ public class AvailableCopies extends DataFlowAnalysis<CopyQuadruple> {
         }
     }
 
-    @Override
-    public Set<CopyQuadruple> transferFunction(CopyQuadruple domainElement) {
-        return null;
-    }
-
     @Override
     public Direction direction() {
         return Direction.FORWARDS;
     }
 
     @Override
-    public void initializeWorkSets() {
-        out = new HashMap<>();
-        in = new HashMap<>();
-
-        for (BasicBlock basicBlock : basicBlocks) {
-            out.put(basicBlock, new HashSet<>()); // all copies are available at initialization time
-            in.put(basicBlock, new HashSet<>(allTS));
-        }
-        // IN[entry] = ∅
-        in.put(entryBlock, new HashSet<>());
-        out.put(entryBlock, copy(entryBlock));
+    boolean inIsInitiallyUniversal() {
+        return true;
     }
 
     @Override
-    public void runWorkList() {
-        var workList = new ArrayDeque<>(basicBlocks);
-        workList.remove(entryBlock);
-
-        while (!workList.isEmpty()) {
-            final var B = workList.pop();
-            var oldOut = out(B);
-
-            // IN[B] = intersect OUT[p] for all p in predecessors
-            in.put(B, meet(B));
-
-            // OUT[B] = gen[B] ∪ IN[B] - KILL[B]
-            out.put(B, Sets.union(copy(B), Sets.difference(in(B), kill(B))));
-
-            if (!out(B).equals(oldOut)) {
-                workList.addAll(B.getSuccessors());
-            }
-        }
+    public MeetOperator meetOperator() {
+        // IN[B] = intersect OUT[p] for all p in predecessors
+        return MeetOperator.INTERSECTION;
     }
 
     @Override
-    public Set<CopyQuadruple> meet(BasicBlock basicBlock) {
-        if (basicBlock.getPredecessors().isEmpty())
-            return Collections.emptySet();
-
-        var inSet = in(basicBlock);
+    boolean meetIncludesCurrentValue() {
+        // IN[B] starts as the set of all copies and is only ever narrowed
+        return true;
+    }
 
-        for (BasicBlock block : basicBlock.getPredecessors())
-            inSet.retainAll(out(block));
-        return inSet;
+    // OUT[B] = COPY[B] ∪ (IN[B] - KILL[B])
+    @Override
+    public Set<CopyQuadruple> gen(BasicBlock basicBlock) {
+        return copy(basicBlock);
     }
 
     private HashSet<CopyQuadruple> copy(BasicBlock basicBlock) {
@@ -126,7 +94,8 @@ public class AvailableCopies extends DataFlowAnalysis<CopyQuadruple> {
     }
 
 
-    private Set<CopyQuadruple> kill(BasicBlock basicBlock) {
+    @Override
+    public Set<CopyQuadruple> kill(BasicBlock basicBlock) {
         var superSet = new HashSet<>(allTS);
         var killedCopyQuadruples = new HashSet<CopyQuadruple>();
         for (StoreInstruction storeInstruction : basicBlock.getStoreInstructions()) {
@@ -1,10 +1,5 @@
 package decaf.dataflow.analyses;
 
-import com.google.common.collect.Sets;
-
-import java.util.ArrayDeque;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,6 +9,7 @@ import decaf.grammar.DecafScanner;
 import decaf.cfg.BasicBlock;
 import decaf.codegen.codes.BinaryInstruction;
 import decaf.dataflow.Direction;
+import decaf.dataflow.MeetOperator;
 import decaf.dataflow.operand.Operand;
 
 public class AvailableExpressions extends DataFlowAnalysis<Operand> {
@@ -66,23 +62,9 @@ public class AvailableExpressions extends DataFlowAnalysis<Operand> {
     }
 
     @Override
-    public void initializeWorkSets() {
-        out = new HashMap<>();
-        in = new HashMap<>();
-
-        for (BasicBlock basicBlock : basicBlocks) {
-            out.put(basicBlock, allTS); // all expressions are available at initialization time
-            in.put(basicBlock, new HashSet<>());
-        }
-
-        // IN[entry] = ∅
-        in.put(entryBlock, new HashSet<>());
-        out.put(entryBlock, gen(entryBlock));
-    }
-
-    @Override
-    public Set<Operand> transferFunction(Operand domainElement) {
-        return null;
+    boolean outIsInitiallyUniversal() {
+        // all expressions are available at initialization time
+        return true;
     }
 
     @Override
@@ -91,41 +73,13 @@ public class AvailableExpressions extends DataFlowAnalysis<Operand> {
     }
 
     @Override
-    public void runWorkList() {
-        var workList = new ArrayDeque<>(basicBlocks);
-        workList.remove(entryBlock);
-
-        while (!workList.isEmpty()) {
-            final BasicBlock B = workList.pop();
-            var oldOut = out(B);
-
-
-            // IN[B] = intersect OUT[p] for all p in predecessors
-            in.put(B, meet(B));
-
-            // OUT[B] = gen[B] ∪ IN[B] - KILL[B]
-            out.put(B, Sets.union(gen(B), Sets.difference(in(B), kill(B))));
-
-            if (!out(B).equals(oldOut)) {
-                workList.addAll(B.getSuccessors());
-            }
-        }
+    public MeetOperator meetOperator() {
+        // IN[B] = intersect OUT[p] for all p in predecessors
+        return MeetOperator.INTERSECTION;
     }
 
     @Override
-    public Set<Operand> meet(BasicBlock basicBlock) {
-        if (basicBlock.getPredecessors()
-                .isEmpty())
-            return Collections.emptySet();
-
-        var inSet = new HashSet<>(allTS);
-
-        for (BasicBlock block : basicBlock.getPredecessors())
-            inSet.retainAll(out.get(block));
-        return inSet;
-    }
-
-    private HashSet<Operand> kill(BasicBlock basicBlock) {
+    public Set<Operand> kill(BasicBlock basicBlock) {
         var superSet = new HashSet<>(allTS);
         var killedExpressions = new HashSet<Operand>();
 
@@ -142,7 +96,8 @@ public class AvailableExpressions extends DataFlowAnalysis<Operand> {
         return killedExpressions;
     }
 
-    private HashSet<Operand> gen(BasicBlock basicBlock) {
+    @Override
+    public Set<Operand> gen(BasicBlock basicBlock) {
         var validComputations = new HashSet<Operand>();
         for (StoreInstruction assignment : basicBlock.getStoreInstructions()) {
             if (assignment instanceof UnaryInstruction || assignment instanceof BinaryInstruction) {
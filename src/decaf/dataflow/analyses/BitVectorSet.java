@@ -0,0 +1,57 @@
+package decaf.dataflow.analyses;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only {@link java.util.Set} view of a bit vector over a {@link DenseIndex}.
+ * No elements are copied; membership tests and iteration read the bits directly.
+ */
+public class BitVectorSet<T> extends AbstractSet<T> {
+    private final BitSet bits;
+    private final DenseIndex<T> domain;
+
+    public BitVectorSet(BitSet bits, DenseIndex<T> domain) {
+        this.bits = bits;
+        this.domain = domain;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        var index = domain.indexOf(o);
+        return index >= 0 && bits.get(index);
+    }
+
+    @Override
+    public int size() {
+        return bits.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = bits.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+                var element = domain.get(next);
+                next = bits.nextSetBit(next + 1);
+                return element;
+            }
+        };
+    }
+}
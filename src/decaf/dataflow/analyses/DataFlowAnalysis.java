@@ -2,7 +2,10 @@ package decaf.dataflow.analyses;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,8 +18,18 @@ import decaf.cfg.NOP;
 import decaf.codegen.InstructionList;
 import decaf.codegen.codes.Instruction;
 import decaf.dataflow.Direction;
+import decaf.dataflow.MeetOperator;
 import decaf.common.StronglyConnectedComponentsTarjan;
 
+/**
+ * A gen/kill dataflow analysis solved over bit vectors.
+ * <p>
+ * The elements of the domain are numbered densely per analysis by a {@link DenseIndex}, and the IN, OUT, GEN and KILL
+ * sets of each basic block are stored as {@link BitSet}s. GEN and KILL are computed once per block; the meet and
+ * transfer functions then reduce to word-wise OR, AND and AND-NOT and the work list loop does not allocate.
+ * <p>
+ * The results are exposed through {@link #in} and {@link #out} as read-only {@link BitVectorSet} views.
+ */
 public abstract class DataFlowAnalysis<T> {
     public Map<BasicBlock, Set<T>> out;
     public Map<BasicBlock, Set<T>> in;
@@ -25,6 +38,14 @@ public abstract class DataFlowAnalysis<T> {
     List<BasicBlock> basicBlocks;
     NOP entryBlock;
     NOP exitBlock;
+    DenseIndex<T> domain;
+    private Map<BasicBlock, Integer> basicBlockToIndex;
+    private int[][] predecessors;
+    private int[][] successors;
+    private BitSet[] inBits;
+    private BitSet[] outBits;
+    private BitSet[] genBits;
+    private BitSet[] killBits;
 
     public DataFlowAnalysis(BasicBlock basicBlock) {
         attachEntryNode(basicBlock);
@@ -59,6 +80,9 @@ public abstract class DataFlowAnalysis<T> {
         basicBlock.addPredecessor(entryBlock);
     }
 
+    /**
+     * Computes {@link #allTS}, the universe of domain elements
+     */
     public abstract void computeUniversalSetsOfValues();
 
     private void findAllBasicBlocksInReversePostOrder() {
@@ -76,15 +100,149 @@ public abstract class DataFlowAnalysis<T> {
         exitBlock = exitBlockList.get(0);
     }
 
-    public abstract Set<T> meet(BasicBlock basicBlock);
+    public abstract Set<T> gen(BasicBlock basicBlock);
 
-    public abstract Set<T> transferFunction(T domainElement);
+    public abstract Set<T> kill(BasicBlock basicBlock);
+
+    public abstract MeetOperator meetOperator();
 
     public abstract Direction direction();
 
-    public abstract void initializeWorkSets();
+    /**
+     * @return whether IN[B] starts out as the universal set rather than the empty set
+     */
+    boolean inIsInitiallyUniversal() {
+        return false;
+    }
+
+    /**
+     * @return whether OUT[B] starts out as the universal set rather than the empty set
+     */
+    boolean outIsInitiallyUniversal() {
+        return false;
+    }
+
+    /**
+     * @return whether the meet also intersects with the block's current value, so that it can only ever shrink
+     */
+    boolean meetIncludesCurrentValue() {
+        return false;
+    }
+
+    private int[][] indexNeighbours(boolean useSuccessors) {
+        var neighbours = new int[basicBlocks.size()][];
+        for (int i = 0; i < basicBlocks.size(); i++) {
+            var basicBlock = basicBlocks.get(i);
+            neighbours[i] = (useSuccessors ? basicBlock.getSuccessors(): basicBlock.getPredecessors())
+                    .stream()
+                    .map(basicBlockToIndex::get)
+                    .filter(index -> index != null)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        return neighbours;
+    }
+
+    public void initializeWorkSets() {
+        domain = new DenseIndex<>();
+        allTS.forEach(domain::add);
+        final var nBasicBlocks = basicBlocks.size();
+        basicBlockToIndex = new IdentityHashMap<>();
+        for (int i = 0; i < nBasicBlocks; i++)
+            basicBlockToIndex.put(basicBlocks.get(i), i);
+        predecessors = indexNeighbours(false);
+        successors = indexNeighbours(true);
+
+        genBits = new BitSet[nBasicBlocks];
+        killBits = new BitSet[nBasicBlocks];
+        for (int i = 0; i < nBasicBlocks; i++) {
+            genBits[i] = domain.toBitSet(gen(basicBlocks.get(i)));
+            killBits[i] = domain.toBitSet(kill(basicBlocks.get(i)));
+        }
+
+        var universe = new BitSet(domain.size());
+        for (T element : allTS)
+            universe.set(domain.indexOf(element));
+
+        inBits = new BitSet[nBasicBlocks];
+        outBits = new BitSet[nBasicBlocks];
+        for (int i = 0; i < nBasicBlocks; i++) {
+            inBits[i] = inIsInitiallyUniversal() ? (BitSet) universe.clone(): new BitSet(domain.size());
+            outBits[i] = outIsInitiallyUniversal() ? (BitSet) universe.clone(): new BitSet(domain.size());
+        }
 
-    public abstract void runWorkList();
+        // IN[entry] = ∅
+        final int entry = basicBlockToIndex.get(entryBlock);
+        inBits[entry].clear();
+        if (direction() == Direction.FORWARDS) {
+            outBits[entry].clear();
+            outBits[entry].or(genBits[entry]);
+        } else {
+            final int exit = basicBlockToIndex.get(exitBlock);
+            inBits[exit].clear();
+            inBits[exit].or(genBits[exit]);
+        }
+
+        in = new HashMap<>();
+        out = new HashMap<>();
+        for (int i = 0; i < nBasicBlocks; i++) {
+            in.put(basicBlocks.get(i), new BitVectorSet<>(inBits[i], domain));
+            out.put(basicBlocks.get(i), new BitVectorSet<>(outBits[i], domain));
+        }
+    }
+
+    private void meet(BitSet result, BitSet current, int[] neighbours, BitSet[] neighbourBits) {
+        if (neighbours.length == 0) {
+            result.clear();
+            return;
+        }
+        if (meetOperator() == MeetOperator.UNION) {
+            result.clear();
+            for (int neighbour : neighbours)
+                result.or(neighbourBits[neighbour]);
+        } else {
+            result.clear();
+            result.or(neighbourBits[neighbours[0]]);
+            for (int i = 1; i < neighbours.length; i++)
+                result.and(neighbourBits[neighbours[i]]);
+            if (meetIncludesCurrentValue())
+                result.and(current);
+        }
+    }
+
+    public void runWorkList() {
+        final boolean forwards = direction() == Direction.FORWARDS;
+        // forwards: IN[B] = meet OUT[p] for all predecessors p, OUT[B] = GEN[B] ∪ (IN[B] - KILL[B])
+        // backwards: OUT[B] = meet IN[s] for all successors s, IN[B] = GEN[B] ∪ (OUT[B] - KILL[B])
+        final BitSet[] meetBits = forwards ? inBits: outBits;
+        final BitSet[] transferBits = forwards ? outBits: inBits;
+        final int[][] meetFrom = forwards ? predecessors: successors;
+        final int[][] propagateTo = forwards ? successors: predecessors;
+        final var scratch = new BitSet(domain.size());
+        final int entry = basicBlockToIndex.get(entryBlock);
+
+        var workList = new IntQueue(basicBlocks.size());
+        for (int i = 0; i < basicBlocks.size(); i++)
+            if (i != entry)
+                workList.add(i);
+
+        while (!workList.isEmpty()) {
+            final int B = workList.remove();
+
+            meet(scratch, meetBits[B], meetFrom[B], transferBits);
+            meetBits[B].clear();
+            meetBits[B].or(scratch);
+
+            scratch.andNot(killBits[B]);
+            scratch.or(genBits[B]);
+
+            if (!scratch.equals(transferBits[B])) {
+                transferBits[B].clear();
+                transferBits[B].or(scratch);
+                workList.addAll(propagateTo[B]);
+            }
+        }
+    }
 
     public String getResultForPrint() {
         return Stream
@@ -95,4 +253,45 @@ public abstract class DataFlowAnalysis<T> {
                 .map(T::toString)
                 .collect(Collectors.joining("\n"));
     }
+
+    /**
+     * A FIFO queue of block indices; duplicates are allowed, mirroring the order in which blocks are revisited
+     */
+    private static class IntQueue {
+        private int[] elements;
+        private int head;
+        private int size;
+
+        IntQueue(int initialCapacity) {
+            elements = new int[Math.max(initialCapacity, 8)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int element) {
+            if (size == elements.length) {
+                var grown = new int[elements.length * 2];
+                for (int i = 0; i < size; i++)
+                    grown[i] = elements[(head + i) % elements.length];
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size) % elements.length] = element;
+            size++;
+        }
+
+        void addAll(int[] toAdd) {
+            for (int element : toAdd)
+                add(element);
+        }
+
+        int remove() {
+            final int element = elements[head];
+            head = (head + 1) % elements.length;
+            size--;
+            return element;
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package decaf.dataflow.analyses;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the elements of a dataflow domain 0, 1, 2, ... so that sets of elements can be stored as bit vectors.
+ *
+ * @param <T> the type of the domain elements
+ */
+public class DenseIndex<T> {
+    private final Map<T, Integer> elementToIndex = new HashMap<>();
+    private final List<T> elements = new ArrayList<>();
+
+    public int add(T element) {
+        var index = elementToIndex.get(element);
+        if (index != null)
+            return index;
+        elementToIndex.put(element, elements.size());
+        elements.add(element);
+        return elements.size() - 1;
+    }
+
+    /**
+     * @return the index of {@code element} or -1 if the element is not part of the domain
+     */
+    public int indexOf(Object element) {
+        return elementToIndex.getOrDefault(element, -1);
+    }
+
+    public T get(int index) {
+        return elements.get(index);
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Converts a set of elements to a bit vector, numbering any elements not yet in the domain
+     */
+    public BitSet toBitSet(Collection<T> collection) {
+        var bitSet = new BitSet(size());
+        for (T element : collection)
+            bitSet.set(add(element));
+        return bitSet;
+    }
+}
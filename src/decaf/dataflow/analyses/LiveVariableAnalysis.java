@@ -1,12 +1,7 @@
 package decaf.dataflow.analyses;
 
-import com.google.common.collect.Sets;
-
-import java.util.ArrayDeque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import decaf.codegen.codes.HasOperand;
 import decaf.cfg.BasicBlock;
@@ -16,6 +11,7 @@ import decaf.codegen.codes.StoreInstruction;
 import decaf.codegen.names.IrValue;
 import decaf.codegen.names.IrValuePredicates;
 import decaf.dataflow.Direction;
+import decaf.dataflow.MeetOperator;
 import decaf.dataflow.usedef.Def;
 import decaf.dataflow.usedef.Use;
 import decaf.dataflow.usedef.UseDef;
@@ -25,30 +21,29 @@ public class LiveVariableAnalysis extends DataFlowAnalysis<UseDef> {
         super(basicBlock);
     }
 
+    private static Set<IrValue> toVariables(Set<UseDef> useDefs) {
+        var variables = new HashSet<IrValue>();
+        for (UseDef useDef : useDefs)
+            variables.add(useDef.variable);
+        return variables;
+    }
+
     public Set<IrValue> liveOut(BasicBlock basicBlock) {
         // the set of variables actually needed later in the program
-        return out
-                .get(basicBlock)
-                .stream()
-                .map(useDef -> useDef.variable)
-                .collect(Collectors.toSet());
+        return toVariables(out(basicBlock));
     }
 
     public Set<IrValue> liveIn(BasicBlock basicBlock) {
-        return in
-                .get(basicBlock)
-                .stream()
-                .map(useDef -> useDef.variable)
-                .collect(Collectors.toSet());
+        return toVariables(in(basicBlock));
     }
 
     @Override
     public void computeUniversalSetsOfValues() {
-    }
-
-    @Override
-    public Set<UseDef> transferFunction(UseDef domainElement) {
-        return null;
+        allTS = new HashSet<>();
+        for (BasicBlock basicBlock : basicBlocks) {
+            allTS.addAll(use(basicBlock));
+            allTS.addAll(def(basicBlock));
+        }
     }
 
     @Override
@@ -57,46 +52,41 @@ public class LiveVariableAnalysis extends DataFlowAnalysis<UseDef> {
     }
 
     @Override
-    public void initializeWorkSets() {
-        out = new HashMap<>();
-        in = new HashMap<>();
-
-        for (BasicBlock basicBlock : basicBlocks) {
-            out.put(basicBlock, new HashSet<>()); // all copies are available at initialization time
-            in.put(basicBlock, new HashSet<>());
-        }
-        in.put(exitBlock, use(exitBlock));
+    public MeetOperator meetOperator() {
+        // OUT[B] = union IN[s] for all s in successors
+        return MeetOperator.UNION;
     }
 
+    // IN[B] = USE[B] ∪ (OUT[B] - DEF[B])
     @Override
-    public void runWorkList() {
-        var workList = new ArrayDeque<>(basicBlocks);
-        workList.remove(entryBlock);
-
-        while (!workList.isEmpty()) {
-            final BasicBlock B = workList.pop();
-            var oldIn = in(B);
-
-            // OUT[B] = intersect OUT[s] for all s in successors
-            out.put(B, meet(B));
-
-            // IN[B] = USE[B] ∪ (IN[B] - DEF[B])
-            in.put(B, Sets.union(use(B), Sets.difference(out(B), def(B))));
+    public Set<UseDef> gen(BasicBlock basicBlock) {
+        return use(basicBlock);
+    }
 
-            if (!in(B).equals(oldIn)) {
-                workList.addAll(B.getPredecessors());
-            }
-        }
+    // a Def never equals a Use, so the block kills the uses of the variables it defines
+    @Override
+    public Set<UseDef> kill(BasicBlock basicBlock) {
+        var killSet = new HashSet<UseDef>();
+        for (UseDef def : def(basicBlock))
+            killSet.add(new Use(def.variable, def.line));
+        return killSet;
     }
 
-    // an instruction makes a irAssignableValue "live" it references it
+    // an instruction makes a irAssignableValue "live" it references it before the block defines it
     private Set<UseDef> use(BasicBlock basicBlock) {
         var useSet = new HashSet<UseDef>();
-        for (Instruction instruction : basicBlock.getInstructionListReversed()) {
+        var defined = new HashSet<IrValue>();
+        for (Instruction instruction : basicBlock.getInstructionList()) {
             if (instruction instanceof HasOperand hasOperand) {
                 hasOperand.genOperandIrValuesFiltered(IrValuePredicates.isRegisterAllocatable())
+                          .stream()
+                          .filter(lValue -> !defined.contains(lValue))
                           .forEach(lValue -> useSet.add(new Use(lValue, instruction)));
             }
+            if (instruction instanceof StoreInstruction storeInstruction)
+                defined.add(storeInstruction.getDestination());
+            if (instruction instanceof GetAddress getAddress)
+                defined.add(getAddress.getBaseAddress());
         }
         return useSet;
     }
@@ -114,13 +104,4 @@ public class LiveVariableAnalysis extends DataFlowAnalysis<UseDef> {
         return defSet;
     }
 
-
-    @Override
-    public Set<UseDef> meet(BasicBlock basicBlock) {
-        var outSet = new HashSet<UseDef>();
-        for (var successor : basicBlock.getSuccessors()) {
-            outSet.addAll(in(successor));
-        }
-        return outSet;
-    }
 }
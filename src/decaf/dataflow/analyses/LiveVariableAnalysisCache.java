@@ -0,0 +1,101 @@
+package decaf.dataflow.analyses;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.InstructionList;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrValue;
+import decaf.common.StronglyConnectedComponentsTarjan;
+
+/**
+ * Caches one {@link LiveVariableAnalysis} per {@link Method}.
+ * <p>
+ * A cached analysis is reused until the instruction list of any basic block of its method changes,
+ * or a block is added to or removed from the method's control flow graph.
+ * <p>
+ * Passes also rewrite operands in place, through {@link decaf.codegen.codes.HasOperand#replaceValue} or by renaming
+ * an {@link decaf.codegen.names.IrSsaRegister}, which leaves the modification count of the list alone. So each block
+ * also keeps a fingerprint of its operands, and a changed fingerprint makes the analysis stale as well.
+ */
+public class LiveVariableAnalysisCache {
+    private final Map<Method, CachedLiveVariableAnalysis> methodToLiveVariableAnalysis = new HashMap<>();
+
+    private static Map<BasicBlock, Integer> snapshotModificationCounts(@NotNull List<BasicBlock> basicBlocks) {
+        var modificationCounts = new IdentityHashMap<BasicBlock, Integer>();
+        for (var basicBlock : basicBlocks) {
+            modificationCounts.put(basicBlock, basicBlock.getInstructionList().getModificationCount());
+        }
+        return modificationCounts;
+    }
+
+    /**
+     * Combines the identity and the name of every operand of a block, so that both replacing an operand and renaming
+     * one in place change it
+     */
+    private static long fingerprintOperands(@NotNull BasicBlock basicBlock) {
+        long fingerprint = 1;
+        for (Instruction instruction : basicBlock.getInstructionList()) {
+            for (IrValue irValue : instruction.genIrValuesSurface()) {
+                fingerprint = 31 * fingerprint + System.identityHashCode(irValue);
+                fingerprint = 31 * fingerprint + irValue.hashCode();
+            }
+        }
+        return fingerprint;
+    }
+
+    private static Map<BasicBlock, Long> snapshotOperands(@NotNull List<BasicBlock> basicBlocks) {
+        var operandFingerprints = new IdentityHashMap<BasicBlock, Long>();
+        for (var basicBlock : basicBlocks) {
+            operandFingerprints.put(basicBlock, fingerprintOperands(basicBlock));
+        }
+        return operandFingerprints;
+    }
+
+    @NotNull
+    public LiveVariableAnalysis get(@NotNull Method method) {
+        var cached = methodToLiveVariableAnalysis.get(method);
+        var basicBlocks = StronglyConnectedComponentsTarjan.allBasicBlocks(method.getEntryBlock());
+        if (cached != null && cached.isValidFor(basicBlocks)) {
+            return cached.liveVariableAnalysis();
+        }
+        var instructionLists = new IdentityHashMap<BasicBlock, InstructionList>();
+        basicBlocks.forEach(basicBlock -> instructionLists.put(basicBlock, basicBlock.getInstructionList()));
+        var liveVariableAnalysis = new LiveVariableAnalysis(method.getEntryBlock());
+        methodToLiveVariableAnalysis.put(method, new CachedLiveVariableAnalysis(liveVariableAnalysis, instructionLists, snapshotModificationCounts(basicBlocks), snapshotOperands(basicBlocks)));
+        return liveVariableAnalysis;
+    }
+
+    public void invalidate(@NotNull Method method) {
+        methodToLiveVariableAnalysis.remove(method);
+    }
+
+    public void invalidateAll() {
+        methodToLiveVariableAnalysis.clear();
+    }
+
+    private record CachedLiveVariableAnalysis(LiveVariableAnalysis liveVariableAnalysis,
+                                              Map<BasicBlock, InstructionList> instructionLists,
+                                              Map<BasicBlock, Integer> modificationCounts,
+                                              Map<BasicBlock, Long> operandFingerprints) {
+        boolean isValidFor(List<BasicBlock> basicBlocks) {
+            if (basicBlocks.size() != modificationCounts.size())
+                return false;
+            for (var basicBlock : basicBlocks) {
+                var modificationCount = modificationCounts.get(basicBlock);
+                if (modificationCount == null ||
+                        instructionLists.get(basicBlock) != basicBlock.getInstructionList() ||
+                        modificationCount != basicBlock.getInstructionList().getModificationCount() ||
+                        operandFingerprints.get(basicBlock) != fingerprintOperands(basicBlock))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
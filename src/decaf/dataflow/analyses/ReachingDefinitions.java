@@ -1,10 +1,5 @@
 package decaf.dataflow.analyses;
 
-import com.google.common.collect.Sets;
-
-import java.util.ArrayDeque;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -12,6 +7,7 @@ import java.util.stream.Collectors;
 import decaf.codegen.codes.StoreInstruction;
 import decaf.cfg.BasicBlock;
 import decaf.dataflow.Direction;
+import decaf.dataflow.MeetOperator;
 
 /**
  * A definition d_x : x = e reaches a program point p if it appears without a redefinition on some path
@@ -22,7 +18,8 @@ public class ReachingDefinitions extends DataFlowAnalysis<StoreInstruction> {
         super(basicBlock);
     }
 
-    private Set<StoreInstruction> gen(BasicBlock basicBlock) {
+    @Override
+    public Set<StoreInstruction> gen(BasicBlock basicBlock) {
         var seenStoreVariables = new HashSet<>();
         var seenAgain = new HashSet<>();
         for (StoreInstruction storeInstruction : basicBlock.getStoreInstructions()) {
@@ -46,64 +43,18 @@ public class ReachingDefinitions extends DataFlowAnalysis<StoreInstruction> {
     }
 
     @Override
-    public Set<StoreInstruction> meet(BasicBlock basicBlock) {
-        if (basicBlock.getPredecessors()
-                .isEmpty())
-            return Collections.emptySet();
-
-        var inSet = new HashSet<>(allTS);
-
-        for (BasicBlock block : basicBlock.getPredecessors())
-            inSet.retainAll(out(block));
-
-        return inSet;
-    }
-
-    @Override
-    public Set<StoreInstruction> transferFunction(StoreInstruction domainElement) {
-        return null;
+    public MeetOperator meetOperator() {
+        // IN[B] = intersect OUT[p] for all p in predecessors
+        return MeetOperator.INTERSECTION;
     }
 
     @Override
     public Direction direction() {
-        return Direction.BACKWARDS;
-    }
-
-    @Override
-    public void initializeWorkSets() {
-        in = new HashMap<>();
-        out = new HashMap<>();
-
-        for (BasicBlock basicBlock : basicBlocks) {
-            out.put(basicBlock, new HashSet<>());
-            in.put(basicBlock, new HashSet<>());
-        }
-
-        out.put(entryBlock, gen(entryBlock));
+        // OUT[B] = gen[B] ∪ IN[B] - KILL[B]
+        return Direction.FORWARDS;
     }
 
     @Override
-    public void runWorkList() {
-        var workList = new ArrayDeque<>(basicBlocks);
-        workList.remove(entryBlock);
-
-        while (!workList.isEmpty()) {
-            final BasicBlock B = workList.pop();
-            var oldOut = out(B);
-
-
-            // IN[B] = intersect OUT[p] for all p in predecessors
-            in.put(B, meet(B));
-
-            // OUT[B] = gen[B] ∪ IN[B] - KILL[B]
-            out.put(B, Sets.union(gen(B), Sets.difference(in(B), kill(B))));
-
-            if (!out(B).equals(oldOut)) {
-                workList.addAll(B.getSuccessors());
-            }
-        }
-    }
-
     public Set<StoreInstruction> kill(BasicBlock basicBlock) {
         // we kill any definition
         var genSet = gen(basicBlock);
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -16,7 +18,7 @@ import decaf.cfg.BasicBlock;
 import decaf.cfg.NOP;
 import decaf.common.StronglyConnectedComponentsTarjan;
 
-public class DominatorTree extends HashMap<BasicBlock, BasicBlock> {
+public class DominatorTree extends LinkedHashMap<BasicBlock, BasicBlock> {
   /**
    * A map of a basic block to the set of nodes which dominate it
    */
@@ -244,12 +246,13 @@ public class DominatorTree extends HashMap<BasicBlock, BasicBlock> {
 
   @NotNull
   private Map<BasicBlock, Set<BasicBlock>> computeChildren() {
+    // the keys were first put in reverse post order, so each block's children come in that order too
     var basicBlockToChildrenMap = new HashMap<BasicBlock, Set<BasicBlock>>();
     for (BasicBlock B : keySet()) {
       var immediateDom = get(B);
       basicBlockToChildrenMap.putIfAbsent(
           immediateDom,
-          new HashSet<>()
+          new LinkedHashSet<>()
       );
       basicBlockToChildrenMap.get(immediateDom)
                              .add(B);
@@ -278,7 +281,7 @@ public class DominatorTree extends HashMap<BasicBlock, BasicBlock> {
       @NotNull BasicBlock basicBlock,
       @NotNull Map<BasicBlock, Set<BasicBlock>> basicBlockToDominanceFrontierMap
   ) {
-    var dominanceFrontier = new HashSet<BasicBlock>();
+    var dominanceFrontier = new LinkedHashSet<BasicBlock>();
     for (var successor : basicBlock.getSuccessors()) {
       if (!get(successor).equals(basicBlock)) {
         dominanceFrontier.add(successor);
@@ -294,10 +297,10 @@ public class DominatorTree extends HashMap<BasicBlock, BasicBlock> {
           basicBlockToDominanceFrontierMap
       );
       for (var w : basicBlockToDominanceFrontierMap.get(child)) {
-        if (!dom(
-            w,
-            basicBlock
-        ) || basicBlock == w) {
+        if (!strictDom(
+            basicBlock,
+            w
+        )) {
           dominanceFrontier.add(w);
         }
       }
@@ -2,17 +2,18 @@ package decaf.dataflow.operand;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import decaf.codegen.codes.StoreInstruction;
 import decaf.grammar.DecafScanner;
 import decaf.codegen.names.IrValue;
 
 public abstract class Operand {
-    private static int indexCounter;
+    private static final AtomicInteger indexCounter = new AtomicInteger();
     private final int index;
 
     public Operand() {
-        this.index = indexCounter++;
+        this.index = indexCounter.getAndIncrement();
     }
 
     public static boolean operatorIsCommutative(String operator) {
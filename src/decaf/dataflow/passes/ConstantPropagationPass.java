@@ -13,6 +13,7 @@ import decaf.codegen.codes.StoreInstruction;
 import decaf.codegen.names.IrSsaRegister;
 import decaf.dataflow.OptimizationContext;
 import decaf.dataflow.analyses.ReachingDefinitions;
+import decaf.dataflow.usedef.ConstantFolding;
 import decaf.cfg.BasicBlock;
 import decaf.codegen.codes.CopyInstruction;
 import decaf.codegen.codes.Method;
@@ -86,10 +87,23 @@ public class ConstantPropagationPass extends OptimizationPass {
         }
     }
 
+    // replaces instructions whose operands have become constants with a copy of their value
+    private void foldConstants() {
+        for (BasicBlock basicBlock : getBasicBlocksList()) {
+            var instructionList = basicBlock.getInstructionList();
+            for (int indexOfInstruction = 0; indexOfInstruction < instructionList.size(); indexOfInstruction++) {
+                final int index = indexOfInstruction;
+                ConstantFolding.tryFold(instructionList.get(index))
+                               .ifPresent(folded -> instructionList.set(index, folded));
+            }
+        }
+    }
+
     @Override
     public boolean runFunctionPass() {
         final var oldCodes = entryBlock.getCopyOfInstructionList();
         runGlobalConstantPropagation();
+        foldConstants();
         return !oldCodes.equals(entryBlock.getInstructionList());
     }
 }
@@ -1,225 +1,486 @@
 package decaf.dataflow.passes;
 
-import org.jetbrains.annotations.NotNull;
-
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.Stack;
 
-import decaf.codegen.InstructionList;
-import decaf.codegen.codes.FunctionCallWithResult;
-import decaf.codegen.codes.HasOperand;
-import decaf.codegen.codes.Instruction;
-import decaf.codegen.codes.ReturnInstruction;
-import decaf.codegen.codes.UnconditionalBranch;
-import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.ast.MethodCall;
 import decaf.cfg.BasicBlock;
-import decaf.codegen.TraceScheduler;
+import decaf.codegen.IndexManager;
 import decaf.codegen.codes.ArrayBoundsCheck;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.ConditionalBranch;
 import decaf.codegen.codes.CopyInstruction;
 import decaf.codegen.codes.FunctionCall;
+import decaf.codegen.codes.FunctionCallNoResult;
+import decaf.codegen.codes.FunctionCallWithResult;
+import decaf.codegen.codes.GetAddress;
+import decaf.codegen.codes.Instruction;
 import decaf.codegen.codes.Method;
 import decaf.codegen.codes.MethodEnd;
+import decaf.codegen.codes.ReturnInstruction;
+import decaf.codegen.codes.RuntimeException;
+import decaf.codegen.codes.UnaryInstruction;
+import decaf.codegen.codes.UnconditionalBranch;
+import decaf.codegen.names.IrAssignable;
+import decaf.codegen.names.IrMemoryAddress;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrStackArray;
 import decaf.codegen.names.IrValue;
+import decaf.common.StronglyConnectedComponentsTarjan;
 import decaf.dataflow.OptimizationContext;
+import decaf.dataflow.ssapasses.LoopAnalysisPass;
+import decaf.ssa.Phi;
 
-
+/**
+ * Replaces calls with a copy of the control flow graph of the called method.
+ * <p>
+ * The methods are visited bottom-up over the strongly connected components of the call graph, so a callee has had its
+ * own calls inlined, and been simplified by the passes which ran before this one, by the time its size is weighed.
+ * Calls within a component, and calls to recursive methods, are left alone.
+ * <p>
+ * A call is inlined when the instructions it adds, the size of the callee less the call itself and the moves of its
+ * arguments, fit a budget which doubles with every loop around the call, up to {@link #MAX_LOOP_DEPTH} loops. The
+ * only remaining call to a method no one else can call is always inlined, since the body then moves rather than being
+ * copied. Either way, no caller grows past {@link #MAX_CALLER_SIZE} instructions.
+ * <p>
+ * The block of the call is split after it: the arguments are copied into the parameters of the copy, and every return
+ * of the copy jumps to the rest of the block, where a phi of the returned values, or a copy if there is a single
+ * return, defines the result of the call. Methods which no code can call any more are dropped, unless they may be
+ * called from outside the methods being optimized.
+ */
 public class FunctionInlinePass extends OptimizationPass {
+    private static final int BASE_BUDGET = 12;
+    private static final int MAX_LOOP_DEPTH = 3;
+    private static final int MAX_CALLER_SIZE = 1500;
+    /**
+     * The call, its return and the set up of the frame of the callee, besides one move per argument
+     */
+    private static final int CALL_OVERHEAD = 3;
+
+    private final IndexManager indexManager;
+    private final Map<String, Method> methodsByName = new LinkedHashMap<>();
+    private final Map<Method, Set<Method>> callGraph = new LinkedHashMap<>();
+    private final Map<Method, Integer> callSiteCounts = new HashMap<>();
+    private final Set<Method> recursiveMethods = new HashSet<>();
+    private final Map<IrValue, IrValue> renamed = new HashMap<>();
+
     public FunctionInlinePass(
         OptimizationContext optimizationContext,
-        Method method
+        Method method,
+        IndexManager indexManager
     ) {
         super(
             optimizationContext,
             method
         );
+        this.indexManager = indexManager;
     }
 
-    private Map<IrValue, IrValue> mapParametersToArguments(
-        InstructionList functionTacList,
-        List<IrValue> arguments) {
-        var method = (Method) functionTacList.get(0);
-        var map = new HashMap<IrValue, IrValue>();
-        var parameters = method.getParameterNames();
-        for (int indexOfCode = 0; indexOfCode < parameters.size(); indexOfCode++) {
-            map.put(parameters.get(indexOfCode), arguments.get(indexOfCode));
-        }
-        return map;
-    }
-
-    private Map<InstructionList, List<Integer>> findCallSites(Method method, String functionName) {
-        var callSites = new HashMap<InstructionList, List<Integer>>();
-        for (BasicBlock basicBlock : StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())) {
-            var threeAddressCodeList = basicBlock.getInstructionList();
-            callSites.put(threeAddressCodeList, new ArrayList<>());
-            IntStream.range(0, threeAddressCodeList.size())
-                    .forEach(indexOfTac -> {
-                        if (isMethodCallAndNameMatches(threeAddressCodeList.get(indexOfTac), functionName)) {
-                            callSites.get(threeAddressCodeList)
-                                    .add(indexOfTac);
-                        }
-                    });
-        }
-        return callSites;
+    @Override
+    public boolean isInterprocedural() {
+        return true;
     }
 
-    private List<IrValue> findArgumentNames(InstructionList instructionList, int indexOfFunctionCall) {
-        assert instructionList.get(indexOfFunctionCall) instanceof FunctionCall;
-        return ((FunctionCall) instructionList.get(indexOfFunctionCall)).getArguments();
-    }
+    @Override
+    public boolean runFunctionPass() {
+        buildCallGraph();
+        var components = findComponentsBottomUp();
+        recursiveMethods.clear();
+        for (var component : components)
+            for (var method : component)
+                if (component.size() > 1 || callGraph.get(method).contains(method))
+                    recursiveMethods.add(method);
 
-    private void inlineMethod(@NotNull Method methodToInline) {
-        var functionName = methodToInline.methodName();
-        for (var targetMethod : optimizationContext.getMethodsToOptimize()) {
-            if (methodToInline == targetMethod)
-                continue;
-            findCallSites(targetMethod, functionName).forEach(((threeAddressCodeList, indicesOfCallSites) -> inlineCallSite(threeAddressCodeList, indicesOfCallSites, TraceScheduler.flattenIr(methodToInline))));
+        var changesHappened = false;
+        for (var component : components) {
+            for (var caller : component) {
+                if (inlineCallSites(caller, component)) {
+                    optimizationContext.setBasicBlocks(caller, StronglyConnectedComponentsTarjan.getReversePostOrder(caller.getEntryBlock()));
+                    changesHappened = true;
+                }
+            }
         }
+        return removeUncalledMethods() | changesHappened;
     }
 
-    private List<Instruction> findReplacementBody(List<IrValue> arguments,
-                                                  InstructionList functionBody) {
-        // replace all instances of arguments with
-        // find my actual parameter names
-        List<Instruction> newTacList = new ArrayList<>();
-        Map<IrValue, IrValue> paramToArg = mapParametersToArguments(functionBody, arguments);
-        for (var tac : functionBody) {
-            if (tac instanceof MethodEnd || tac instanceof UnconditionalBranch || tac instanceof Method)
-                continue;
-            if (tac instanceof HasOperand) {
-                tac = tac.copy();
-                paramToArg.forEach(((HasOperand) tac)::replaceValue);
+    private void buildCallGraph() {
+        methodsByName.clear();
+        callGraph.clear();
+        callSiteCounts.clear();
+        for (var method : optimizationContext.getMethodsToOptimize())
+            methodsByName.put(method.methodName(), method);
+        for (var method : optimizationContext.getMethodsToOptimize()) {
+            callSiteCounts.putIfAbsent(method, 0);
+            var callees = new LinkedHashSet<Method>();
+            for (var callee : findCallees(method)) {
+                callSiteCounts.merge(callee, 1, Integer::sum);
+                callees.add(callee);
             }
-            newTacList.add(tac);
+            callGraph.put(method, callees);
         }
-        return newTacList;
     }
 
-    private void inlineCallSite(InstructionList targetTacList, List<Integer> indicesOfCallSite, InstructionList functionBody) {
-        if (targetTacList.isEmpty())
-            return;
-        var replacementBodies = new ArrayList<List<Instruction>>();
-        for (var indexOfCallSite : indicesOfCallSite) {
-            replacementBodies.add(findReplacementBody(findArgumentNames(targetTacList, indexOfCallSite), functionBody));
-        }
-        var newTacList = new ArrayList<Instruction>();
-        Collections.reverse(indicesOfCallSite);
-        int last = targetTacList.size() - 1;
-
-        // we are going in reverse order
-        int indexOfReplacementBody = replacementBodies.size() - 1;
-        for (var indexOfCallSite : indicesOfCallSite) {
-            var subTacList = targetTacList.subList(indexOfCallSite + 1, last + 1);
-
-            Collections.reverse(subTacList);
-            newTacList.addAll(subTacList);
-            var replacement = replacementBodies.get(indexOfReplacementBody);
-            Collections.reverse(replacement);
-
-            if (targetTacList.get(indexOfCallSite) instanceof FunctionCallWithResult methodCallSetResult) {
+    /**
+     * @return the method called by every call of {@code method} to a method being optimized, once per call
+     */
+    private List<Method> findCallees(Method method) {
+        var callees = new ArrayList<Method>();
+        for (var basicBlock : StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock()))
+            for (var instruction : basicBlock.getInstructionList())
+                if (instruction instanceof FunctionCall functionCall && methodsByName.containsKey(functionCall.getMethodName()))
+                    callees.add(methodsByName.get(functionCall.getMethodName()));
+        return callees;
+    }
 
-                assert replacement.get(0) instanceof ReturnInstruction;
-                var methodReturn = (ReturnInstruction) replacement.get(0);
-                newTacList.add(CopyInstruction.noMetaData(methodCallSetResult.getDestination(), methodReturn.getReturnAddress()
-                        .orElseThrow()));
+    /**
+     * Tarjan's algorithm finishes a component only after every component it calls into, so the components come out
+     * callees first
+     */
+    private List<Set<Method>> findComponentsBottomUp() {
+        var components = new ArrayList<Set<Method>>();
+        var indices = new HashMap<Method, Integer>();
+        var lowLinks = new HashMap<Method, Integer>();
+        var stack = new Stack<Method>();
+        for (var method : callGraph.keySet())
+            if (!indices.containsKey(method))
+                strongConnect(method, indices, lowLinks, stack, components);
+        return components;
+    }
 
-                replacement.remove(0);
+    private void strongConnect(
+        Method method,
+        Map<Method, Integer> indices,
+        Map<Method, Integer> lowLinks,
+        Stack<Method> stack,
+        List<Set<Method>> components
+    ) {
+        indices.put(method, indices.size());
+        lowLinks.put(method, indices.get(method));
+        stack.push(method);
+        for (var callee : callGraph.get(method)) {
+            if (!indices.containsKey(callee)) {
+                strongConnect(callee, indices, lowLinks, stack, components);
+                lowLinks.put(method, Math.min(lowLinks.get(method), lowLinks.get(callee)));
+            } else if (stack.contains(callee)) {
+                lowLinks.put(method, Math.min(lowLinks.get(method), indices.get(callee)));
             }
-            newTacList.addAll(replacement);
-            last = indexOfCallSite - 1;
-            indexOfReplacementBody--;
         }
-        var subTacList = targetTacList
-                .subList(0, last + 1);
-
-        Collections.reverse(subTacList);
-        newTacList.addAll(subTacList);
-        Collections.reverse(newTacList);
-        targetTacList.reset(newTacList);
+        if (lowLinks.get(method).equals(indices.get(method))) {
+            var component = new LinkedHashSet<Method>();
+            Method member;
+            do {
+                member = stack.pop();
+                component.add(member);
+            } while (member != method);
+            components.add(component);
+        }
+    }
 
+    /**
+     * @return whether dropping {@code method} once no code left calls it is safe
+     */
+    private boolean isRemovable(Method method) {
+        return !method.isMain() && !optimizationContext.isExternallyCalled(method);
     }
 
-    private boolean isMethodCallAndNameMatches(Instruction instruction, String functionName) {
-        return instruction instanceof FunctionCall && ((FunctionCall) instruction).getMethodName()
-                .equals(functionName);
+    private static int size(Method method) {
+        int size = 0;
+        for (var basicBlock : StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock()))
+            for (var instruction : basicBlock.getInstructionList())
+                if (!(instruction instanceof Phi || instruction instanceof Method || instruction instanceof MethodEnd))
+                    size++;
+        return size;
     }
 
+    private boolean inlineCallSites(Method caller, Set<Method> component) {
+        var loopDepths = LoopAnalysisPass.computeLoopDepths(caller);
+        var callerSize = size(caller);
+        var changesHappened = false;
+        var toScan = new ArrayDeque<>(StronglyConnectedComponentsTarjan.getReversePostOrder(caller.getEntryBlock()));
+        while (!toScan.isEmpty()) {
+            var basicBlock = toScan.pop();
+            var instructionList = basicBlock.getInstructionList();
+            for (int indexOfInstruction = 0; indexOfInstruction < instructionList.size(); indexOfInstruction++) {
+                if (!(instructionList.get(indexOfInstruction) instanceof FunctionCall functionCall))
+                    continue;
+                var callee = methodsByName.get(functionCall.getMethodName());
+                if (callee == null || component.contains(callee) || !canBeInlined(callee, functionCall))
+                    continue;
+                var calleeSize = size(callee);
+                if (callerSize + calleeSize > MAX_CALLER_SIZE ||
+                        !isWorthInlining(callee, calleeSize, functionCall, loopDepths.getOrDefault(basicBlock, 0)))
+                    continue;
+                // the calls of the callee are copied along with the rest of its body
+                callSiteCounts.merge(callee, -1, Integer::sum);
+                findCallees(callee).forEach(calleeOfCallee -> callSiteCounts.merge(calleeOfCallee, 1, Integer::sum));
+                if (callee.hasRuntimeException())
+                    caller.setHasRuntimeException(true);
 
-    private int getNumberOfCallsToFunction(String functionName) {
-        int numberOfCalls = 0;
-        for (Method method : optimizationContext.getMethodsToOptimize()) {
-            for (Instruction instruction : method.getEntryBlock()
-                                                 .getInstructionList()) {
-                if (isMethodCallAndNameMatches(instruction, functionName)) {
-                    numberOfCalls += 1;
-                }
+                var continuation = inline(basicBlock, indexOfInstruction, callee);
+                loopDepths.put(continuation, loopDepths.getOrDefault(basicBlock, 0));
+                toScan.push(continuation);
+                callerSize += calleeSize;
+                changesHappened = true;
+                break;
             }
         }
-        return numberOfCalls;
+        return changesHappened;
+    }
+
+    private boolean isWorthInlining(Method callee, int calleeSize, FunctionCall functionCall, int loopDepth) {
+        if (callSiteCounts.get(callee) == 1 && isRemovable(callee))
+            return true;
+        var growth = calleeSize - CALL_OVERHEAD - functionCall.getNumArguments();
+        return growth <= BASE_BUDGET << Math.min(loopDepth, MAX_LOOP_DEPTH);
     }
 
-    private int getProgramSize() {
-        int programSize = 0;
-        for (Method method : optimizationContext.getMethodsToOptimize()) {
-            programSize += TraceScheduler.flattenIr(method).size();
+    /**
+     * A callee is copied block by block, so every return must end a block which falls through to the exit of the
+     * callee, and the exit must be reachable. Local arrays live in the frame of their method, so their methods are
+     * left alone.
+     */
+    private boolean canBeInlined(Method callee, FunctionCall functionCall) {
+        if (callee.isMain() || recursiveMethods.contains(callee))
+            return false;
+        var exitBlock = callee.getExitBlock();
+        var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(callee.getEntryBlock());
+        if (!basicBlocks.contains(exitBlock) || !callee.getEntryBlock()
+                                                      .getPredecessors()
+                                                      .isEmpty())
+            return false;
+        for (var basicBlock : basicBlocks) {
+            if (basicBlock != exitBlock && basicBlock.getBasicBlockType() == BasicBlock.BasicBlockType.NOP)
+                return false;
+            var instructionList = basicBlock.getInstructionList();
+            for (var instruction : instructionList) {
+                if (instruction.genIrValuesSurface()
+                               .stream()
+                               .anyMatch(irValue -> irValue instanceof IrStackArray))
+                    return false;
+                if (instruction instanceof ReturnInstruction && (instruction != instructionList.get(instructionList.size() - 1) ||
+                        !basicBlock.hasNoBranchNotNOP() || basicBlock.getSuccessor() != exitBlock))
+                    return false;
+            }
         }
-        return programSize;
+        if (functionCall instanceof FunctionCallWithResult functionCallWithResult) {
+            if (!(functionCallWithResult.getDestination() instanceof IrSsaRegister))
+                return false;
+            for (var predecessor : exitBlock.getPredecessors()) {
+                var instructionList = predecessor.getInstructionList();
+                if (instructionList.isEmpty() ||
+                        !(instructionList.get(instructionList.size() - 1) instanceof ReturnInstruction returnInstruction) ||
+                        returnInstruction.getReturnAddress()
+                                         .isEmpty())
+                    return false;
+            }
+        }
+        return true;
     }
 
-    private int getMethodSize(Method functionName) {
-        return functionName.getEntryBlock()
-                           .getInstructionList().size();
+    /**
+     * Splits {@code callSite} after the call at {@code indexOfCall} and puts a copy of the body of {@code callee}
+     * between the two halves
+     *
+     * @return the second half of {@code callSite}, the block the copy returns to
+     */
+    private BasicBlock inline(BasicBlock callSite, int indexOfCall, Method callee) {
+        renamed.clear();
+        var instructionList = callSite.getInstructionList();
+        var functionCall = (FunctionCall) instructionList.get(indexOfCall);
+
+        var continuation = BasicBlock.noBranch();
+        continuation.getInstructionList()
+                    .addAll(instructionList.subList(indexOfCall + 1, instructionList.size()));
+        continuation.getInstructionList()
+                    .setLabel(indexManager.genLabelIndex());
+        if (callSite.hasBranch()) {
+            continuation.setBasicBlockType(BasicBlock.BasicBlockType.BRANCH);
+            continuation.setTrueTarget(callSite.getTrueTarget());
+            continuation.setFalseTargetUnchecked(callSite.getFalseTarget());
+        } else {
+            continuation.setSuccessor(callSite.getSuccessor());
+        }
+        for (var successor : continuation.getSuccessors()) {
+            successor.getPredecessors()
+                     .replaceAll(predecessor -> predecessor == callSite ? continuation: predecessor);
+            successor.getPhiFunctions()
+                     .forEach(phi -> phi.replacePredecessor(callSite, continuation));
+        }
+
+        var returnValues = new LinkedHashMap<BasicBlock, IrValue>();
+        var entry = copyBody(callee, continuation, returnValues);
+        if (callSite.hasBranch())
+            callSite.convertToBranchLess(entry);
+        else
+            callSite.setSuccessor(entry);
+        entry.addPredecessor(callSite);
+        instructionList.subList(indexOfCall, instructionList.size())
+                       .clear();
+        var parameters = callee.getParameterNames();
+        var arguments = functionCall.getArguments();
+        for (int indexOfParameter = 0; indexOfParameter < parameters.size(); indexOfParameter++)
+            instructionList.add(CopyInstruction.noAstConstructor((IrAssignable) rename(parameters.get(indexOfParameter)),
+                    arguments.get(indexOfParameter)
+                             .copy()));
+
+        if (functionCall instanceof FunctionCallWithResult functionCallWithResult) {
+            var destination = (IrSsaRegister) functionCallWithResult.getDestination()
+                                                                    .copy();
+            continuation.getInstructionList()
+                        .add(0, returnValues.size() == 1 ?
+                                CopyInstruction.noAstConstructor(destination, returnValues.values()
+                                                                                          .iterator()
+                                                                                          .next()):
+                                new Phi(destination, returnValues));
+        }
+        return continuation;
     }
 
-    private boolean isRecursive(Method method) {
-        for (Instruction instruction : TraceScheduler.flattenIr(method)) {
-            if (isMethodCallAndNameMatches(instruction, method.methodName())) {
-                return true;
+    /**
+     * Copies every block of {@code callee} but its exit, whose place {@code continuation} takes. The value returned
+     * by each copy of a block ending in a return is put in {@code returnValues}.
+     *
+     * @return the copy of the entry of {@code callee}
+     */
+    private BasicBlock copyBody(Method callee, BasicBlock continuation, Map<BasicBlock, IrValue> returnValues) {
+        var exitBlock = callee.getExitBlock();
+        var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(callee.getEntryBlock());
+        var copies = new HashMap<BasicBlock, BasicBlock>();
+        copies.put(exitBlock, continuation);
+        for (var basicBlock : basicBlocks) {
+            if (basicBlock == exitBlock)
+                continue;
+            var copy = BasicBlock.noBranch();
+            copy.addAstNodes(basicBlock.getAstNodes());
+            copy.getInstructionList()
+                .setLabel(indexManager.genLabelIndex());
+            copies.put(basicBlock, copy);
+        }
+        for (var basicBlock : basicBlocks) {
+            var copy = copies.get(basicBlock);
+            basicBlock.getPredecessors()
+                      .forEach(predecessor -> copy.addPredecessor(copies.get(predecessor)));
+            if (basicBlock == exitBlock)
+                continue;
+            if (basicBlock.hasBranch()) {
+                copy.setBasicBlockType(BasicBlock.BasicBlockType.BRANCH);
+                copy.setTrueTarget(copies.get(basicBlock.getTrueTarget()));
+                copy.setFalseTargetUnchecked(copies.get(basicBlock.getFalseTarget()));
+            } else {
+                copy.setSuccessor(copies.get(basicBlock.getSuccessor()));
+            }
+            for (var instruction : basicBlock.getInstructionList()) {
+                if (instruction instanceof Method)
+                    continue;
+                if (instruction instanceof ReturnInstruction returnInstruction) {
+                    returnInstruction.getReturnAddress()
+                                     .ifPresent(returnAddress -> returnValues.put(copy, rename(returnAddress)));
+                    continue;
+                }
+                copy.getInstructionList()
+                    .add(copyInstruction(instruction, basicBlock, copies));
             }
         }
-        return false;
+        return copies.get(callee.getEntryBlock());
     }
 
-
-    private boolean hasBranching(Method method) {
-        return TraceScheduler.flattenIr(method).toString().contains("if");
+    /**
+     * @return a copy of {@code instruction} of {@code basicBlock} which reads and writes the registers of this copy of
+     * the callee and jumps to the copies of its blocks
+     */
+    private Instruction copyInstruction(Instruction instruction, BasicBlock basicBlock, Map<BasicBlock, BasicBlock> copies) {
+        var comment = instruction.getComment()
+                                 .orElse(null);
+        if (instruction instanceof Phi phi) {
+            var blockToValue = new LinkedHashMap<BasicBlock, IrValue>();
+            for (var predecessor : basicBlock.getPredecessors())
+                blockToValue.put(copies.get(predecessor), rename(phi.getVariableForB(predecessor)));
+            return new Phi((IrSsaRegister) rename(phi.getDestination()), blockToValue);
+        } else if (instruction instanceof BinaryInstruction binaryInstruction) {
+            return new BinaryInstruction((IrAssignable) rename(binaryInstruction.getDestination()),
+                    rename(binaryInstruction.fstOperand), binaryInstruction.operator,
+                    rename(binaryInstruction.sndOperand), comment, binaryInstruction.getSource());
+        } else if (instruction instanceof UnaryInstruction unaryInstruction) {
+            return new UnaryInstruction((IrAssignable) rename(unaryInstruction.getDestination()),
+                    unaryInstruction.operator, rename(unaryInstruction.operand), unaryInstruction.getSource());
+        } else if (instruction instanceof CopyInstruction copyInstruction) {
+            return new CopyInstruction((IrAssignable) rename(copyInstruction.getDestination()),
+                    rename(copyInstruction.getValue()), copyInstruction.getSource(), comment);
+        } else if (instruction instanceof GetAddress getAddress) {
+            return new GetAddress(rename(getAddress.getBaseAddress()),
+                    getAddress.getIndex() == null ? null: rename(getAddress.getIndex()),
+                    (IrMemoryAddress) rename(getAddress.getDestination()), getAddress.getLength(),
+                    getAddress.getSource());
+        } else if (instruction instanceof ArrayBoundsCheck arrayBoundsCheck) {
+            return new ArrayBoundsCheck((GetAddress) copyInstruction(arrayBoundsCheck.getAddress, basicBlock, copies),
+                    indexManager.getNextArrayBoundsCheckLabelIndex());
+        } else if (instruction instanceof FunctionCallWithResult functionCallWithResult) {
+            return new FunctionCallWithResult((MethodCall) functionCallWithResult.getSource(),
+                    (IrAssignable) rename(functionCallWithResult.getDestination()),
+                    renameArguments(functionCallWithResult), comment);
+        } else if (instruction instanceof FunctionCallNoResult functionCallNoResult) {
+            return new FunctionCallNoResult((MethodCall) functionCallNoResult.getSource(),
+                    renameArguments(functionCallNoResult), comment);
+        } else if (instruction instanceof ConditionalBranch conditionalBranch) {
+            return new ConditionalBranch(rename(conditionalBranch.getCondition()),
+                    copies.get(conditionalBranch.getTarget()), conditionalBranch.getSource(), comment);
+        } else if (instruction instanceof UnconditionalBranch unconditionalBranch) {
+            return new UnconditionalBranch(copies.get(unconditionalBranch.getTarget()));
+        } else if (instruction instanceof RuntimeException) {
+            return instruction.copy();
+        }
+        throw new IllegalStateException("cannot inline " + instruction);
     }
 
-    private boolean hasArrayAccesses(Method method) {
-        return method.getEntryBlock()
-                     .getInstructionList().stream().anyMatch(instruction -> instruction instanceof ArrayBoundsCheck);
+    private Stack<IrValue> renameArguments(FunctionCall functionCall) {
+        var arguments = new Stack<IrValue>();
+        functionCall.getArguments()
+                    .forEach(argument -> arguments.add(rename(argument)));
+        return arguments;
     }
 
-    private boolean shouldBeInlined(Method method) {
-        if (method.isMain())
-            return false;
-        if (isRecursive(method))
-            return false;
-        if (hasArrayAccesses(method))
-            return false;
-        final var functionName = method.methodName();
-        final int programSize = getProgramSize();
-        final int methodSize = getMethodSize(method);
-        final int numberOfCalls = getNumberOfCallsToFunction(functionName);
-
-        return methodSize * numberOfCalls < programSize;
+    /**
+     * Every register of the callee gets a fresh name in each copy of its body, so that the copy stays in SSA form
+     *
+     * @return a new instance of the name {@code irValue} has in this copy of the callee
+     */
+    private IrValue rename(IrValue irValue) {
+        if (irValue instanceof IrSsaRegister irSsaRegister) {
+            return renamed.computeIfAbsent(irSsaRegister, register -> {
+                              var fresh = IrSsaRegister.gen(register.getType(), indexManager);
+                              fresh.renameForSsa(0);
+                              return fresh;
+                          })
+                          .copy();
+        } else if (irValue instanceof IrMemoryAddress irMemoryAddress) {
+            return renamed.computeIfAbsent(irMemoryAddress,
+                                  address -> new IrMemoryAddress(indexManager.genRegisterIndex(), address.getType()))
+                          .copy();
+        }
+        return irValue.copy();
     }
 
-    @Override
-    public boolean runFunctionPass() {
-        var oldCountMethods = optimizationContext.getMethodsToOptimize().size();
-        var filteredMethods = new ArrayList<Method>();
-        for (var method : optimizationContext.getMethodsToOptimize()) {
-            if (shouldBeInlined(method)) {
-                inlineMethod(method);
-                continue;
-            }
-            filteredMethods.add(method);
+    /**
+     * @return whether any method was dropped because it is not called any more
+     */
+    private boolean removeUncalledMethods() {
+        var methods = new ArrayList<>(optimizationContext.getMethodsToOptimize());
+        var oldCountMethods = methods.size();
+        var methodsRemoved = true;
+        while (methodsRemoved) {
+            var calledMethods = new HashSet<Method>();
+            methods.forEach(method -> calledMethods.addAll(findCallees(method)));
+            methodsRemoved = methods.removeIf(method -> isRemovable(method) && !calledMethods.contains(method));
         }
-        optimizationContext.setMethodsToOptimize(filteredMethods);
-        return filteredMethods.size() == oldCountMethods;
+        optimizationContext.setMethodsToOptimize(methods);
+        return methods.size() != oldCountMethods;
     }
 }
@@ -2,6 +2,7 @@ package decaf.dataflow.passes;
 
 
 import java.util.HashSet;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.Stack;
 
@@ -11,11 +12,13 @@ import decaf.ast.BooleanLiteral;
 import decaf.ast.DecimalLiteral;
 import decaf.ast.Expression;
 import decaf.ast.HasExpression;
+import decaf.ast.HexLiteral;
 import decaf.ast.IntLiteral;
 import decaf.ast.Literal;
 import decaf.ast.LocationArray;
+import decaf.ast.ParenthesizedExpression;
 import decaf.ast.UnaryOpExpression;
-import decaf.common.Utils;
+import decaf.common.ConstantFolder;
 import decaf.grammar.DecafScanner;
 import decaf.grammar.TokenPosition;
 
@@ -136,12 +139,39 @@ public class InstructionSimplifyIrPass {
     public static Expression tryFoldConstantExpression(Expression expression) {
         if (expression instanceof Literal)
             return expression;
-        var maybeEvaluatedLong = Utils.symbolicallyEvaluate(expression.getSourceCode());
+        var maybeEvaluatedLong = evaluateConstantExpression(expression);
         if (maybeEvaluatedLong.isPresent())
-            return new DecimalLiteral(expression.tokenPosition, maybeEvaluatedLong.get().toString());
+            return new DecimalLiteral(expression.tokenPosition, String.valueOf(maybeEvaluatedLong.getAsLong()));
         return expression;
     }
 
+    // evaluates expressions built only from decimal and hex literals
+    private static OptionalLong evaluateConstantExpression(Expression expression) {
+        if (expression instanceof DecimalLiteral || expression instanceof HexLiteral) {
+            try {
+                return OptionalLong.of(((IntLiteral) expression).convertToLong());
+            } catch (NumberFormatException e) {
+                return OptionalLong.empty();
+            }
+        } else if (expression instanceof ParenthesizedExpression parenthesizedExpression) {
+            return evaluateConstantExpression(parenthesizedExpression.expression);
+        } else if (expression instanceof UnaryOpExpression unaryOpExpression) {
+            final var operator = unaryOpExpression.getUnaryOperator().label;
+            var operand = evaluateConstantExpression(unaryOpExpression.operand);
+            if (operand.isPresent() && ConstantFolder.canFold(operator))
+                return OptionalLong.of(ConstantFolder.fold(operator, operand.getAsLong()));
+        } else if (expression instanceof BinaryOpExpression binaryOpExpression) {
+            final var operator = binaryOpExpression.op.label;
+            var lhs = evaluateConstantExpression(binaryOpExpression.lhs);
+            if (lhs.isEmpty())
+                return OptionalLong.empty();
+            var rhs = evaluateConstantExpression(binaryOpExpression.rhs);
+            if (rhs.isPresent() && ConstantFolder.canFold(operator, lhs.getAsLong(), rhs.getAsLong()))
+                return OptionalLong.of(ConstantFolder.fold(operator, lhs.getAsLong(), rhs.getAsLong()));
+        }
+        return OptionalLong.empty();
+    }
+
     private static Expression getNotEqTo(BinaryOpExpression binaryOpExpression, String expected) {
         if (binaryOpExpression.lhs.getSourceCode().equals(expected))
             return binaryOpExpression.rhs;
@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import decaf.ast.Type;
 import decaf.codegen.codes.Instruction;
 import decaf.codegen.codes.UnaryInstruction;
-import decaf.common.Utils;
+import decaf.dataflow.usedef.ConstantFolding;
 import decaf.dataflow.OptimizationContext;
 import decaf.grammar.DecafScanner;
 import decaf.cfg.BasicBlock;
@@ -104,9 +104,9 @@ public class InstructionSimplifyPass extends OptimizationPass {
     }
 
     private Instruction simplifyQuadruple(BinaryInstruction binaryInstruction) {
-        var aLong = Utils.symbolicallyEvaluate(String.format("%s %s %s", binaryInstruction.fstOperand.getLabel(), binaryInstruction.operator, binaryInstruction.sndOperand.getLabel()));
-        if (aLong.isPresent()) {
-            return CopyInstruction.noMetaData(binaryInstruction.getDestination(), new IrIntegerConstant(aLong.get(), Type.Int));
+        var folded = ConstantFolding.tryFold(binaryInstruction);
+        if (folded.isPresent()) {
+            return folded.get();
         }
         Instruction newTac = null;
         switch (binaryInstruction.operator) {
@@ -41,6 +41,11 @@ public abstract class OptimizationPass {
         return optimizationContext.getBasicBlocks(method);
     }
 
+    // return true if the pass reads or rewrites methods other than its own
+    public boolean isInterprocedural() {
+        return false;
+    }
+
     // return true if changes happened
     public abstract boolean runFunctionPass();
 }
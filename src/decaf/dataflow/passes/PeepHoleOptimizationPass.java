@@ -30,6 +30,11 @@ public class PeepHoleOptimizationPass extends OptimizationPass {
         var replacer = basicBlock.getSuccessor();
         checkNotNull(replacer);
         var predecessors = new ArrayList<>(basicBlock.getPredecessors());
+        // a phi takes one value per predecessor, so a block which already jumps to the replacer some other way must
+        // keep going through this one
+        if (replacer.phiPresent() && predecessors.stream()
+                                                 .anyMatch(replacer.getPredecessors()::contains))
+          continue;
         for (var pred : predecessors) {
           if (pred.hasBranch()) {
             checkState(basicBlock.getSuccessor() != null);
@@ -0,0 +1,331 @@
+package decaf.dataflow.ssapasses;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.ArrayBoundsCheck;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.GetAddress;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.codes.UnaryInstruction;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.dataflow.OptimizationContext;
+import decaf.dataflow.dominator.DominatorTree;
+import decaf.ssa.Phi;
+
+/**
+ * Removes the {@link ArrayBoundsCheck}s whose index is provably within {@code [0, length)}, and hoists the checks of
+ * loop-invariant indices out of loops.
+ * <p>
+ * The bounds of an index come from its {@link RangeAnalysis range}, narrowed by the guards it is used under: a block
+ * reached only through the true edge of {@code if (i < n)} knows that {@code i < n}, and so that {@code i} is less
+ * than the largest value of {@code n}; the false edge knows the negated comparison. Guards also bound an index
+ * {@code i + c}, through the bounds of {@code i}.
+ * <p>
+ * A check which stays in a loop header, whose index is defined outside the loop and which only side effect free
+ * instructions precede, moves to the preheader: the header runs whenever the loop is entered, so the check runs
+ * exactly when it did before, only once.
+ */
+public class BoundsCheckEliminationPass extends SsaOptimizationPass {
+    /**
+     * How many additions of a constant are looked through to bound an index
+     */
+    private static final int MAX_DEPTH = 2;
+
+    @MonotonicNonNull private DominatorTree dominatorTree;
+    @MonotonicNonNull private RangeAnalysis rangeAnalysis;
+    private final Map<IrValue, StoreInstruction> valueToDefinition = new HashMap<>();
+    private final Map<IrValue, BasicBlock> valueToDefiningBlock = new HashMap<>();
+
+    /**
+     * A comparison known to be true: {@code left operator right}
+     */
+    private record Guard(IrValue left, String operator, IrValue right) {
+    }
+
+    public BoundsCheckEliminationPass(OptimizationContext optimizationContext, Method method) {
+        super(optimizationContext, method);
+    }
+
+    @Override
+    protected void resetForPass() {
+        dominatorTree = new DominatorTree(method.getEntryBlock());
+        rangeAnalysis = new RangeAnalysis(method);
+        valueToDefinition.clear();
+        valueToDefiningBlock.clear();
+        for (var basicBlock : getBasicBlocksList()) {
+            for (var instruction : basicBlock.getInstructionList()) {
+                // only SSA registers keep their value: memory and globals may change between two uses
+                if (instruction instanceof StoreInstruction storeInstruction &&
+                        storeInstruction.getDestination() instanceof IrSsaRegister destination) {
+                    valueToDefinition.put(destination, storeInstruction);
+                    valueToDefiningBlock.put(destination, basicBlock);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean runFunctionPass() {
+        resetForPass();
+        var changesHappened = false;
+        for (var basicBlock : getBasicBlocksList()) {
+            List<Guard> guards = null;
+            for (var instruction : new ArrayList<>(basicBlock.getInstructionList())) {
+                if (!(instruction instanceof ArrayBoundsCheck arrayBoundsCheck))
+                    continue;
+                if (guards == null)
+                    guards = findGuards(basicBlock);
+                final IrValue index = arrayBoundsCheck.genOperandIrValuesSurface()
+                                                      .get(0);
+                if (lowerBound(index, guards, MAX_DEPTH) >= 0 &&
+                        upperBound(index, guards, MAX_DEPTH) < arrayBoundsCheck.getAddress.getLength()) {
+                    basicBlock.getInstructionList()
+                              .removeIf(other -> other == arrayBoundsCheck);
+                    changesHappened = true;
+                }
+            }
+        }
+        return hoistInvariantChecks() || changesHappened;
+    }
+
+    /**
+     * @return the comparisons which hold whenever {@code basicBlock} runs
+     */
+    private List<Guard> findGuards(BasicBlock basicBlock) {
+        var guards = new ArrayList<Guard>();
+        for (var branching : getBasicBlocksList()) {
+            if (!branching.hasBranch() || branching.getTrueTarget() == branching.getFalseTarget())
+                continue;
+            final IrValue condition = branching.getConditionalBranchInstruction()
+                                               .getCondition();
+            if (isOnlyEdgeTo(branching, branching.getTrueTarget()) &&
+                    dominatorTree.dom(branching.getTrueTarget(), basicBlock))
+                addGuards(condition, true, guards);
+            if (isOnlyEdgeTo(branching, branching.getFalseTarget()) &&
+                    dominatorTree.dom(branching.getFalseTarget(), basicBlock))
+                addGuards(condition, false, guards);
+        }
+        return guards;
+    }
+
+    private static boolean isOnlyEdgeTo(BasicBlock branching, BasicBlock target) {
+        return target.getPredecessors()
+                     .stream()
+                     .allMatch(predecessor -> predecessor == branching);
+    }
+
+    /**
+     * Adds the comparisons implied by {@code condition} evaluating to {@code holds}
+     */
+    private void addGuards(IrValue condition, boolean holds, List<Guard> guards) {
+        var definition = valueToDefinition.get(root(condition));
+        if (definition instanceof UnaryInstruction unaryInstruction && unaryInstruction.operator.equals(Operators.NOT)) {
+            addGuards(unaryInstruction.operand, !holds, guards);
+        } else if (definition instanceof BinaryInstruction binaryInstruction) {
+            switch (binaryInstruction.operator) {
+                case Operators.CONDITIONAL_AND, Operators.CONDITIONAL_OR -> {
+                    // a && b holds only if both do, a || b fails only if both do
+                    if (holds == binaryInstruction.operator.equals(Operators.CONDITIONAL_AND)) {
+                        addGuards(binaryInstruction.fstOperand, holds, guards);
+                        addGuards(binaryInstruction.sndOperand, holds, guards);
+                    }
+                }
+                case Operators.LT, Operators.LEQ, Operators.GT, Operators.GEQ, Operators.EQ, Operators.NEQ ->
+                        guards.add(new Guard(root(binaryInstruction.fstOperand),
+                                holds ? binaryInstruction.operator: negate(binaryInstruction.operator),
+                                root(binaryInstruction.sndOperand)));
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static String negate(String comparison) {
+        return switch (comparison) {
+            case Operators.LT -> Operators.GEQ;
+            case Operators.LEQ -> Operators.GT;
+            case Operators.GT -> Operators.LEQ;
+            case Operators.GEQ -> Operators.LT;
+            case Operators.EQ -> Operators.NEQ;
+            case Operators.NEQ -> Operators.EQ;
+            default -> throw new IllegalArgumentException("not a comparison: " + comparison);
+        };
+    }
+
+    /**
+     * @return the value {@code irValue} is a copy of
+     */
+    private IrValue root(IrValue irValue) {
+        while (valueToDefinition.get(irValue) instanceof CopyInstruction copyInstruction &&
+                (copyInstruction.getValue() instanceof IrSsaRegister ||
+                        copyInstruction.getValue() instanceof IrIntegerConstant))
+            irValue = copyInstruction.getValue();
+        return irValue;
+    }
+
+    private long upperBound(IrValue irValue, List<Guard> guards, int depth) {
+        irValue = root(irValue);
+        long bound = rangeAnalysis.getRange(irValue)
+                                  .getHigh();
+        if (depth == 0)
+            return bound;
+        for (var guard : guards) {
+            if (guard.left()
+                     .equals(irValue)) {
+                switch (guard.operator()) {
+                    case Operators.LT -> bound = Math.min(bound, add(upperBound(guard.right(), guards, depth - 1), -1));
+                    case Operators.LEQ, Operators.EQ -> bound = Math.min(bound, upperBound(guard.right(), guards,
+                            depth - 1));
+                }
+            }
+            if (guard.right()
+                     .equals(irValue)) {
+                switch (guard.operator()) {
+                    case Operators.GT -> bound = Math.min(bound, add(upperBound(guard.left(), guards, depth - 1), -1));
+                    case Operators.GEQ, Operators.EQ -> bound = Math.min(bound, upperBound(guard.left(), guards,
+                            depth - 1));
+                }
+            }
+        }
+        if (valueToDefinition.get(irValue) instanceof BinaryInstruction binaryInstruction &&
+                binaryInstruction.sndOperand instanceof IrIntegerConstant constant) {
+            if (binaryInstruction.operator.equals(Operators.PLUS))
+                bound = Math.min(bound, add(upperBound(binaryInstruction.fstOperand, guards, depth - 1),
+                        constant.getValue()));
+            else if (binaryInstruction.operator.equals(Operators.MINUS) && constant.getValue() != Long.MIN_VALUE)
+                bound = Math.min(bound, add(upperBound(binaryInstruction.fstOperand, guards, depth - 1),
+                        -constant.getValue()));
+        }
+        return bound;
+    }
+
+    private long lowerBound(IrValue irValue, List<Guard> guards, int depth) {
+        irValue = root(irValue);
+        long bound = rangeAnalysis.getRange(irValue)
+                                  .getLow();
+        if (depth == 0)
+            return bound;
+        for (var guard : guards) {
+            if (guard.left()
+                     .equals(irValue)) {
+                switch (guard.operator()) {
+                    case Operators.GT -> bound = Math.max(bound, add(lowerBound(guard.right(), guards, depth - 1), 1));
+                    case Operators.GEQ, Operators.EQ -> bound = Math.max(bound, lowerBound(guard.right(), guards,
+                            depth - 1));
+                }
+            }
+            if (guard.right()
+                     .equals(irValue)) {
+                switch (guard.operator()) {
+                    case Operators.LT -> bound = Math.max(bound, add(lowerBound(guard.left(), guards, depth - 1), 1));
+                    case Operators.LEQ, Operators.EQ -> bound = Math.max(bound, lowerBound(guard.left(), guards,
+                            depth - 1));
+                }
+            }
+        }
+        if (valueToDefinition.get(irValue) instanceof BinaryInstruction binaryInstruction &&
+                binaryInstruction.sndOperand instanceof IrIntegerConstant constant) {
+            if (binaryInstruction.operator.equals(Operators.PLUS))
+                bound = Math.max(bound, add(lowerBound(binaryInstruction.fstOperand, guards, depth - 1),
+                        constant.getValue()));
+            else if (binaryInstruction.operator.equals(Operators.MINUS) && constant.getValue() != Long.MIN_VALUE)
+                bound = Math.max(bound, add(lowerBound(binaryInstruction.fstOperand, guards, depth - 1),
+                        -constant.getValue()));
+        }
+        return bound;
+    }
+
+    /**
+     * @return {@code bound + c}, where the smallest and largest {@code long} are the infinities, and a sum which
+     * overflows is unbounded
+     */
+    private static long add(long bound, long c) {
+        if (bound == Long.MIN_VALUE || bound == Long.MAX_VALUE)
+            return bound;
+        try {
+            return Math.addExact(bound, c);
+        } catch (ArithmeticException overflow) {
+            return c > 0 ? Long.MAX_VALUE: Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return whether a check was hoisted into the preheader of a loop
+     */
+    private boolean hoistInvariantChecks() {
+        var changesHappened = false;
+        var headerToBody = LoopAnalysisPass.findLoopBodies(getBasicBlocksList(), dominatorTree);
+        for (var header : headerToBody.keySet()) {
+            var body = headerToBody.get(header);
+            var outsidePredecessors = header.getPredecessors()
+                                            .stream()
+                                            .filter(predecessor -> !body.contains(predecessor))
+                                            .distinct()
+                                            .toList();
+            if (outsidePredecessors.size() != 1)
+                continue;
+            var hoisted = new ArrayList<ArrayBoundsCheck>();
+            for (var instruction : header.getInstructionList()) {
+                if (instruction instanceof ArrayBoundsCheck arrayBoundsCheck) {
+                    if (isInvariant(arrayBoundsCheck.genOperandIrValuesSurface()
+                                                    .get(0), header))
+                        hoisted.add(arrayBoundsCheck);
+                } else if (!isSideEffectFree(instruction)) {
+                    break;
+                }
+            }
+            if (hoisted.isEmpty())
+                continue;
+            var preHeader = LoopAnalysisPass.materializePreHeader(header, outsidePredecessors.get(0));
+            if (preHeader.isEmpty())
+                continue;
+            for (var arrayBoundsCheck : hoisted) {
+                header.getInstructionList()
+                      .removeIf(instruction -> instruction == arrayBoundsCheck);
+                LoopAnalysisPass.insertBeforeBranches(preHeader.get(), arrayBoundsCheck);
+            }
+            changesHappened = true;
+        }
+        if (changesHappened)
+            optimizationContext.setBasicBlocks(method,
+                    StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock()));
+        return changesHappened;
+    }
+
+    private boolean isInvariant(IrValue index, BasicBlock header) {
+        if (index instanceof IrIntegerConstant)
+            return true;
+        if (!(index instanceof IrSsaRegister))
+            return false;
+        var definingBlock = valueToDefiningBlock.get(index);
+        // parameters are defined before the entry block
+        return definingBlock == null || dominatorTree.strictDom(definingBlock, header);
+    }
+
+    /**
+     * @return whether {@code instruction} can neither fault nor be observed, so a check can move above it
+     */
+    private static boolean isSideEffectFree(Instruction instruction) {
+        if (instruction instanceof Phi || instruction instanceof GetAddress)
+            return true;
+        if (instruction instanceof BinaryInstruction binaryInstruction &&
+                (binaryInstruction.operator.equals(Operators.DIVIDE) || binaryInstruction.operator.equals(Operators.MOD)))
+            return false;
+        return (instruction instanceof BinaryInstruction || instruction instanceof UnaryInstruction ||
+                instruction instanceof CopyInstruction) &&
+                ((StoreInstruction) instruction).getDestination() instanceof IrSsaRegister;
+    }
+}
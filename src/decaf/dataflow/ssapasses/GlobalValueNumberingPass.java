@@ -0,0 +1,200 @@
+package decaf.dataflow.ssapasses;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.UnaryInstruction;
+import decaf.codegen.names.IrConstant;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.dataflow.OptimizationContext;
+import decaf.dataflow.dominator.DominatorTree;
+import decaf.dataflow.operand.Operand;
+import decaf.ssa.Phi;
+
+/**
+ * Replaces a computation with a copy of an earlier one which dominates it and provably computes the same value.
+ * <p>
+ * Every SSA register gets a value number, the register or constant which first computed its value. A copy of a
+ * register or a constant, such as the constants left by {@link SCCP}, takes the number of its value. A
+ * {@link BinaryInstruction} or {@link UnaryInstruction} is looked up by its operator and the numbers of its operands,
+ * with the operands of commutative operators in a fixed order and {@code a > b} read as {@code b < a}. A phi is
+ * looked up by its block and the numbers of its operands; a phi whose operands all have the same number is that
+ * number.
+ * <p>
+ * The blocks are visited in a preorder of the dominator tree, with the children of a block in reverse postorder so
+ * that every operand of a phi reaching it along a forward edge is numbered first. The computations found in a block
+ * are forgotten once its subtree is done, so a computation is only ever replaced by one which dominates it. Loads,
+ * calls and addresses are left alone, since memory may change between two of them.
+ */
+public class GlobalValueNumberingPass extends SsaOptimizationPass {
+    @MonotonicNonNull private DominatorTree dominatorTree;
+    private final Map<IrValue, IrValue> valueNumbers = new HashMap<>();
+    private final Map<Expression, IrSsaRegister> available = new HashMap<>();
+    private final Map<BasicBlock, Integer> reversePostOrderIndices = new HashMap<>();
+
+    public GlobalValueNumberingPass(OptimizationContext optimizationContext, Method method) {
+        super(optimizationContext, method);
+    }
+
+    @Override
+    protected void resetForPass() {
+        dominatorTree = new DominatorTree(method.getEntryBlock());
+        valueNumbers.clear();
+        available.clear();
+        reversePostOrderIndices.clear();
+        var reversePostOrder = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock());
+        for (int index = 0; index < reversePostOrder.size(); index++)
+            reversePostOrderIndices.put(reversePostOrder.get(index), index);
+    }
+
+    @Override
+    public boolean runFunctionPass() {
+        resetForPass();
+        return numberValues(method.getEntryBlock());
+    }
+
+    /**
+     * @return whether any computation of {@code basicBlock} or the blocks it dominates was replaced
+     */
+    private boolean numberValues(BasicBlock basicBlock) {
+        var changesHappened = false;
+        var added = new ArrayList<Expression>();
+        var instructionList = basicBlock.getInstructionList();
+        var redundantPhis = new ArrayList<Instruction>();
+        for (int indexOfInstruction = 0; indexOfInstruction < instructionList.size(); indexOfInstruction++) {
+            var instruction = instructionList.get(indexOfInstruction);
+            if (instruction instanceof CopyInstruction copyInstruction &&
+                    copyInstruction.getDestination() instanceof IrSsaRegister destination &&
+                    (copyInstruction.getValue() instanceof IrSsaRegister ||
+                            copyInstruction.getValue() instanceof IrConstant)) {
+                valueNumbers.put(destination, valueNumber(copyInstruction.getValue()));
+                continue;
+            }
+            var expression = toExpression(basicBlock, instruction);
+            if (expression == null)
+                continue;
+            var destination = destinationOf(instruction);
+            IrValue leader = instruction instanceof Phi ? sameOperand(expression, destination): null;
+            if (leader == null)
+                leader = available.get(expression);
+            if (leader == null) {
+                available.put(expression, destination);
+                added.add(expression);
+                valueNumbers.put(destination, destination);
+                continue;
+            }
+            valueNumbers.put(destination, leader);
+            var copy = CopyInstruction.noAstConstructor(destination, leader.copy());
+            if (instruction instanceof Phi) {
+                instructionList.remove(indexOfInstruction--);
+                redundantPhis.add(copy);
+            } else {
+                instructionList.set(indexOfInstruction, copy);
+            }
+            changesHappened = true;
+        }
+        // the phis of a block all come before its other instructions
+        instructionList.addAll(basicBlock.getPhiFunctions()
+                                         .size(), redundantPhis);
+
+        var children = new ArrayList<>(dominatorTree.getChildren(basicBlock));
+        children.sort(Comparator.comparing(reversePostOrderIndices::get));
+        for (var child : children)
+            changesHappened = numberValues(child) | changesHappened;
+        added.forEach(available::remove);
+        return changesHappened;
+    }
+
+    private static IrSsaRegister destinationOf(Instruction instruction) {
+        if (instruction instanceof Phi phi)
+            return (IrSsaRegister) phi.getDestination();
+        if (instruction instanceof BinaryInstruction binaryInstruction)
+            return (IrSsaRegister) binaryInstruction.getDestination();
+        return (IrSsaRegister) ((UnaryInstruction) instruction).getDestination();
+    }
+
+    /**
+     * @return the value number shared by all the operands of a phi, if they have one which is not the phi itself
+     */
+    private static IrValue sameOperand(Expression expression, IrSsaRegister destination) {
+        var first = expression.operands()
+                              .get(0);
+        if (first.equals(destination) || expression.operands()
+                                                   .stream()
+                                                   .anyMatch(operand -> !operand.equals(first)))
+            return null;
+        return first;
+    }
+
+    /**
+     * @return the key under which the value computed by {@code instruction} is looked up, or null if it is not
+     * numbered
+     */
+    private Expression toExpression(BasicBlock basicBlock, Instruction instruction) {
+        if (instruction instanceof Phi phi) {
+            if (!(phi.getDestination() instanceof IrSsaRegister))
+                return null;
+            var operands = new ArrayList<IrValue>();
+            for (var predecessor : basicBlock.getPredecessors()) {
+                var operand = phi.getVariableForB(predecessor);
+                if (!isNumbered(operand))
+                    return null;
+                operands.add(valueNumber(operand));
+            }
+            return new Expression(basicBlock, operands);
+        } else if (instruction instanceof BinaryInstruction binaryInstruction) {
+            if (!(binaryInstruction.getDestination() instanceof IrSsaRegister) ||
+                    !isNumbered(binaryInstruction.fstOperand) || !isNumbered(binaryInstruction.sndOperand))
+                return null;
+            var operator = binaryInstruction.operator;
+            var operands = new ArrayList<>(List.of(valueNumber(binaryInstruction.fstOperand),
+                    valueNumber(binaryInstruction.sndOperand)));
+            if (operator.equals(Operators.GT) || operator.equals(Operators.GEQ)) {
+                operator = operator.equals(Operators.GT) ? Operators.LT: Operators.LEQ;
+                Collections.reverse(operands);
+            }
+            if (Operand.operatorIsCommutative(operator) || operator.equals(Operators.EQ) ||
+                    operator.equals(Operators.NEQ))
+                operands.sort(Comparator.comparing(IrValue::toString));
+            return new Expression(operator, operands);
+        } else if (instruction instanceof UnaryInstruction unaryInstruction) {
+            if (!(unaryInstruction.getDestination() instanceof IrSsaRegister) ||
+                    !isNumbered(unaryInstruction.operand))
+                return null;
+            return new Expression(unaryInstruction.operator, List.of(valueNumber(unaryInstruction.operand)));
+        }
+        return null;
+    }
+
+    private static boolean isNumbered(IrValue irValue) {
+        return irValue instanceof IrSsaRegister || irValue instanceof IrConstant;
+    }
+
+    /**
+     * @return the number of {@code irValue}; a register not numbered yet, such as one flowing into a phi along a back
+     * edge, is its own number
+     */
+    private IrValue valueNumber(IrValue irValue) {
+        return valueNumbers.getOrDefault(irValue, irValue);
+    }
+
+    /**
+     * An operator, or the block of a phi, applied to value numbers
+     */
+    private record Expression(Object operator, List<IrValue> operands) {
+    }
+}
@@ -0,0 +1,241 @@
+package decaf.dataflow.ssapasses;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import decaf.ast.Type;
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.dataflow.OptimizationContext;
+import decaf.dataflow.dominator.DominatorTree;
+import decaf.ssa.Phi;
+
+/**
+ * Replaces the multiplications of an induction variable by a constant with additions.
+ * <p>
+ * A basic induction variable {@code i} is a phi in the header of a loop, {@code i = phi(init, i')}, whose value from
+ * the latch is {@code i' = i + c} or {@code i' = i - c}, for a constant {@code c}. A derived induction variable
+ * {@code j = i * k}, for a constant {@code k}, then becomes a copy of a phi of its own, {@code p = phi(init * k, p')},
+ * with {@code p' = p + c * k} at the end of the latch. {@code init * k} is folded when
+ * {@code init} is a constant, and otherwise computed once in the preheader of the loop. Only loops entered from one
+ * block and with a single latch are reduced.
+ * <p>
+ * Multiplications and additions with a constant first operand are also commuted, so that the constant is always
+ * second; the assembly writer then turns multiplications and divisions by powers of two into shifts.
+ */
+public class InstructionStrengthReductionPass extends SsaOptimizationPass {
+    @MonotonicNonNull private DominatorTree dominatorTree;
+    private final Map<IrValue, StoreInstruction> valueToDefinition = new HashMap<>();
+    private final Map<IrValue, BasicBlock> valueToDefiningBlock = new HashMap<>();
+    private final Set<String> registerLabels = new HashSet<>();
+
+    public InstructionStrengthReductionPass(OptimizationContext optimizationContext, Method method) {
+        super(optimizationContext, method);
+    }
+
+    @Override
+    protected void resetForPass() {
+        dominatorTree = new DominatorTree(method.getEntryBlock());
+        valueToDefinition.clear();
+        valueToDefiningBlock.clear();
+        registerLabels.clear();
+        method.getParameterNames()
+              .forEach(parameter -> registerLabels.add(parameter.getLabel()));
+        for (var basicBlock : getBasicBlocksList()) {
+            for (var instruction : basicBlock.getInstructionList()) {
+                if (instruction instanceof StoreInstruction storeInstruction) {
+                    valueToDefinition.put(storeInstruction.getDestination(), storeInstruction);
+                    valueToDefiningBlock.put(storeInstruction.getDestination(), basicBlock);
+                }
+                for (var irValue : instruction.genIrValuesSurface())
+                    if (irValue instanceof IrSsaRegister irSsaRegister)
+                        registerLabels.add(irSsaRegister.getLabel());
+            }
+        }
+    }
+
+    @Override
+    public boolean runFunctionPass() {
+        var changesHappened = moveConstantsToSecondOperand();
+        while (reduceDerivedInductionVariable())
+            changesHappened = true;
+        return changesHappened;
+    }
+
+    private boolean moveConstantsToSecondOperand() {
+        var changesHappened = false;
+        for (var basicBlock : getBasicBlocksList()) {
+            for (var instruction : basicBlock.getInstructionList()) {
+                if (instruction instanceof BinaryInstruction binaryInstruction &&
+                        (binaryInstruction.operator.equals(Operators.MULTIPLY) ||
+                                binaryInstruction.operator.equals(Operators.PLUS)) &&
+                        binaryInstruction.fstOperand instanceof IrIntegerConstant &&
+                        !(binaryInstruction.sndOperand instanceof IrIntegerConstant)) {
+                    var constant = binaryInstruction.fstOperand;
+                    binaryInstruction.fstOperand = binaryInstruction.sndOperand;
+                    binaryInstruction.sndOperand = constant;
+                    changesHappened = true;
+                }
+            }
+        }
+        return changesHappened;
+    }
+
+    /**
+     * @return whether a multiplication of a basic induction variable was replaced
+     */
+    private boolean reduceDerivedInductionVariable() {
+        resetForPass();
+        var headerToBody = LoopAnalysisPass.findLoopBodies(getBasicBlocksList(), dominatorTree);
+        for (var header : headerToBody.keySet()) {
+            final Set<BasicBlock> body = headerToBody.get(header);
+            var predecessors = header.getPredecessors()
+                                     .stream()
+                                     .distinct()
+                                     .toList();
+            var outsidePredecessors = predecessors.stream()
+                                                  .filter(predecessor -> !body.contains(predecessor))
+                                                  .toList();
+            if (predecessors.size() != 2 || outsidePredecessors.size() != 1)
+                continue;
+            final BasicBlock predecessor = outsidePredecessors.get(0);
+            final BasicBlock latch = predecessors.get(predecessors.get(0) == predecessor ? 1: 0);
+            for (var phi : header.getPhiFunctions()) {
+                var step = findStep(phi, latch, body);
+                if (step.isEmpty())
+                    continue;
+                for (var derived : findMultiplications(phi.getDestination(), body)) {
+                    if (reduce(derived, phi, step.get(), header, predecessor, latch)) {
+                        optimizationContext.setBasicBlocks(method,
+                                StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock()));
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code c} if {@code phi} is a basic induction variable, increased by {@code c} on every iteration
+     */
+    private Optional<Long> findStep(Phi phi, BasicBlock latch, Set<BasicBlock> body) {
+        if (phi.getDestination()
+               .getType() != Type.Int)
+            return Optional.empty();
+        var next = phi.getVariableForB(latch);
+        // the update of a loop variable is copied into a fresh version of it, which then flows into the phi
+        while (valueToDefinition.get(next) instanceof CopyInstruction copyInstruction &&
+                copyInstruction.getValue() instanceof IrSsaRegister)
+            next = copyInstruction.getValue();
+        if (!(valueToDefinition.get(next) instanceof BinaryInstruction update) ||
+                !body.contains(valueToDefiningBlock.get(next)))
+            return Optional.empty();
+        final IrValue inductionVariable = phi.getDestination();
+        if (update.operator.equals(Operators.PLUS)) {
+            if (update.fstOperand.equals(inductionVariable) && update.sndOperand instanceof IrIntegerConstant c)
+                return Optional.of(c.getValue());
+            if (update.sndOperand.equals(inductionVariable) && update.fstOperand instanceof IrIntegerConstant c)
+                return Optional.of(c.getValue());
+        } else if (update.operator.equals(Operators.MINUS)) {
+            if (update.fstOperand.equals(inductionVariable) && update.sndOperand instanceof IrIntegerConstant c)
+                return Optional.of(-c.getValue());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the multiplications of {@code inductionVariable} by a constant other than 0, 1 and -1 in {@code body}
+     */
+    private List<BinaryInstruction> findMultiplications(IrValue inductionVariable, Set<BasicBlock> body) {
+        var multiplications = new ArrayList<BinaryInstruction>();
+        for (var basicBlock : body)
+            for (var instruction : basicBlock.getInstructionList())
+                if (instruction instanceof BinaryInstruction binaryInstruction &&
+                        binaryInstruction.operator.equals(Operators.MULTIPLY) &&
+                        binaryInstruction.getDestination() instanceof IrSsaRegister &&
+                        binaryInstruction.fstOperand.equals(inductionVariable) &&
+                        binaryInstruction.sndOperand instanceof IrIntegerConstant factor &&
+                        Math.abs(factor.getValue()) > 1)
+                    multiplications.add(binaryInstruction);
+        return multiplications;
+    }
+
+    private boolean reduce(BinaryInstruction derived, Phi inductionVariable, long step, BasicBlock header,
+                           BasicBlock predecessor, BasicBlock latch) {
+        final long factor = ((IrIntegerConstant) derived.sndOperand).getValue();
+        final IrValue init = inductionVariable.getVariableForB(predecessor);
+        final IrValue initTimesFactor;
+        BasicBlock entry = predecessor;
+        if (init instanceof IrIntegerConstant constant) {
+            initTimesFactor = new IrIntegerConstant(constant.getValue() * factor, Type.Int);
+        } else {
+            var preHeader = LoopAnalysisPass.materializePreHeader(header, predecessor);
+            if (preHeader.isEmpty())
+                return false;
+            entry = preHeader.get();
+            initTimesFactor = freshRegister((IrSsaRegister) derived.getDestination());
+            LoopAnalysisPass.insertBeforeBranches(entry, new BinaryInstruction(
+                    (IrSsaRegister) initTimesFactor.copy(),
+                    init.copy(),
+                    Operators.MULTIPLY,
+                    derived.sndOperand.copy(),
+                    String.format("%s = %s * %s", initTimesFactor, init, derived.sndOperand),
+                    derived.getSource()
+            ));
+        }
+        // every instruction gets its own copy of a register, since leaving SSA renames the registers in place
+        final var reduced = (IrSsaRegister) derived.getDestination();
+        final var phiDestination = freshRegister(reduced);
+        final var next = freshRegister(reduced);
+        // the product keeps its register, as a copy of the new phi, so that its uses are left as they are
+        var instructionList = valueToDefiningBlock.get(reduced)
+                                                  .getInstructionList();
+        instructionList.set(instructionList.indexOf(derived),
+                CopyInstruction.noAstConstructor(reduced, phiDestination.copy()));
+        var blockToValue = new LinkedHashMap<BasicBlock, IrValue>();
+        blockToValue.put(entry, initTimesFactor.copy());
+        blockToValue.put(latch, next.copy());
+        header.getInstructionList()
+              .add(header.getPhiFunctions()
+                         .size(), new Phi(phiDestination.copy(), blockToValue));
+        final var increment = new IrIntegerConstant(step * factor, Type.Int);
+        LoopAnalysisPass.insertBeforeBranches(latch, new BinaryInstruction(
+                next.copy(),
+                phiDestination.copy(),
+                Operators.PLUS,
+                increment,
+                String.format("%s = %s + %s", next, phiDestination, increment),
+                derived.getSource()
+        ));
+        return true;
+    }
+
+    /**
+     * @return a new version of {@code register}, which no instruction of the method uses yet
+     */
+    private IrSsaRegister freshRegister(IrSsaRegister register) {
+        var fresh = register.copy();
+        int versionNumber = register.getVersionNumber() == null ? 0: register.getVersionNumber();
+        do {
+            fresh.renameForSsa(++versionNumber);
+        } while (!registerLabels.add(fresh.getLabel()));
+        return fresh;
+    }
+}
@@ -1,10 +1,25 @@
 package decaf.dataflow.ssapasses;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.UnconditionalBranch;
+import decaf.codegen.codes.WithTarget;
+import decaf.common.StronglyConnectedComponentsTarjan;
 import decaf.dataflow.OptimizationContext;
 import decaf.codegen.codes.Method;
 import decaf.dataflow.dominator.DominatorTree;
@@ -16,10 +31,10 @@ public class LoopAnalysisPass extends SsaOptimizationPass {
         super(optimizationContext, method);
     }
 
-    private List<NaturalLoop> findNaturalLoops(DominatorTree dominatorTree) {
+    static List<NaturalLoop> findNaturalLoops(Collection<BasicBlock> basicBlocks, DominatorTree dominatorTree) {
         var naturalLoops = new ArrayList<NaturalLoop>();
 
-        for (var node : getBasicBlocksList()) {
+        for (var node : basicBlocks) {
             for (var successor : node.getSuccessors()) {
                 if (dominatorTree.dom(successor, node)) {
                     naturalLoops.add(new NaturalLoop(successor, node, dominatorTree));
@@ -30,6 +45,88 @@ public class LoopAnalysisPass extends SsaOptimizationPass {
         return naturalLoops;
     }
 
+    /**
+     * Loops which share a header, because they have several latches, are merged into one loop
+     *
+     * @return the body of every loop among {@code basicBlocks}, keyed by the header of the loop
+     */
+    static Map<BasicBlock, Set<BasicBlock>> findLoopBodies(Collection<BasicBlock> basicBlocks,
+                                                           DominatorTree dominatorTree) {
+        var headerToBody = new LinkedHashMap<BasicBlock, Set<BasicBlock>>();
+        for (var naturalLoop : findNaturalLoops(basicBlocks, dominatorTree))
+            headerToBody.computeIfAbsent(naturalLoop.getHeader(), k -> new LinkedHashSet<>())
+                        .addAll(naturalLoop.getBody());
+        return headerToBody;
+    }
+
+    /**
+     * The loop depth of a block is the number of loops whose body contains it; loops which share a header, because
+     * they have several latches, count as one loop
+     *
+     * @return the loop depth of every block reachable from the entry of {@code method}, blocks outside any loop have
+     * depth 0
+     */
+    public static Map<BasicBlock, Integer> computeLoopDepths(Method method) {
+        var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock());
+        var headerToBody = findLoopBodies(basicBlocks, new DominatorTree(method.getEntryBlock()));
+
+        var loopDepths = new HashMap<BasicBlock, Integer>();
+        for (var basicBlock : basicBlocks)
+            loopDepths.put(basicBlock, 0);
+        for (var body : headerToBody.values())
+            for (var basicBlock : body)
+                loopDepths.merge(basicBlock, 1, Integer::sum);
+        return loopDepths;
+    }
+
+    /**
+     * @return a block which runs once whenever the loop of {@code header} is entered from {@code predecessor}, the only
+     * block outside the loop which jumps to {@code header}: {@code predecessor} itself if it has no other successor,
+     * otherwise a new block on the edge, or nothing if {@code predecessor} branches to {@code header} both ways
+     */
+    static Optional<BasicBlock> materializePreHeader(@NotNull BasicBlock header, @NotNull BasicBlock predecessor) {
+        if (predecessor.hasNoBranchNotNOP() && predecessor.getSuccessors()
+                                                          .equals(List.of(header)))
+            return Optional.of(predecessor);
+        if (predecessor.hasBranch() && predecessor.getTrueTarget() == predecessor.getFalseTarget())
+            return Optional.empty();
+
+        var preHeader = BasicBlock.noBranch();
+        if (predecessor.hasBranch()) {
+            if (predecessor.getTrueTarget() == header) {
+                predecessor.setTrueTarget(preHeader);
+            } else {
+                checkState(predecessor.getFalseTarget() == header);
+                predecessor.getConditionalBranchInstruction()
+                           .replaceTarget(preHeader);
+                predecessor.setFalseTargetUnchecked(preHeader);
+            }
+        } else {
+            predecessor.setSuccessor(preHeader);
+        }
+        for (var withTarget : predecessor.getWithTargets())
+            if (withTarget instanceof UnconditionalBranch && withTarget.getTarget() == header)
+                withTarget.replaceTarget(preHeader);
+        header.getPhiFunctions()
+              .forEach(phi -> phi.replacePredecessor(predecessor, preHeader));
+        header.removePredecessor(predecessor);
+        header.addPredecessor(preHeader);
+        preHeader.addPredecessor(predecessor);
+        preHeader.setSuccessor(header);
+        return Optional.of(preHeader);
+    }
+
+    /**
+     * Appends {@code instruction} to {@code basicBlock}, before the jumps which end it
+     */
+    static void insertBeforeBranches(BasicBlock basicBlock, Instruction instruction) {
+        var instructionList = basicBlock.getInstructionList();
+        int index = instructionList.size();
+        while (index > 0 && instructionList.get(index - 1) instanceof WithTarget)
+            index--;
+        instructionList.add(index, instruction);
+    }
+
     @Override
     protected void resetForPass() {
         dominatorTree = new DominatorTree(method.getEntryBlock());
@@ -38,7 +135,7 @@ public class LoopAnalysisPass extends SsaOptimizationPass {
     @Override
     public boolean runFunctionPass() {
         resetForPass();
-        var naturalLoops = findNaturalLoops(dominatorTree);
+        var naturalLoops = findNaturalLoops(getBasicBlocksList(), dominatorTree);
         return false;
     }
 }
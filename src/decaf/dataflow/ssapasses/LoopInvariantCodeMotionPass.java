@@ -0,0 +1,158 @@
+package decaf.dataflow.ssapasses;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.codes.UnaryInstruction;
+import decaf.codegen.names.IrConstant;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.dataflow.OptimizationContext;
+import decaf.dataflow.dominator.DominatorTree;
+
+/**
+ * Hoists the computations whose value is the same on every iteration of a loop into the loop's preheader, a block
+ * which runs once, just before the loop is entered.
+ * <p>
+ * A {@link BinaryInstruction} or {@link UnaryInstruction} writing an SSA register is invariant when each of its
+ * operands is a constant, or a register whose definition strictly dominates the header of the loop, or the result of
+ * an instruction hoisted before it. Loads from memory are never invariant, and neither are the addresses computed by
+ * {@link decaf.codegen.codes.GetAddress}: the register allocator expects an address to be used in the block which
+ * computes it. A hoisted instruction runs even if the loop body never does, so only instructions which cannot fault
+ * are hoisted: division and modulo only by constants other than 0 and -1.
+ * <p>
+ * Loops are visited innermost first, so an invariant of nested loops moves out one loop at a time. The preheader is
+ * the block through which the loop is entered, if it has no other successor; otherwise a new block is inserted on
+ * the edge into the header. Loops entered from several blocks are left alone.
+ */
+public class LoopInvariantCodeMotionPass extends SsaOptimizationPass {
+    @MonotonicNonNull private DominatorTree dominatorTree;
+    private final Map<IrValue, BasicBlock> valueToDefiningBlock = new HashMap<>();
+
+    public LoopInvariantCodeMotionPass(OptimizationContext optimizationContext, Method method) {
+        super(optimizationContext, method);
+    }
+
+    @Override
+    protected void resetForPass() {
+        dominatorTree = new DominatorTree(method.getEntryBlock());
+        valueToDefiningBlock.clear();
+        for (var basicBlock : getBasicBlocksList())
+            for (var instruction : basicBlock.getInstructionList())
+                if (instruction instanceof StoreInstruction storeInstruction)
+                    valueToDefiningBlock.put(storeInstruction.getDestination(), basicBlock);
+    }
+
+    @Override
+    public boolean runFunctionPass() {
+        var changesHappened = false;
+        while (hoistFromInnermostLoop())
+            changesHappened = true;
+        return changesHappened;
+    }
+
+    /**
+     * @return whether any instruction was hoisted, out of the smallest loop which has invariants
+     */
+    private boolean hoistFromInnermostLoop() {
+        resetForPass();
+        var headerToBody = LoopAnalysisPass.findLoopBodies(getBasicBlocksList(), dominatorTree);
+        var headers = new ArrayList<>(headerToBody.keySet());
+        headers.sort(Comparator.comparingInt(header -> headerToBody.get(header)
+                                                                   .size()));
+        for (var header : headers) {
+            final Set<BasicBlock> body = headerToBody.get(header);
+            var outsidePredecessors = header.getPredecessors()
+                                            .stream()
+                                            .filter(predecessor -> !body.contains(predecessor))
+                                            .distinct()
+                                            .toList();
+            if (outsidePredecessors.size() != 1)
+                continue;
+            var invariants = findInvariants(header, body);
+            if (invariants.isEmpty())
+                continue;
+            var preHeader = LoopAnalysisPass.materializePreHeader(header, outsidePredecessors.get(0));
+            if (preHeader.isEmpty())
+                continue;
+            for (var invariant : invariants) {
+                valueToDefiningBlock.get(invariant.getDestination())
+                                    .getInstructionList()
+                                    .remove(invariant);
+                LoopAnalysisPass.insertBeforeBranches(preHeader.get(), invariant);
+            }
+            optimizationContext.setBasicBlocks(method,
+                    StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock()));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the invariants of the loop, each after the invariants it uses
+     */
+    private List<StoreInstruction> findInvariants(BasicBlock header, Set<BasicBlock> body) {
+        var invariants = new ArrayList<StoreInstruction>();
+        var hoisted = new HashSet<IrValue>();
+        var changesHappened = true;
+        while (changesHappened) {
+            changesHappened = false;
+            for (var basicBlock : getBasicBlocksList()) {
+                if (!body.contains(basicBlock))
+                    continue;
+                for (var instruction : basicBlock.getInstructionList()) {
+                    if (!(instruction instanceof StoreInstruction storeInstruction) ||
+                            invariants.contains(storeInstruction) || !isHoistable(storeInstruction))
+                        continue;
+                    if (storeInstruction.genOperandIrValuesSurface()
+                                        .stream()
+                                        .allMatch(irValue -> isInvariant(irValue, header, hoisted))) {
+                        invariants.add(storeInstruction);
+                        hoisted.add(storeInstruction.getDestination());
+                        changesHappened = true;
+                    }
+                }
+            }
+        }
+        return invariants;
+    }
+
+    private static boolean isHoistable(StoreInstruction instruction) {
+        if (instruction instanceof BinaryInstruction binaryInstruction) {
+            if (!(binaryInstruction.getDestination() instanceof IrSsaRegister))
+                return false;
+            if (binaryInstruction.operator.equals(Operators.DIVIDE) || binaryInstruction.operator.equals(Operators.MOD))
+                return binaryInstruction.sndOperand instanceof IrIntegerConstant divisor && divisor.getValue() != 0 &&
+                        divisor.getValue() != -1;
+            return true;
+        }
+        return instruction instanceof UnaryInstruction unaryInstruction &&
+                unaryInstruction.getDestination() instanceof IrSsaRegister;
+    }
+
+    private boolean isInvariant(IrValue irValue, BasicBlock header, Set<IrValue> hoisted) {
+        if (irValue instanceof IrConstant)
+            return true;
+        if (!(irValue instanceof IrSsaRegister))
+            return false;
+        if (hoisted.contains(irValue))
+            return true;
+        var definingBlock = valueToDefiningBlock.get(irValue);
+        // parameters are defined before the entry block
+        return definingBlock == null || dominatorTree.strictDom(definingBlock, header);
+    }
+}
@@ -5,7 +5,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.Stack;
 
@@ -28,12 +28,12 @@ public class NaturalLoop {
      * They must all be dominated by the header
      */
     @NotNull
-    private final Set<BasicBlock> body = new HashSet<>();
+    private final Set<BasicBlock> body = new LinkedHashSet<>();
     /**
      * Blocks whose immediate predecessors are in the loop body, but they themselves aren't
      */
     @NotNull
-    private final Set<BasicBlock> exitBlocks = new HashSet<>();
+    private final Set<BasicBlock> exitBlocks = new LinkedHashSet<>();
     /**
      * A single block whose immediate successor is outside the loop
      */
@@ -61,7 +61,7 @@ public class NaturalLoop {
     }
 
     public void buildBody(DominatorTree dominatorTree) {
-        var body = new HashSet<BasicBlock>();
+        var body = new LinkedHashSet<BasicBlock>();
         var stack = new Stack<BasicBlock>();
 
         body.add(getHeader());
@@ -0,0 +1,119 @@
+package decaf.dataflow.ssapasses;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.codes.UnaryInstruction;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.ssa.Phi;
+
+/**
+ * Computes the {@link ValueRange} of every SSA register of a method.
+ * <p>
+ * The blocks are visited in reverse post order until no range changes. The operands of a phi which flow in along a
+ * back edge are not evaluated on the first visit, so they start as TOP; once a phi has grown twice its growing bounds
+ * are {@link ValueRange#widen widened} to infinity, which bounds the number of visits. Parameters, loads from memory
+ * and the results of calls may be anything.
+ */
+public class RangeAnalysis {
+    private static final int WIDENING_DELAY = 2;
+
+    private final Map<IrValue, ValueRange> ranges = new HashMap<>();
+    private final Map<Phi, Integer> phiUpdates = new HashMap<>();
+
+    public RangeAnalysis(Method method) {
+        checkNotNull(method);
+        method.getParameterNames()
+              .forEach(parameter -> ranges.put(parameter, ValueRange.full()));
+        var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock());
+        var changesHappened = true;
+        while (changesHappened)
+            changesHappened = visit(basicBlocks);
+    }
+
+    private boolean visit(List<BasicBlock> basicBlocks) {
+        var changesHappened = false;
+        for (var basicBlock : basicBlocks) {
+            for (var instruction : basicBlock.getInstructionList()) {
+                if (!(instruction instanceof StoreInstruction storeInstruction) ||
+                        !(storeInstruction.getDestination() instanceof IrSsaRegister destination))
+                    continue;
+                var previous = ranges.getOrDefault(destination, ValueRange.top());
+                var updated = evaluate(instruction);
+                // the range of a phi only grows, so that widening it eventually stops the visits
+                if (instruction instanceof Phi phi) {
+                    updated = ValueRange.join(previous, updated);
+                    if (!updated.equals(previous) && phiUpdates.merge(phi, 1, Integer::sum) > WIDENING_DELAY)
+                        updated = ValueRange.widen(previous, updated);
+                }
+                if (!updated.equals(previous)) {
+                    ranges.put(destination, updated);
+                    changesHappened = true;
+                }
+            }
+        }
+        return changesHappened;
+    }
+
+    private ValueRange evaluate(Instruction instruction) {
+        if (instruction instanceof Phi phi) {
+            return phi.genOperandIrValuesSurface()
+                      .stream()
+                      .map(this::rangeOrTop)
+                      .reduce(ValueRange.top(), ValueRange::join);
+        } else if (instruction instanceof CopyInstruction copyInstruction) {
+            return rangeOrTop(copyInstruction.getValue());
+        } else if (instruction instanceof UnaryInstruction unaryInstruction) {
+            return switch (unaryInstruction.operator) {
+                case Operators.MINUS -> rangeOrTop(unaryInstruction.operand).negate();
+                case Operators.NOT -> ValueRange.bool();
+                default -> ValueRange.full();
+            };
+        } else if (instruction instanceof BinaryInstruction binaryInstruction) {
+            var a = rangeOrTop(binaryInstruction.fstOperand);
+            var b = rangeOrTop(binaryInstruction.sndOperand);
+            return switch (binaryInstruction.operator) {
+                case Operators.PLUS -> a.add(b);
+                case Operators.MINUS -> a.subtract(b);
+                case Operators.MULTIPLY -> a.multiply(b);
+                case Operators.DIVIDE -> binaryInstruction.sndOperand instanceof IrIntegerConstant divisor ?
+                        a.divide(divisor.getValue()): ValueRange.full();
+                case Operators.MOD -> binaryInstruction.sndOperand instanceof IrIntegerConstant divisor ?
+                        a.mod(divisor.getValue()): ValueRange.full();
+                case Operators.LT, Operators.GT, Operators.LEQ, Operators.GEQ, Operators.EQ, Operators.NEQ,
+                        Operators.CONDITIONAL_AND, Operators.CONDITIONAL_OR -> ValueRange.bool();
+                default -> ValueRange.full();
+            };
+        }
+        return ValueRange.full();
+    }
+
+    private ValueRange rangeOrTop(IrValue irValue) {
+        if (irValue instanceof IrIntegerConstant constant)
+            return ValueRange.constant(constant.getValue());
+        if (irValue instanceof IrSsaRegister)
+            return ranges.getOrDefault(irValue, ValueRange.top());
+        return ValueRange.full();
+    }
+
+    /**
+     * @return the range of {@code irValue}, the full range if nothing is known about it
+     */
+    public ValueRange getRange(IrValue irValue) {
+        var range = rangeOrTop(irValue);
+        return range.isTop() ? ValueRange.full(): range;
+    }
+}
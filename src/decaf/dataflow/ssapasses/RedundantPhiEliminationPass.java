@@ -64,10 +64,11 @@ public class RedundantPhiEliminationPass extends SsaOptimizationPass {
               changesHappened = true;
               continue;
             }
-            // 3) x=phi(y,y,x) (regard as `x=y` and do copy propagation)
+            // 3) x=phi(y,y,x) (regard as `x=y` and do copy propagation), but not x=phi(y,x,z)
             if (phi.genOperandIrValuesSurface()
                    .stream()
-                   .filter(value -> value.equals(phi.getDestination()))
+                   .filter(value -> !value.equals(phi.getDestination()))
+                   .distinct()
                    .count() == 1) {
               var y = phi.genOperandIrValuesSurface()
                          .stream()
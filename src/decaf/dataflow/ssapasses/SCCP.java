@@ -18,6 +18,7 @@ import decaf.codegen.codes.ConditionalBranch;
 import decaf.codegen.codes.CopyInstruction;
 import decaf.codegen.codes.Instruction;
 import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
 import decaf.codegen.codes.UnaryInstruction;
 import decaf.codegen.codes.UnconditionalBranch;
 import decaf.codegen.names.IrAssignable;
@@ -28,9 +29,9 @@ import decaf.codegen.names.IrIntegerConstant;
 import decaf.codegen.names.IrMemoryAddress;
 import decaf.codegen.names.IrStackArray;
 import decaf.codegen.names.IrValue;
+import decaf.common.ConstantFolder;
 import decaf.common.SSAEdgesUtil;
 import decaf.common.StronglyConnectedComponentsTarjan;
-import decaf.common.Utils;
 import decaf.dataflow.ssapasses.worklistitems.SsaEdge;
 import decaf.ssa.Phi;
 
@@ -98,6 +99,10 @@ public class SCCP {
       Instruction instruction,
       BasicBlock basicBlock
   ) {
+    // a global or an array element may be stored to more than once, so its value stays unknown
+    if (instruction instanceof StoreInstruction storeInstruction &&
+        !(storeInstruction.getDestination() instanceof IrSsaRegister))
+      return;
     if (instruction instanceof CopyInstruction copyInstruction) {
       var updated = latticeValues.get(copyInstruction.getValue());
       if (!updated.equals(latticeValues.get(copyInstruction.getDestination()))) {
@@ -110,9 +115,12 @@ public class SCCP {
       if (!a.isBottom() && !b.isBottom()) {
         @NotNull LatticeElement updated;
         if (a.isConstant() && b.isConstant()) {
-          var longVal = Utils.symbolicallyEvaluate(String.format("%d %s %d", a.getValue(), binaryInstruction.operator, b.getValue()))
-                             .orElseThrow();
-          updated = LatticeElement.constant(longVal);
+          if (ConstantFolder.canFold(binaryInstruction.operator, a.getValue(), b.getValue())) {
+            updated = LatticeElement.constant(ConstantFolder.fold(binaryInstruction.operator, a.getValue(), b.getValue()));
+          } else {
+            // the instruction traps at runtime, so leave it in place
+            updated = LatticeElement.bottom();
+          }
         } else {
           updated = LatticeElement.meet(a, b);
         }
@@ -124,7 +132,7 @@ public class SCCP {
     } else if (instruction instanceof UnaryInstruction unaryInstruction) {
       var a = latticeValues.get(unaryInstruction.operand);
       if (a.isConstant()) {
-        var longVal = Utils.symbolicallyEvaluateUnaryInstruction(unaryInstruction.operator, a.getValue());
+        var longVal = ConstantFolder.fold(unaryInstruction.operator, a.getValue());
         var updated = LatticeElement.constant(longVal);
         if (!updated.equals(latticeValues.get(unaryInstruction.getDestination()))) {
           latticeValues.put(unaryInstruction.getDestination(), updated);
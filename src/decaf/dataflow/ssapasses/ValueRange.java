@@ -0,0 +1,180 @@
+package decaf.dataflow.ssapasses;
+
+import java.util.Objects;
+
+/**
+ * The lattice of the values an integer may take, as the interval {@code [low, high]}, for {@link RangeAnalysis}.
+ * <p>
+ * TOP is the empty range, of a value not evaluated yet; joining two ranges gives the smallest range containing both.
+ * The smallest and largest {@code long} stand for the infinities, which adding to or subtracting from keeps: a
+ * counter stepped from a known start needs 2^63 steps to wrap around. Any other arithmetic result which may overflow
+ * is unknown, and takes the full range.
+ */
+public class ValueRange {
+    private static final ValueRange TOP = new ValueRange(1, 0);
+    private static final ValueRange FULL = new ValueRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final long low;
+    private final long high;
+
+    private ValueRange(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    public static ValueRange top() {
+        return TOP;
+    }
+
+    public static ValueRange full() {
+        return FULL;
+    }
+
+    public static ValueRange constant(long value) {
+        return new ValueRange(value, value);
+    }
+
+    public static ValueRange of(long low, long high) {
+        if (low > high)
+            throw new IllegalArgumentException(String.format("empty range [%d, %d]", low, high));
+        return new ValueRange(low, high);
+    }
+
+    public static ValueRange bool() {
+        return of(0, 1);
+    }
+
+    /**
+     * @return the smallest range containing both {@code x} and {@code y}
+     */
+    public static ValueRange join(ValueRange x, ValueRange y) {
+        if (x.isTop())
+            return y;
+        if (y.isTop())
+            return x;
+        return new ValueRange(Math.min(x.low, y.low), Math.max(x.high, y.high));
+    }
+
+    /**
+     * Jumps a bound of {@code previous} which {@code next} extends straight to infinity, so that the ranges of a loop
+     * variable stop growing after one widening
+     */
+    public static ValueRange widen(ValueRange previous, ValueRange next) {
+        if (previous.isTop() || next.isTop())
+            return next;
+        return new ValueRange(next.low < previous.low ? Long.MIN_VALUE: next.low,
+                next.high > previous.high ? Long.MAX_VALUE: next.high);
+    }
+
+    public ValueRange add(ValueRange other) {
+        if (isTop() || other.isTop())
+            return TOP;
+        try {
+            return new ValueRange(
+                    low == Long.MIN_VALUE || other.low == Long.MIN_VALUE ? Long.MIN_VALUE: Math.addExact(low, other.low),
+                    high == Long.MAX_VALUE || other.high == Long.MAX_VALUE ? Long.MAX_VALUE:
+                            Math.addExact(high, other.high)
+            );
+        } catch (ArithmeticException overflow) {
+            return FULL;
+        }
+    }
+
+    public ValueRange subtract(ValueRange other) {
+        if (isTop() || other.isTop())
+            return TOP;
+        try {
+            return new ValueRange(
+                    low == Long.MIN_VALUE || other.high == Long.MAX_VALUE ? Long.MIN_VALUE:
+                            Math.subtractExact(low, other.high),
+                    high == Long.MAX_VALUE || other.low == Long.MIN_VALUE ? Long.MAX_VALUE:
+                            Math.subtractExact(high, other.low)
+            );
+        } catch (ArithmeticException overflow) {
+            return FULL;
+        }
+    }
+
+    public ValueRange multiply(ValueRange other) {
+        if (isTop() || other.isTop())
+            return TOP;
+        try {
+            final long a = Math.multiplyExact(low, other.low), b = Math.multiplyExact(low, other.high);
+            final long c = Math.multiplyExact(high, other.low), d = Math.multiplyExact(high, other.high);
+            return new ValueRange(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+        } catch (ArithmeticException overflow) {
+            return FULL;
+        }
+    }
+
+    /**
+     * @return the range of the quotients, rounded towards zero, of this range by a positive {@code divisor}
+     */
+    public ValueRange divide(long divisor) {
+        if (isTop())
+            return TOP;
+        if (divisor <= 0)
+            return FULL;
+        return new ValueRange(low / divisor, high / divisor);
+    }
+
+    /**
+     * @return the range of the remainders, which take the sign of the dividend, of this range by {@code divisor}
+     */
+    public ValueRange mod(long divisor) {
+        if (isTop())
+            return TOP;
+        if (divisor == 0 || divisor == Long.MIN_VALUE)
+            return FULL;
+        final long largest = Math.abs(divisor) - 1;
+        if (low >= 0)
+            return new ValueRange(0, Math.min(high, largest));
+        if (high <= 0)
+            return new ValueRange(Math.max(low, -largest), 0);
+        return new ValueRange(-largest, largest);
+    }
+
+    public ValueRange negate() {
+        if (isTop())
+            return TOP;
+        if (low == Long.MIN_VALUE)
+            return FULL;
+        return new ValueRange(-high, -low);
+    }
+
+    public boolean isTop() {
+        return low > high;
+    }
+
+    public long getLow() {
+        if (isTop())
+            throw new IllegalStateException("the empty range has no bounds");
+        return low;
+    }
+
+    public long getHigh() {
+        if (isTop())
+            throw new IllegalStateException("the empty range has no bounds");
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        if (isTop())
+            return "⊤";
+        return String.format("[%s, %s]", low == Long.MIN_VALUE ? "-∞": low, high == Long.MAX_VALUE ? "∞": high);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ValueRange that = (ValueRange) o;
+        return (isTop() && that.isTop()) || (low == that.low && high == that.high);
+    }
+
+    @Override
+    public int hashCode() {
+        return isTop() ? 0: Objects.hash(low, high);
+    }
+}
@@ -1,4 +1,40 @@
 package decaf.dataflow.usedef;
 
+import java.util.Optional;
+
+import decaf.ast.Type;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.UnaryInstruction;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.common.ConstantFolder;
+
+/**
+ * Folds binary and unary instructions whose operands are all integer constants
+ */
 public class ConstantFolding {
+    private ConstantFolding() {
+    }
+
+    /**
+     * @return a copy of the folded result into the instruction's destination, or empty if the instruction does not
+     * have constant operands or would trap at runtime
+     */
+    public static Optional<CopyInstruction> tryFold(Instruction instruction) {
+        if (instruction instanceof BinaryInstruction binaryInstruction &&
+                binaryInstruction.fstOperand instanceof IrIntegerConstant left &&
+                binaryInstruction.sndOperand instanceof IrIntegerConstant right &&
+                ConstantFolder.canFold(binaryInstruction.operator, left.getValue(), right.getValue())) {
+            final var value = ConstantFolder.fold(binaryInstruction.operator, left.getValue(), right.getValue());
+            return Optional.of(CopyInstruction.noMetaData(binaryInstruction.getDestination(), new IrIntegerConstant(value, Type.Int)));
+        }
+        if (instruction instanceof UnaryInstruction unaryInstruction &&
+                unaryInstruction.operand instanceof IrIntegerConstant operand &&
+                ConstantFolder.canFold(unaryInstruction.operator)) {
+            final var value = ConstantFolder.fold(unaryInstruction.operator, operand.getValue());
+            return Optional.of(CopyInstruction.noMetaData(unaryInstruction.getDestination(), new IrIntegerConstant(value, Type.Int)));
+        }
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,21 @@
+package decaf.exceptions;
+
+import java.util.List;
+
+/**
+ * Thrown instead of exiting the JVM when a compilation that must not terminate the process fails
+ */
+public class CompilationFailedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> diagnostics;
+
+    public CompilationFailedException(List<String> diagnostics) {
+        super(String.join("\n", diagnostics));
+        this.diagnostics = List.copyOf(diagnostics);
+    }
+
+    public List<String> getDiagnostics() {
+        return diagnostics;
+    }
+}
@@ -108,24 +108,27 @@ import decaf.common.DecafExceptionProcessor;
 import decaf.common.Pair;
 import decaf.common.Utils;
 
+/**
+ * A recursive descent parser which pulls tokens from the scanner as it goes.
+ * <p>
+ * The parser looks at most one token ahead of and one token behind the current one, so only the last few tokens are
+ * kept, in a {@link TokenBuffer#bounded} ring; the source is scanned in step with the parse rather than up front.
+ */
 public class DecafParser {
+    // a power of two above the three tokens the parser looks at
+    private static final int TOKEN_WINDOW = 8;
+
     public final DecafScanner scanner;
-    public final List<DecafParserException> errors = new ArrayList<>();
+    public final List<DecafException> errors = new ArrayList<>();
     private final DecafExceptionProcessor decafExceptionProcessor;
     private boolean showTrace = false;
-    private ArrayList<Token> tokens;
+    private final TokenBuffer tokens = TokenBuffer.bounded(TOKEN_WINDOW);
     private int currentTokenIndex;
     private Program root;
 
     public DecafParser(DecafScanner scanner) {
         this.scanner = scanner;
         decafExceptionProcessor = scanner.decafExceptionProcessor;
-        try {
-            this.tokens = getAllTokens();
-        } catch (DecafException e) {
-            e.printStackTrace();
-            this.tokens = new ArrayList<>();
-        }
         this.currentTokenIndex = 0;
     }
 
@@ -168,6 +171,8 @@ public class DecafParser {
             processFieldOrMethod(program);
         } catch (DecafParserException e) {
             errors.add(e);
+        } catch (ScanningFailedException e) {
+            errors.add(e.getCause());
         }
         root = program;
         if (showTrace) {
@@ -175,28 +180,37 @@ public class DecafParser {
         }
     }
 
+    /**
+     * Scans up to the token at {@code index}; the scanner keeps returning end of file markers past the end of the input
+     *
+     * @return {@code index}
+     */
+    private int scanUpTo(int index) {
+        try {
+            while (tokens.size() <= index)
+                scanner.scanNextToken(tokens);
+        } catch (DecafException e) {
+            throw new ScanningFailedException(e);
+        }
+        return index;
+    }
+
     private Token getCurrentToken() {
-        return tokens.get(currentTokenIndex);
+        return tokens.token(scanUpTo(currentTokenIndex));
     }
 
     private TokenType getCurrentTokenType() {
-        return getCurrentToken().tokenType();
+        return tokens.tokenType(scanUpTo(currentTokenIndex));
     }
 
-    private ArrayList<Token> getAllTokens() throws DecafException {
-        ArrayList<Token> tokens = new ArrayList<>();
-        Token token;
-        do {
-            token = scanner.nextToken();
-            tokens.add(token);
-        } while (token.isNotEOF());
-        return tokens;
+    private TokenType getNextTokenType() {
+        return tokens.tokenType(scanUpTo(currentTokenIndex + 1));
     }
 
     private Token consumeToken(TokenType expectedTokenType, String expected) throws DecafParserException {
-        if (getCurrentToken().tokenType() != expectedTokenType) {
+        if (getCurrentTokenType() != expectedTokenType) {
             String s = getCurrentToken().lexeme();
-            if (getCurrentToken().tokenType()
+            if (getCurrentTokenType()
                     .toString()
                     .startsWith("RESERVED"))
                 s = "reserved keyword " + "\"" + s + "\"";
@@ -350,18 +364,18 @@ public class DecafParser {
     }
 
     private void processImportDeclarations(List<ImportDeclaration> importDeclarationList) throws DecafParserException {
-        if (getCurrentToken().tokenType() == RESERVED_IMPORT)
+        if (getCurrentTokenType() == RESERVED_IMPORT)
             importDeclarationList.add(parseImportDeclaration());
-        if (getCurrentToken().tokenType() == RESERVED_IMPORT) {
+        if (getCurrentTokenType() == RESERVED_IMPORT) {
             processImportDeclarations(importDeclarationList);
         }
     }
 
     private void parseFieldDeclarations(List<FieldDeclaration> fieldDeclarationList) throws DecafParserException {
-        if (getCurrentToken().tokenType() == RESERVED_BOOL || getCurrentToken().tokenType() == RESERVED_INT) {
+        if (getCurrentTokenType() == RESERVED_BOOL || getCurrentTokenType() == RESERVED_INT) {
             do {
                 fieldDeclarationList.add(parseFieldDeclaration());
-            } while ((getCurrentToken().tokenType() == RESERVED_BOOL || getCurrentToken().tokenType() == RESERVED_INT));
+            } while ((getCurrentTokenType() == RESERVED_BOOL || getCurrentTokenType() == RESERVED_INT));
             consumeToken(SEMICOLON, (Token t) -> {
                 if (t.tokenType() == ASSIGN) {
                     return "initializers not allowed here";
@@ -371,14 +385,14 @@ public class DecafParser {
                     return "expected " + DecafScanner.SEMICOLON + " received " + getCurrentTokenType().toString();
                 }
             });
-            if ((getCurrentToken().tokenType() == RESERVED_BOOL || getCurrentToken().tokenType() == RESERVED_INT)) {
+            if ((getCurrentTokenType() == RESERVED_BOOL || getCurrentTokenType() == RESERVED_INT)) {
                 parseFieldDeclarations(fieldDeclarationList);
             }
         }
     }
 
     private void parseFieldDeclarationGroup(List<Name> variables, List<Array> arrays, Name nameId) throws DecafParserException {
-        if (getCurrentToken().tokenType() == LEFT_SQUARE_BRACKET) {
+        if (getCurrentTokenType() == LEFT_SQUARE_BRACKET) {
             consumeToken(LEFT_SQUARE_BRACKET, DecafScanner.LEFT_SQUARE_BRACKET);
             final IntLiteral intLiteral = parseIntLiteral();
             consumeToken(RIGHT_SQUARE_BRACKET, DecafScanner.RIGHT_SQUARE_BRACKET);
@@ -390,10 +404,10 @@ public class DecafParser {
 
     private IntLiteral parseIntLiteral() throws DecafParserException {
         Token intLiteralToken;
-        if (getCurrentToken().tokenType() == DECIMAL_LITERAL) {
+        if (getCurrentTokenType() == DECIMAL_LITERAL) {
             intLiteralToken = consumeTokenNoCheck();
             return new DecimalLiteral(intLiteralToken.tokenPosition(), intLiteralToken.lexeme());
-        } else if (getCurrentToken().tokenType() == HEX_LITERAL) {
+        } else if (getCurrentTokenType() == HEX_LITERAL) {
             intLiteralToken = consumeTokenNoCheck();
             return new HexLiteral(intLiteralToken.tokenPosition(), intLiteralToken.lexeme());
         } else {
@@ -409,7 +423,7 @@ public class DecafParser {
         List<Name> variables = new ArrayList<>();
         List<Array> arrays = new ArrayList<>();
         parseFieldDeclarationGroup(variables, arrays, nameId);
-        while (getCurrentToken().tokenType() == COMMA) {
+        while (getCurrentTokenType() == COMMA) {
             consumeToken(COMMA);
             nameId = parseName(DecafScanner.IDENTIFIER, ExprContext.DECLARE);
             parseFieldDeclarationGroup(variables, arrays, nameId);
@@ -441,8 +455,7 @@ public class DecafParser {
         } else if (getCurrentTokenType() == RESERVED_VOID) {
             parseMethodDeclarations(program.methodDefinitionList);
         } else {
-            if (getCurrentTokenType() == ID && currentTokenIndex + 1 < tokens.size() && tokens.get(currentTokenIndex + 1)
-                    .tokenType() == LEFT_PARENTHESIS) {
+            if (getCurrentTokenType() == ID && getNextTokenType() == LEFT_PARENTHESIS) {
                 throw getContextualException("method \"" + getCurrentToken().lexeme() + "\" does not have a return type");
             } else if (getCurrentTokenType() == ID) {
                 throw getContextualException("field \"" + getCurrentToken().lexeme() + "\" does not have a type");
@@ -496,7 +509,7 @@ public class DecafParser {
                 return "invalid method decl syntax: expected " + "\"" + DecafScanner.LEFT_PARENTHESIS + "\"" + " received " + "\"" + token.lexeme() + "\"";
             }
         });
-        if (getCurrentToken().tokenType() == RESERVED_INT || getCurrentToken().tokenType() == RESERVED_BOOL) {
+        if (getCurrentTokenType() == RESERVED_INT || getCurrentTokenType() == RESERVED_BOOL) {
             List<MethodDefinitionParameter> methodDefinitionParameterList = new ArrayList<>();
             parseMethodArguments(methodDefinitionParameterList);
             consumeToken(RIGHT_PARENTHESIS);
@@ -553,7 +566,7 @@ public class DecafParser {
     private Statement parseLocationAndAssignExprOrMethodCall() throws DecafParserException {
         final Token token = consumeToken(ID, DecafScanner.IDENTIFIER);
         Statement statement;
-        if (getCurrentToken().tokenType() == LEFT_PARENTHESIS) {
+        if (getCurrentTokenType() == LEFT_PARENTHESIS) {
             statement = new MethodCallStatement(token.tokenPosition(), parseMethodCall(token));
         } else {
             statement = parseLocationAndAssignExpr(token);
@@ -602,7 +615,7 @@ public class DecafParser {
     }
 
     private AssignExpr parseIncrement() throws DecafParserException {
-        TokenType expectedTokenType = getCurrentToken().tokenType();
+        TokenType expectedTokenType = getCurrentTokenType();
         final Token token = consumeToken(expectedTokenType);
         if (expectedTokenType == INCREMENT)
             return new Increment(token.tokenPosition());
@@ -614,7 +627,7 @@ public class DecafParser {
     }
 
     private AssignExpr parseAssignExpr() throws DecafParserException {
-        switch (getCurrentToken().tokenType()) {
+        switch (getCurrentTokenType()) {
             case DECREMENT:
             case INCREMENT:
                 return parseIncrement();
@@ -622,12 +635,10 @@ public class DecafParser {
             case ADD_ASSIGN:
             case MINUS_ASSIGN:
             case MULTIPLY_ASSIGN:
-                return parseAssignOpExpr(getCurrentToken().tokenType());
+                return parseAssignOpExpr(getCurrentTokenType());
             default: {
-                if (tokens.get(currentTokenIndex - 1)
-                        .tokenType() == ID) {
-                    throw getContextualException("invalid type " + "\"" + tokens.get(currentTokenIndex - 1)
-                            .lexeme() + "\"");
+                if (tokens.tokenType(currentTokenIndex - 1) == ID) {
+                    throw getContextualException("invalid type " + "\"" + tokens.lexeme(currentTokenIndex - 1) + "\"");
                 }
                 throw getContextualException("invalid assign_expr");
             }
@@ -635,9 +646,9 @@ public class DecafParser {
     }
 
     private AssignExpr parseCompoundAssignExpr() throws DecafParserException {
-        return switch (getCurrentToken().tokenType()) {
+        return switch (getCurrentTokenType()) {
             case DECREMENT, INCREMENT -> parseIncrement();
-            case ADD_ASSIGN, MINUS_ASSIGN, MULTIPLY_ASSIGN -> parseCompoundAssignOpExpr(getCurrentToken().tokenType());
+            case ADD_ASSIGN, MINUS_ASSIGN, MULTIPLY_ASSIGN -> parseCompoundAssignOpExpr(getCurrentTokenType());
             default -> throw new DecafParserException(getCurrentToken(), "expected compound_assign_expr");
         };
     }
@@ -650,7 +661,7 @@ public class DecafParser {
     }
 
     private Location parseLocation(Token token) throws DecafParserException {
-        if (getCurrentToken().tokenType() == LEFT_SQUARE_BRACKET) {
+        if (getCurrentTokenType() == LEFT_SQUARE_BRACKET) {
             consumeToken(LEFT_SQUARE_BRACKET);
             return parseLocationArray(token);
         }
@@ -848,7 +859,7 @@ public class DecafParser {
         Name nameId = parseName(DecafScanner.IDENTIFIER, ExprContext.DECLARE);
         parseFieldDeclarationGroup(variables, arrays, nameId);
 
-        while (getCurrentToken().tokenType() == COMMA) {
+        while (getCurrentTokenType() == COMMA) {
             consumeToken(COMMA, DecafScanner.COMMA);
             nameId = parseName(DecafScanner.IDENTIFIER, ExprContext.DECLARE);
             parseFieldDeclarationGroup(variables, arrays, nameId);
@@ -890,6 +901,22 @@ public class DecafParser {
         this.showTrace = showTrace;
     }
 
+    /**
+     * Carries a scanner error out of the parse, which otherwise only expects {@link DecafParserException}s
+     */
+    private static class ScanningFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ScanningFailedException(DecafException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized DecafException getCause() {
+            return (DecafException) super.getCause();
+        }
+    }
+
     private static class PrintConstants {
         public static final String ELBOW = "└──";
         public static final String TEE = "├──";
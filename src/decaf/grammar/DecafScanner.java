@@ -5,9 +5,6 @@ package decaf.grammar;
 import static java.lang.annotation.RetentionPolicy.SOURCE;
 
 import java.lang.annotation.Retention;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,7 +12,6 @@ import decaf.exceptions.DecafException;
 import decaf.exceptions.DecafScannerException;
 import decaf.common.DecafExceptionProcessor;
 import decaf.common.StringDef;
-import decaf.common.Utils;
 
 public class DecafScanner {
     public static final String LEFT_CURLY = "{";
@@ -86,210 +82,323 @@ public class DecafScanner {
     public static final String RESERVED_BOOL = "bool";
     public static final String RESERVED_TRUE = "true";
     public static final String RESERVED_FALSE = "false";
+    private static final byte OTHER = 0;
+    private static final byte BLANK = 1;
+    private static final byte LINE_BREAK = 2;
+    private static final byte LETTER = 3;
+    private static final byte DIGIT = 4;
+    private static final byte OPERATOR = 5;
+    private static final byte SINGLE_QUOTE = 6;
+    private static final byte DOUBLE_QUOTE = 7;
+    /**
+     * The class of each ASCII character; characters outside ASCII are classified with {@link Character}
+     */
+    private static final byte[] CHARACTER_CLASSES = new byte[128];
+    /**
+     * The token a character makes on its own, or {@code null}
+     */
+    private static final TokenType[] SINGLE_CHARACTER_TOKENS = new TokenType[128];
+    /**
+     * The token made by two characters, indexed by the first and then the second character; only the rows of
+     * characters which start a two-character operator are allocated
+     */
+    private static final TokenType[][] DOUBLE_CHARACTER_TOKENS = new TokenType[128][];
+    private static final String[] FIXED_LEXEMES = new String[TokenType.values().length];
+    private static final String[] RESERVED_WORDS = {RESERVED_FOR, RESERVED_IF, RESERVED_IMPORT, RESERVED_INT, RESERVED_LEN, RESERVED_RETURN, RESERVED_ELSE, RESERVED_CONTINUE, RESERVED_BREAK, RESERVED_WHILE, RESERVED_VOID, RESERVED_BOOL, RESERVED_TRUE, RESERVED_FALSE};
+    private static final TokenType[] RESERVED_WORD_TYPES = {TokenType.RESERVED_FOR, TokenType.RESERVED_IF, TokenType.RESERVED_IMPORT, TokenType.RESERVED_INT, TokenType.RESERVED_LEN, TokenType.RESERVED_RETURN, TokenType.RESERVED_ELSE, TokenType.RESERVED_CONTINUE, TokenType.RESERVED_BREAK, TokenType.RESERVED_WHILE, TokenType.RESERVED_VOID, TokenType.RESERVED_BOOL, TokenType.RESERVED_TRUE, TokenType.RESERVED_FALSE};
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++)
+            CHARACTER_CLASSES[c] = LETTER;
+        for (char c = 'A'; c <= 'Z'; c++)
+            CHARACTER_CLASSES[c] = LETTER;
+        CHARACTER_CLASSES['_'] = LETTER;
+        for (char c = '0'; c <= '9'; c++)
+            CHARACTER_CLASSES[c] = DIGIT;
+        CHARACTER_CLASSES[' '] = BLANK;
+        CHARACTER_CLASSES['\t'] = BLANK;
+        CHARACTER_CLASSES['\n'] = LINE_BREAK;
+        CHARACTER_CLASSES['\r'] = LINE_BREAK;
+        CHARACTER_CLASSES['\''] = SINGLE_QUOTE;
+        CHARACTER_CLASSES['"'] = DOUBLE_QUOTE;
+
+        addOperator(LEFT_CURLY, TokenType.LEFT_CURLY);
+        addOperator(RIGHT_CURLY, TokenType.RIGHT_CURLY);
+        addOperator(LEFT_SQUARE_BRACKET, TokenType.LEFT_SQUARE_BRACKET);
+        addOperator(RIGHT_SQUARE_BRACKET, TokenType.RIGHT_SQUARE_BRACKET);
+        addOperator(LEFT_PARENTHESIS, TokenType.LEFT_PARENTHESIS);
+        addOperator(RIGHT_PARENTHESIS, TokenType.RIGHT_PARENTHESIS);
+        addOperator(SEMICOLON, TokenType.SEMICOLON);
+        addOperator(COMMA, TokenType.COMMA);
+        addOperator(MOD, TokenType.MOD);
+        addOperator(TERNARY_QUESTION_MARK, TokenType.TERNARY_QUESTION_MARK);
+        addOperator(TERNARY_COLON, TokenType.TERNARY_COLON);
+        addOperator(NOT, TokenType.NOT);
+        addOperator(PLUS, TokenType.PLUS);
+        addOperator(MINUS, TokenType.MINUS);
+        addOperator(MULTIPLY, TokenType.MULTIPLY);
+        addOperator(DIVIDE, TokenType.DIVIDE);
+        addOperator(ASSIGN, TokenType.ASSIGN);
+        addOperator(LT, TokenType.LT);
+        addOperator(GT, TokenType.GT);
+        addOperator(ADD_ASSIGN, TokenType.ADD_ASSIGN);
+        addOperator(MINUS_ASSIGN, TokenType.MINUS_ASSIGN);
+        addOperator(MULTIPLY_ASSIGN, TokenType.MULTIPLY_ASSIGN);
+        addOperator(NEQ, TokenType.NEQ);
+        addOperator(GEQ, TokenType.GEQ);
+        addOperator(LEQ, TokenType.LEQ);
+        addOperator(EQ, TokenType.EQ);
+        addOperator(INCREMENT, TokenType.INCREMENT);
+        addOperator(DECREMENT, TokenType.DECREMENT);
+        addOperator(CONDITIONAL_OR, TokenType.CONDITIONAL_OR);
+        addOperator(CONDITIONAL_AND, TokenType.CONDITIONAL_AND);
+
+        for (int i = 0; i < RESERVED_WORDS.length; i++)
+            FIXED_LEXEMES[RESERVED_WORD_TYPES[i].ordinal()] = RESERVED_WORDS[i];
+        FIXED_LEXEMES[TokenType.EOF.ordinal()] = EOF;
+    }
+
     final DecafExceptionProcessor decafExceptionProcessor;
-    private final String inputString;
+    private final ScannerInput input;
     private final Logger logger = Logger.getLogger(DecafScanner.class.getName());
-    private final List<String> syntaxLines = new ArrayList<>();
+    private final TokenBuffer scratchBuffer = new TokenBuffer();
     private int column;
     private int line;
     private int stringIndex;
-    private Token prevToken = null;
+    // the offset of the first character of the current line
+    private int lineStartIndex;
+    // the token being scanned starts at tokenStartIndex, on tokenStartLine at tokenStartColumn, and ends at stringIndex
+    private int tokenStartIndex;
+    private int tokenStartLine;
+    private int tokenStartColumn;
+    private TokenType prevTokenType = null;
+    private String prevLexeme;
+    private TokenPosition prevTokenPosition;
+    private int prevTokenLineStartIndex;
     private boolean shouldTrace = false;
 
     public DecafScanner(String in, DecafExceptionProcessor decafExceptionProcessor) {
-        inputString = maybeAppendNewLineCharacter(in);
+        this(ScannerInput.of(in), decafExceptionProcessor);
+    }
+
+    /**
+     * Reads {@code input} only as far as the tokens asked for, so a {@link ScannerInput} over a {@link java.io.Reader}
+     * is scanned without holding the whole source
+     */
+    public DecafScanner(ScannerInput input, DecafExceptionProcessor decafExceptionProcessor) {
+        this.input = input;
         stringIndex = 0;
         logger.setLevel(Level.INFO);
         this.decafExceptionProcessor = decafExceptionProcessor;
     }
 
-    private static boolean isValidIdFirstCodePoint(char c) {
-        return Character.isLetter(c) || c == '_';
+    private static void addOperator(String lexeme, TokenType tokenType) {
+        final char first = lexeme.charAt(0);
+        CHARACTER_CLASSES[first] = OPERATOR;
+        if (lexeme.length() == 1) {
+            SINGLE_CHARACTER_TOKENS[first] = tokenType;
+        } else {
+            if (DOUBLE_CHARACTER_TOKENS[first] == null)
+                DOUBLE_CHARACTER_TOKENS[first] = new TokenType[128];
+            DOUBLE_CHARACTER_TOKENS[first][lexeme.charAt(1)] = tokenType;
+        }
+        FIXED_LEXEMES[tokenType.ordinal()] = lexeme;
     }
 
-    private String maybeAppendNewLineCharacter(String string) {
-        if (string.charAt(string.length() - 1) != NEW_LINE.charAt(0)) {
-            return string + NEW_LINE;
-        }
-        return string;
+    /**
+     * @return the lexeme of an operator, a reserved word or the end of file marker, which all have a single spelling
+     */
+    public static String fixedLexeme(TokenType tokenType) {
+        return FIXED_LEXEMES[tokenType.ordinal()];
     }
 
-    private void consumeCharacterNoCheck() {
-        ++stringIndex;
-        ++column;
+    private static byte classify(char c) {
+        if (c < 128)
+            return CHARACTER_CLASSES[c];
+        if (Character.isLetter(c))
+            return LETTER;
+        if (Character.isDigit(c))
+            return DIGIT;
+        return OTHER;
     }
 
-    private void consumeNewlineCharacter(String sc) {
-        final char c = sc.charAt(0);
-        if (c != '\r' && c != '\n') {
-            throw new IllegalArgumentException("supported new line characters are: " + "[" + "\r" + ", " + "\n" + "]" + "not " + c);
-        }
-        column = 0;
-        ++line;
-        ++stringIndex;
+    private static boolean isIdCharacter(char c) {
+        final byte characterClass = classify(c);
+        return characterClass == LETTER || characterClass == DIGIT;
     }
 
-    private void consumeCharacter(TokenPosition tokenPosition, String c, String errMessage) throws DecafScannerException {
-        if (inputString.charAt(stringIndex) != c.charAt(0))
-            throw getContextualException(tokenPosition, errMessage);
-        consumeCharacterNoCheck();
+    private static boolean isDecimalDigit(char c) {
+        return classify(c) == DIGIT;
     }
 
-    private void consumeCompoundCharacter(String compoundOp) {
-        if (!inputString.startsWith(compoundOp, stringIndex)) {
-            throw new IllegalArgumentException("expected " + compoundOp + "received " + inputString.substring(stringIndex, stringIndex + 2));
-        }
-        column += 2;
-        stringIndex += 2;
+    private static boolean isValidHexDigit(char hexDigit) {
+        return isDecimalDigit(hexDigit) || ((hexDigit <= 'f') && (hexDigit >= 'a')) || ((hexDigit <= 'F') && (hexDigit >= 'A'));
     }
 
-    private void consumeCharacter(char c, Function<Character, Boolean> validator) {
-        if (!validator.apply(inputString.charAt(stringIndex)))
-            throw new IllegalArgumentException("expected " + c + " to be accepted by validator" + validator);
-        consumeCharacterNoCheck();
+    private static boolean isValidChar(char c) {
+        if (c >= ' ' && c <= '!')
+            return true;
+        if (c >= '#' && c <= '&')
+            return true;
+        if (c >= '(' && c <= '[')
+            return true;
+        return c >= ']' && c <= '~';
     }
 
-    private boolean isSkipAble(Token token) {
-        return token.tokenType() == TokenType.WHITESPACE || token.tokenType() == TokenType.LINE_COMMENT || token.tokenType() == TokenType.BLOCK_COMMENT;
+    private boolean hasCharAt(int index) {
+        return input.hasCharAt(index);
     }
 
-    /**
-     * might find this useful
-     **/
-    public Token nextToken() throws DecafException {
-        Token token;
-        do {
-            token = nextTokenHelper();
-            if (!isSkipAble(token))
-                prevToken = token;
-            updateHighlighter(token);
-            if (shouldTrace) {
-                System.out.println(token);
-            }
-        } while (isSkipAble(token));
-        decafExceptionProcessor.syntaxHighlightedSourceCode = String.join("", syntaxLines);
-        return token;
+    private char charAt(int index) {
+        return input.charAt(index);
     }
 
-    private boolean currentSubstringMatches(String s) {
-        return inputString.startsWith(s, stringIndex);
+    private void consumeCharacterNoCheck() {
+        ++stringIndex;
+        ++column;
     }
 
-    private Token nextTokenHelper() throws DecafException {
-        if (stringIndex >= inputString.length()) {
-            if (prevToken != null)
-                return makeToken(prevToken.tokenPosition(), TokenType.EOF, EOF);
-            else
-                return makeToken(new TokenPosition(line, column, stringIndex), TokenType.EOF, EOF);
+    private void consumeMultipleCharactersNoCheck(int nChars) {
+        stringIndex += nChars;
+        column += nChars;
+    }
+
+    private void consumeNewlineCharacter() {
+        column = 0;
+        ++line;
+        ++stringIndex;
+        lineStartIndex = stringIndex;
+    }
+
+    /**
+     * Scans the whole input
+     *
+     * @return every token which is not whitespace or a comment, ending with an {@link TokenType#EOF} token
+     */
+    public TokenBuffer tokenize() throws DecafException {
+        var tokenBuffer = new TokenBuffer();
+        while (tokenBuffer.tokenType(scanNextToken(tokenBuffer)) != TokenType.EOF) {
         }
-        final char c = inputString.charAt(stringIndex);
-        final TokenPosition tokenPosition = new TokenPosition(line, column, stringIndex);
-        switch (String.valueOf(c)) {
-            case LEFT_CURLY:
-                return handleSingleOperator(tokenPosition, TokenType.LEFT_CURLY, LEFT_CURLY);
-            case RIGHT_CURLY:
-                return handleSingleOperator(tokenPosition, TokenType.RIGHT_CURLY, RIGHT_CURLY);
-            case LEFT_PARENTHESIS:
-                return handleSingleOperator(tokenPosition, TokenType.LEFT_PARENTHESIS, LEFT_PARENTHESIS);
-            case RIGHT_PARENTHESIS:
-                return handleSingleOperator(tokenPosition, TokenType.RIGHT_PARENTHESIS, RIGHT_PARENTHESIS);
-            case LEFT_SQUARE_BRACKET:
-                return handleSingleOperator(tokenPosition, TokenType.LEFT_SQUARE_BRACKET, LEFT_SQUARE_BRACKET);
-            case RIGHT_SQUARE_BRACKET:
-                return handleSingleOperator(tokenPosition, TokenType.RIGHT_SQUARE_BRACKET, RIGHT_SQUARE_BRACKET);
-            case SEMICOLON:
-                return handleSingleOperator(tokenPosition, TokenType.SEMICOLON, SEMICOLON);
-            case COMMA:
-                return handleSingleOperator(tokenPosition, TokenType.COMMA, COMMA);
-            case MOD:
-                return handleSingleOperator(tokenPosition, TokenType.MOD, MOD);
-            case DOUBLE_QUOTES:
-                return handleStringLiteral(tokenPosition);
-            case SINGLE_QUOTES:
-                return handleCharLiteral(tokenPosition);
-            case " ":
-            case "\t":
-            case "\n":
-            case "\r":
-                return handleWhiteSpace(tokenPosition);
-            default: {
-                if (currentSubstringMatches(LINE_COMMENT_START))
-                    return handleSingleLineComment(tokenPosition);
-                else if (currentSubstringMatches(BLOCK_COMMENT_START))
-                    return handleBlockComment(tokenPosition);
-                else if (isValidIdFirstCodePoint(c))
-                    return handleId(tokenPosition);
-                else if (currentSubstringMatches(HEX_PREFIX_LOWERCASE))
-                    return handleHexLiteral(tokenPosition);
-                else if (Character.isDigit(c))
-                    return handleDecimalLiteral(tokenPosition);
-                else if (currentSubstringMatches(ADD_ASSIGN))
-                    return handleCompoundOperator(tokenPosition, TokenType.ADD_ASSIGN, ADD_ASSIGN);
-                else if (currentSubstringMatches(MINUS_ASSIGN))
-                    return handleCompoundOperator(tokenPosition, TokenType.MINUS_ASSIGN, MINUS_ASSIGN);
-                else if (currentSubstringMatches(MULTIPLY_ASSIGN))
-                    return handleCompoundOperator(tokenPosition, TokenType.MULTIPLY_ASSIGN, MULTIPLY_ASSIGN);
-                else if (currentSubstringMatches(NEQ))
-                    return handleCompoundOperator(tokenPosition, TokenType.NEQ, NEQ);
-                else if (currentSubstringMatches(GEQ))
-                    return handleCompoundOperator(tokenPosition, TokenType.GEQ, GEQ);
-                else if (currentSubstringMatches(LEQ))
-                    return handleCompoundOperator(tokenPosition, TokenType.LEQ, LEQ);
-                else if (currentSubstringMatches(EQ))
-                    return handleCompoundOperator(tokenPosition, TokenType.EQ, EQ);
-                else if (currentSubstringMatches(INCREMENT))
-                    return handleCompoundOperator(tokenPosition, TokenType.INCREMENT, INCREMENT);
-                else if (currentSubstringMatches(DECREMENT))
-                    return handleCompoundOperator(tokenPosition, TokenType.DECREMENT, DECREMENT);
-                else if (currentSubstringMatches(CONDITIONAL_OR))
-                    return handleCompoundOperator(tokenPosition, TokenType.CONDITIONAL_OR, CONDITIONAL_OR);
-                else if (currentSubstringMatches(CONDITIONAL_AND))
-                    return handleCompoundOperator(tokenPosition, TokenType.CONDITIONAL_AND, CONDITIONAL_AND);
-                else {
-                    return switch (String.valueOf(c)) {
-                        case NOT -> handleSingleOperator(tokenPosition, TokenType.NOT, NOT);
-                        case PLUS -> handleSingleOperator(tokenPosition, TokenType.PLUS, PLUS);
-                        case MINUS -> handleSingleOperator(tokenPosition, TokenType.MINUS, MINUS);
-                        case MULTIPLY -> handleSingleOperator(tokenPosition, TokenType.MULTIPLY, MULTIPLY);
-                        case DIVIDE -> handleSingleOperator(tokenPosition, TokenType.DIVIDE, DIVIDE);
-                        case ASSIGN -> handleSingleOperator(tokenPosition, TokenType.ASSIGN, ASSIGN);
-                        case LT -> handleSingleOperator(tokenPosition, TokenType.LT, LT);
-                        case GT -> handleSingleOperator(tokenPosition, TokenType.GT, GT);
-                        case TERNARY_QUESTION_MARK ->
-                                handleSingleOperator(tokenPosition, TokenType.TERNARY_QUESTION_MARK, TERNARY_QUESTION_MARK);
-                        case TERNARY_COLON ->
-                                handleSingleOperator(tokenPosition, TokenType.TERNARY_COLON, TERNARY_COLON);
-                        default -> throw getContextualException(tokenPosition, "unrecognized character " + c);
-                    };
+        return tokenBuffer;
+    }
+
+    /**
+     * Scans one token at a time; {@link #tokenize()} avoids creating a {@link Token} object per token
+     */
+    public Token nextToken() throws DecafException {
+        scratchBuffer.clear();
+        return scratchBuffer.token(scanNextToken(scratchBuffer));
+    }
+
+    /**
+     * Skips whitespace and comments and appends the next token to {@code tokenBuffer}; once the input is exhausted
+     * every call appends an {@link TokenType#EOF} token
+     *
+     * @return the index of the new token in {@code tokenBuffer}
+     */
+    public int scanNextToken(TokenBuffer tokenBuffer) throws DecafException {
+        // error messages about the previous token, which the parser may still be looking at, quote its line
+        input.retainFrom(prevTokenLineStartIndex);
+        while (hasCharAt(stringIndex)) {
+            final char c = charAt(stringIndex);
+            switch (classify(c)) {
+                case BLANK -> consumeCharacterNoCheck();
+                case LINE_BREAK -> consumeNewlineCharacter();
+                case LETTER -> {
+                    return emit(tokenBuffer, scanId());
+                }
+                case DIGIT -> {
+                    return emit(tokenBuffer, c == '0' && hasCharAt(stringIndex + 1) && charAt(stringIndex + 1) == 'x' ? scanHexLiteral(): scanDecimalLiteral());
+                }
+                case SINGLE_QUOTE -> {
+                    return emit(tokenBuffer, scanCharLiteral());
+                }
+                case DOUBLE_QUOTE -> {
+                    return emit(tokenBuffer, scanStringLiteral());
                 }
+                case OPERATOR -> {
+                    final char next = hasCharAt(stringIndex + 1) ? charAt(stringIndex + 1): '\0';
+                    if (c == '/' && next == '/') {
+                        skipLineComment();
+                    } else if (c == '/' && next == '*') {
+                        skipBlockComment();
+                    } else {
+                        return emit(tokenBuffer, scanOperator(c, next));
+                    }
+                }
+                default -> throw getContextualException(currentTokenPosition(), "unrecognized character " + c);
             }
         }
+        if (prevTokenPosition != null)
+            return tokenBuffer.add(TokenType.EOF, prevTokenPosition.offset(), 0, prevTokenPosition.line(), prevTokenPosition.column(), null);
+        return tokenBuffer.add(TokenType.EOF, stringIndex, 0, line, column, null);
+    }
+
+    private void startToken() {
+        tokenStartIndex = stringIndex;
+        tokenStartLine = line;
+        tokenStartColumn = column;
     }
 
-    private Token handleSingleLineComment(TokenPosition tokenPosition) {
-        consumeCompoundCharacter(LINE_COMMENT_START);
+    private TokenPosition currentTokenPosition() {
+        return new TokenPosition(line, column, stringIndex);
+    }
 
-        final int posEndComment = inputString.indexOf(NEW_LINE, stringIndex);
-        assert posEndComment != -1;
+    private TokenPosition startTokenPosition() {
+        return new TokenPosition(tokenStartLine, tokenStartColumn, tokenStartIndex);
+    }
 
-        consumeMultipleCharactersNoCheck(posEndComment - tokenPosition.offset() - 2);
-        consumeNewlineCharacter(NEW_LINE);
+    private int emit(TokenBuffer tokenBuffer, TokenType tokenType) {
+        final String lexeme = switch (tokenType) {
+            case ID, DECIMAL_LITERAL, HEX_LITERAL, CHAR_LITERAL, STRING_LITERAL ->
+                    input.substring(tokenStartIndex, stringIndex);
+            default -> null;
+        };
+        final int index = tokenBuffer.add(tokenType, tokenStartIndex, stringIndex - tokenStartIndex, tokenStartLine, tokenStartColumn, lexeme);
+        decafExceptionProcessor.getSyntaxHighlighter()
+                               .record(tokenStartIndex, stringIndex - tokenStartIndex, tokenType);
+        prevTokenType = tokenType;
+        prevLexeme = tokenBuffer.lexeme(index);
+        prevTokenPosition = startTokenPosition();
+        prevTokenLineStartIndex = lineStartIndex;
+        if (shouldTrace) {
+            System.out.println(tokenBuffer.token(index));
+        }
+        return index;
+    }
 
-        return makeToken(tokenPosition, TokenType.LINE_COMMENT, inputString.substring(tokenPosition.offset(), stringIndex - 1));
+    private TokenType scanOperator(char c, char next) throws DecafScannerException {
+        startToken();
+        final var twoCharacterTokens = DOUBLE_CHARACTER_TOKENS[c];
+        if (twoCharacterTokens != null && next < 128 && twoCharacterTokens[next] != null) {
+            consumeMultipleCharactersNoCheck(2);
+            return twoCharacterTokens[next];
+        }
+        if (SINGLE_CHARACTER_TOKENS[c] == null)
+            throw getContextualException(currentTokenPosition(), "unrecognized character " + c);
+        consumeCharacterNoCheck();
+        return SINGLE_CHARACTER_TOKENS[c];
     }
 
-    private Token handleBlockComment(TokenPosition tokenPosition) throws DecafException {
-        consumeCompoundCharacter(BLOCK_COMMENT_START);
+    private void skipLineComment() {
+        consumeMultipleCharactersNoCheck(LINE_COMMENT_START.length());
+        // the input ends with a line break, so every line comment is terminated
+        while (charAt(stringIndex) != '\n')
+            consumeCharacterNoCheck();
+        consumeNewlineCharacter();
+    }
 
-        int i = stringIndex;
+    private void skipBlockComment() throws DecafException {
+        final TokenPosition tokenPosition = currentTokenPosition();
+        consumeMultipleCharactersNoCheck(BLOCK_COMMENT_START.length());
 
         final int waitingForStar = 0;
         final int waitingForForwardSlash = 1;
         final int completed = 2;
 
         int state = waitingForStar;
-        while (i < inputString.length() && state != completed) {
-            final char c = inputString.charAt(i);
+        while (hasCharAt(stringIndex) && state != completed) {
+            final char c = charAt(stringIndex);
 
             if (state == waitingForStar) {
                 if (c == '*') {
@@ -297,6 +406,7 @@ public class DecafScanner {
                 } else if (c == '\n' | c == '\r') {
                     column = -1; // the global
                     line += 1;
+                    lineStartIndex = stringIndex + 1;
                 }
             } else {
                 switch (c) {
@@ -306,167 +416,115 @@ public class DecafScanner {
                 }
             }
             consumeCharacterNoCheck();
-            ++i;
         }
         if (state != completed) {
-            throw getContextualException(tokenPosition, "could not finish parsing the comment" + inputString.substring(tokenPosition.offset(), Math.min(inputString.length(), tokenPosition.offset() + 10)) + "...");
+            throw getContextualException(tokenPosition, "could not finish parsing the comment" + input.substring(tokenPosition.offset(), Math.min(stringIndex, tokenPosition.offset() + 10)) + "...");
         }
-        return makeToken(tokenPosition, TokenType.BLOCK_COMMENT, inputString.substring(tokenPosition.offset(), i));
-    }
-
-    private char getCurrentChar() {
-        return inputString.charAt(stringIndex);
     }
 
     private DecafScannerException getContextualException(TokenPosition tokenPosition, String errMessage) {
-        return decafExceptionProcessor.getContextualDecafScannerException(prevToken, getCurrentChar(), tokenPosition, errMessage);
+        final Token prevToken = prevTokenType == null ? null: new Token(prevTokenPosition, prevTokenType, prevLexeme);
+        final char currentChar = hasCharAt(stringIndex) ? charAt(stringIndex): '\0';
+        return decafExceptionProcessor.getContextualDecafScannerException(prevToken, currentChar, tokenPosition, errMessage);
     }
 
-    private void handleEscape(TokenPosition tokenPosition) throws DecafScannerException {
+    private void scanEscape() throws DecafScannerException {
         consumeCharacterNoCheck();
-        char c = inputString.charAt(stringIndex);
+        char c = charAt(stringIndex);
         switch (c) {
             case 'n', '"', 't', 'r', '\'', '\\' -> consumeCharacterNoCheck();
             default ->
-                    throw getContextualException(tokenPosition, "Invalid back-slashed character \"" + "\\" + c + "\"");
+                    throw getContextualException(startTokenPosition(), "Invalid back-slashed character \"" + "\\" + c + "\"");
         }
     }
 
-    private boolean isValidChar(char c) {
-        if (c >= ' ' && c <= '!')
-            return true;
-        if (c >= '#' && c <= '&')
-            return true;
-        if (c >= '(' && c <= '[')
-            return true;
-        return c >= ']' && c <= '~';
-    }
-
-    private Token handleCharLiteral(TokenPosition tokenPosition) throws DecafScannerException {
+    private TokenType scanCharLiteral() throws DecafScannerException {
+        startToken();
         consumeCharacterNoCheck();
 
-        final char c = inputString.charAt(stringIndex);
+        final char c = charAt(stringIndex);
         if (c == '\\')
-            handleEscape(tokenPosition);
+            scanEscape();
         else if (isValidChar(c))
-            consumeCharacter(c, this::isValidChar);
+            consumeCharacterNoCheck();
         else
-            throw getContextualException(tokenPosition, "invalid char literal");
+            throw getContextualException(startTokenPosition(), "invalid char literal");
 
-        consumeCharacter(tokenPosition, SINGLE_QUOTES, decafExceptionProcessor.getContextualErrorMessage(tokenPosition, "missing closing single quotes " + "current char literal is " + inputString.substring(tokenPosition.offset(), stringIndex + 1)));
-        return makeToken(tokenPosition, TokenType.CHAR_LITERAL, inputString.substring(tokenPosition.offset(), stringIndex));
+        if (charAt(stringIndex) != SINGLE_QUOTES.charAt(0))
+            throw getContextualException(startTokenPosition(), decafExceptionProcessor.getContextualErrorMessage(startTokenPosition(), "missing closing single quotes " + "current char literal is " + input.substring(tokenStartIndex, stringIndex + 1)));
+        consumeCharacterNoCheck();
+        return TokenType.CHAR_LITERAL;
     }
 
-    private Token handleStringLiteral(TokenPosition tokenPosition) throws DecafException {
+    private TokenType scanStringLiteral() throws DecafScannerException {
+        startToken();
         consumeCharacterNoCheck();
 
         char c;
         while (true) {
-            c = inputString.charAt(stringIndex);
+            c = charAt(stringIndex);
             if (c == '\\')
-                handleEscape(tokenPosition);
+                scanEscape();
             else if (isValidChar(c))
-                consumeCharacter(c, this::isValidChar);
+                consumeCharacterNoCheck();
             else
                 break;
         }
-        consumeCharacter(tokenPosition, DOUBLE_QUOTES, decafExceptionProcessor.getContextualErrorMessage(tokenPosition, "expected " + DOUBLE_QUOTES + " received " + inputString.charAt(stringIndex)));
-        return makeToken(tokenPosition, TokenType.STRING_LITERAL, inputString.substring(tokenPosition.offset(), stringIndex));
+        if (c != DOUBLE_QUOTES.charAt(0))
+            throw getContextualException(startTokenPosition(), decafExceptionProcessor.getContextualErrorMessage(startTokenPosition(), "expected " + DOUBLE_QUOTES + " received " + c));
+        consumeCharacterNoCheck();
+        return TokenType.STRING_LITERAL;
     }
 
-    private Token handleId(TokenPosition tokenPosition) {
+    private TokenType scanId() {
+        startToken();
         int i = stringIndex;
-        while (i < inputString.length()) {
-            final char alphaNum = inputString.charAt(i);
-            if (!(Character.isLetterOrDigit(alphaNum) || alphaNum == '_'))
-                break;
+        while (hasCharAt(i) && isIdCharacter(charAt(i)))
             ++i;
-        }
-        String idLexeme = inputString.substring(stringIndex, i);
-        TokenType tokenType;
-        switch (idLexeme) {
-            case RESERVED_FOR -> tokenType = TokenType.RESERVED_FOR;
-            case RESERVED_IF -> tokenType = TokenType.RESERVED_IF;
-            case RESERVED_IMPORT -> tokenType = TokenType.RESERVED_IMPORT;
-            case RESERVED_INT -> tokenType = TokenType.RESERVED_INT;
-            case RESERVED_LEN -> tokenType = TokenType.RESERVED_LEN;
-            case RESERVED_RETURN -> tokenType = TokenType.RESERVED_RETURN;
-            case RESERVED_ELSE -> tokenType = TokenType.RESERVED_ELSE;
-            case RESERVED_CONTINUE -> tokenType = TokenType.RESERVED_CONTINUE;
-            case RESERVED_BREAK -> tokenType = TokenType.RESERVED_BREAK;
-            case RESERVED_WHILE -> tokenType = TokenType.RESERVED_WHILE;
-            case RESERVED_VOID -> tokenType = TokenType.RESERVED_VOID;
-            case RESERVED_BOOL -> tokenType = TokenType.RESERVED_BOOL;
-            case RESERVED_TRUE -> tokenType = TokenType.RESERVED_TRUE;
-            case RESERVED_FALSE -> tokenType = TokenType.RESERVED_FALSE;
-            default -> tokenType = TokenType.ID;
-        }
-
         consumeMultipleCharactersNoCheck(i - stringIndex);
-        return makeToken(tokenPosition, tokenType, idLexeme);
+        return reservedWordOrId(tokenStartIndex, stringIndex - tokenStartIndex);
     }
 
-    private void consumeMultipleCharactersNoCheck(int nChars) {
-        stringIndex += nChars;
-        column += nChars;
+    /**
+     * Matches the identifier in place against the reserved words, so that no lexeme is created for them
+     */
+    private TokenType reservedWordOrId(int offset, int length) {
+        final char first = charAt(offset);
+        for (int i = 0; i < RESERVED_WORDS.length; i++) {
+            final String reservedWord = RESERVED_WORDS[i];
+            if (reservedWord.length() == length && reservedWord.charAt(0) == first && matches(offset, reservedWord))
+                return RESERVED_WORD_TYPES[i];
+        }
+        return TokenType.ID;
+    }
+
+    private boolean matches(int offset, String word) {
+        for (int i = 1; i < word.length(); i++)
+            if (charAt(offset + i) != word.charAt(i))
+                return false;
+        return true;
     }
 
-    private Token handleDecimalLiteral(TokenPosition tokenPosition) {
-        assert Character.isDigit(inputString.charAt(stringIndex));
+    private TokenType scanDecimalLiteral() {
+        startToken();
         int i = stringIndex + 1;
-        while (i < inputString.length()) {
-            if (!Character.isDigit(inputString.charAt(i)))
-                break;
+        while (hasCharAt(i) && isDecimalDigit(charAt(i)))
             ++i;
-        }
         consumeMultipleCharactersNoCheck(i - stringIndex);
-        return makeToken(tokenPosition, TokenType.DECIMAL_LITERAL, inputString.substring(tokenPosition.offset(), stringIndex));
-    }
-
-    private boolean isValidHexDigit(char hexDigit) {
-        return Character.isDigit(hexDigit) || ((hexDigit <= 'f') && (hexDigit >= 'a')) || ((hexDigit <= 'F') && (hexDigit >= 'A'));
+        return TokenType.DECIMAL_LITERAL;
     }
 
-    private Token handleHexLiteral(TokenPosition tokenPosition) {
-        consumeCompoundCharacter(HEX_PREFIX_LOWERCASE);
+    private TokenType scanHexLiteral() throws DecafScannerException {
+        startToken();
+        consumeMultipleCharactersNoCheck(HEX_PREFIX_LOWERCASE.length());
 
         int i = stringIndex;
-        while (i < inputString.length()) {
-            final char hexDigit = inputString.charAt(i);
-            if (!isValidHexDigit(hexDigit)) {
-                break;
-            }
+        while (hasCharAt(i) && isValidHexDigit(charAt(i)))
             ++i;
-        }
         if (i == stringIndex)
-            throw new IllegalStateException("<hex_literal> != <hex_digit> <hex_digit>*");
+            throw getContextualException(startTokenPosition(), "expected a hex digit after " + HEX_PREFIX_LOWERCASE);
         consumeMultipleCharactersNoCheck(i - stringIndex);
-        return makeToken(tokenPosition, TokenType.HEX_LITERAL, inputString.substring(tokenPosition.offset(), i));
-    }
-
-    private Token handleSingleOperator(TokenPosition tokenPosition, TokenType tokenType, String lexeme) {
-        consumeCharacterNoCheck();
-        return makeToken(tokenPosition, tokenType, lexeme);
-    }
-
-    private Token handleCompoundOperator(TokenPosition tokenPosition, TokenType tokenType, String lexeme) {
-        consumeMultipleCharactersNoCheck(lexeme.length());
-        return makeToken(tokenPosition, tokenType, lexeme);
-    }
-
-    private Token makeToken(TokenPosition tokenPosition, TokenType tokenType, String lexeme) {
-        return new Token(tokenPosition, tokenType, lexeme);
-    }
-
-    private Token handleWhiteSpace(TokenPosition tokenPosition) throws DecafException {
-        final char c = inputString.charAt(stringIndex);
-
-        switch (c) {
-            case '\r', '\n' -> consumeNewlineCharacter(String.valueOf(c));
-            case ' ', '\t' -> consumeCharacterNoCheck();
-            default -> throw getContextualException(tokenPosition, "unexpected whitespace char " + c);
-        }
-        return makeToken(tokenPosition, TokenType.WHITESPACE, String.valueOf(c));
+        return TokenType.HEX_LITERAL;
     }
 
     /**
@@ -476,25 +534,6 @@ public class DecafScanner {
         this.shouldTrace = shouldTrace;
     }
 
-    private void updateHighlighter(Token token) {
-        switch (token.tokenType()) {
-            case EOF -> {
-            }
-            case ID -> syntaxLines.add(Utils.coloredPrint(token.lexeme(), Utils.ANSIColorConstants.ANSI_BLUE));
-            case CHAR_LITERAL, STRING_LITERAL, RESERVED_FALSE, RESERVED_TRUE, HEX_LITERAL, DECIMAL_LITERAL ->
-                    syntaxLines.add(Utils.coloredPrint(token.lexeme(), Utils.ANSIColorConstants.ANSI_GREEN));
-            default -> {
-                if (token.tokenType()
-                        .toString()
-                        .startsWith("RESERVED")) {
-                    syntaxLines.add(Utils.coloredPrint(token.lexeme(), Utils.ANSIColorConstants.ANSI_PURPLE));
-                } else {
-                    syntaxLines.add(token.lexeme());
-                }
-            }
-        }
-    }
-
     @Retention(SOURCE)
     @StringDef({PLUS, MINUS, MULTIPLY, DIVIDE, MOD})
     public @interface ArithmeticOperator {
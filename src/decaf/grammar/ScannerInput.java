@@ -0,0 +1,279 @@
+package decaf.grammar;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The characters read by {@link DecafScanner}, addressed by their offset from the start of the source.
+ * <p>
+ * The input always ends with a line break: one is appended to a source which does not end with one, without copying
+ * it.
+ * <p>
+ * An input over a {@link Reader} only keeps a window of the source, from the offset last passed to {@link #retainFrom}
+ * to the furthest character read; earlier characters cannot be read again, and their lines are not available for
+ * error messages.
+ * <p>
+ * An input over a {@link #map mapped} file reads the bytes of the file as characters in place; Decaf source is ASCII.
+ */
+public abstract class ScannerInput {
+    private static final char NEW_LINE = '\n';
+
+    public static ScannerInput of(CharSequence source) {
+        return new CharSequenceInput(source);
+    }
+
+    public static ScannerInput of(Reader reader) {
+        return new ReaderInput(reader);
+    }
+
+    /**
+     * Maps {@code path} into memory; the source is neither decoded nor copied, and lines for error messages are sliced
+     * from the mapping when they are asked for
+     */
+    public static ScannerInput map(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            checkArgument(channel.size() <= Integer.MAX_VALUE, "%s is too large to map: %s bytes", path, channel.size());
+            return new CharSequenceInput(new AsciiSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+        }
+    }
+
+    public abstract boolean hasCharAt(int index);
+
+    /**
+     * Callers check {@link #hasCharAt} first
+     */
+    public abstract char charAt(int index);
+
+    /**
+     * @return the whole source, unless it is read from a {@link Reader}
+     */
+    public Optional<CharSequence> source() {
+        return Optional.empty();
+    }
+
+    public String substring(int start, int end) {
+        var text = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+            text.append(charAt(i));
+        return text.toString();
+    }
+
+    /**
+     * A hint that characters before {@code index} will not be read again
+     */
+    public void retainFrom(int index) {
+    }
+
+    /**
+     * @return the text of line {@code lineNumber}, counted from 0, without its line break, or empty if it is past the
+     * end of the input or no longer buffered
+     */
+    public abstract Optional<String> line(int lineNumber);
+
+    private static class CharSequenceInput extends ScannerInput {
+        private final CharSequence source;
+        private final int length;
+        private final boolean endsWithNewLine;
+        // start offsets of the lines found so far, extended only as far as a line is asked for
+        private int[] lineStarts = new int[64];
+        private int nLineStarts = 1;
+
+        CharSequenceInput(CharSequence source) {
+            this.source = source;
+            this.length = source.length();
+            this.endsWithNewLine = length > 0 && source.charAt(length - 1) == NEW_LINE;
+        }
+
+        @Override
+        public boolean hasCharAt(int index) {
+            return index < length || (index == length && !endsWithNewLine);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index < length ? source.charAt(index): NEW_LINE;
+        }
+
+        @Override
+        public Optional<CharSequence> source() {
+            return Optional.of(source);
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            if (end <= length)
+                return source.subSequence(start, end)
+                             .toString();
+            return source.subSequence(start, length) + String.valueOf(NEW_LINE);
+        }
+
+        @Override
+        public Optional<String> line(int lineNumber) {
+            checkArgument(lineNumber >= 0, "negative line number: " + lineNumber);
+            int searchFrom = lineStarts[nLineStarts - 1];
+            while (nLineStarts <= lineNumber) {
+                while (searchFrom < length && source.charAt(searchFrom) != NEW_LINE)
+                    searchFrom++;
+                if (searchFrom >= length - 1)
+                    return Optional.empty();
+                if (nLineStarts == lineStarts.length)
+                    lineStarts = Arrays.copyOf(lineStarts, nLineStarts * 2);
+                lineStarts[nLineStarts++] = ++searchFrom;
+            }
+            final int start = lineStarts[lineNumber];
+            int end = start;
+            while (end < length && source.charAt(end) != NEW_LINE)
+                end++;
+            return Optional.of(source.subSequence(start, end)
+                                     .toString());
+        }
+    }
+
+    /**
+     * The bytes of a buffer read as ISO-8859-1 characters, which ASCII is a subset of
+     */
+    private static class AsciiSequence implements CharSequence {
+        private final ByteBuffer bytes;
+
+        AsciiSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiSequence(bytes.slice(start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            var text = new byte[bytes.limit()];
+            bytes.get(0, text);
+            return new String(text, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static class ReaderInput extends ScannerInput {
+        private static final int INITIAL_CAPACITY = 8192;
+
+        private final Reader reader;
+        private char[] window = new char[INITIAL_CAPACITY];
+        // offset of window[0] in the source
+        private int windowStart;
+        private int windowEnd;
+        private int retainFrom;
+        // the line which contains windowStart, and whether windowStart is its first character
+        private int windowStartLine;
+        private boolean windowStartsLine = true;
+        private boolean endOfInput;
+        private char lastCharacter;
+
+        ReaderInput(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasCharAt(int index) {
+            while (index >= windowEnd && !endOfInput)
+                fill();
+            return index < windowEnd;
+        }
+
+        @Override
+        public char charAt(int index) {
+            checkState(index >= windowStart, "offset %s is no longer buffered", index);
+            hasCharAt(index);
+            return window[index - windowStart];
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            checkState(start >= windowStart, "offset %s is no longer buffered", start);
+            hasCharAt(end - 1);
+            return new String(window, start - windowStart, end - start);
+        }
+
+        @Override
+        public void retainFrom(int index) {
+            retainFrom = Math.max(retainFrom, index);
+        }
+
+        @Override
+        public Optional<String> line(int lineNumber) {
+            if (lineNumber < windowStartLine || (lineNumber == windowStartLine && !windowStartsLine))
+                return Optional.empty();
+            int line = windowStartLine;
+            int index = windowStart;
+            while (line < lineNumber) {
+                if (!hasCharAt(index))
+                    return Optional.empty();
+                if (charAt(index++) == NEW_LINE)
+                    line++;
+            }
+            // the window may slide while the rest of the line is read, so the line is copied as it goes
+            var text = new StringBuilder();
+            while (hasCharAt(index) && charAt(index) != NEW_LINE)
+                text.append(charAt(index++));
+            return Optional.of(text.toString());
+        }
+
+        private void fill() {
+            if (windowEnd - windowStart == window.length)
+                makeRoom();
+            final int read;
+            try {
+                read = reader.read(window, windowEnd - windowStart, window.length - (windowEnd - windowStart));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (read > 0) {
+                windowEnd += read;
+                lastCharacter = window[windowEnd - 1 - windowStart];
+                return;
+            }
+            endOfInput = true;
+            if (lastCharacter != NEW_LINE) {
+                if (windowEnd - windowStart == window.length)
+                    makeRoom();
+                window[windowEnd++ - windowStart] = NEW_LINE;
+            }
+        }
+
+        /**
+         * Drops the characters before {@link #retainFrom}, or doubles the window if none can be dropped
+         */
+        private void makeRoom() {
+            final int dropped = Math.min(retainFrom, windowEnd) - windowStart;
+            if (dropped <= 0) {
+                window = Arrays.copyOf(window, window.length * 2);
+                return;
+            }
+            for (int i = 0; i < dropped; i++)
+                if (window[i] == NEW_LINE)
+                    windowStartLine++;
+            windowStartsLine = window[dropped - 1] == NEW_LINE;
+            System.arraycopy(window, dropped, window, 0, windowEnd - windowStart - dropped);
+            windowStart += dropped;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package decaf.grammar;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.Arrays;
+
+/**
+ * Tokens stored as a struct of arrays: the type, start offset, length, line and column of the token at index {@code i}
+ * are the {@code i}-th entries of parallel {@code int} arrays.
+ * <p>
+ * Only identifiers and literals carry a lexeme; the lexeme of an operator or a reserved word is implied by its type,
+ * see {@link DecafScanner#fixedLexeme(TokenType)}. {@link Token} objects are only created when asked for.
+ * <p>
+ * A {@link #bounded} buffer is a ring: indices keep counting up, but only the last {@code capacity} tokens are kept, so
+ * a parser with a fixed lookahead and lookbehind can pull tokens from the scanner as it goes in constant memory.
+ */
+public class TokenBuffer {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final boolean bounded;
+    private int[] types;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private String[] lexemes;
+    private int size;
+
+    public TokenBuffer() {
+        this(INITIAL_CAPACITY, false);
+    }
+
+    private TokenBuffer(int capacity, boolean bounded) {
+        this.bounded = bounded;
+        types = new int[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        lexemes = new String[capacity];
+    }
+
+    /**
+     * @param capacity the number of most recent tokens to keep, a power of two
+     */
+    public static TokenBuffer bounded(int capacity) {
+        checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "capacity must be a power of two: %s", capacity);
+        return new TokenBuffer(capacity, true);
+    }
+
+    /**
+     * @param lexeme the text of an identifier or literal, {@code null} for any other token
+     * @return the index of the new token
+     */
+    public int add(TokenType tokenType, int offset, int length, int line, int column, String lexeme) {
+        if (size == types.length && !bounded)
+            grow();
+        final int slot = size & (types.length - 1);
+        types[slot] = tokenType.ordinal();
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        lines[slot] = line;
+        columns[slot] = column;
+        lexemes[slot] = lexeme;
+        return size++;
+    }
+
+    private void grow() {
+        final int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+        lexemes = Arrays.copyOf(lexemes, capacity);
+    }
+
+    /**
+     * @return where the token at {@code index} is stored
+     */
+    private int slot(int index) {
+        checkElementIndex(index, size);
+        checkArgument(index >= size - types.length, "token %s is no longer buffered", index);
+        return index & (types.length - 1);
+    }
+
+    public void clear() {
+        Arrays.fill(lexemes, 0, Math.min(size, lexemes.length), null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType tokenType(int index) {
+        return TOKEN_TYPES[types[slot(index)]];
+    }
+
+    public int offset(int index) {
+        return offsets[slot(index)];
+    }
+
+    public int length(int index) {
+        return lengths[slot(index)];
+    }
+
+    public int line(int index) {
+        return lines[slot(index)];
+    }
+
+    public int column(int index) {
+        return columns[slot(index)];
+    }
+
+    public String lexeme(int index) {
+        final String lexeme = lexemes[slot(index)];
+        return lexeme != null ? lexeme: DecafScanner.fixedLexeme(tokenType(index));
+    }
+
+    public TokenPosition tokenPosition(int index) {
+        return new TokenPosition(line(index), column(index), offset(index));
+    }
+
+    public Token token(int index) {
+        return new Token(tokenPosition(index), tokenType(index), lexeme(index));
+    }
+}
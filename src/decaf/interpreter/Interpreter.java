@@ -9,6 +9,7 @@ import java.util.Optional;
 import java.util.Stack;
 
 import decaf.ast.Type;
+import decaf.codegen.IndexManager;
 import decaf.codegen.InstructionList;
 import decaf.codegen.codes.Instruction;
 import decaf.codegen.codes.StoreInstruction;
@@ -17,7 +18,7 @@ import decaf.codegen.names.IrAssignable;
 import decaf.codegen.names.IrSsaRegister;
 import decaf.codegen.names.IrConstant;
 import decaf.common.Operators;
-import decaf.common.Utils;
+import decaf.common.ConstantFolder;
 import decaf.ast.ExpressionParameter;
 import decaf.ast.LocationVariable;
 import decaf.ast.MethodCall;
@@ -58,7 +59,7 @@ public class Interpreter {
         List<MethodCallParameter> arguments = List.of(new StringLiteral(null, "%d\n"), new ExpressionParameter(new LocationVariable(new Name("a", null, null))));
         var argsStack = new Stack<IrValue>();
 
-        argsStack.add(new IrStringConstant("%d\n"));
+        argsStack.add(new IrStringConstant("%d\n", new IndexManager()));
 
         List<Instruction> instructions = List.of(
                 CopyInstruction.noAstConstructor(a.copy(), new IrIntegerConstant(10L, Type.Int)),
@@ -84,8 +85,7 @@ public class Interpreter {
     private IrConstant evalBinaryInstruction(BinaryInstruction binaryInstruction) {
         Long left = ((IrIntegerConstant) resolveValue(binaryInstruction.fstOperand)).getValue();
         Long right = ((IrIntegerConstant) resolveValue(binaryInstruction.sndOperand)).getValue();
-        var maybeEvaluatedLong = Utils.symbolicallyEvaluate(String.format("%d %s %d", left, binaryInstruction.operator, right));
-        return new IrIntegerConstant(maybeEvaluatedLong.orElseThrow(), Type.Int);
+        return new IrIntegerConstant(ConstantFolder.fold(binaryInstruction.operator, left, right), Type.Int);
     }
 
     private void evalFunctionCallNoResult(FunctionCallNoResult functionCallNoResult) {
@@ -104,8 +104,7 @@ public class Interpreter {
 
     private IrIntegerConstant evalUnaryInstruction(UnaryInstruction unaryInstruction) {
         Long operand = ((IrIntegerConstant) resolveValue(unaryInstruction.operand)).getValue();
-        var maybeEvaluatedLong = Utils.symbolicallyEvaluate(String.format("%s(%d)", unaryInstruction.operator, operand));
-        return new IrIntegerConstant(maybeEvaluatedLong.orElseThrow(), Type.Int);
+        return new IrIntegerConstant(ConstantFolder.fold(unaryInstruction.operator, operand), Type.Int);
     }
 
     public void interpret() {
@@ -1,8 +1,5 @@
 package decaf.ir;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import decaf.ast.For;
 import decaf.ast.If;
 import decaf.ast.IntLiteral;
@@ -39,12 +36,9 @@ import decaf.ast.Return;
 import decaf.ast.StringLiteral;
 import decaf.ast.UnaryOpExpression;
 import decaf.ast.While;
-import decaf.exceptions.DecafSemanticException;
 import decaf.symboltable.SymbolTable;
 
 public interface AstVisitor<T> {
-    List<DecafSemanticException> exceptions = new ArrayList<>();
-
     T visit(IntLiteral intLiteral, SymbolTable symbolTable);
 
     T visit(BooleanLiteral booleanLiteral, SymbolTable symbolTable);
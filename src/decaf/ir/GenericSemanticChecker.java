@@ -61,6 +61,11 @@ public class GenericSemanticChecker implements AstVisitor<Void> {
     private SymbolTable fields = new SymbolTable(null, SymbolTableType.Field, null);
     private SymbolTable methods = new SymbolTable(null, SymbolTableType.Method, null);
     int depth = 0; // the number of nested while/for loops we are in
+    private final List<DecafSemanticException> exceptions;
+
+    public GenericSemanticChecker(List<DecafSemanticException> exceptions) {
+        this.exceptions = exceptions;
+    }
 
     public Void visit(IntLiteral intLiteral, SymbolTable symbolTable) {
         return null;
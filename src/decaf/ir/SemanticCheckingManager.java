@@ -1,5 +1,8 @@
 package decaf.ir;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import decaf.ast.Type;
 import decaf.common.DecafExceptionProcessor;
 import decaf.ast.AST;
@@ -13,18 +16,20 @@ public class SemanticCheckingManager {
     private GlobalDescriptor globalDescriptor;
     private boolean trace;
     private boolean hasError;
+    private final List<DecafSemanticException> exceptions = new ArrayList<>();
 
     public SemanticCheckingManager(Program rootNode) {
         this.rootNode = rootNode;
     }
 
     public void runChecks(DecafExceptionProcessor decafExceptionProcessor) {
-        var semanticCheckerVisitor = new GenericSemanticChecker();
+        var semanticCheckerVisitor = new GenericSemanticChecker(exceptions);
         rootNode.accept(semanticCheckerVisitor, null);
         var typeCheckVisitor = new TypeResolver((Program) rootNode,
                                                 semanticCheckerVisitor.getMethods(),
                                                 semanticCheckerVisitor.getFields(),
-                                                semanticCheckerVisitor.getImports()
+                                                semanticCheckerVisitor.getImports(),
+                                                exceptions
         );
         rootNode.accept(typeCheckVisitor,
                         semanticCheckerVisitor.getFields()
@@ -35,18 +40,24 @@ public class SemanticCheckingManager {
             semanticCheckerVisitor.getMethods(),
             semanticCheckerVisitor.getImports()
         ));
-        hasError = AstVisitor.exceptions.size() > 0;
+        hasError = exceptions.size() > 0;
         if (trace) {
             printAllExceptions(decafExceptionProcessor);
         }
     }
 
     public void printAllExceptions(DecafExceptionProcessor decafExceptionProcessor) {
-        for (DecafSemanticException decafSemanticException : AstVisitor.exceptions) {
+        for (DecafSemanticException decafSemanticException : exceptions) {
             decafExceptionProcessor.processDecafSemanticException(decafSemanticException).printStackTrace();
         }
     }
 
+    public List<DecafSemanticException> getContextualExceptions(DecafExceptionProcessor decafExceptionProcessor) {
+        return exceptions.stream()
+                         .map(decafExceptionProcessor::processDecafSemanticException)
+                         .toList();
+    }
+
     public void setTrace(boolean shouldTrace) {
         trace = shouldTrace;
     }
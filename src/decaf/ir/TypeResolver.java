@@ -61,13 +61,16 @@ public class TypeResolver implements AstVisitor<Type> {
   private SymbolTable globalFields;
   private TreeSet<String> imports;
   private Type returnTypeSeen;
+  private final List<DecafSemanticException> exceptions;
 
   public TypeResolver(
       Program root,
       SymbolTable methods,
       SymbolTable globalFields,
-      TreeSet<String> imports
+      TreeSet<String> imports,
+      List<DecafSemanticException> exceptions
   ) {
+    this.exceptions = exceptions;
     this.setMethods(methods);
     this.setGlobalFields(globalFields);
     this.setImports(imports);
@@ -1,110 +1,195 @@
 package decaf.regalloc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 
 import decaf.common.Pair;
 import decaf.codegen.codes.CopyInstruction;
 import decaf.codegen.codes.Method;
 import decaf.codegen.names.IrSsaRegister;
 
+/**
+ * The interference graph of the live intervals of a method.
+ * <p>
+ * Two intervals interfere when {@link LiveIntervalsManager#liveIntervalsInterfere} says so: their half-open ranges
+ * {@code [startPoint, endPoint)} overlap. The graph is built by
+ * sweeping over the intervals in order of their start points while keeping the intervals which are still live in a
+ * heap ordered by end point, so the work is proportional to the number of interferences rather than to the number of
+ * pairs of intervals.
+ * <p>
+ * The two sides of a copy which interfere nowhere but at the copy itself are joined by a move edge, so that they may
+ * be coalesced.
+ * <p>
+ * Nodes are numbered densely and adjacency is stored as sorted {@code int} arrays.
+ */
 public class InterferenceGraph {
-    HashMap<LiveInterval, Set<LiveInterval>> graph = new HashMap<>();
-    Map<LiveInterval, Set<LiveInterval>> isMoveEdge = new HashMap<>();
+    private static final int[] NO_NEIGHBOURS = new int[0];
+    private final List<LiveInterval> nodes;
+    private final Map<LiveInterval, Integer> nodeToIndex = new IdentityHashMap<>();
+    private int[][] interferences;
+    private int[][] moves;
 
     public InterferenceGraph(LiveIntervalsManager liveIntervalsManager, Method method) {
-        var liveIntervals = new ArrayList<>(liveIntervalsManager.getLiveIntervals(method));
+        nodes = new ArrayList<>(liveIntervalsManager.getLiveIntervals(method));
         var varToLivIntervals = liveIntervalsManager.getValueToLiveIntervalMappingForMethod(method);
-        if (liveIntervals.isEmpty()) return;
-
-        for (int i = 0; i < liveIntervals.size(); i++) {
-            for (int j = i + 1; j < liveIntervals.size(); j++) {
-                var a = (liveIntervals.get(i));
-                var b = (liveIntervals.get(j));
-                if (LiveIntervalsManager.liveIntervalsInterfere(a, b)) {
-                    insertEdge(a, b);
-                }
-            }
-        }
-        var instructionList = liveIntervals.stream()
-                                           .findAny()
-                                           .orElseThrow()
-                                           .instructionList();
-        var copyInstructions = instructionList.stream()
-                                              .filter(instruction -> (instruction instanceof CopyInstruction))
-                                              .map(instruction -> (CopyInstruction) instruction)
-                                              .filter(copyInstruction -> copyInstruction.getValue() instanceof IrSsaRegister)
-                                              .collect(Collectors.toUnmodifiableSet());
-        for (var copyInstruction : copyInstructions) {
+        for (int i = 0; i < nodes.size(); i++)
+            nodeToIndex.put(nodes.get(i), i);
+        interferences = new int[nodes.size()][];
+        moves = new int[nodes.size()][];
+        if (nodes.isEmpty()) return;
+
+        var interferenceLists = newAdjacencyLists();
+        sweep(interferenceLists);
+        interferences = toAdjacencyArrays(interferenceLists);
+
+        var instructionList = nodes.get(0)
+                                   .instructionList();
+        var moveLists = newAdjacencyLists();
+        for (int indexOfCopy = 0; indexOfCopy < instructionList.size(); indexOfCopy++) {
+            if (!(instructionList.get(indexOfCopy) instanceof CopyInstruction copyInstruction) ||
+                    !(copyInstruction.getValue() instanceof IrSsaRegister) ||
+                    !(copyInstruction.getDestination() instanceof IrSsaRegister))
+                continue;
             var a = (varToLivIntervals.get(copyInstruction.getDestination()));
             var b = (varToLivIntervals.get(copyInstruction.getValue()));
-            if (!LiveIntervalsManager.liveIntervalsInterfere(a, b)) {
-                insertMoveEdge(
-                        (varToLivIntervals.get(copyInstruction.getDestination())),
-                        (varToLivIntervals.get(copyInstruction.getValue())));
+            if (!interfereOutsideCopy(a, b, indexOfCopy)) {
+                final int u = nodeToIndex.get(a);
+                final int v = nodeToIndex.get(b);
+                moveLists.get(u)
+                         .add(v);
+                moveLists.get(v)
+                         .add(u);
             }
         }
+        moves = toAdjacencyArrays(moveLists);
+    }
+
+    /**
+     * A copy reads its source before it writes its destination, so a source whose last use is the copy does not
+     * conflict with the destination there
+     */
+    private static boolean interfereOutsideCopy(LiveInterval destination, LiveInterval source, int indexOfCopy) {
+        if (source.endPoint() == indexOfCopy + 1)
+            source = source.updateEndpoint(indexOfCopy);
+        return LiveIntervalsManager.liveIntervalsInterfere(destination, source);
+    }
+
+    private static boolean contains(int[] neighbours, int node) {
+        return neighbours != null && Arrays.binarySearch(neighbours, node) >= 0;
+    }
+
+    /**
+     * Visits the intervals in order of their start points; every interval which is still active when another one
+     * starts overlaps it
+     */
+    private void sweep(List<List<Integer>> adjacencyLists) {
+        var byStartPoint = IntStream.range(0, nodes.size())
+                                    .boxed()
+                                    .sorted(Comparator.comparingInt(node -> nodes.get(node)
+                                                                                 .startPoint()))
+                                    .toList();
+        var active = new PriorityQueue<Integer>(Comparator.comparingInt(node -> LiveIntervalsManager.effectiveEndPoint(nodes.get(node))));
+        for (int node : byStartPoint) {
+            final var startPoint = nodes.get(node)
+                                        .startPoint();
+            while (!active.isEmpty() && LiveIntervalsManager.effectiveEndPoint(nodes.get(active.peek())) <= startPoint)
+                active.remove();
+            for (int other : active) {
+                adjacencyLists.get(node)
+                              .add(other);
+                adjacencyLists.get(other)
+                              .add(node);
+            }
+            active.add(node);
+        }
+    }
+
+    private List<List<Integer>> newAdjacencyLists() {
+        var adjacencyLists = new ArrayList<List<Integer>>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++)
+            adjacencyLists.add(new ArrayList<>());
+        return adjacencyLists;
+    }
+
+    private static int[][] toAdjacencyArrays(List<List<Integer>> adjacencyLists) {
+        var adjacencyArrays = new int[adjacencyLists.size()][];
+        for (int i = 0; i < adjacencyLists.size(); i++) {
+            var neighbours = adjacencyLists.get(i);
+            adjacencyArrays[i] = neighbours.isEmpty() ? NO_NEIGHBOURS: neighbours.stream()
+                                                                                  .mapToInt(Integer::intValue)
+                                                                                  .sorted()
+                                                                                  .distinct()
+                                                                                  .toArray();
+        }
+        return adjacencyArrays;
     }
 
-    private static Collection<Pair<LiveInterval, LiveInterval>> getUniqueEdgesHelper(Map<LiveInterval, Set<LiveInterval>> g) {
-        var allEdges = new HashSet<Pair<LiveInterval, LiveInterval>>();
-        for (var entry : g.entrySet()) {
-            for (var node2 : entry.getValue()) {
-                var a = new Pair<>(entry.getKey(), node2);
-                var b = new Pair<>(node2, entry.getKey());
-                if (!allEdges.contains(a) && !allEdges.contains(b))
-                    allEdges.add(a);
+    private Collection<Pair<LiveInterval, LiveInterval>> getUniqueEdgesHelper(int[][] adjacency) {
+        var allEdges = new ArrayList<Pair<LiveInterval, LiveInterval>>();
+        for (int u = 0; u < adjacency.length; u++) {
+            for (int v : adjacency[u]) {
+                if (u < v)
+                    allEdges.add(new Pair<>(nodes.get(u), nodes.get(v)));
             }
         }
         return allEdges;
     }
 
-    public void insertEdge(LiveInterval a, LiveInterval b) {
-        graph.computeIfAbsent(a, k -> new HashSet<>())
-             .add(b);
-        graph.computeIfAbsent(b, k -> new HashSet<>())
-             .add(a);
+    private boolean hasEdge(int[][] adjacency, LiveInterval a, LiveInterval b) {
+        var u = nodeToIndex.get(a);
+        var v = nodeToIndex.get(b);
+        if (u == null || v == null)
+            return false;
+        return contains(adjacency[u], v);
+    }
+
+    /**
+     * @return the number of nodes, which are numbered {@code 0 .. size() - 1}
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    public LiveInterval getNode(int node) {
+        return nodes.get(node);
     }
 
-    public void insertMoveEdge(LiveInterval a, LiveInterval b) {
-        isMoveEdge.computeIfAbsent(a, k -> new HashSet<>())
-                  .add(b);
-        isMoveEdge.computeIfAbsent(b, k -> new HashSet<>())
-                  .add(a);
+    /**
+     * @return the sorted indices of the nodes which interfere with {@code node}
+     */
+    public int[] getInterferences(int node) {
+        return interferences[node];
+    }
+
+    /**
+     * @return the sorted indices of the nodes {@code node} is copied to or from, and which it could be coalesced with
+     */
+    public int[] getMoves(int node) {
+        return moves[node];
     }
 
     public boolean isMoveEdge(LiveInterval a, LiveInterval b) {
-        if (isMoveEdge.get(a) == null || isMoveEdge.get(b) == null)
-            return false;
-        return isMoveEdge.get(a)
-                         .contains(b) && isMoveEdge.get(b)
-                                                   .contains(a);
+        return hasEdge(moves, a, b);
     }
 
     public boolean containsEdge(LiveInterval a, LiveInterval b) {
-        return graph.get(a)
-                    .contains(b) && graph.get(b)
-                                         .contains(a);
+        return hasEdge(interferences, a, b);
     }
 
-
     public Collection<LiveInterval> getNodesHelper(boolean isMove) {
-        Collection<Pair<LiveInterval, LiveInterval>> edges;
-        if (isMove) {
-            edges = getUniqueMoveEdges();
-        } else {
-            edges = getUniqueInterferenceGraphEdges();
-        }
-
+        var adjacency = isMove ? moves: interferences;
         var allNodes = new HashSet<LiveInterval>();
-        for (var edge : edges) {
-            allNodes.add(edge.first());
-            allNodes.add(edge.second());
+        for (int u = 0; u < adjacency.length; u++) {
+            if (adjacency[u] != null && adjacency[u].length > 0)
+                allNodes.add(nodes.get(u));
         }
         return allNodes;
     }
@@ -118,10 +203,10 @@ public class InterferenceGraph {
     }
 
     public Collection<Pair<LiveInterval, LiveInterval>> getUniqueInterferenceGraphEdges() {
-        return getUniqueEdgesHelper(graph);
+        return getUniqueEdgesHelper(interferences);
     }
 
     public Collection<Pair<LiveInterval, LiveInterval>> getUniqueMoveEdges() {
-        return getUniqueEdgesHelper(isMoveEdge);
+        return getUniqueEdgesHelper(moves);
     }
 }
@@ -0,0 +1,439 @@
+package decaf.regalloc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import decaf.asm.X86Register;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrValue;
+import decaf.codegen.names.IrValuePredicates;
+import decaf.dataflow.ssapasses.LoopAnalysisPass;
+
+/**
+ * Graph coloring register allocation with iterated register coalescing, after George and Appel,
+ * <i>Iterated Register Coalescing</i>, TOPLAS 1996.
+ * <p>
+ * The nodes of the graph are the live intervals of a method and the colors are the registers in
+ * {@link X86Register#regsToAllocate}. Copies between intervals which only overlap at the copy itself are coalesced
+ * when the Briggs test shows that this cannot make the graph uncolorable, so both ends get the same register and
+ * {@link decaf.asm.X86AsmWriter} drops the {@code movq}.
+ * <p>
+ * When no node can be simplified or frozen, the node with the lowest spill cost per interference is spilled. The
+ * spill cost of a value is the number of times it is used or defined, each occurrence weighted by {@code 10^depth}
+ * where depth is the loop depth of the occurrence, so values used in inner loops are the last to be spilled.
+ * Spilled values are mapped to {@link X86Register#STACK}; the assembly writer addresses them in memory directly, so
+ * there is no rewrite-and-retry round.
+ */
+public class IteratedRegisterCoalescing {
+    private static final double LOOP_WEIGHT = 10.0;
+    private final List<X86Register> availableRegisters;
+    private final LiveIntervalsManager liveIntervalsManager;
+    private final Map<Method, Map<IrValue, X86Register>> varToRegMap = new HashMap<>();
+
+    public IteratedRegisterCoalescing(Collection<X86Register> availableRegisters, LiveIntervalsManager liveIntervalsManager) {
+        this.availableRegisters = List.copyOf(availableRegisters);
+        this.liveIntervalsManager = liveIntervalsManager;
+    }
+
+    public Map<Method, Map<IrValue, X86Register>> getVariableToRegisterMapping() {
+        return varToRegMap;
+    }
+
+    public void allocate() {
+        for (var method : liveIntervalsManager.methodToLiveIntervalsMap.keySet()) {
+            var interferenceGraph = new InterferenceGraph(liveIntervalsManager, method);
+            var spillCosts = computeSpillCosts(method, interferenceGraph);
+            varToRegMap.put(method, new MethodAllocation(interferenceGraph, spillCosts).allocate());
+        }
+    }
+
+    static double[] computeSpillCosts(Method method, InterferenceGraph interferenceGraph) {
+        var spillCosts = new double[interferenceGraph.size()];
+        if (interferenceGraph.size() == 0)
+            return spillCosts;
+
+        var instructionToLoopDepth = new IdentityHashMap<Instruction, Integer>();
+        LoopAnalysisPass.computeLoopDepths(method)
+                        .forEach((basicBlock, loopDepth) -> basicBlock.getInstructionList()
+                                                                      .forEach(instruction -> instructionToLoopDepth.put(instruction, loopDepth)));
+
+        var valueToNode = new HashMap<IrValue, Integer>();
+        for (int node = 0; node < interferenceGraph.size(); node++)
+            valueToNode.put(interferenceGraph.getNode(node)
+                                             .irSsaRegister(), node);
+
+        for (var instruction : interferenceGraph.getNode(0)
+                                                .instructionList()) {
+            final var weight = Math.pow(LOOP_WEIGHT, instructionToLoopDepth.getOrDefault(instruction, 0));
+            for (var irValue : instruction.genIrValuesFiltered(IrValuePredicates.isRegisterAllocatable())) {
+                var node = valueToNode.get(irValue);
+                if (node != null)
+                    spillCosts[node] += weight;
+            }
+        }
+        return spillCosts;
+    }
+
+    /**
+     * The state of the allocation of a single method; the names follow the paper
+     */
+    private class MethodAllocation {
+        private static final int INITIAL = 0;
+        private static final int SIMPLIFY = 1;
+        private static final int FREEZE = 2;
+        private static final int SPILL = 3;
+        private static final int SELECTED = 4;
+        private static final int COALESCED = 5;
+        private static final int COLORED = 6;
+        private static final int SPILLED = 7;
+
+        private static final int MOVE_WORKLIST = 0;
+        private static final int MOVE_ACTIVE = 1;
+        private static final int MOVE_COALESCED = 2;
+        private static final int MOVE_CONSTRAINED = 3;
+        private static final int MOVE_FROZEN = 4;
+
+        private final InterferenceGraph interferenceGraph;
+        private final int K = availableRegisters.size();
+        private final int nNodes;
+        private final double[] spillCosts;
+
+        private final Set<Long> adjSet = new HashSet<>();
+        private final List<List<Integer>> adjList = new ArrayList<>();
+        private final int[] degree;
+        private final int[] nodeState;
+        private final int[] alias;
+        private final int[] color;
+        private final List<List<Integer>> moveList = new ArrayList<>();
+        private final List<int[]> moves = new ArrayList<>();
+        private int[] moveState;
+
+        private final LinkedHashSet<Integer> simplifyWorklist = new LinkedHashSet<>();
+        private final LinkedHashSet<Integer> freezeWorklist = new LinkedHashSet<>();
+        private final LinkedHashSet<Integer> spillWorklist = new LinkedHashSet<>();
+        private final LinkedHashSet<Integer> worklistMoves = new LinkedHashSet<>();
+        private final LinkedHashSet<Integer> activeMoves = new LinkedHashSet<>();
+        private final ArrayDeque<Integer> selectStack = new ArrayDeque<>();
+
+        MethodAllocation(InterferenceGraph interferenceGraph, double[] spillCosts) {
+            this.interferenceGraph = interferenceGraph;
+            this.nNodes = interferenceGraph.size();
+            this.spillCosts = spillCosts.clone();
+            this.degree = new int[nNodes];
+            this.nodeState = new int[nNodes];
+            this.alias = new int[nNodes];
+            this.color = new int[nNodes];
+            for (int node = 0; node < nNodes; node++) {
+                adjList.add(new ArrayList<>());
+                moveList.add(new ArrayList<>());
+                alias[node] = node;
+            }
+        }
+
+        Map<IrValue, X86Register> allocate() {
+            build();
+            makeWorklist();
+            while (!simplifyWorklist.isEmpty() || !worklistMoves.isEmpty() || !freezeWorklist.isEmpty() || !spillWorklist.isEmpty()) {
+                if (!simplifyWorklist.isEmpty()) simplify();
+                else if (!worklistMoves.isEmpty()) coalesce();
+                else if (!freezeWorklist.isEmpty()) freeze();
+                else selectSpill();
+            }
+            assignColors();
+
+            var varToReg = new HashMap<IrValue, X86Register>();
+            for (int node = 0; node < nNodes; node++) {
+                var irValue = interferenceGraph.getNode(node)
+                                               .irSsaRegister();
+                varToReg.put(irValue, nodeState[node] == COLORED ? availableRegisters.get(color[node]): X86Register.STACK);
+            }
+            return varToReg;
+        }
+
+        /**
+         * Two intervals related by a copy only overlap at the copy itself, where giving them the same register turns
+         * the copy into a no-op, so the edge between them is left out
+         */
+        private void build() {
+            for (int u = 0; u < nNodes; u++) {
+                for (int v : interferenceGraph.getInterferences(u)) {
+                    if (u < v && !isCopyRelated(u, v))
+                        addEdge(u, v);
+                }
+                for (int v : interferenceGraph.getMoves(u)) {
+                    if (u < v) {
+                        final int move = moves.size();
+                        moves.add(new int[]{u, v});
+                        moveList.get(u)
+                                .add(move);
+                        moveList.get(v)
+                                .add(move);
+                        worklistMoves.add(move);
+                    }
+                }
+            }
+            moveState = new int[moves.size()];
+        }
+
+        private boolean isCopyRelated(int u, int v) {
+            for (int w : interferenceGraph.getMoves(u))
+                if (w == v) return true;
+            return false;
+        }
+
+        private static long edgeKey(int u, int v) {
+            return ((long) Math.min(u, v) << 32) | Math.max(u, v);
+        }
+
+        private void addEdge(int u, int v) {
+            if (u != v && adjSet.add(edgeKey(u, v))) {
+                adjList.get(u)
+                       .add(v);
+                adjList.get(v)
+                       .add(u);
+                degree[u]++;
+                degree[v]++;
+            }
+        }
+
+        private void makeWorklist() {
+            for (int node = 0; node < nNodes; node++) {
+                if (degree[node] >= K) addToWorklist(node, SPILL);
+                else if (moveRelated(node)) addToWorklist(node, FREEZE);
+                else addToWorklist(node, SIMPLIFY);
+            }
+        }
+
+        private void addToWorklist(int node, int state) {
+            switch (nodeState[node]) {
+                case SIMPLIFY -> simplifyWorklist.remove(node);
+                case FREEZE -> freezeWorklist.remove(node);
+                case SPILL -> spillWorklist.remove(node);
+                default -> {
+                }
+            }
+            nodeState[node] = state;
+            switch (state) {
+                case SIMPLIFY -> simplifyWorklist.add(node);
+                case FREEZE -> freezeWorklist.add(node);
+                case SPILL -> spillWorklist.add(node);
+                default -> throw new IllegalArgumentException("not a work list: " + state);
+            }
+        }
+
+        private List<Integer> adjacent(int node) {
+            var adjacent = new ArrayList<Integer>();
+            for (int neighbour : adjList.get(node))
+                if (nodeState[neighbour] != SELECTED && nodeState[neighbour] != COALESCED)
+                    adjacent.add(neighbour);
+            return adjacent;
+        }
+
+        private List<Integer> nodeMoves(int node) {
+            var nodeMoves = new ArrayList<Integer>();
+            for (int move : moveList.get(node))
+                if (moveState[move] == MOVE_WORKLIST || moveState[move] == MOVE_ACTIVE)
+                    nodeMoves.add(move);
+            return nodeMoves;
+        }
+
+        private boolean moveRelated(int node) {
+            for (int move : moveList.get(node))
+                if (moveState[move] == MOVE_WORKLIST || moveState[move] == MOVE_ACTIVE)
+                    return true;
+            return false;
+        }
+
+        private void simplify() {
+            var iterator = simplifyWorklist.iterator();
+            final int node = iterator.next();
+            iterator.remove();
+            nodeState[node] = SELECTED;
+            selectStack.push(node);
+            for (int neighbour : adjacent(node))
+                decrementDegree(neighbour);
+        }
+
+        private void decrementDegree(int node) {
+            final int d = degree[node]--;
+            if (d == K) {
+                enableMoves(node);
+                for (int neighbour : adjacent(node))
+                    enableMoves(neighbour);
+                if (nodeState[node] == SPILL) {
+                    if (moveRelated(node)) addToWorklist(node, FREEZE);
+                    else addToWorklist(node, SIMPLIFY);
+                }
+            }
+        }
+
+        private void enableMoves(int node) {
+            for (int move : nodeMoves(node)) {
+                if (moveState[move] == MOVE_ACTIVE) {
+                    activeMoves.remove(move);
+                    moveState[move] = MOVE_WORKLIST;
+                    worklistMoves.add(move);
+                }
+            }
+        }
+
+        private void coalesce() {
+            var iterator = worklistMoves.iterator();
+            final int move = iterator.next();
+            iterator.remove();
+            final int u = getAlias(moves.get(move)[0]);
+            final int v = getAlias(moves.get(move)[1]);
+            if (u == v) {
+                moveState[move] = MOVE_COALESCED;
+                addWorkList(u);
+            } else if (adjSet.contains(edgeKey(u, v))) {
+                moveState[move] = MOVE_CONSTRAINED;
+                addWorkList(u);
+                addWorkList(v);
+            } else if (conservative(u, v)) {
+                moveState[move] = MOVE_COALESCED;
+                combine(u, v);
+                addWorkList(u);
+            } else {
+                moveState[move] = MOVE_ACTIVE;
+                activeMoves.add(move);
+            }
+        }
+
+        private void addWorkList(int node) {
+            if (nodeState[node] == FREEZE && !moveRelated(node) && degree[node] < K)
+                addToWorklist(node, SIMPLIFY);
+        }
+
+        /**
+         * Briggs: the coalesced node has fewer than K neighbours of significant degree
+         */
+        private boolean conservative(int u, int v) {
+            var neighbours = new BitSet(nNodes);
+            for (int neighbour : adjacent(u))
+                neighbours.set(neighbour);
+            for (int neighbour : adjacent(v))
+                neighbours.set(neighbour);
+            int k = 0;
+            for (int neighbour = neighbours.nextSetBit(0); neighbour >= 0; neighbour = neighbours.nextSetBit(neighbour + 1))
+                if (degree[neighbour] >= K)
+                    k++;
+            return k < K;
+        }
+
+        private int getAlias(int node) {
+            while (nodeState[node] == COALESCED)
+                node = alias[node];
+            return node;
+        }
+
+        private void combine(int u, int v) {
+            switch (nodeState[v]) {
+                case FREEZE -> freezeWorklist.remove(v);
+                case SPILL -> spillWorklist.remove(v);
+                case SIMPLIFY -> simplifyWorklist.remove(v);
+                default -> {
+                }
+            }
+            nodeState[v] = COALESCED;
+            alias[v] = u;
+            moveList.get(u)
+                    .addAll(moveList.get(v));
+            spillCosts[u] += spillCosts[v];
+            enableMoves(v);
+            for (int neighbour : adjacent(v)) {
+                addEdge(neighbour, u);
+                decrementDegree(neighbour);
+            }
+            if (degree[u] >= K && nodeState[u] == FREEZE)
+                addToWorklist(u, SPILL);
+        }
+
+        private void freeze() {
+            final int node = freezeWorklist.iterator()
+                                           .next();
+            addToWorklist(node, SIMPLIFY);
+            freezeMoves(node);
+        }
+
+        private void freezeMoves(int u) {
+            for (int move : nodeMoves(u)) {
+                final int x = moves.get(move)[0];
+                final int y = moves.get(move)[1];
+                final int v = getAlias(y) == getAlias(u) ? getAlias(x): getAlias(y);
+                activeMoves.remove(move);
+                worklistMoves.remove(move);
+                moveState[move] = MOVE_FROZEN;
+                if (nodeState[v] == FREEZE && !moveRelated(v) && degree[v] < K)
+                    addToWorklist(v, SIMPLIFY);
+            }
+        }
+
+        private void selectSpill() {
+            int candidate = -1;
+            for (int node : spillWorklist) {
+                if (candidate == -1 || spillPriority(node) < spillPriority(candidate))
+                    candidate = node;
+            }
+            addToWorklist(candidate, SIMPLIFY);
+            freezeMoves(candidate);
+        }
+
+        private double spillPriority(int node) {
+            return spillCosts[node] / Math.max(degree[node], 1);
+        }
+
+        /**
+         * Pops the select stack giving each node the lowest register none of its colored neighbours has, preferring
+         * the register of a node it is copied to or from so that frozen copies may still become no-ops
+         */
+        private void assignColors() {
+            while (!selectStack.isEmpty()) {
+                final int node = selectStack.pop();
+                var okColors = new BitSet(K);
+                okColors.set(0, K);
+                for (int neighbour : adjList.get(node)) {
+                    final int alias = getAlias(neighbour);
+                    if (nodeState[alias] == COLORED)
+                        okColors.clear(color[alias]);
+                }
+                if (okColors.isEmpty()) {
+                    nodeState[node] = SPILLED;
+                } else {
+                    nodeState[node] = COLORED;
+                    color[node] = preferredColor(node, okColors);
+                }
+            }
+            for (int node = 0; node < nNodes; node++) {
+                if (nodeState[node] == COALESCED) {
+                    final int alias = getAlias(node);
+                    if (nodeState[alias] == COLORED) {
+                        nodeState[node] = COLORED;
+                        color[node] = color[alias];
+                    } else {
+                        nodeState[node] = SPILLED;
+                    }
+                }
+            }
+        }
+
+        private int preferredColor(int node, BitSet okColors) {
+            for (int move : moveList.get(node)) {
+                final int other = getAlias(moves.get(move)[0]) == node ? getAlias(moves.get(move)[1]): getAlias(moves.get(move)[0]);
+                if (nodeState[other] == COLORED && okColors.get(color[other]))
+                    return color[other];
+            }
+            return okColors.nextSetBit(0);
+        }
+    }
+}
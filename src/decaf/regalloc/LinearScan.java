@@ -1,8 +1,9 @@
 package decaf.regalloc;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -11,16 +12,28 @@ import java.util.Map;
 import decaf.asm.X86Register;
 import decaf.codegen.codes.Method;
 import decaf.codegen.names.IrValue;
+import decaf.codegen.names.IrValuePredicates;
 
+/**
+ * Linear scan register allocation, after Poletto and Sarkar.
+ * <p>
+ * The intervals which currently hold a register are kept in a binary heap keyed by end point, so expiring them costs
+ * {@code O(log k)} per interval for {@code k} registers, and the free registers are a bit mask. The scan itself does not
+ * allocate.
+ * <p>
+ * When every register is taken, the interval with the lowest use density, its number of uses and definitions divided
+ * by its length, is spilled. A long interval which is rarely used frees its register for longer at a lower cost than
+ * the interval which merely ends last.
+ */
 public class LinearScan {
     @NotNull
-    private List<X86Register> availableRegisters = new ArrayList<>();
+    private final List<X86Register> availableRegisters;
     private final Map<Method, Map<IrValue, X86Register>> varToRegMap = new HashMap<>();
     private final Map<Method, List<LiveInterval>> liveIntervals;
-    private List<LiveInterval> active = new ArrayList<>();
 
     public LinearScan(Collection<X86Register> availableRegisters, Map<Method, List<LiveInterval>> liveIntervals) {
-        this.availableRegisters.addAll(availableRegisters);
+        checkArgument(availableRegisters.size() < Integer.SIZE, "too many registers to allocate: " + availableRegisters.size());
+        this.availableRegisters = List.copyOf(availableRegisters);
         this.liveIntervals = liveIntervals;
     }
 
@@ -28,55 +41,180 @@ public class LinearScan {
         return varToRegMap;
     }
 
-
-    private List<LiveInterval> prepare(Map.Entry<Method, List<LiveInterval>> entry) {
-        varToRegMap.put(entry.getKey(), new HashMap<>());
-        availableRegisters = new ArrayList<>(X86Register.regsToAllocate);
-        var liveIntervalsList = entry.getValue();
-        liveIntervalsList.sort(LiveInterval::compareStartPoint);
-        active = new ArrayList<>();
-        return liveIntervalsList;
+    private static double[] computeUseDensities(List<LiveInterval> liveIntervalsList) {
+        var useDensities = new double[liveIntervalsList.size()];
+        if (liveIntervalsList.isEmpty())
+            return useDensities;
+        var uses = new HashMap<IrValue, Integer>();
+        for (var instruction : liveIntervalsList.get(0)
+                                                .instructionList())
+            for (var irValue : instruction.genIrValuesFiltered(IrValuePredicates.isRegisterAllocatable()))
+                uses.merge(irValue, 1, Integer::sum);
+        for (int i = 0; i < liveIntervalsList.size(); i++) {
+            var liveInterval = liveIntervalsList.get(i);
+            useDensities[i] = (double) uses.getOrDefault(liveInterval.irSsaRegister(), 0) /
+                    Math.max(1, liveInterval.endPoint() - liveInterval.startPoint());
+        }
+        return useDensities;
     }
 
     public void allocate() {
         for (var entry : liveIntervals.entrySet()) {
-            var liveIntervalsList = prepare(entry);
-            var nAvailableRegisters = availableRegisters.size();
-            var varToReg = varToRegMap.get(entry.getKey());
-            for (LiveInterval i : liveIntervalsList) {
-                expireOldIntervals(i, varToReg);
-                if (active.size() == nAvailableRegisters) {
-                    spillAtInterval(i, varToReg);
-                } else {
-                    varToReg.put(i.irSsaRegister(), availableRegisters.remove(0));
+            var liveIntervalsList = entry.getValue();
+            liveIntervalsList.sort(LiveInterval::compareStartPoint);
+            varToRegMap.put(entry.getKey(), allocate(liveIntervalsList));
+        }
+    }
+
+    private Map<IrValue, X86Register> allocate(List<LiveInterval> liveIntervalsList) {
+        final int nIntervals = liveIntervalsList.size();
+        final int nRegisters = availableRegisters.size();
+        final var useDensities = computeUseDensities(liveIntervalsList);
+        final var registerOf = new int[nIntervals];
+        final var active = new ActiveIntervals(liveIntervalsList, nRegisters);
+        int freeRegisters = (1 << nRegisters) - 1;
+
+        for (int i = 0; i < nIntervals; i++) {
+            final int startPoint = liveIntervalsList.get(i)
+                                                    .startPoint();
+            // expire the intervals which ended before this one starts
+            while (!active.isEmpty() && active.endPointOfFirst() < startPoint)
+                freeRegisters |= 1 << registerOf[active.removeFirst()];
+
+            if (freeRegisters != 0) {
+                registerOf[i] = Integer.numberOfTrailingZeros(freeRegisters);
+                freeRegisters &= freeRegisters - 1;
+                active.add(i);
+            } else {
+                final int spill = active.findLeastDense(useDensities);
+                if (spill != -1 && spillBefore(spill, i, useDensities, liveIntervalsList)) {
+                    registerOf[i] = registerOf[spill];
+                    registerOf[spill] = -1;
+                    active.remove(spill);
                     active.add(i);
-                    active.sort(LiveInterval::compareEndpoint);
+                } else {
+                    registerOf[i] = -1;
                 }
             }
         }
+
+        var varToReg = new HashMap<IrValue, X86Register>();
+        for (int i = 0; i < nIntervals; i++)
+            varToReg.put(liveIntervalsList.get(i)
+                                          .irSsaRegister(), registerOf[i] == -1 ? X86Register.STACK: availableRegisters.get(registerOf[i]));
+        return varToReg;
+    }
+
+    /**
+     * @return whether the active interval {@code spill} should go to the stack rather than the new interval {@code i}
+     */
+    private static boolean spillBefore(int spill, int i, double[] useDensities, List<LiveInterval> liveIntervalsList) {
+        if (useDensities[spill] != useDensities[i])
+            return useDensities[spill] < useDensities[i];
+        return liveIntervalsList.get(spill)
+                                .endPoint() > liveIntervalsList.get(i)
+                                                               .endPoint();
     }
 
-    public void expireOldIntervals(LiveInterval i, Map<IrValue, X86Register> varToReg) {
-        active.sort(LiveInterval::compareEndpoint);
-        for (LiveInterval j : new ArrayList<>(active)) {
-            if (j.endPoint() >= i.startPoint()) {
-                return;
+    /**
+     * A binary min-heap of interval indices keyed by end point, with room for one interval per register
+     */
+    private static class ActiveIntervals {
+        private final List<LiveInterval> liveIntervalsList;
+        private final int[] heap;
+        private int size;
+
+        ActiveIntervals(List<LiveInterval> liveIntervalsList, int capacity) {
+            this.liveIntervalsList = liveIntervalsList;
+            this.heap = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int endPointOfFirst() {
+            return endPoint(heap[0]);
+        }
+
+        int removeFirst() {
+            final int first = heap[0];
+            removeAt(0);
+            return first;
+        }
+
+        void add(int interval) {
+            heap[size] = interval;
+            siftUp(size++);
+        }
+
+        void remove(int interval) {
+            for (int position = 0; position < size; position++) {
+                if (heap[position] == interval) {
+                    removeAt(position);
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("interval " + interval + " is not active");
+        }
+
+        /**
+         * @return the active interval with the lowest use density, breaking ties by the furthest end point
+         */
+        int findLeastDense(double[] useDensities) {
+            int leastDense = -1;
+            for (int position = 0; position < size; position++) {
+                final int interval = heap[position];
+                if (leastDense == -1 || useDensities[interval] < useDensities[leastDense] ||
+                        (useDensities[interval] == useDensities[leastDense] && endPoint(interval) > endPoint(leastDense)))
+                    leastDense = interval;
+            }
+            return leastDense;
+        }
+
+        private int endPoint(int interval) {
+            return liveIntervalsList.get(interval)
+                                    .endPoint();
+        }
+
+        private void removeAt(int position) {
+            heap[position] = heap[--size];
+            if (position < size) {
+                siftDown(position);
+                siftUp(position);
+            }
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                final int parent = (position - 1) / 2;
+                if (endPoint(heap[parent]) <= endPoint(heap[position]))
+                    return;
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                final int left = 2 * position + 1;
+                final int right = left + 1;
+                int smallest = position;
+                if (left < size && endPoint(heap[left]) < endPoint(heap[smallest]))
+                    smallest = left;
+                if (right < size && endPoint(heap[right]) < endPoint(heap[smallest]))
+                    smallest = right;
+                if (smallest == position)
+                    return;
+                swap(smallest, position);
+                position = smallest;
             }
-            active.remove(j);
-            availableRegisters.add(varToReg.get(j.irSsaRegister()));
         }
-    }
 
-    public void spillAtInterval(LiveInterval i, Map<IrValue, X86Register> varToReg) {
-        LiveInterval spill = active.get(active.size() - 1);
-        if (spill.endPoint() > i.endPoint()) {
-            varToReg.put(i.irSsaRegister(), varToReg.get(spill.irSsaRegister()));
-            varToReg.put(spill.irSsaRegister(), X86Register.STACK);
-            active.remove(spill);
-            active.add(i);
-            active.sort(LiveInterval::compareEndpoint);
-        } else {
-            varToReg.put(i.irSsaRegister(), X86Register.STACK);
+        private void swap(int a, int b) {
+            final int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
         }
     }
-}
\ No newline at end of file
+}
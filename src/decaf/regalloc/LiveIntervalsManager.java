@@ -1,6 +1,7 @@
 package decaf.regalloc;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -12,7 +13,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -36,9 +36,9 @@ import decaf.codegen.names.IrValue;
 
 public class LiveIntervalsManager {
     /**
-     * Maps each unique instruction in the program to a set of variables live at that point
+     * Maps each method to the variables live at each of its instructions, indexed by {@link Instruction#getId()}
      */
-    public final Map<Instruction, Set<IrValue>> instructionToLiveVariablesMap = new HashMap<>();
+    private final Map<Method, LiveVariablesAtInstructions> methodToLiveVariablesMap = new HashMap<>();
     /**
      * Maps each method to a list of its live intervals
      */
@@ -49,8 +49,6 @@ public class LiveIntervalsManager {
      */
 
     private final Map<Method, Map<IrValue, LiveInterval>> methodToMappingOfValuesToLiveIntervals = new HashMap<>();
-    private final Map<Instruction, Set<IrValue>> refCache = new ConcurrentHashMap<>();
-    private final Map<Instruction, Set<IrValue>> defCache = new ConcurrentHashMap<>();
 
     public LiveIntervalsManager(ProgramIr programIr) {
         this.programIr = programIr;
@@ -77,9 +75,16 @@ public class LiveIntervalsManager {
         return indexOfInstruction;
     }
 
+    /**
+     * @return whether the half-open ranges {@code [startPoint, endPoint)} of {@code a} and {@code b} overlap; an
+     * interval always covers at least its start point, where its value is written
+     */
     public static boolean liveIntervalsInterfere(LiveInterval a, LiveInterval b) {
-        var overlap = Math.abs(Math.min(a.startPoint(), b.endPoint() - 1) - Math.max(a.startPoint(), b.endPoint() - 1));
-        return overlap > 0;
+        return a.startPoint() < effectiveEndPoint(b) && b.startPoint() < effectiveEndPoint(a);
+    }
+
+    public static int effectiveEndPoint(LiveInterval liveInterval) {
+        return Math.max(liveInterval.endPoint(), liveInterval.startPoint() + 1);
     }
 
     public static <T> HashSet<T> difference(Set<T> first, Set<T> second) {
@@ -105,6 +110,23 @@ public class LiveIntervalsManager {
                         .toList();
     }
 
+    /**
+     * @return every value which is live at, read by or written by an instruction in the live interval of
+     * {@code irValue}, that is every value whose location must be left alone while {@code irValue} occupies its own
+     * @implNote the live variables come from the method's cached {@link LiveVariableAnalysis}, so no liveness is
+     * solved again
+     */
+    @NotNull
+    public Set<IrValue> genValuesLiveInLiveIntervalOf(@NotNull IrValue irValue, @NotNull Method method) {
+        var liveVariables = methodToLiveVariablesMap.get(method);
+        var values = new HashSet<IrValue>();
+        for (var instruction : genInstructionsInLiveIntervalOf(irValue, method)) {
+            values.addAll(liveVariables.get(instruction));
+            values.addAll(instruction.genIrValuesFiltered(IrValuePredicates.isRegisterAllocatable()));
+        }
+        return values;
+    }
+
     @NotNull
     public Collection<LiveInterval> getLiveIntervals(@NotNull Method method) {
         return methodToLiveIntervalsMap.get(method);
@@ -130,9 +152,31 @@ public class LiveIntervalsManager {
         return liveInterval.startPoint() <= index && index < liveInterval.endPoint();
     }
 
+    /**
+     * Liveness is solved once per method and shared by every basic block of the method.
+     * The solution is cached in the {@link ProgramIr} so that repeated allocations over an unchanged method
+     * (for instance the final round of SSA coalescing followed by register allocation) do not re-solve it.
+     */
     private void computeMethodLivenessInformation(Method method) {
+        var liveVariableAnalysis = getLiveVariableAnalysis(method);
+        var instructions = method.numberInstructions();
+        var liveVariables = new LiveVariablesAtInstructions(instructions);
+        // indexed by instruction id
+        var defs = new ArrayList<Set<IrValue>>(instructions.size());
+        var refs = new ArrayList<Set<IrValue>>(instructions.size());
+        for (var instruction : instructions) {
+            defs.add(def(instruction));
+            refs.add(ref(instruction));
+        }
         var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock());
-        basicBlocks.forEach(basicBlock -> computeLiveOutForSetBasicBlock(basicBlock, new LiveVariableAnalysis(method.getEntryBlock())));
+        basicBlocks.forEach(basicBlock -> computeLiveOutForSetBasicBlock(basicBlock, liveVariableAnalysis, liveVariables, defs, refs));
+        methodToLiveVariablesMap.put(method, liveVariables);
+    }
+
+    @NotNull
+    public LiveVariableAnalysis getLiveVariableAnalysis(@NotNull Method method) {
+        return programIr.getLiveVariableAnalysisCache()
+                        .get(method);
     }
 
     private Set<IrValue> ref(Instruction instruction) {
@@ -148,16 +192,13 @@ public class LiveIntervalsManager {
         return Collections.emptySet();
     }
 
-    private void computeLiveOutForSetBasicBlock(BasicBlock basicBlock, LiveVariableAnalysis liveVariableAnalysis) {
+    private void computeLiveOutForSetBasicBlock(BasicBlock basicBlock,
+                                                LiveVariableAnalysis liveVariableAnalysis,
+                                                LiveVariablesAtInstructions liveVariables,
+                                                List<Set<IrValue>> defs,
+                                                List<Set<IrValue>> refs) {
         var liveOut = liveVariableAnalysis.liveOut(basicBlock);
 
-        basicBlock.getInstructionList()
-                  .parallelStream()
-                  .forEach(instruction -> {
-                      defCache.put(instruction, def(instruction));
-                      refCache.put(instruction, ref(instruction));
-                  });
-
         var outLive = new HashSet<>(liveOut);
 
         // values which are live outside this block and therefore should be conserved
@@ -166,8 +207,9 @@ public class LiveIntervalsManager {
                                                                           .map(StoreInstruction::getDestination)
                                                                           .collect(Collectors.toUnmodifiableSet())));
         for (var instruction : basicBlock.getInstructionListReversed()) {
-            outLive = union(union(difference(outLive, defCache.get(instruction)), refCache.get(instruction)), outGlobal);
-            instructionToLiveVariablesMap.put(instruction, outLive);
+            final int id = instruction.getId();
+            outLive = union(union(difference(outLive, defs.get(id)), refs.get(id)), outGlobal);
+            liveVariables.put(instruction, outLive);
         }
     }
 
@@ -181,10 +223,11 @@ public class LiveIntervalsManager {
         var instructionList = TraceScheduler.flattenIr(method);
         var allVariables = Utils.genRegAllocatableValuesFromInstructions(instructionList);
 
+        var liveVariables = methodToLiveVariablesMap.get(method);
         var varToLiveInterval = new HashMap<IrValue, LiveInterval>();
         for (var variable : allVariables) {
             var defSlot = findFirstDefSlot(instructionList, variable);
-            var lastUseSlot = findLastUseSlot(instructionList, variable);
+            var lastUseSlot = findLastUseSlot(instructionList, variable, liveVariables);
             // handles the case when a irAssignableValue is defined but never used in the program
             if (lastUseSlot == 0) lastUseSlot = defSlot + 1;
             var liveInterval = new LiveInterval(variable, defSlot, lastUseSlot, instructionList, method);
@@ -200,7 +243,7 @@ public class LiveIntervalsManager {
         }
     }
 
-    private int findLastUseSlot(InstructionList instructionList, IrValue irValue) {
+    private int findLastUseSlot(InstructionList instructionList, IrValue irValue, LiveVariablesAtInstructions liveVariables) {
         int loc = instructionList.size() - 1;
         if (irValue instanceof IrMemoryAddress || irValue instanceof IrGlobalScalar || irValue instanceof IrGlobalArray) {
             for (; loc >= 0; loc--) {
@@ -212,8 +255,8 @@ public class LiveIntervalsManager {
         } else {
             for (; loc >= 0; loc--) {
                 var instruction = instructionList.get(loc);
-                if (instructionToLiveVariablesMap.getOrDefault(instruction, Collections.emptySet())
-                                                 .contains(irValue)) break;
+                if (liveVariables.get(instruction)
+                                 .contains(irValue)) break;
             }
             return loc + 1;
         }
@@ -263,4 +306,35 @@ public class LiveIntervalsManager {
             index += 1;
         }
     }
+
+    /**
+     * The variables live at each instruction of a method, stored densely by {@link Instruction#getId()}.
+     * Instructions created after the method was numbered, such as the jumps added when flattening the IR,
+     * have no live variables.
+     */
+    private static class LiveVariablesAtInstructions {
+        private final List<Instruction> instructions;
+        private final List<Set<IrValue>> liveVariables;
+
+        LiveVariablesAtInstructions(List<Instruction> instructions) {
+            this.instructions = instructions;
+            this.liveVariables = new ArrayList<>(Collections.nCopies(instructions.size(), Collections.emptySet()));
+        }
+
+        private boolean isNumbered(Instruction instruction) {
+            final int id = instruction.getId();
+            return id >= 0 && id < instructions.size() && instructions.get(id) == instruction;
+        }
+
+        void put(Instruction instruction, Set<IrValue> live) {
+            checkState(isNumbered(instruction), "instruction was not numbered: " + instruction);
+            liveVariables.set(instruction.getId(), live);
+        }
+
+        Set<IrValue> get(Instruction instruction) {
+            if (!isNumbered(instruction))
+                return Collections.emptySet();
+            return liveVariables.get(instruction.getId());
+        }
+    }
 }
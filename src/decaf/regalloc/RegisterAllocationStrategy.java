@@ -0,0 +1,17 @@
+package decaf.regalloc;
+
+/**
+ * How {@link RegisterAllocator} assigns {@link decaf.asm.X86Register}s to the values of each method
+ */
+public enum RegisterAllocationStrategy {
+    /**
+     * {@link LinearScan}: fast, but values whose live intervals overlap a busy region are spilled regardless of how
+     * often they are used
+     */
+    LINEAR_SCAN,
+    /**
+     * {@link IteratedRegisterCoalescing}: colors the interference graph, coalescing copies and spilling the values
+     * which are cheapest to keep in memory, weighted by loop depth
+     */
+    GRAPH_COLORING,
+}
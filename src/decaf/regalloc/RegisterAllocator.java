@@ -24,10 +24,23 @@ public class RegisterAllocator {
     private final LiveIntervalsManager liveIntervalsManager;
 
     public RegisterAllocator(ProgramIr programIr) {
+        this(programIr, RegisterAllocationStrategy.LINEAR_SCAN);
+    }
+
+    public RegisterAllocator(ProgramIr programIr, RegisterAllocationStrategy registerAllocationStrategy) {
         liveIntervalsManager = new LiveIntervalsManager(programIr);
-        var linearScan = new LinearScan(List.copyOf(X86Register.regsToAllocate), getLiveIntervalsManager().methodToLiveIntervalsMap);
-        linearScan.allocate();
-        variableToRegisterMap.putAll(linearScan.getVariableToRegisterMapping());
+        switch (registerAllocationStrategy) {
+            case LINEAR_SCAN -> {
+                var linearScan = new LinearScan(List.copyOf(X86Register.regsToAllocate), getLiveIntervalsManager().methodToLiveIntervalsMap);
+                linearScan.allocate();
+                variableToRegisterMap.putAll(linearScan.getVariableToRegisterMapping());
+            }
+            case GRAPH_COLORING -> {
+                var iteratedRegisterCoalescing = new IteratedRegisterCoalescing(X86Register.regsToAllocate, getLiveIntervalsManager());
+                iteratedRegisterCoalescing.allocate();
+                variableToRegisterMap.putAll(iteratedRegisterCoalescing.getVariableToRegisterMapping());
+            }
+        }
         computeMethodToLiveRegistersInfo(programIr, getLiveIntervalsManager().methodToLiveIntervalsMap);
     }
 
@@ -0,0 +1,265 @@
+package decaf.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import decaf.common.Compilation;
+import decaf.common.CompilationContext;
+import decaf.exceptions.CompilationFailedException;
+
+/**
+ * A long-running compiler process, so that the scanner, parser and optimizer stay JIT-compiled across requests.
+ * <p>
+ * Requests are read from stdin, or from each connection to a loopback socket when started with {@code --port}. Each
+ * request is compiled with its own {@link CompilationContext} on a shared worker pool, and responses are written back
+ * as soon as they are ready, so they may arrive in a different order than the requests were sent.
+ * <p>
+ * The protocol is framed by byte lengths; all text is UTF-8:
+ * <pre>
+ * request:  COMPILE &lt;id&gt; &lt;source-length&gt;\n&lt;source&gt;
+ * response: RESULT &lt;id&gt; OK|ERROR &lt;assembly-length&gt; &lt;diagnostics-length&gt;\n&lt;assembly&gt;&lt;diagnostics&gt;
+ * </pre>
+ * {@code <id>} is an arbitrary token without whitespace chosen by the client. A {@code SHUTDOWN} line, or the end of
+ * the input, ends the session once all outstanding requests have been answered.
+ * <p>
+ * With {@code --parallel-optimization} each compilation also optimizes its methods in parallel (see
+ * {@link CompilationContext#setParallelOptimizationOn(boolean)}); the assembly is the same either way.
+ */
+public class CompilationServer {
+    public static final String COMPILE = "COMPILE";
+    public static final String RESULT = "RESULT";
+    public static final String SHUTDOWN = "SHUTDOWN";
+    public static final String OK = "OK";
+    public static final String ERROR = "ERROR";
+    private static final Pattern ANSI_ESCAPE = Pattern.compile("\u001B\\[[;\\d]*m");
+
+    private final ExecutorService workers;
+    private final Function<String, CompilationResult> compiler;
+
+    public CompilationServer(int nWorkers) {
+        this(nWorkers, false);
+    }
+
+    public CompilationServer(int nWorkers, boolean parallelOptimizationOn) {
+        this(nWorkers, source -> {
+            final var compilationContext = new CompilationContext();
+            compilationContext.setParallelOptimizationOn(parallelOptimizationOn);
+            return compile(source, compilationContext);
+        });
+    }
+
+    /**
+     * @param compiler compiles the source of one request; it is called from several worker threads at once
+     */
+    CompilationServer(int nWorkers, @NotNull Function<String, CompilationResult> compiler) {
+        checkArgument(nWorkers > 0, "expected at least one worker, found " + nWorkers);
+        this.workers = Executors.newFixedThreadPool(nWorkers, runnable -> {
+            var thread = new Thread(runnable, "decaf-compile-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compiler = compiler;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Integer port = null;
+        int nWorkers = Runtime.getRuntime()
+                              .availableProcessors();
+        boolean parallelOptimizationOn = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--workers" -> nWorkers = Integer.parseInt(args[++i]);
+                case "--parallel-optimization" -> parallelOptimizationOn = true;
+                default -> {
+                    System.err.println("usage: CompilationServer [--port <port>] [--workers <n>] [--parallel-optimization]");
+                    System.exit(2);
+                }
+            }
+        }
+        var server = new CompilationServer(nWorkers, parallelOptimizationOn);
+        if (port == null) {
+            server.serve(System.in, System.out);
+        } else {
+            server.listen(port);
+        }
+        server.shutdown();
+    }
+
+    /**
+     * Accepts connections on the loopback interface forever; each connection is a separate session
+     */
+    public void listen(int port) throws IOException {
+        try (var serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            while (!serverSocket.isClosed()) {
+                final Socket socket = serverSocket.accept();
+                var sessionThread = new Thread(() -> {
+                    try (socket) {
+                        serve(socket.getInputStream(), socket.getOutputStream());
+                    } catch (IOException e) {
+                        System.err.println("session ended: " + e);
+                    }
+                }, "decaf-session");
+                sessionThread.setDaemon(true);
+                sessionThread.start();
+            }
+        }
+    }
+
+    /**
+     * Serves one session: reads requests until {@code SHUTDOWN} or the end of the input, and returns once every
+     * request has been answered
+     */
+    public void serve(@NotNull InputStream in, @NotNull OutputStream out) throws IOException {
+        var input = new BufferedInputStream(in);
+        var output = new BufferedOutputStream(out);
+        var pending = new ArrayList<Future<?>>();
+        try {
+            for (var header = readLine(input); header != null && !header.equals(SHUTDOWN); header = readLine(input)) {
+                if (header.isBlank())
+                    continue;
+                var fields = header.trim()
+                                   .split("\\s+");
+                if (fields.length != 3 || !fields[0].equals(COMPILE))
+                    throw new IOException("malformed request header: " + header);
+                final var id = fields[1];
+                final var sourceLength = parseLength(fields[2], header);
+                final var source = new String(readExactly(input, sourceLength), StandardCharsets.UTF_8);
+                pending.add(workers.submit(() -> respond(output, id, compiler.apply(source))));
+            }
+        } finally {
+            awaitAll(pending);
+            synchronized (output) {
+                output.flush();
+            }
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Compiles a single translation unit
+     *
+     * @param source the decaf source code
+     * @return the assembly, or the diagnostics of a failed compilation
+     */
+    public static CompilationResult compile(@NotNull String source) {
+        return compile(source, new CompilationContext());
+    }
+
+    /**
+     * Compiles a single translation unit with the given settings
+     *
+     * @param source             the decaf source code
+     * @param compilationContext the settings, which must not be shared with another compilation
+     * @return the assembly, or the diagnostics of a failed compilation
+     */
+    public static CompilationResult compile(@NotNull String source, @NotNull CompilationContext compilationContext) {
+        try {
+            var compilation = new Compilation(source, compilationContext);
+            return new CompilationResult(true, compilation.compileToAssembly(), "");
+        } catch (CompilationFailedException e) {
+            // the diagnostics are colored for a terminal, but a client may be anything
+            return new CompilationResult(false, "", ANSI_ESCAPE.matcher(String.join("\n", e.getDiagnostics()))
+                                                               .replaceAll(""));
+        } catch (Exception | StackOverflowError e) {
+            var stackTrace = new StringWriter();
+            e.printStackTrace(new PrintWriter(stackTrace));
+            return new CompilationResult(false, "", stackTrace.toString());
+        }
+    }
+
+    private static void respond(OutputStream output, String id, CompilationResult result) {
+        final var assembly = result.assembly()
+                                   .getBytes(StandardCharsets.UTF_8);
+        final var diagnostics = result.diagnostics()
+                                      .getBytes(StandardCharsets.UTF_8);
+        final var header = String.format("%s %s %s %d %d\n",
+                                         RESULT,
+                                         id,
+                                         result.succeeded() ? OK: ERROR,
+                                         assembly.length,
+                                         diagnostics.length);
+        synchronized (output) {
+            try {
+                output.write(header.getBytes(StandardCharsets.UTF_8));
+                output.write(assembly);
+                output.write(diagnostics);
+                output.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("could not write the result of " + id, e);
+            }
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> pending) {
+        for (var future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println(e.getCause());
+            }
+        }
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        var line = new ByteArrayOutputStream();
+        int c;
+        while ((c = input.read()) != -1 && c != '\n') {
+            line.write(c);
+        }
+        if (c == -1 && line.size() == 0)
+            return null;
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static int parseLength(String field, String header) throws IOException {
+        final int length;
+        try {
+            length = Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new IOException("malformed request header: " + header, e);
+        }
+        if (length < 0)
+            throw new IOException("malformed request header: " + header);
+        return length;
+    }
+
+    private static byte[] readExactly(InputStream input, int length) throws IOException {
+        var bytes = input.readNBytes(length);
+        if (bytes.length != length)
+            throw new IOException("expected " + length + " bytes of source, found " + bytes.length);
+        return bytes;
+    }
+
+    public record CompilationResult(boolean succeeded, @NotNull String assembly, @NotNull String diagnostics) {
+    }
+}
@@ -69,6 +69,21 @@ public class Phi extends StoreInstruction {
 
   }
 
+  /**
+   * Takes the value which flowed in from {@code predecessor} from {@code replacer} instead, after the edge from
+   * {@code predecessor} was redirected through {@code replacer}
+   */
+  public void replacePredecessor(
+      @NotNull BasicBlock predecessor,
+      @NotNull BasicBlock replacer
+  ) {
+    var value = basicBlockValueMap.remove(predecessor);
+    checkState(value != null,
+        this + "\nno irAssignableValue for block: \n" + predecessor);
+    basicBlockValueMap.put(replacer,
+        value);
+  }
+
   @NotNull
   public BasicBlock getBasicBlockForV(@NotNull IrValue irValue) {
     checkState(basicBlockValueMap.containsValue(irValue));
@@ -15,6 +15,8 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -23,6 +25,7 @@ import java.util.Stack;
 import java.util.stream.Collectors;
 
 import decaf.cfg.BasicBlock;
+import decaf.codegen.IndexManager;
 import decaf.codegen.codes.CopyInstruction;
 import decaf.codegen.codes.HasOperand;
 import decaf.codegen.codes.Instruction;
@@ -63,16 +66,19 @@ public class SSA {
     });
   }
 
-  public static void construct(@NotNull Method method) {
+  public static void construct(
+      @NotNull Method method,
+      @NotNull CompilationContext compilationContext
+  ) {
     var entryBlock = method.getEntryBlock();
     var basicBlocks = getReversePostOrder(entryBlock);
 //    buildCfgGuava(basicBlocks);
     var dominatorTree = new DominatorTree(entryBlock);
-    if (CompilationContext.isDebugModeOn()) GraphVizManager.printDominatorTree(
+    if (compilationContext.isDebugModeOn()) GraphVizManager.printDominatorTree(
         dominatorTree,
         "dom_" + method.methodName()
     );
-    if (CompilationContext.isDebugModeOn()) Utils.printSsaCfg(
+    if (compilationContext.isDebugModeOn()) Utils.printSsaCfg(
         List.of(method),
         "cfg_norm" + method.methodName()
     );
@@ -87,7 +93,7 @@ public class SSA {
         basicBlocks
     );
     verifySsa(basicBlocks);
-    if (CompilationContext.isDebugModeOn()) Utils.printSsaCfg(
+    if (compilationContext.isDebugModeOn()) Utils.printSsaCfg(
         List.of(method),
         "ssa_before_" + method.methodName()
     );
@@ -101,9 +107,10 @@ public class SSA {
 
   public static void deconstruct(
       @NotNull Method method,
-      @NotNull ProgramIr programIr
+      @NotNull ProgramIr programIr,
+      @NotNull CompilationContext compilationContext
   ) {
-    if (CompilationContext.isDebugModeOn()) Utils.printSsaCfg(
+    if (compilationContext.isDebugModeOn()) Utils.printSsaCfg(
         List.of(method),
         "ssa_after_opt_" + method.methodName()
     );
@@ -115,13 +122,15 @@ public class SSA {
     deconstructSsa(
         entryBlock,
         basicBlocks,
-        immediateDominator
+        immediateDominator,
+        compilationContext.getIndexManager()
     );
     coalesce(
         method,
-        programIr
+        programIr,
+        compilationContext
     );
-    if (CompilationContext.isDebugModeOn()) Utils.printSsaCfg(
+    if (compilationContext.isDebugModeOn()) Utils.printSsaCfg(
         List.of(method),
         "ssa_after_" + method.methodName()
     );
@@ -136,17 +145,21 @@ public class SSA {
                                                       .stream()
                                                       .map(StoreInstruction::getDestination)
                                                       .anyMatch(abstractName -> abstractName.equals(V)))
-                      .collect(Collectors.toUnmodifiableSet());
+                      .collect(Collectors.toCollection(LinkedHashSet::new));
   }
 
-  private static Set<IrSsaRegister> getStoreLocations(@NotNull BasicBlock X) {
+  /**
+   * @return the register of every store in {@code X}, once per store, so that popping them undoes each name
+   * {@link #genName} pushed while renaming {@code X}
+   */
+  private static List<IrSsaRegister> getStoreLocations(@NotNull BasicBlock X) {
     return X.getStoreInstructions()
             .stream()
             .map(StoreInstruction::getDestination)
             .filter(lValue -> lValue instanceof IrSsaRegister)
             .map(lValue -> (IrSsaRegister) lValue)
             .map(IrSsaRegister::copy)
-            .collect(Collectors.toSet());
+            .collect(Collectors.toList());
   }
 
   private static void initialize(
@@ -282,13 +295,13 @@ public class SSA {
       @NotNull BasicBlock X,
       @NotNull Collection<BasicBlock> basicBlocksModifyingV
   ) {
-    // we find the number of predecessors of V which can be reached by all the blocks modifying V
+    // we find the number of predecessors of X which can be reached from a block modifying V
     return (int) X.getPredecessors()
                   .stream()
                   .filter(predecessor -> basicBlocksModifyingV.stream()
                                                               .anyMatch(modifier -> Utils.isReachable(
-                                                                  predecessor,
-                                                                  modifier
+                                                                  modifier,
+                                                                  predecessor
                                                               )))
                   .count();
   }
@@ -303,7 +316,7 @@ public class SSA {
         basicBlocksModifyingV
     );
     if (copiesOfV > 1) {
-      var blockToVariable = new HashMap<BasicBlock, IrValue>();
+      var blockToVariable = new LinkedHashMap<BasicBlock, IrValue>();
       for (var P : X.getPredecessors()) {
         blockToVariable.put(
             P,
@@ -350,8 +363,8 @@ public class SSA {
         var X = workList.pop();
         for (var Y : dominatorTree.getDominanceFrontier(X)) {
           if (!hasAlready.contains(Y)) {
-            // we only insert a phi node for irAssignableValue V if is live on entry to X
-            if (liveVariableAnalysis.liveIn(X)
+            // we only insert a phi node for irAssignableValue V if is live on entry to Y
+            if (liveVariableAnalysis.liveIn(Y)
                                     .contains(V)) {
               addPhiNodeForVatY(
                   V,
@@ -433,7 +446,8 @@ public class SSA {
   private static void deconstructSsa(
       @NotNull BasicBlock entryBlock,
       @NotNull List<BasicBlock> basicBlocks,
-      @NotNull DominatorTree dominatorTree
+      @NotNull DominatorTree dominatorTree,
+      @NotNull IndexManager indexManager
   ) {
     var stacks = new HashMap<IrSsaRegister, Stack<IrSsaRegister>>();
     initializeForSsaDestruction(
@@ -444,7 +458,8 @@ public class SSA {
         entryBlock,
         dominatorTree,
         new LiveVariableAnalysis(entryBlock),
-        stacks
+        stacks,
+        indexManager
     );
     removePhiNodes(basicBlocks);
   }
@@ -463,7 +478,8 @@ public class SSA {
       @NotNull BasicBlock basicBlock,
       @NotNull DominatorTree dominatorTree,
       @NotNull LiveVariableAnalysis liveVariableAnalysis,
-      @NotNull Map<IrSsaRegister, Stack<IrSsaRegister>> stacks
+      @NotNull Map<IrSsaRegister, Stack<IrSsaRegister>> stacks,
+      @NotNull IndexManager indexManager
   ) {
     var pushed = new ArrayList<IrSsaRegister>();
 
@@ -487,14 +503,16 @@ public class SSA {
         basicBlock,
         liveVariableAnalysis.liveOut(basicBlock),
         stacks,
-        pushed
+        pushed,
+        indexManager
     );
     for (var child : dominatorTree.getChildren(basicBlock)) {
       insertCopies(
           child,
           dominatorTree,
           liveVariableAnalysis,
-          stacks
+          stacks,
+          indexManager
       );
     }
 
@@ -510,7 +528,8 @@ public class SSA {
       @NotNull BasicBlock basicBlock,
       @NotNull Set<IrValue> liveOut,
       @NotNull Map<IrSsaRegister, Stack<IrSsaRegister>> stacks,
-      @NotNull ArrayList<IrSsaRegister> pushed
+      @NotNull ArrayList<IrSsaRegister> pushed,
+      @NotNull IndexManager indexManager
   ) {
     /* Pass One: Initialize the data structures */
     Stack<Pair<IrValue, IrSsaRegister>> copySet = new Stack<>();
@@ -523,6 +542,8 @@ public class SSA {
       for (var phi : successor.getPhiFunctions()) {
         var src = phi.getVariableForB(basicBlock);
         var dst = phi.getDestination();
+        // a value flowing around a loop unchanged, as in x = phi(y, x), needs no copy on that edge
+        if (src.equals(dst)) continue;
         if (dst instanceof IrSsaRegister dstVirtual) {
           copySet.add(new Pair<>(
               src,
@@ -562,7 +583,10 @@ public class SSA {
         var src = srcDest.first();
         var dst = srcDest.second();
         if (liveOut.contains(dst) && !src.equals(dst)) {
-          var temp = (IrSsaRegister) IrSsaRegister.gen(dst.getType());
+          var temp = IrSsaRegister.gen(
+              dst.getType(),
+              indexManager
+          );
           var copyInstruction = CopyInstruction.noAstConstructor(
               temp,
               dst.copy()
@@ -606,10 +630,14 @@ public class SSA {
       if (!copySet.isEmpty()) {
         var srcDest = copySet.pop();
         var dst = srcDest.second();
-        var temp = IrSsaRegister.gen(dst.getType());
+        var temp = IrSsaRegister.gen(
+            dst.getType(),
+            indexManager
+        );
+        // save dst before the copies in the cycle overwrite it
         var copyInstruction = CopyInstruction.noAstConstructor(
-            dst.copy(),
-            temp
+            temp,
+            dst.copy()
         );
         basicBlock.addInstructionToTail(copyInstruction);
         map.put(
@@ -635,7 +663,8 @@ public class SSA {
 
   public static void coalesce(
       Method method,
-      ProgramIr programIr
+      ProgramIr programIr,
+      CompilationContext compilationContext
   ) {
     while (true) {
       var changesHappened = false;
@@ -643,7 +672,7 @@ public class SSA {
           method,
           programIr
       );
-      if (CompilationContext.isDebugModeOn()) liveIntervalsUtil.prettyPrintLiveIntervals(method);
+      if (compilationContext.isDebugModeOn()) liveIntervalsUtil.prettyPrintLiveIntervals(method);
       var interferenceGraph = new InterferenceGraph(
           liveIntervalsUtil,
           method
@@ -675,7 +704,7 @@ public class SSA {
       }
       if (!changesHappened) break;
     }
-    if (CompilationContext.isDebugModeOn()) new LiveIntervalsManager(
+    if (compilationContext.isDebugModeOn()) new LiveIntervalsManager(
         method,
         programIr
     ).prettyPrintLiveIntervals(method);
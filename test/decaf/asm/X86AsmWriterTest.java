@@ -0,0 +1,113 @@
+package decaf.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import decaf.common.CompilationContext;
+import decaf.common.CompiledProgram;
+import decaf.regalloc.RegisterAllocationStrategy;
+
+public class X86AsmWriterTest {
+    // the dividends come from an array, so no pass can fold the operations to constants; m doubles up to INT64_MIN
+    private static final String BY_CONSTANTS = """
+            import printf;
+            int d[8];
+            void show(int x) {
+                printf("%ld\\n", x * 2);
+                printf("%ld\\n", x * 8);
+                printf("%ld\\n", x * 3);
+                printf("%ld\\n", x * 5);
+                printf("%ld\\n", x * 9);
+                printf("%ld\\n", x / 2);
+                printf("%ld\\n", x % 2);
+                printf("%ld\\n", x / 8);
+                printf("%ld\\n", x % 8);
+            }
+            void main() {
+                int i, m;
+                m = 1;
+                for (i = 0; i < 63; i += 1) {
+                    m = m * 2;
+                }
+                d[0] = 7;
+                d[1] = -7;
+                d[2] = -1;
+                d[3] = -8;
+                d[4] = -9;
+                d[5] = m;
+                d[6] = m - 1;
+                d[7] = m + 7;
+                for (i = 0; i < 8; i += 1) {
+                    show(d[i]);
+                }
+            }
+            """;
+
+    // s is passed to printf in a register printf takes another argument in, main saves caller-saved registers around
+    // calls in loops, and the continue leaves s unchanged around the loop, so its phi reads itself
+    private static final String CALLS_IN_LOOPS = """
+            import printf;
+            int a[20];
+            int b[20];
+            int fact(int n) {
+                if (n <= 1) { return 1; }
+                return n * fact(n - 1);
+            }
+            int sq(int x) { return x * x; }
+            int absval(int x) { if (x < 0) { return -x; } else { return x; } }
+            void main() {
+                int i, j, s, t;
+                s = 0;
+                for (i = 0; i < 20; i++) {
+                    a[i] = i * 8 + 3;
+                    b[i] = sq(i) - 7 * i;
+                }
+                for (i = 0; i < 20; i++) {
+                    s += a[i] / 4 + b[i] % 5 + absval(b[i]);
+                }
+                t = 0;
+                for (i = 0; i < 10; i++) {
+                    for (j = 0; j < 10; j++) {
+                        t += i * j * 16 + (i + j) / 8;
+                    }
+                }
+                printf("%d %d %d\\n", s, t, fact(10));
+                i = 0;
+                while (i < 100) {
+                    i += 7;
+                    if (i % 3 == 0) { continue; }
+                    s = s - i;
+                }
+                printf("%d %d\\n", s, i);
+            }
+            """;
+
+    private static final long[] DIVIDENDS = {7, -7, -1, -8, -9, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE + 7};
+
+    @Before
+    public void setUp() {
+        assumeTrue("no C compiler to link with", CompiledProgram.canLink());
+    }
+
+    @Test
+    public void shiftsAndLeaComputeWhatImulAndIdivDo() throws IOException {
+        var expected = new ArrayList<String>();
+        for (long x : DIVIDENDS)
+            for (long value : List.of(x * 2, x * 8, x * 3, x * 5, x * 9, x / 2, x % 2, x / 8, x % 8))
+                expected.add(String.valueOf(value));
+        assertEquals(expected, CompiledProgram.run(BY_CONSTANTS));
+    }
+
+    @Test
+    public void theDefaultAllocatorComputesWhatTheProgramSays() throws IOException {
+        assertEquals(RegisterAllocationStrategy.LINEAR_SCAN, new CompilationContext().getRegisterAllocationStrategy());
+        assertEquals(List.of("1652 32470 3628800", "1127 105"), CompiledProgram.run(CALLS_IN_LOOPS));
+    }
+}
@@ -0,0 +1,52 @@
+package decaf.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompilationCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void countsHitsAndMisses() throws IOException {
+        var cache = new CompilationCache(temporaryFolder.getRoot()
+                                                        .toPath(), 1024);
+        assertFalse(cache.get("a")
+                         .isPresent());
+        cache.put("a", "main:\n\tret\n");
+        assertEquals("main:\n\tret\n", cache.get("a")
+                                            .orElseThrow());
+        assertEquals(new CompilationCache.Statistics(1, 1, 0), cache.getStatistics());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() throws IOException {
+        final Path directory = temporaryFolder.getRoot()
+                                              .toPath();
+        var cache = new CompilationCache(directory, 10);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        // b was stored last, but a was read since
+        Files.setLastModifiedTime(directory.resolve("b.s"), FileTime.fromMillis(0));
+        cache.get("a");
+        cache.put("c", "cccc");
+        assertTrue(cache.get("a")
+                        .isPresent());
+        assertFalse(cache.get("b")
+                         .isPresent());
+        assertTrue(cache.get("c")
+                        .isPresent());
+        assertEquals(1, cache.getStatistics()
+                             .evictions());
+    }
+}
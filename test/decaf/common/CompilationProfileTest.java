@@ -0,0 +1,148 @@
+package decaf.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import decaf.dataflow.DataflowOptimizer;
+
+public class CompilationProfileTest {
+    private static final String PROGRAM = """
+            import printf;
+            int g[8];
+            void main() {
+                int i, s;
+                s = 0;
+                for (i = 0; i < 8; i++) {
+                    g[i] = i * 3;
+                    s += g[i];
+                }
+                printf("%d\\n", s);
+            }
+            """;
+    private static final List<String> PHASES = List.of("SCANNED",
+                                                       "PARSED",
+                                                       "SEM_CHECKED",
+                                                       "CFG_GENERATED",
+                                                       "IR_GENERATED",
+                                                       "SSA_GENERATED",
+                                                       "DATAFLOW_OPTIMIZED",
+                                                       "ASSEMBLED");
+
+    private static CompilationProfile profile(boolean parallelOptimizationOn) throws FileNotFoundException {
+        var compilationContext = new CompilationContext();
+        compilationContext.setParallelOptimizationOn(parallelOptimizationOn);
+        var compilationProfile = new CompilationProfile();
+        compilationContext.setCompilationProfile(compilationProfile);
+        new Compilation(PROGRAM, compilationContext).compileToAssembly();
+        return compilationProfile;
+    }
+
+    private static void assertMeasured(CompilationProfile.Sample cost) {
+        assertTrue(cost.wallNanos() >= 0);
+        // -1 where the JVM does not measure it
+        assertTrue(cost.cpuNanos() >= -1);
+        assertTrue(cost.allocatedBytes() >= -1);
+    }
+
+    @Test
+    public void recordsEveryPhaseInOrder() throws FileNotFoundException {
+        var phaseRecords = profile(false).getPhaseRecords();
+
+        assertEquals(PHASES, phaseRecords.stream()
+                                         .map(CompilationProfile.PhaseRecord::phase)
+                                         .toList());
+        for (var phaseRecord : phaseRecords) {
+            assertMeasured(phaseRecord.cost());
+            final boolean irExists = PHASES.indexOf(phaseRecord.phase()) >= PHASES.indexOf("IR_GENERATED");
+            assertEquals(phaseRecord.phase(), irExists, phaseRecord.nInstructions() > 0);
+            assertEquals(phaseRecord.phase(), irExists, phaseRecord.nBasicBlocks() > 0);
+            if (!irExists)
+                assertEquals(-1, phaseRecord.nSsaValues());
+        }
+        var ssa = phaseRecords.get(PHASES.indexOf("SSA_GENERATED"));
+        assertTrue(ssa.nSsaValues() > 0);
+    }
+
+    @Test
+    public void recordsEveryPassOnEveryRound() throws FileNotFoundException {
+        for (var parallelOptimizationOn : List.of(false, true)) {
+            var passRecords = profile(parallelOptimizationOn).getPassRecords();
+
+            assertFalse(passRecords.isEmpty());
+            for (var passRecord : passRecords) {
+                assertEquals("main", passRecord.method());
+                assertMeasured(passRecord.cost());
+            }
+            // every pass ran in the first round, and at least one of them changed main
+            assertTrue(passRecords.stream()
+                                  .filter(passRecord -> passRecord.round() == 0)
+                                  .map(CompilationProfile.PassRecord::pass)
+                                  .distinct()
+                                  .count() >= DataflowOptimizer.PASSES.stream()
+                                                                      .distinct()
+                                                                      .count());
+            assertTrue(passRecords.stream()
+                                  .anyMatch(CompilationProfile.PassRecord::changed));
+        }
+    }
+
+    @Test
+    public void theJsonHasOneObjectPerRecord() throws FileNotFoundException {
+        var compilationProfile = profile(false);
+        final String json = compilationProfile.toJson();
+
+        assertTrue(json.startsWith("{\n  \"phases\": [\n"));
+        assertTrue(json.contains("\n  ],\n  \"passes\": [\n"));
+        assertTrue(json.endsWith("\n  ]\n}\n"));
+        var phase = Pattern.compile("\\{\"phase\": \"(\\w+)\", \"wallNanos\": \\d+, \"cpuNanos\": -?\\d+, " +
+                                            "\"allocatedBytes\": -?\\d+, \"instructions\": -?\\d+, " +
+                                            "\"basicBlocks\": -?\\d+, \"ssaValues\": -?\\d+}")
+                           .matcher(json);
+        assertEquals(PHASES, phase.results()
+                                  .map(result -> result.group(1))
+                                  .toList());
+        var pass = Pattern.compile("\\{\"pass\": \"\\w+\", \"method\": \"main\", \"round\": \\d+, \"wallNanos\": \\d+, " +
+                                           "\"cpuNanos\": -?\\d+, \"allocatedBytes\": -?\\d+, \"changed\": (true|false)}")
+                          .matcher(json);
+        assertEquals(compilationProfile.getPassRecords()
+                                       .size(), pass.results()
+                                                    .count());
+    }
+
+    @Test
+    public void theCsvHasOneRowPerRecord() throws FileNotFoundException {
+        var compilationProfile = profile(false);
+        var rows = compilationProfile.toCsv()
+                                     .lines()
+                                     .toList();
+
+        assertEquals("kind,name,method,round,wall_nanos,cpu_nanos,allocated_bytes,instructions,basic_blocks,ssa_values,changed",
+                     rows.get(0));
+        assertEquals(1 + PHASES.size() + compilationProfile.getPassRecords()
+                                                           .size(), rows.size());
+        for (int i = 1; i < rows.size(); i++) {
+            var columns = rows.get(i)
+                              .split(",", -1);
+            assertEquals(rows.get(i), 11, columns.length);
+            if (i <= PHASES.size()) {
+                assertEquals("phase", columns[0]);
+                assertEquals(PHASES.get(i - 1), columns[1]);
+                assertEquals("", columns[10]);
+            } else {
+                assertEquals("pass", columns[0]);
+                assertEquals("main", columns[2]);
+                assertEquals("", columns[7]);
+                assertTrue(columns[10].equals("true") || columns[10].equals("false"));
+            }
+            for (int column = 4; column < 7; column++)
+                Long.parseLong(columns[column]);
+        }
+    }
+}
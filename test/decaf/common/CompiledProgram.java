@@ -0,0 +1,63 @@
+package decaf.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A decaf program compiled with every optimization, linked by the system C compiler and run, for tests of the values
+ * the emitted code computes rather than of its shape
+ */
+public class CompiledProgram {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * @return whether {@link NativeExecutable} can find a C compiler to link with; tests which run programs are
+     * skipped without one
+     */
+    public static boolean canLink() {
+        final String cc = System.getenv("CC");
+        if (cc != null && !cc.isBlank())
+            return true;
+        final String path = System.getenv("PATH");
+        if (path == null)
+            return false;
+        return Arrays.stream(path.split(File.pathSeparator))
+                     .anyMatch(directory -> Files.isExecutable(Path.of(directory, "gcc")) ||
+                             Files.isExecutable(Path.of(directory, "clang")));
+    }
+
+    /**
+     * @return the lines {@code sourceCode} prints
+     * @throws IOException if the program does not link, times out or exits with an error
+     */
+    public static List<String> run(String sourceCode) throws IOException {
+        return run(sourceCode, new CompilationContext());
+    }
+
+    /**
+     * @return the lines {@code sourceCode} prints when compiled with {@code compilationContext}
+     * @throws IOException if the program does not link, times out or exits with an error
+     */
+    public static List<String> run(String sourceCode, CompilationContext compilationContext) throws IOException {
+        final String assembly = new Compilation(sourceCode, compilationContext).compileToAssembly();
+        final Path directory = Files.createTempDirectory("decaf-test");
+        var executable = NativeExecutable.link(assembly, directory, "program");
+        try {
+            var execution = executable.run(TIMEOUT);
+            if (execution.timedOut() || execution.exitCode() != 0)
+                throw new IOException("the program " + (execution.timedOut() ? "timed out": "exited with " +
+                        execution.exitCode()) + " after printing:\n" + execution.stdout());
+            return execution.stdout()
+                            .lines()
+                            .toList();
+        } finally {
+            executable.delete();
+            Files.deleteIfExists(directory);
+        }
+    }
+}
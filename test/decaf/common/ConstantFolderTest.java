@@ -0,0 +1,44 @@
+package decaf.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConstantFolderTest {
+    @Test
+    public void arithmeticWrapsAround() {
+        assertEquals(Long.MIN_VALUE, ConstantFolder.fold(Operators.PLUS, Long.MAX_VALUE, 1L));
+        assertEquals(Long.MAX_VALUE, ConstantFolder.fold(Operators.MINUS, Long.MIN_VALUE, 1L));
+        assertEquals(-2L, ConstantFolder.fold(Operators.MULTIPLY, Long.MAX_VALUE, 2L));
+        assertEquals(Long.MIN_VALUE, ConstantFolder.fold(Operators.MINUS, Long.MIN_VALUE));
+    }
+
+    @Test
+    public void divisionTruncatesTowardsZero() {
+        assertEquals(-3L, ConstantFolder.fold(Operators.DIVIDE, -7L, 2L));
+        assertEquals(-1L, ConstantFolder.fold(Operators.MOD, -7L, 2L));
+        assertEquals(1L, ConstantFolder.fold(Operators.MOD, 7L, -2L));
+        assertEquals(6L, ConstantFolder.fold(Operators.MULTIPLY, ConstantFolder.fold(Operators.DIVIDE, 7L, 2L), 2L));
+    }
+
+    @Test
+    public void trappingDivisionIsNotFolded() {
+        assertFalse(ConstantFolder.canFold(Operators.DIVIDE, 1L, 0L));
+        assertFalse(ConstantFolder.canFold(Operators.MOD, 1L, 0L));
+        assertFalse(ConstantFolder.canFold(Operators.DIVIDE, Long.MIN_VALUE, -1L));
+        assertTrue(ConstantFolder.canFold(Operators.DIVIDE, Long.MIN_VALUE, 1L));
+    }
+
+    @Test
+    public void comparisonsAndConditionalsEvaluateToZeroOrOne() {
+        assertEquals(1L, ConstantFolder.fold(Operators.LT, -1L, 0L));
+        assertEquals(0L, ConstantFolder.fold(Operators.GEQ, -1L, 0L));
+        assertEquals(1L, ConstantFolder.fold(Operators.NEQ, 3L, 4L));
+        assertEquals(0L, ConstantFolder.fold(Operators.CONDITIONAL_AND, 1L, 0L));
+        assertEquals(1L, ConstantFolder.fold(Operators.CONDITIONAL_OR, 1L, 0L));
+        assertEquals(0L, ConstantFolder.fold(Operators.NOT, 1L));
+        assertEquals(1L, ConstantFolder.fold(Operators.NOT, 0L));
+    }
+}
@@ -0,0 +1,158 @@
+package decaf.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import decaf.dataflow.DataflowOptimizer;
+import decaf.regalloc.RegisterAllocationStrategy;
+
+public class IncrementalCompilationTest {
+    // main calls twice, which calls square; cube calls nothing and is called by main
+    private static final String PROGRAM = """
+            import printf;
+            int g[4];
+            int square(int x) {
+                int i, s;
+                s = 0;
+                for (i = 0; i < x; i++) {
+                    s += x;
+                }
+                return s;
+            }
+            int twice(int x) {
+                int i, s;
+                s = 0;
+                for (i = 0; i < 2; i++) {
+                    s += square(x + i);
+                }
+                return s;
+            }
+            int cube(int x) {
+                int i, s;
+                s = 0;
+                for (i = 0; i < x; i++) {
+                    s += x * x;
+                }
+                return s;
+            }
+            void main() {
+                int i;
+                for (i = 0; i < 4; i++) {
+                    g[i] = twice(i) + cube(i);
+                }
+                printf("%d %d %d\\n", g[1], g[2], g[3]);
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private Path cacheDirectory;
+
+    private static String edit(String program, String from, String to) {
+        assertTrue(program.contains(from));
+        return program.replace(from, to);
+    }
+
+    @Before
+    public void setUp() {
+        cacheDirectory = temporaryFolder.getRoot()
+                                        .toPath();
+    }
+
+    private CompilationContext incrementalContext() {
+        var compilationContext = new CompilationContext();
+        compilationContext.setIncrementalCacheDirectory(cacheDirectory);
+        return compilationContext;
+    }
+
+    private Set<String> compile(String program, CompilationContext compilationContext) throws IOException {
+        var compilation = new Compilation(program, compilationContext);
+        compilation.compileToAssembly();
+        return compilation.getReusedMethods();
+    }
+
+    private Set<String> compile(String program) throws IOException {
+        return compile(program, incrementalContext());
+    }
+
+    /**
+     * Caches every method of {@code program}: the first compilation only emits main, into which the other methods are
+     * inlined, and the second compiles the others, since main is reused
+     */
+    private void warm(String program) throws IOException {
+        compile(program);
+        compile(program);
+    }
+
+    @Test
+    public void anUnchangedProgramReusesEveryCompiledMethod() throws IOException {
+        assertEquals(Set.of(), compile(PROGRAM));
+        assertEquals(Set.of("main"), compile(PROGRAM));
+        assertEquals(Set.of("main", "twice", "square", "cube"), compile(PROGRAM));
+    }
+
+    @Test
+    public void editingACalleeRebuildsOnlyItsCallers() throws IOException {
+        warm(PROGRAM);
+
+        // square changed: twice and main reach it, cube does not
+        assertEquals(Set.of("cube"), compile(edit(PROGRAM, "s += x;", "s += x + 0;")));
+        // as in the first compilation, the rebuilt main inlined twice and square, which are only cached next time
+        assertEquals(Set.of("main", "cube"), compile(edit(PROGRAM, "s += x;", "s += x + 0;")));
+    }
+
+    @Test
+    public void editingAGlobalRebuildsEveryMethod() throws IOException {
+        warm(PROGRAM);
+
+        assertEquals(Set.of(), compile(edit(PROGRAM, "int g[4];", "int g[5];")));
+    }
+
+    @Test
+    public void turningOptimizationOffMissesTheCache() throws IOException {
+        warm(PROGRAM);
+        var compilationContext = incrementalContext();
+        compilationContext.setOptimizationOn(false);
+
+        assertEquals(Set.of(), compile(PROGRAM, compilationContext));
+    }
+
+    @Test
+    public void theKeyDependsOnThePassesAndTheAllocator() {
+        final String configuration = Compilation.cacheConfiguration(DataflowOptimizer.PASSES,
+                                                                    RegisterAllocationStrategy.LINEAR_SCAN);
+
+        assertEquals(configuration, Compilation.cacheConfiguration(List.copyOf(DataflowOptimizer.PASSES),
+                                                                   RegisterAllocationStrategy.LINEAR_SCAN));
+        assertNotEquals(configuration, Compilation.cacheConfiguration(List.of(),
+                                                                      RegisterAllocationStrategy.LINEAR_SCAN));
+        assertNotEquals(configuration,
+                        Compilation.cacheConfiguration(DataflowOptimizer.PASSES.subList(1, DataflowOptimizer.PASSES.size()),
+                                                       RegisterAllocationStrategy.LINEAR_SCAN));
+        assertNotEquals(configuration, Compilation.cacheConfiguration(DataflowOptimizer.PASSES,
+                                                                      RegisterAllocationStrategy.GRAPH_COLORING));
+    }
+
+    @Test
+    public void aProgramOfReusedMethodsComputesWhatItSays() throws IOException {
+        assumeTrue(CompiledProgram.canLink());
+        final List<String> expected = CompiledProgram.run(PROGRAM);
+        warm(PROGRAM);
+
+        assertEquals(expected, CompiledProgram.run(PROGRAM, incrementalContext()));
+        assertEquals(CompiledProgram.run(edit(PROGRAM, "s += x;", "s += x + 1;")),
+                     CompiledProgram.run(edit(PROGRAM, "s += x;", "s += x + 1;"), incrementalContext()));
+    }
+}
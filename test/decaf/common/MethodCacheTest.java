@@ -0,0 +1,57 @@
+package decaf.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MethodCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void anEntryKeepsItsCallees() {
+        var cache = new MethodCache(temporaryFolder.getRoot()
+                                                   .toPath());
+        assertFalse(cache.get("a")
+                         .isPresent());
+
+        cache.put("a", new MethodCache.Entry("f:\n\tcall g\n\tcall h\n", Set.of("h", "g")));
+        cache.put("b", new MethodCache.Entry("g:\n\tret\n", Set.of()));
+
+        assertEquals(new MethodCache.Entry("f:\n\tcall g\n\tcall h\n", Set.of("g", "h")), cache.get("a")
+                                                                                            .orElseThrow());
+        assertEquals(new MethodCache.Entry("g:\n\tret\n", Set.of()), cache.get("b")
+                                                                         .orElseThrow());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() throws IOException {
+        final Path directory = temporaryFolder.getRoot()
+                                              .toPath();
+        // each entry is 14 bytes with its header
+        var cache = new MethodCache(directory, 30);
+        cache.put("a", new MethodCache.Entry("aaaa", Set.of()));
+        cache.put("b", new MethodCache.Entry("bbbb", Set.of()));
+        // b was stored last, but a was read since
+        Files.setLastModifiedTime(directory.resolve("b.s"), FileTime.fromMillis(0));
+        cache.get("a");
+        cache.put("c", new MethodCache.Entry("cccc", Set.of()));
+
+        assertTrue(cache.get("a")
+                        .isPresent());
+        assertFalse(cache.get("b")
+                         .isPresent());
+        assertTrue(cache.get("c")
+                        .isPresent());
+    }
+}
@@ -0,0 +1,88 @@
+package decaf.common;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.List;
+
+import decaf.cfg.ControlFlowGraph;
+import decaf.codegen.BasicBlockToInstructionListConverter;
+import decaf.codegen.codes.Method;
+import decaf.dataflow.DataflowOptimizer;
+import decaf.dataflow.OptimizationContext;
+import decaf.dataflow.OptimizationPassType;
+import decaf.dataflow.passes.InstructionSimplifyIrPass;
+import decaf.grammar.DecafParser;
+import decaf.grammar.DecafScanner;
+import decaf.ir.SemanticCheckingManager;
+import decaf.ssa.SSA;
+
+/**
+ * A decaf program compiled to SSA form, for tests which run passes over the IR of a method
+ */
+public class TestProgram {
+    private final CompilationContext compilationContext = new CompilationContext();
+    private final ProgramIr programIr;
+    private final OptimizationContext optimizationContext;
+
+    public TestProgram(String sourceCode) {
+        var decafExceptionProcessor = new DecafExceptionProcessor(sourceCode);
+        var parser = new DecafParser(new DecafScanner(sourceCode, decafExceptionProcessor));
+        parser.program();
+        checkState(!parser.hasError(), "the source does not parse: %s", parser.errors);
+        var semanticChecker = new SemanticCheckingManager(parser.getRoot());
+        semanticChecker.runChecks(decafExceptionProcessor);
+        checkState(!semanticChecker.hasError(), "the source has semantic errors");
+        InstructionSimplifyIrPass.run(parser.getRoot());
+        var cfg = new ControlFlowGraph(parser.getRoot(), semanticChecker.getGlobalDescriptor());
+        cfg.build();
+        var basicBlockToInstructionListConverter = new BasicBlockToInstructionListConverter(cfg,
+                compilationContext.getIndexManager());
+        programIr = basicBlockToInstructionListConverter.getProgramIr();
+        programIr.getMethods()
+                 .forEach(method -> SSA.construct(method, compilationContext));
+        programIr.setGlobals(basicBlockToInstructionListConverter.getGlobalNames());
+        optimizationContext = new OptimizationContext(programIr);
+    }
+
+    public CompilationContext getCompilationContext() {
+        return compilationContext;
+    }
+
+    public ProgramIr getProgramIr() {
+        return programIr;
+    }
+
+    /**
+     * The context single passes are constructed with; it tracks the methods which are still being optimized
+     */
+    public OptimizationContext getOptimizationContext() {
+        return optimizationContext;
+    }
+
+    public Method getMethod(String methodName) {
+        return programIr.getMethods()
+                        .stream()
+                        .filter(method -> method.methodName()
+                                                .equals(methodName))
+                        .findFirst()
+                        .orElseThrow();
+    }
+
+    /**
+     * Runs {@code passes} over every method until none of them changes anything
+     */
+    public TestProgram optimize(List<OptimizationPassType> passes) {
+        var dataflowOptimizer = new DataflowOptimizer(programIr, compilationContext);
+        passes.forEach(dataflowOptimizer::addPass);
+        dataflowOptimizer.optimize();
+        programIr.setMethods(dataflowOptimizer.getOptimizedMethods());
+        return this;
+    }
+
+    public TestProgram deconstructSsa() {
+        programIr.getMethods()
+                 .forEach(method -> SSA.deconstruct(method, programIr, compilationContext));
+        programIr.renumberLabels(compilationContext.getIndexManager());
+        return this;
+    }
+}
@@ -38,21 +38,24 @@ public class DataFlowAnalysisTest {
 
     @Test
     public void test_simpleForLoopReversePostOrderCorrect() {
-        assertEquals(basicBlockList.size(), 4);
-        assertEquals( 3,       basicBlockList.get(0).getAstNodes().size());
-        assertEquals( "int i", basicBlockList.get(0).getAstNodes().get(0).getSourceCode());
-        assertEquals( "int a", basicBlockList.get(0).getAstNodes().get(1).getSourceCode());
-        assertEquals( "i = 0", basicBlockList.get(0).getAstNodes().get(2).getSourceCode());
+        assertEquals(5, basicBlockList.size());
+        assertTrue(basicBlockList.get(0) instanceof NOP);
+        assertEquals("main", ((NOP) basicBlockList.get(0)).getNopLabel().orElseThrow());
 
-        assertEquals( 2,        basicBlockList.get(1).getAstNodes().size());
-        assertEquals( "a += i", basicBlockList.get(1).getAstNodes().get(0).getSourceCode());
-        assertEquals( "i ++",   basicBlockList.get(1).getAstNodes().get(1).getSourceCode());
+        assertEquals(3,       basicBlockList.get(1).getAstNodes().size());
+        assertEquals("int i", basicBlockList.get(1).getAstNodes().get(0).getSourceCode());
+        assertEquals("int a", basicBlockList.get(1).getAstNodes().get(1).getSourceCode());
+        assertEquals("i = 0", basicBlockList.get(1).getAstNodes().get(2).getSourceCode());
 
-        assertEquals( 1,        basicBlockList.get(2).getAstNodes().size());
-        assertEquals( "i < 10", basicBlockList.get(2).getAstNodes().get(0).getSourceCode());
+        assertEquals(1,        basicBlockList.get(2).getAstNodes().size());
+        assertEquals("i < 10", basicBlockList.get(2).getAstNodes().get(0).getSourceCode());
 
+        assertEquals(2,        basicBlockList.get(3).getAstNodes().size());
+        assertEquals("a += i", basicBlockList.get(3).getAstNodes().get(0).getSourceCode());
+        assertEquals("i ++",   basicBlockList.get(3).getAstNodes().get(1).getSourceCode());
 
-        assertTrue(basicBlockList.get(3) instanceof NOP);
-        assertEquals("exit_main", ((NOP) basicBlockList.get(3)).getNopLabel().orElseThrow());
+        assertTrue(basicBlockList.get(4) instanceof NOP);
+        assertTrue(((NOP) basicBlockList.get(4)).isExitNop());
+        assertEquals("main", ((NOP) basicBlockList.get(4)).getNopLabel().orElseThrow());
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package decaf.dataflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.FileNotFoundException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import decaf.asm.X86AsmWriterTest;
+import decaf.common.Compilation;
+import decaf.common.CompilationContext;
+import decaf.dataflow.analyses.LiveVariableAnalysisTest;
+import decaf.dataflow.passes.FunctionInlinePassTest;
+import decaf.dataflow.passes.PeepHoleOptimizationPassTest;
+import decaf.dataflow.ssapasses.GlobalValueNumberingPassTest;
+import decaf.dataflow.ssapasses.InstructionStrengthReductionPassTest;
+import decaf.dataflow.ssapasses.LoopInvariantCodeMotionPassTest;
+import decaf.dataflow.ssapasses.SccpSsaPassTest;
+import decaf.regalloc.IteratedRegisterCoalescingTest;
+import decaf.ssa.SSATest;
+
+public class DataflowOptimizerTest {
+    // the programs the pass tests are written against
+    private static final List<Class<?>> TESTS_WITH_PROGRAMS = List.of(
+            FunctionInlinePassTest.class,
+            PeepHoleOptimizationPassTest.class,
+            GlobalValueNumberingPassTest.class,
+            InstructionStrengthReductionPassTest.class,
+            LoopInvariantCodeMotionPassTest.class,
+            SccpSsaPassTest.class,
+            LiveVariableAnalysisTest.class,
+            IteratedRegisterCoalescingTest.class,
+            X86AsmWriterTest.class,
+            SSATest.class
+    );
+
+    private static List<String> programsOf(Class<?> testClass) throws IllegalAccessException {
+        var programs = new ArrayList<String>();
+        for (Field field : testClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                field.setAccessible(true);
+                programs.add((String) field.get(null));
+            }
+        }
+        return programs;
+    }
+
+    private static String compile(String source, boolean parallelOptimizationOn) throws FileNotFoundException {
+        var compilationContext = new CompilationContext();
+        compilationContext.setParallelOptimizationOn(parallelOptimizationOn);
+        return new Compilation(source, compilationContext).compileToAssembly();
+    }
+
+    @Test
+    public void parallelOptimizationGivesTheSameAssembly() throws IllegalAccessException, FileNotFoundException {
+        int nPrograms = 0;
+        for (var testClass : TESTS_WITH_PROGRAMS) {
+            for (var program : programsOf(testClass)) {
+                assertEquals(testClass.getSimpleName() + ":\n" + program, compile(program, false), compile(program, true));
+                nPrograms++;
+            }
+        }
+        assertFalse(nPrograms == 0);
+    }
+}
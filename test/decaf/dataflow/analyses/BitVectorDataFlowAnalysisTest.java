@@ -0,0 +1,203 @@
+package decaf.dataflow.analyses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.Method;
+import decaf.common.TestProgram;
+import decaf.dataflow.Direction;
+import decaf.dataflow.MeetOperator;
+
+public class BitVectorDataFlowAnalysisTest {
+    private static final String PROGRAM = """
+            import printf;
+            int g[8];
+            int f(int n, int k) {
+              int i, j, s, t;
+              s = 0;
+              t = k;
+              for (i = 0; i < n; i++) {
+                if (i % 3 == 0) {
+                  s = s + t;
+                } else {
+                  t = s - i;
+                  j = 0;
+                  while (j < t) {
+                    s = s + t * k;
+                    j += 1;
+                  }
+                }
+                g[i % 8] = s + t;
+              }
+              return s * t;
+            }
+            void main() {
+              int a, b, c;
+              a = f(10, 2);
+              b = a;
+              c = b + f(a, 3);
+              printf("%d %d %d\\n", a, b, c);
+            }
+            """;
+
+    @Test
+    public void denseIndexNumbersEachElementOnce() {
+        var domain = new DenseIndex<String>();
+        assertEquals(0, domain.add("a"));
+        assertEquals(1, domain.add("b"));
+        assertEquals(0, domain.add("a"));
+        assertEquals(2, domain.size());
+        assertEquals("b", domain.get(1));
+        assertEquals(-1, domain.indexOf("c"));
+
+        var bits = domain.toBitSet(List.of("b", "c"));
+        assertEquals(3, domain.size());
+        assertEquals(2, domain.indexOf("c"));
+        assertFalse(bits.get(0));
+        assertTrue(bits.get(1));
+        assertTrue(bits.get(2));
+    }
+
+    @Test
+    public void bitVectorSetIsAViewOfItsBits() {
+        var domain = new DenseIndex<String>();
+        List.of("a", "b", "c", "d").forEach(domain::add);
+        var bits = new BitSet();
+        bits.set(domain.indexOf("d"));
+        bits.set(domain.indexOf("b"));
+        var set = new BitVectorSet<>(bits, domain);
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains("b"));
+        assertFalse(set.contains("a"));
+        assertFalse(set.contains("not in the domain"));
+        assertEquals(List.of("b", "d"), new ArrayList<>(set));
+        assertEquals(Set.of("b", "d"), set);
+
+        bits.clear(domain.indexOf("b"));
+        bits.set(domain.indexOf("a"));
+        assertEquals(List.of("a", "d"), new ArrayList<>(set));
+
+        bits.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void liveVariablesMatchTheSetBasedFixpoint() {
+        forEachMethod(method -> assertMatchesSetBasedFixpoint(new LiveVariableAnalysis(method.getEntryBlock())));
+    }
+
+    @Test
+    public void reachingDefinitionsMatchTheSetBasedFixpoint() {
+        forEachMethod(method -> assertMatchesSetBasedFixpoint(new ReachingDefinitions(method.getEntryBlock())));
+    }
+
+    @Test
+    public void availableExpressionsMatchTheSetBasedFixpoint() {
+        forEachMethod(method -> assertMatchesSetBasedFixpoint(new AvailableExpressions(method.getEntryBlock())));
+    }
+
+    @Test
+    public void availableCopiesMatchTheSetBasedFixpoint() {
+        forEachMethod(method -> assertMatchesSetBasedFixpoint(new AvailableCopies(method.getEntryBlock())));
+    }
+
+    @Test
+    public void liveVariablesFlowAroundTheLoop() {
+        var method = new TestProgram(PROGRAM).deconstructSsa()
+                                             .getMethod("f");
+        var liveVariableAnalysis = new LiveVariableAnalysis(method.getEntryBlock());
+        // whatever is live into the loop header is live out of every block that branches back to it
+        for (BasicBlock basicBlock : liveVariableAnalysis.basicBlocks) {
+            for (BasicBlock successor : basicBlock.getSuccessors()) {
+                if (liveVariableAnalysis.basicBlocks.contains(successor))
+                    assertTrue(liveVariableAnalysis.liveOut(basicBlock)
+                                                   .containsAll(liveVariableAnalysis.liveIn(successor)));
+            }
+        }
+        assertTrue(liveVariableAnalysis.liveOut(liveVariableAnalysis.exitBlock)
+                                       .isEmpty());
+    }
+
+    private static void forEachMethod(java.util.function.Consumer<Method> check) {
+        var testProgram = new TestProgram(PROGRAM).deconstructSsa();
+        for (Method method : testProgram.getProgramIr()
+                                        .getMethods())
+            check.accept(method);
+    }
+
+    /**
+     * Solves the analysis' equations again with plain {@link Set}s, sweeping over every block until nothing changes,
+     * and checks that the bit vector work list reached the same IN and OUT sets
+     */
+    private static <T> void assertMatchesSetBasedFixpoint(DataFlowAnalysis<T> analysis) {
+        final boolean forwards = analysis.direction() == Direction.FORWARDS;
+        final var basicBlocks = analysis.basicBlocks;
+        final Function<BasicBlock, List<BasicBlock>> meetFrom = basicBlock ->
+                (forwards ? basicBlock.getPredecessors(): basicBlock.getSuccessors())
+                        .stream()
+                        .filter(basicBlocks::contains)
+                        .toList();
+
+        Map<BasicBlock, Set<T>> in = new HashMap<>();
+        Map<BasicBlock, Set<T>> out = new HashMap<>();
+        for (BasicBlock basicBlock : basicBlocks) {
+            in.put(basicBlock, analysis.inIsInitiallyUniversal() ? new HashSet<>(analysis.allTS): new HashSet<>());
+            out.put(basicBlock, analysis.outIsInitiallyUniversal() ? new HashSet<>(analysis.allTS): new HashSet<>());
+        }
+        in.put(analysis.entryBlock, new HashSet<>());
+        if (forwards)
+            out.put(analysis.entryBlock, new HashSet<>(analysis.gen(analysis.entryBlock)));
+        else
+            in.put(analysis.exitBlock, new HashSet<>(analysis.gen(analysis.exitBlock)));
+
+        final var meetValues = forwards ? in: out;
+        final var transferValues = forwards ? out: in;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock basicBlock : basicBlocks) {
+                if (forwards && basicBlock == analysis.entryBlock)
+                    continue;
+                var neighbours = meetFrom.apply(basicBlock);
+                var meet = new HashSet<T>();
+                if (!neighbours.isEmpty()) {
+                    meet.addAll(transferValues.get(neighbours.get(0)));
+                    for (BasicBlock neighbour : neighbours) {
+                        if (analysis.meetOperator() == MeetOperator.UNION)
+                            meet.addAll(transferValues.get(neighbour));
+                        else
+                            meet.retainAll(transferValues.get(neighbour));
+                    }
+                    if (analysis.meetOperator() == MeetOperator.INTERSECTION && analysis.meetIncludesCurrentValue())
+                        meet.retainAll(meetValues.get(basicBlock));
+                }
+                meetValues.put(basicBlock, new HashSet<>(meet));
+                meet.removeAll(analysis.kill(basicBlock));
+                meet.addAll(analysis.gen(basicBlock));
+                if (!meet.equals(transferValues.get(basicBlock))) {
+                    transferValues.put(basicBlock, meet);
+                    changed = true;
+                }
+            }
+        }
+
+        for (BasicBlock basicBlock : basicBlocks) {
+            assertEquals(in.get(basicBlock), new HashSet<>(analysis.in(basicBlock)));
+            assertEquals(out.get(basicBlock), new HashSet<>(analysis.out(basicBlock)));
+        }
+    }
+}
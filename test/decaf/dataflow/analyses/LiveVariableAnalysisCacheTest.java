@@ -0,0 +1,125 @@
+package decaf.dataflow.analyses;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.FunctionCall;
+import decaf.codegen.codes.HasOperand;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+import decaf.regalloc.InterferenceGraph;
+import decaf.regalloc.LiveIntervalsManager;
+
+public class LiveVariableAnalysisCacheTest {
+    // b is only read by the call in the body of the if
+    private static final String PROGRAM = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b;
+                a = g[0];
+                b = g[1];
+                if (a > 0) {
+                    printf("%d\\n", b);
+                }
+            }
+            """;
+
+    private static BasicBlock blockWithCall(Method method) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .filter(basicBlock -> basicBlock.getInstructionList()
+                                                                                .stream()
+                                                                                .anyMatch(instruction -> instruction instanceof FunctionCall))
+                                                .findFirst()
+                                                .orElseThrow();
+    }
+
+    private static HasOperand callIn(BasicBlock basicBlock) {
+        return (HasOperand) basicBlock.getInstructionList()
+                                      .stream()
+                                      .filter(instruction -> instruction instanceof FunctionCall)
+                                      .findFirst()
+                                      .orElseThrow();
+    }
+
+    @Test
+    public void theAllocatorSharesOneSolutionPerMethod() {
+        var testProgram = new TestProgram(PROGRAM).deconstructSsa();
+        var method = testProgram.getMethod("main");
+        var cache = testProgram.getProgramIr()
+                               .getLiveVariableAnalysisCache();
+        var liveVariableAnalysis = cache.get(method);
+
+        var liveIntervalsManager = new LiveIntervalsManager(testProgram.getProgramIr());
+        new InterferenceGraph(liveIntervalsManager, method);
+        new LiveIntervalsManager(method, testProgram.getProgramIr());
+
+        assertSame(liveVariableAnalysis, cache.get(method));
+        assertSame(liveVariableAnalysis, liveIntervalsManager.getLiveVariableAnalysis(method));
+    }
+
+    @Test
+    public void replacingAnOperandInPlaceInvalidates() {
+        var testProgram = new TestProgram(PROGRAM);
+        var method = testProgram.getMethod("main");
+        var cache = testProgram.getProgramIr()
+                               .getLiveVariableAnalysisCache();
+        var body = blockWithCall(method);
+        var call = callIn(body);
+        var b = call.genOperandIrValuesFiltered(IrSsaRegister.class)
+                    .get(0);
+        var stale = cache.get(method);
+        assertTrue(stale.liveIn(body)
+                        .contains(b));
+
+        var renamed = b.copy();
+        renamed.renameForSsa(99);
+        call.replaceValue(b, renamed);
+
+        var liveVariableAnalysis = cache.get(method);
+        assertNotSame(stale, liveVariableAnalysis);
+        assertFalse(liveVariableAnalysis.liveIn(body)
+                                        .contains(b));
+        assertTrue(liveVariableAnalysis.liveIn(body)
+                                       .contains(renamed));
+    }
+
+    @Test
+    public void renamingAnOperandInPlaceInvalidates() {
+        var testProgram = new TestProgram(PROGRAM);
+        var method = testProgram.getMethod("main");
+        var cache = testProgram.getProgramIr()
+                               .getLiveVariableAnalysisCache();
+        var b = callIn(blockWithCall(method)).genOperandIrValuesFiltered(IrSsaRegister.class)
+                                             .get(0);
+        var stale = cache.get(method);
+
+        b.renameForSsa(99);
+
+        assertNotSame(stale, cache.get(method));
+    }
+
+    @Test
+    public void addingAnInstructionInvalidates() {
+        var testProgram = new TestProgram(PROGRAM);
+        var method = testProgram.getMethod("main");
+        var cache = testProgram.getProgramIr()
+                               .getLiveVariableAnalysisCache();
+        var body = blockWithCall(method);
+        var stale = cache.get(method);
+
+        body.getInstructionList()
+            .add(body.getInstructionList()
+                     .get(0));
+
+        assertNotSame(stale, cache.get(method));
+    }
+}
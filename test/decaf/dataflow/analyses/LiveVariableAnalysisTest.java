@@ -0,0 +1,90 @@
+package decaf.dataflow.analyses;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.Method;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+
+public class LiveVariableAnalysisTest {
+    // the body computes s * 3 into a temporary and reads it straight away
+    private static final String LOOP = """
+            import printf;
+            int g[4];
+            void main() {
+                int i, s;
+                s = g[0];
+                for (i = 0; i < 3; i++) {
+                    s = s * 3 + 1;
+                }
+                printf("%d\\n", s);
+            }
+            """;
+
+    private static BasicBlock blockWithMultiply(Method method) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .filter(basicBlock -> multiply(basicBlock) != null)
+                                                .findFirst()
+                                                .orElseThrow();
+    }
+
+    private static BinaryInstruction multiply(BasicBlock basicBlock) {
+        return (BinaryInstruction) basicBlock.getInstructionList()
+                                             .stream()
+                                             .filter(instruction -> instruction instanceof BinaryInstruction binaryInstruction &&
+                                                     binaryInstruction.operator.equals(Operators.MULTIPLY))
+                                             .findFirst()
+                                             .orElse(null);
+    }
+
+    @Test
+    public void aValueReadOnlyAfterItsBlockDefinesItIsNotLiveIn() {
+        var method = new TestProgram(LOOP).getMethod("main");
+        var body = blockWithMultiply(method);
+        var product = multiply(body).getDestination();
+        var liveVariableAnalysis = new LiveVariableAnalysis(method.getEntryBlock());
+
+        assertFalse(liveVariableAnalysis.liveIn(body)
+                                        .contains(product));
+        assertFalse(liveVariableAnalysis.liveOut(body)
+                                        .contains(product));
+    }
+
+    @Test
+    public void aValueReadBeforeItsBlockDefinesAnythingIsLiveIn() {
+        var method = new TestProgram(LOOP).getMethod("main");
+        var body = blockWithMultiply(method);
+        var s = multiply(body).fstOperand;
+        var liveVariableAnalysis = new LiveVariableAnalysis(method.getEntryBlock());
+
+        assertTrue(liveVariableAnalysis.liveIn(body)
+                                       .contains(s));
+    }
+
+    @Test
+    public void aDefinitionKillsLiveness() {
+        // the value loaded into s in the entry block is live out of it, but the entry block defines it
+        var method = new TestProgram(LOOP).getMethod("main");
+        var entryBlock = method.getEntryBlock();
+        var liveVariableAnalysis = new LiveVariableAnalysis(entryBlock);
+        var definedAndLiveOut = liveVariableAnalysis.liveOut(entryBlock)
+                                                    .stream()
+                                                    .filter(irValue -> entryBlock.getStoreInstructions()
+                                                                                 .stream()
+                                                                                 .anyMatch(storeInstruction -> storeInstruction.getDestination()
+                                                                                                                               .equals(irValue)))
+                                                    .toList();
+
+        assertFalse(definedAndLiveOut.isEmpty());
+        for (var irValue : definedAndLiveOut)
+            assertFalse(liveVariableAnalysis.liveIn(entryBlock)
+                                            .contains(irValue));
+    }
+}
@@ -0,0 +1,178 @@
+package decaf.dataflow.passes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import decaf.codegen.codes.ConditionalBranch;
+import decaf.codegen.codes.FunctionCall;
+import decaf.codegen.codes.FunctionCallWithResult;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrValue;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+import decaf.ssa.Phi;
+
+public class FunctionInlinePassTest {
+    // a method can only call methods declared before it, so the only cycles in the call graph are methods calling
+    // themselves; r fits the budget, so only its recursion keeps its body, and the branch in it, out of main
+    private static final String RECURSIVE = """
+            import printf;
+            int r(int n) {
+                if (n > 0) {
+                    return r(n - 1) + 1;
+                }
+                return 0;
+            }
+            int twice(int n) {
+                return r(n) + r(n + 1);
+            }
+            void main() {
+                printf("%d\\n", twice(3));
+            }
+            """;
+
+    private static final String TWO_RETURNS = """
+            import printf;
+            int g[4];
+            int pick(int x) {
+                if (x > 0) {
+                    return x * 2;
+                }
+                return 7;
+            }
+            void main() {
+                printf("%d\\n", pick(g[0]));
+            }
+            """;
+
+    /**
+     * A method of {@code statements} statements, each of which adds three instructions; with the return and the copy
+     * of the parameter, it adds {@code 3 * statements - 3} instructions less than its call
+     */
+    private static String method(String name, int statements) {
+        return "int " + name + "(int x) {\n" + "    x = x * 3 + 1;\n".repeat(statements) + "    return x;\n}\n";
+    }
+
+    private static boolean inline(TestProgram testProgram) {
+        return new FunctionInlinePass(testProgram.getOptimizationContext(), testProgram.getMethod("main"),
+                testProgram.getCompilationContext()
+                           .getIndexManager()).runFunctionPass();
+    }
+
+    private static List<Instruction> instructionsOf(Method method) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .flatMap(basicBlock -> basicBlock.getInstructionList()
+                                                                                 .stream())
+                                                .toList();
+    }
+
+    private static long callsTo(Method method, String callee) {
+        return instructionsOf(method).stream()
+                                     .filter(instruction -> instruction instanceof FunctionCall functionCall &&
+                                             functionCall.getMethodName()
+                                                         .equals(callee))
+                                     .count();
+    }
+
+    private static boolean isOptimized(TestProgram testProgram, String methodName) {
+        return testProgram.getOptimizationContext()
+                          .getMethodsToOptimize()
+                          .stream()
+                          .anyMatch(method -> method.methodName()
+                                                    .equals(methodName));
+    }
+
+    @Test
+    public void recursiveMethodsAreNotInlined() {
+        var testProgram = new TestProgram(RECURSIVE);
+
+        assertTrue(inline(testProgram));
+
+        var main = testProgram.getMethod("main");
+        assertEquals(0, callsTo(main, "twice"));
+        assertEquals(2, callsTo(main, "r"));
+        assertFalse(instructionsOf(main).stream()
+                                        .anyMatch(instruction -> instruction instanceof ConditionalBranch));
+        assertEquals(1, callsTo(testProgram.getMethod("r"), "r"));
+        assertTrue(isOptimized(testProgram, "r"));
+    }
+
+    @Test
+    public void theReturnsOfACalleeMeetInAPhi() {
+        var testProgram = new TestProgram(TWO_RETURNS);
+        var main = testProgram.getMethod("main");
+        var result = instructionsOf(main).stream()
+                                         .filter(instruction -> instruction instanceof FunctionCallWithResult functionCall &&
+                                                 functionCall.getMethodName()
+                                                             .equals("pick"))
+                                         .map(instruction -> (IrValue) ((FunctionCallWithResult) instruction).getDestination())
+                                         .findFirst()
+                                         .orElseThrow();
+
+        assertTrue(inline(testProgram));
+
+        assertEquals(0, callsTo(main, "pick"));
+        // its only call was inlined, so pick is dropped
+        assertFalse(isOptimized(testProgram, "pick"));
+        var phi = (Phi) instructionsOf(main).stream()
+                                            .filter(instruction -> instruction instanceof StoreInstruction storeInstruction &&
+                                                    storeInstruction.getDestination()
+                                                                    .equals(result))
+                                            .findFirst()
+                                            .orElseThrow();
+        assertEquals(2, phi.genOperandIrValuesSurface()
+                           .size());
+        assertTrue(phi.genOperandIrValuesSurface()
+                      .stream()
+                      .anyMatch(irValue -> irValue instanceof IrIntegerConstant irIntegerConstant &&
+                              irIntegerConstant.getValue() == 7));
+    }
+
+    @Test
+    public void theBudgetDoublesInsideALoop() {
+        // five adds 12 instructions, the base budget, and six adds 15; each is called more than once
+        var testProgram = new TestProgram("import printf;\nint g[4];\n" + method("five", 5) + method("six", 6) + """
+                void main() {
+                    int i, s;
+                    s = five(g[0]) + five(g[1]);
+                    s = s + six(g[0]) + six(g[1]);
+                    for (i = 0; i < 3; i += 1) {
+                        s = s + six(g[i]) + six(g[i + 1]);
+                    }
+                    printf("%d\\n", s);
+                }
+                """);
+        var main = testProgram.getMethod("main");
+
+        assertTrue(inline(testProgram));
+
+        assertEquals(0, callsTo(main, "five"));
+        assertEquals(2, callsTo(main, "six"));
+        assertFalse(isOptimized(testProgram, "five"));
+        assertTrue(isOptimized(testProgram, "six"));
+    }
+
+    @Test
+    public void aCallerDoesNotGrowPastItsCap() {
+        // either callee alone fits in main, but not both, although each is called only once
+        var testProgram = new TestProgram("import printf;\nint g[4];\n" + method("first", 300) + method("second", 300) + """
+                void main() {
+                    printf("%d\\n", first(g[0]) + second(g[1]));
+                }
+                """);
+        var main = testProgram.getMethod("main");
+
+        assertTrue(inline(testProgram));
+
+        assertEquals(1, callsTo(main, "first") + callsTo(main, "second"));
+    }
+}
@@ -0,0 +1,62 @@
+package decaf.dataflow.passes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+import decaf.dataflow.ssapasses.DeadStoreEliminationSsaPass;
+import decaf.dataflow.ssapasses.SccpSsaPass;
+
+public class PeepHoleOptimizationPassTest {
+    // once 2 is propagated into the phi of x, both sides of the if are empty, and the branch reaches the join through
+    // either of them
+    private static final String EMPTY_ARMS = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, x;
+                a = g[0] + 1;
+                x = 1;
+                if (a > 0) {
+                    x = 2;
+                }
+                printf("%d\\n", x);
+            }
+            """;
+
+    @Test
+    public void anEmptyBlockAPhiNeedsIsKept() {
+        var testProgram = new TestProgram(EMPTY_ARMS);
+        var method = testProgram.getMethod("main");
+        new SccpSsaPass(testProgram.getOptimizationContext(), method).runFunctionPass();
+        new DeadStoreEliminationSsaPass(testProgram.getOptimizationContext(), method).runFunctionPass();
+        var join = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                    .stream()
+                                                    .filter(BasicBlock::phiPresent)
+                                                    .findFirst()
+                                                    .orElseThrow();
+        assertEquals(2, join.getPredecessors()
+                            .stream()
+                            .filter(basicBlock -> basicBlock.getInstructionList()
+                                                            .isEmpty())
+                            .count());
+
+        assertTrue(new PeepHoleOptimizationPass(testProgram.getOptimizationContext(), method).runFunctionPass());
+
+        // one empty block goes, the other has to stay so that the phi can tell the two edges apart
+        assertEquals(2, join.getPredecessors()
+                            .size());
+        assertEquals(1, join.getPredecessors()
+                            .stream()
+                            .filter(basicBlock -> basicBlock.getInstructionList()
+                                                            .isEmpty())
+                            .count());
+        for (var phi : join.getPhiFunctions())
+            assertEquals(2, phi.genOperandIrValuesSurface()
+                               .size());
+    }
+}
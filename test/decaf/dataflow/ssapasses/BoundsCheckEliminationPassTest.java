@@ -0,0 +1,109 @@
+package decaf.dataflow.ssapasses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import decaf.codegen.codes.ArrayBoundsCheck;
+import decaf.codegen.codes.Method;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+import decaf.dataflow.DataflowOptimizer;
+
+public class BoundsCheckEliminationPassTest {
+    // i runs from 0 while i < len(a), so a[i] is always in bounds
+    private static final String IN_BOUNDS = """
+            import printf;
+            int a[10];
+            void main() {
+                int i, s;
+                s = 0;
+                for (i = 0; i < len(a); i++) {
+                    s = s + a[i];
+                }
+                printf("%d\\n", s);
+            }
+            """;
+    // the last iteration reads a[10]
+    private static final String OFF_BY_ONE = """
+            import printf;
+            int a[10];
+            void main() {
+                int i, s;
+                s = 0;
+                for (i = 0; i <= len(a); i++) {
+                    s = s + a[i];
+                }
+                printf("%d\\n", s);
+            }
+            """;
+    // the first iteration reads a[-1]
+    private static final String NEGATIVE_START = """
+            import printf;
+            int a[10];
+            void main() {
+                int i, s;
+                s = 0;
+                for (i = -1; i < len(a); i++) {
+                    s = s + a[i];
+                }
+                printf("%d\\n", s);
+            }
+            """;
+
+    private static boolean eliminate(Method method, TestProgram testProgram) {
+        return new BoundsCheckEliminationPass(testProgram.getOptimizationContext(), method).runFunctionPass();
+    }
+
+    private static long nBoundsChecks(Method method) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .flatMap(basicBlock -> basicBlock.getInstructionList()
+                                                                                 .stream())
+                                                .filter(instruction -> instruction instanceof ArrayBoundsCheck)
+                                                .count();
+    }
+
+    private static long nBoundsChecksAfterEveryPass(String sourceCode) {
+        return nBoundsChecks(new TestProgram(sourceCode).optimize(DataflowOptimizer.PASSES)
+                                                        .getMethod("main"));
+    }
+
+    @Test
+    public void aCheckTheLoopConditionProvesIsRemoved() {
+        var testProgram = new TestProgram(IN_BOUNDS);
+        var method = testProgram.getMethod("main");
+        assertEquals(1, nBoundsChecks(method));
+
+        assertTrue(eliminate(method, testProgram));
+
+        assertEquals(0, nBoundsChecks(method));
+        assertEquals(0, nBoundsChecksAfterEveryPass(IN_BOUNDS));
+    }
+
+    @Test
+    public void aCheckPastTheLastElementIsKept() {
+        var testProgram = new TestProgram(OFF_BY_ONE);
+        var method = testProgram.getMethod("main");
+        assertEquals(1, nBoundsChecks(method));
+
+        assertFalse(eliminate(method, testProgram));
+
+        assertEquals(1, nBoundsChecks(method));
+        assertEquals(1, nBoundsChecksAfterEveryPass(OFF_BY_ONE));
+    }
+
+    @Test
+    public void aCheckBeforeTheFirstElementIsKept() {
+        var testProgram = new TestProgram(NEGATIVE_START);
+        var method = testProgram.getMethod("main");
+        assertEquals(1, nBoundsChecks(method));
+
+        assertFalse(eliminate(method, testProgram));
+
+        assertEquals(1, nBoundsChecks(method));
+        assertEquals(1, nBoundsChecksAfterEveryPass(NEGATIVE_START));
+    }
+}
@@ -0,0 +1,194 @@
+package decaf.dataflow.ssapasses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.names.IrMemoryAddress;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+import decaf.ssa.Phi;
+
+public class GlobalValueNumberingPassTest {
+    private static final String COMMUTED = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b;
+                bool p;
+                a = g[0];
+                b = g[1];
+                printf("%d\\n", a * b);
+                printf("%d\\n", b * a);
+                printf("%d\\n", a - b);
+                printf("%d\\n", b - a);
+                p = a > b;
+                p = b < a;
+                p = a >= b;
+                p = b <= a;
+                p = a < b;
+            }
+            """;
+
+    // a * b is only computed on one side of the if, while a + b is computed before it
+    private static final String ONE_BRANCH = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b;
+                a = g[0];
+                b = g[1];
+                printf("%d\\n", a + b);
+                if (a > 0) {
+                    printf("%d\\n", a * b);
+                }
+                printf("%d\\n", a * b);
+                printf("%d\\n", a + b);
+            }
+            """;
+
+    private static final String PHIS = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b, c, x, y, z;
+                a = g[0];
+                b = g[1];
+                c = b;
+                if (a > 0) {
+                    x = a;
+                    y = a;
+                    z = b;
+                } else {
+                    x = b;
+                    y = b;
+                    z = c;
+                }
+                printf("%d\\n", x + y + z);
+            }
+            """;
+
+    private static boolean numberValues(Method method, TestProgram testProgram) {
+        return new GlobalValueNumberingPass(testProgram.getOptimizationContext(), method).runFunctionPass();
+    }
+
+    private static List<Instruction> instructionsOf(Method method) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .flatMap(basicBlock -> basicBlock.getInstructionList()
+                                                                                 .stream())
+                                                .toList();
+    }
+
+    private static List<IrValue> destinationsOf(Method method, String operator) {
+        return instructionsOf(method).stream()
+                                     .filter(instruction -> instruction instanceof BinaryInstruction binaryInstruction &&
+                                             binaryInstruction.operator.equals(operator))
+                                     .map(instruction -> (IrValue) ((BinaryInstruction) instruction).getDestination())
+                                     .toList();
+    }
+
+    private static Instruction definitionOf(Method method, IrValue destination) {
+        return instructionsOf(method).stream()
+                                     .filter(instruction -> instruction instanceof StoreInstruction storeInstruction &&
+                                             storeInstruction.getDestination()
+                                                             .equals(destination))
+                                     .findFirst()
+                                     .orElseThrow();
+    }
+
+    private static boolean isCopyOf(Instruction instruction, IrValue irValue) {
+        return instruction instanceof CopyInstruction copyInstruction && copyInstruction.getValue()
+                                                                                        .equals(irValue);
+    }
+
+    private static Phi phiOf(BasicBlock basicBlock, String variable) {
+        return basicBlock.getPhiFunctions()
+                         .stream()
+                         .filter(phi -> ((IrSsaRegister) phi.getDestination()).getLabel()
+                                                                              .startsWith(variable + "."))
+                         .findFirst()
+                         .orElseThrow();
+    }
+
+    @Test
+    public void commutedOperandsAndFlippedComparisonsAreTheSameValue() {
+        var testProgram = new TestProgram(COMMUTED);
+        var method = testProgram.getMethod("main");
+        var products = destinationsOf(method, Operators.MULTIPLY);
+        var differences = destinationsOf(method, Operators.MINUS);
+        var greater = destinationsOf(method, Operators.GT);
+        var greaterOrEqual = destinationsOf(method, Operators.GEQ);
+        var less = destinationsOf(method, Operators.LT);
+        var lessOrEqual = destinationsOf(method, Operators.LEQ);
+
+        assertTrue(numberValues(method, testProgram));
+
+        assertTrue(isCopyOf(definitionOf(method, products.get(1)), products.get(0)));
+        // b < a is a > b, but a < b is not
+        assertTrue(isCopyOf(definitionOf(method, less.get(0)), greater.get(0)));
+        assertTrue(definitionOf(method, less.get(1)) instanceof BinaryInstruction);
+        assertTrue(isCopyOf(definitionOf(method, lessOrEqual.get(0)), greaterOrEqual.get(0)));
+        for (var difference : differences)
+            assertTrue(definitionOf(method, difference) instanceof BinaryInstruction);
+    }
+
+    @Test
+    public void aValueComputedOnOneBranchIsNotReusedAfterTheJoin() {
+        var testProgram = new TestProgram(ONE_BRANCH);
+        var method = testProgram.getMethod("main");
+        var products = destinationsOf(method, Operators.MULTIPLY);
+        var sums = destinationsOf(method, Operators.PLUS);
+
+        assertTrue(numberValues(method, testProgram));
+
+        assertEquals(2, products.size());
+        for (var product : products)
+            assertTrue(definitionOf(method, product) instanceof BinaryInstruction);
+        // the sum before the if dominates the one after the join
+        assertTrue(isCopyOf(definitionOf(method, sums.get(1)), sums.get(0)));
+    }
+
+    @Test
+    public void congruentPhisMergeAndAPhiOfOneValueIsACopy() {
+        var testProgram = new TestProgram(PHIS);
+        var method = testProgram.getMethod("main");
+        var join = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                    .stream()
+                                                    .filter(basicBlock -> basicBlock.getPredecessors()
+                                                                                    .size() == 2)
+                                                    .findFirst()
+                                                    .orElseThrow();
+        var x = phiOf(join, "x").getDestination();
+        var y = phiOf(join, "y").getDestination();
+        var z = phiOf(join, "z").getDestination();
+
+        assertTrue(numberValues(method, testProgram));
+
+        // x and y take a on one side and b on the other, so whichever phi comes second becomes a copy of the first;
+        // z takes b on one side and a copy of it on the other
+        var phis = join.getPhiFunctions()
+                       .stream()
+                       .map(Phi::getDestination)
+                       .toList();
+        assertTrue(phis.contains(x) ? isCopyOf(definitionOf(method, y), x): isCopyOf(definitionOf(method, x), y));
+        assertTrue(phis.contains(x) ^ phis.contains(y));
+        assertFalse(phis.contains(z));
+        assertTrue(definitionOf(method, z) instanceof CopyInstruction copyInstruction &&
+                definitionOf(method, copyInstruction.getValue()) instanceof CopyInstruction load &&
+                load.getValue() instanceof IrMemoryAddress);
+    }
+}
@@ -0,0 +1,98 @@
+package decaf.dataflow.ssapasses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.FunctionCall;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrValue;
+import decaf.common.CompiledProgram;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+
+public class InstructionStrengthReductionPassTest {
+    private static final String COUNT_DOWN = """
+            import printf;
+            void main() {
+                int i;
+                for (i = 10; i > -10; i -= 2) {
+                    printf("%ld\\n", i * 7);
+                }
+            }
+            """;
+
+    // i runs over negative values, down past zero, and from INT64_MIN, where i * 3 wraps; m doubles up to INT64_MIN
+    // at runtime, so the last loop starts from a value the pass cannot fold
+    private static final String INDUCTION_VARIABLES = """
+            import printf;
+            void main() {
+                int i, m;
+                for (i = -5; i < 5; i += 1) {
+                    printf("%ld\\n", i * 3);
+                }
+                for (i = 10; i > -10; i -= 2) {
+                    printf("%ld\\n", i * 7);
+                }
+                m = 1;
+                for (i = 0; i < 63; i += 1) {
+                    m = m * 2;
+                }
+                for (i = m; i < m + 5; i += 1) {
+                    printf("%ld\\n", i * 3);
+                }
+            }
+            """;
+
+    private static Predicate<Instruction> binary(String operator, Predicate<IrValue> sndOperand) {
+        return instruction -> instruction instanceof BinaryInstruction binaryInstruction &&
+                binaryInstruction.operator.equals(operator) && sndOperand.test(binaryInstruction.sndOperand);
+    }
+
+    @Test
+    public void aMultiplyOfACountingDownVariableBecomesAnAddition() {
+        var testProgram = new TestProgram(COUNT_DOWN);
+        var method = testProgram.getMethod("main");
+        var body = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                    .stream()
+                                                    .filter(basicBlock -> basicBlock.getInstructionList()
+                                                                                    .stream()
+                                                                                    .anyMatch(instruction -> instruction instanceof FunctionCall))
+                                                    .findFirst()
+                                                    .orElseThrow();
+
+        assertTrue(new InstructionStrengthReductionPass(testProgram.getOptimizationContext(), method).runFunctionPass());
+
+        // i steps by -2, so i * 7 steps by -14
+        assertFalse(body.getInstructionList()
+                        .stream()
+                        .anyMatch(binary(Operators.MULTIPLY, irValue -> true)));
+        assertTrue(body.getInstructionList()
+                       .stream()
+                       .anyMatch(binary(Operators.PLUS, irValue -> irValue instanceof IrIntegerConstant irIntegerConstant &&
+                               irIntegerConstant.getValue() == -14)));
+    }
+
+    @Test
+    public void reducedVariablesTakeTheValuesOfTheMultiplies() throws IOException {
+        assumeTrue("no C compiler to link with", CompiledProgram.canLink());
+        var expected = new ArrayList<String>();
+        for (long i = -5; i < 5; i += 1)
+            expected.add(String.valueOf(i * 3));
+        for (long i = 10; i > -10; i -= 2)
+            expected.add(String.valueOf(i * 7));
+        for (long i = Long.MIN_VALUE; i < Long.MIN_VALUE + 5; i += 1)
+            expected.add(String.valueOf(i * 3));
+        assertEquals(expected, CompiledProgram.run(INDUCTION_VARIABLES));
+    }
+}
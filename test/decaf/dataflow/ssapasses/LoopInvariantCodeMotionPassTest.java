@@ -0,0 +1,143 @@
+package decaf.dataflow.ssapasses;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrValue;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+
+public class LoopInvariantCodeMotionPassTest {
+    // the block testing a > 0 branches to the loop header, so the loop has no block to hoist into yet
+    private static final String GUARDED_LOOP = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b, i, s;
+                a = g[0];
+                b = g[1];
+                s = 0;
+                i = 0;
+                if (a > 0) {
+                    while (i < b) {
+                        s = s + a * b;
+                        i += 1;
+                    }
+                }
+                printf("%d\\n", s);
+            }
+            """;
+
+    private static final String LOOP = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b, i, s;
+                a = g[0];
+                b = g[1];
+                s = 0;
+                for (i = 0; i < b; i++) {
+                    s = s + a * b + a / 0 + a % -1 + a / b + b / 2;
+                }
+                printf("%d\\n", s);
+            }
+            """;
+
+    private static boolean hoist(Method method, TestProgram testProgram) {
+        return new LoopInvariantCodeMotionPass(testProgram.getOptimizationContext(), method).runFunctionPass();
+    }
+
+    private static Predicate<Instruction> binary(String operator, Predicate<IrValue> sndOperand) {
+        return instruction -> instruction instanceof BinaryInstruction binaryInstruction &&
+                binaryInstruction.operator.equals(operator) && sndOperand.test(binaryInstruction.sndOperand);
+    }
+
+    private static Predicate<IrValue> constant(long value) {
+        return irValue -> irValue instanceof IrIntegerConstant irIntegerConstant && irIntegerConstant.getValue() == value;
+    }
+
+    private static BasicBlock blockOf(Method method, Predicate<Instruction> predicate) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .filter(basicBlock -> basicBlock.getInstructionList()
+                                                                                .stream()
+                                                                                .anyMatch(predicate))
+                                                .findFirst()
+                                                .orElseThrow();
+    }
+
+    @Test
+    public void aPreHeaderIsInsertedOnTheEdgeFromABranch() {
+        var testProgram = new TestProgram(GUARDED_LOOP);
+        var method = testProgram.getMethod("main");
+        var guard = blockOf(method, binary(Operators.GT, constant(0)));
+        var header = blockOf(method, binary(Operators.LT, irValue -> true));
+        var valuesFromTheGuard = new HashMap<IrValue, IrValue>();
+        header.getPhiFunctions()
+              .forEach(phi -> valuesFromTheGuard.put(phi.getDestination(), phi.getVariableForB(guard)));
+
+        assertTrue(hoist(method, testProgram));
+
+        var preHeader = blockOf(method, binary(Operators.MULTIPLY, irValue -> true));
+        assertNotSame(guard, preHeader);
+        assertEquals(List.of(header), preHeader.getSuccessors());
+        assertEquals(List.of(guard), preHeader.getPredecessors());
+        assertTrue(guard.getSuccessors()
+                        .contains(preHeader));
+        assertFalse(header.getPredecessors()
+                          .contains(guard));
+        assertTrue(header.getPredecessors()
+                         .contains(preHeader));
+        // the values the header's phis took from the guard now flow in through the preheader
+        for (var phi : header.getPhiFunctions())
+            assertEquals(valuesFromTheGuard.get(phi.getDestination()), phi.getVariableForB(preHeader));
+    }
+
+    @Test
+    public void invariantsMoveToTheOnlyBlockEnteringTheLoop() {
+        var testProgram = new TestProgram(LOOP);
+        var method = testProgram.getMethod("main");
+        final int nBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                             .size();
+        var header = blockOf(method, binary(Operators.LT, irValue -> true));
+
+        assertTrue(hoist(method, testProgram));
+
+        var preHeader = blockOf(method, binary(Operators.MULTIPLY, irValue -> true));
+        assertEquals(List.of(header), preHeader.getSuccessors());
+        assertTrue(header.getPredecessors()
+                         .contains(preHeader));
+        assertEquals(nBlocks, StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                               .size());
+    }
+
+    @Test
+    public void onlyDivisionsWhichCannotFaultAreHoisted() {
+        var testProgram = new TestProgram(LOOP);
+        var method = testProgram.getMethod("main");
+        var body = blockOf(method, binary(Operators.DIVIDE, constant(0)));
+
+        assertTrue(hoist(method, testProgram));
+
+        assertEquals(body, blockOf(method, binary(Operators.DIVIDE, constant(0))));
+        assertEquals(body, blockOf(method, binary(Operators.MOD, constant(-1))));
+        assertEquals(body, blockOf(method, binary(Operators.DIVIDE, irValue -> !(irValue instanceof IrIntegerConstant))));
+        assertEquals(blockOf(method, binary(Operators.MULTIPLY, irValue -> true)),
+                blockOf(method, binary(Operators.DIVIDE, constant(2))));
+        assertNotSame(body, blockOf(method, binary(Operators.DIVIDE, constant(2))));
+    }
+}
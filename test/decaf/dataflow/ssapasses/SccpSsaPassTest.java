@@ -0,0 +1,64 @@
+package decaf.dataflow.ssapasses;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import decaf.codegen.codes.BinaryInstruction;
+import decaf.codegen.codes.Instruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrGlobalScalar;
+import decaf.common.Operators;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+
+public class SccpSsaPassTest {
+    // v is read after a call which stores to it, and at the top of a loop which stores to it at its bottom, so
+    // neither the constant stored before the call nor the one stored in the loop is its value there
+    private static final String STORED_TWICE = """
+            import printf;
+            int v;
+            void bump() {
+                v = 5;
+            }
+            void main() {
+                int i;
+                v = 1;
+                bump();
+                printf("%d\\n", v + 1);
+                for (i = 0; i < 3; i += 1) {
+                    printf("%d\\n", v + 1);
+                    v = 2;
+                }
+            }
+            """;
+
+    private static List<Instruction> instructionsOf(Method method) {
+        return StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock())
+                                                .stream()
+                                                .flatMap(basicBlock -> basicBlock.getInstructionList()
+                                                                                 .stream())
+                                                .toList();
+    }
+
+    private static long additionsToAGlobal(Method method) {
+        return instructionsOf(method).stream()
+                                     .filter(instruction -> instruction instanceof BinaryInstruction binaryInstruction &&
+                                             binaryInstruction.operator.equals(Operators.PLUS) &&
+                                             binaryInstruction.fstOperand instanceof IrGlobalScalar)
+                                     .count();
+    }
+
+    @Test
+    public void aGlobalStoredMoreThanOnceIsNotAConstant() {
+        var testProgram = new TestProgram(STORED_TWICE);
+        var method = testProgram.getMethod("main");
+        assertEquals(2, additionsToAGlobal(method));
+
+        new SccpSsaPass(testProgram.getOptimizationContext(), method).runFunctionPass();
+
+        assertEquals(2, additionsToAGlobal(method));
+    }
+}
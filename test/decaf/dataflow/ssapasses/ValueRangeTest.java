@@ -0,0 +1,54 @@
+package decaf.dataflow.ssapasses;
+
+import junit.framework.TestCase;
+
+
+public class ValueRangeTest extends TestCase {
+    ValueRange zeroToTen, minusFiveToFive;
+
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        zeroToTen = ValueRange.of(0, 10);
+        minusFiveToFive = ValueRange.of(-5, 5);
+    }
+
+    public void testJoin() {
+        assertEquals(ValueRange.join(ValueRange.top(), zeroToTen), zeroToTen);
+        assertEquals(ValueRange.join(zeroToTen, ValueRange.top()), zeroToTen);
+        assertEquals(ValueRange.join(zeroToTen, minusFiveToFive), ValueRange.of(-5, 10));
+    }
+
+    public void testWidenJumpsGrowingBoundsToInfinity() {
+        assertEquals(ValueRange.widen(ValueRange.of(0, 1), ValueRange.of(0, 2)), ValueRange.of(0, Long.MAX_VALUE));
+        assertEquals(ValueRange.widen(ValueRange.of(0, 1), ValueRange.of(-1, 1)), ValueRange.of(Long.MIN_VALUE, 1));
+        assertEquals(ValueRange.widen(zeroToTen, zeroToTen), zeroToTen);
+    }
+
+    public void testArithmetic() {
+        assertEquals(zeroToTen.add(minusFiveToFive), ValueRange.of(-5, 15));
+        assertEquals(zeroToTen.subtract(minusFiveToFive), ValueRange.of(-5, 15));
+        assertEquals(zeroToTen.multiply(minusFiveToFive), ValueRange.of(-50, 50));
+        assertEquals(minusFiveToFive.divide(2), ValueRange.of(-2, 2));
+        assertEquals(minusFiveToFive.negate(), minusFiveToFive);
+        assertEquals(zeroToTen.add(ValueRange.top()), ValueRange.top());
+    }
+
+    public void testModTakesTheSignOfTheDividend() {
+        assertEquals(zeroToTen.mod(4), ValueRange.of(0, 3));
+        assertEquals(zeroToTen.mod(-4), ValueRange.of(0, 3));
+        assertEquals(ValueRange.of(0, 2).mod(4), ValueRange.of(0, 2));
+        assertEquals(minusFiveToFive.mod(4), ValueRange.of(-3, 3));
+        assertEquals(ValueRange.of(-10, 0).mod(4), ValueRange.of(-3, 0));
+    }
+
+    public void testInfinitiesSaturateAndOverflowIsUnknown() {
+        var nonNegative = ValueRange.of(0, Long.MAX_VALUE);
+        assertEquals(nonNegative.add(ValueRange.constant(1)), ValueRange.of(1, Long.MAX_VALUE));
+        assertEquals(nonNegative.subtract(ValueRange.constant(1)), ValueRange.of(-1, Long.MAX_VALUE));
+        assertEquals(ValueRange.constant(Long.MAX_VALUE - 1).add(ValueRange.constant(2)), ValueRange.full());
+        assertEquals(nonNegative.multiply(ValueRange.constant(2)), ValueRange.full());
+    }
+
+}
@@ -0,0 +1,186 @@
+package decaf.grammar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import decaf.common.DecafExceptionProcessor;
+import decaf.exceptions.DecafException;
+import decaf.exceptions.DecafScannerException;
+
+public class DecafScannerTest {
+    private static final String PROGRAM = """
+            import printf;
+            int g[0x10];
+            // a line comment
+            void main() {
+                int i;
+                /* a block
+                   comment */
+                for (i = 0; i < len(g); i += 1) {
+                    g[i] = i * 0xFF - 'a';
+                }
+                printf("%d\\n", g[3] >= 2 && !false);
+            }
+            """;
+    // where the window of a reader is first full
+    private static final int READER_WINDOW = 8192;
+    // the identifier which starts two characters before the window is full
+    private static final String STRADDLING_ID = "straddlesTheWindow";
+
+    private Path file;
+
+    /**
+     * @return a program of one declaration per line, in which {@link #STRADDLING_ID} starts two characters before
+     * {@link #READER_WINDOW}
+     */
+    private static String longProgram() {
+        var source = new StringBuilder();
+        for (int i = 0; source.length() < READER_WINDOW - 64; i++)
+            source.append("int v")
+                  .append(i)
+                  .append(";\n");
+        source.append(" ".repeat(READER_WINDOW - 2 - "int ".length() - source.length()))
+              .append("int ")
+              .append(STRADDLING_ID)
+              .append(";\nvoid main() {\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * A reader which returns at most {@code chunk} characters per read, so that tokens straddle reads
+     */
+    private static Reader chunked(String source, int chunk) {
+        return new FilterReader(new StringReader(source)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, chunk));
+            }
+        };
+    }
+
+    private static List<String> scan(ScannerInput input) throws DecafException {
+        var tokenBuffer = new DecafScanner(input, new DecafExceptionProcessor(input)).tokenize();
+        var tokens = new ArrayList<String>();
+        for (int i = 0; i < tokenBuffer.size(); i++)
+            tokens.add(String.format("%s %s@%d+%d %d:%d",
+                                     tokenBuffer.tokenType(i),
+                                     tokenBuffer.lexeme(i),
+                                     tokenBuffer.offset(i),
+                                     tokenBuffer.length(i),
+                                     tokenBuffer.line(i),
+                                     tokenBuffer.column(i)));
+        return tokens;
+    }
+
+    private static DecafParser parse(ScannerInput input) {
+        var parser = new DecafParser(new DecafScanner(input, new DecafExceptionProcessor(input)));
+        parser.program();
+        return parser;
+    }
+
+    private ScannerInput map(String source) throws IOException {
+        file = Files.createTempFile("decaf", ".dcf");
+        Files.writeString(file, source, StandardCharsets.US_ASCII);
+        return ScannerInput.map(file);
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        if (file != null)
+            Files.delete(file);
+    }
+
+    @Test
+    public void everyInputGivesTheSameTokens() throws DecafException, IOException {
+        var tokens = scan(ScannerInput.of(PROGRAM));
+
+        assertTrue(tokens.contains("HEX_LITERAL 0x10@21+4 1:6"));
+        assertEquals(tokens, scan(ScannerInput.of(new StringReader(PROGRAM))));
+        assertEquals(tokens, scan(ScannerInput.of(chunked(PROGRAM, 3))));
+        assertEquals(tokens, scan(map(PROGRAM)));
+    }
+
+    @Test
+    public void aTokenStraddlingTheReaderWindowIsScannedWhole() throws DecafException, IOException {
+        final String source = longProgram();
+        final int offset = source.indexOf(STRADDLING_ID);
+        assertEquals(READER_WINDOW - 2, offset);
+        var tokens = scan(ScannerInput.of(source));
+        final String straddling = String.format("ID %s@%d+%d", STRADDLING_ID, offset, STRADDLING_ID.length());
+        assertTrue(tokens.stream()
+                         .anyMatch(token -> token.startsWith(straddling)));
+
+        assertEquals(tokens, scan(ScannerInput.of(new StringReader(source))));
+        assertEquals(tokens, scan(ScannerInput.of(chunked(source, 7))));
+        assertEquals(tokens, scan(map(source)));
+    }
+
+    @Test
+    public void theParserSlidesTheReaderWindow() {
+        var parser = parse(ScannerInput.of(chunked(longProgram(), 7)));
+
+        var fieldDeclarations = parser.getRoot().fieldDeclarationList;
+        assertFalse(parser.hasError());
+        assertEquals(STRADDLING_ID, fieldDeclarations.get(fieldDeclarations.size() - 1).names.get(0)
+                                                                                           .getLabel());
+    }
+
+    @Test
+    public void anEmptySourceIsOnlyAnEndOfFile() throws DecafException, IOException {
+        // the input ends with the line break appended to it
+        final List<String> endOfFile = List.of("EOF " + DecafScanner.EOF + "@1+0 1:0");
+
+        assertEquals(endOfFile, scan(ScannerInput.of("")));
+        assertEquals(endOfFile, scan(ScannerInput.of(new StringReader(""))));
+        assertEquals(endOfFile, scan(map("")));
+
+        var parser = parse(ScannerInput.of(""));
+        assertFalse(parser.hasError());
+        assertTrue(parser.getRoot().methodDefinitionList.isEmpty());
+    }
+
+    @Test
+    public void aHexPrefixWithoutDigitsIsAScannerError() {
+        for (var source : List.of("int x = 0x;", "int x = 0xg1;", "0x")) {
+            assertThrows(source, DecafScannerException.class, () -> scan(ScannerInput.of(source)));
+            assertThrows(source, DecafScannerException.class, () -> scan(ScannerInput.of(new StringReader(source))));
+        }
+    }
+
+    @Test
+    public void aMalformedHexLiteralIsReportedByTheParser() {
+        var parser = parse(ScannerInput.of("""
+                void main() {
+                    int x;
+                    x = 0x;
+                }
+                """));
+
+        assertTrue(parser.hasError());
+        assertTrue(parser.errors.get(0) instanceof DecafScannerException);
+    }
+
+    @Test
+    public void hexDigitsEndAtTheFirstNonHexCharacter() throws DecafException {
+        // 0x1g is the hex literal 0x1 followed by the identifier g, which the parser rejects
+        assertEquals(List.of("HEX_LITERAL 0x1@0+3 0:0", "ID g@3+1 0:3", "EOF " + DecafScanner.EOF + "@3+0 0:3"),
+                     scan(ScannerInput.of("0x1g")));
+        assertEquals(List.of("HEX_LITERAL 0xaBcD09@0+8 0:0", "EOF " + DecafScanner.EOF + "@0+0 0:0"),
+                     scan(ScannerInput.of("0xaBcD09\n")));
+    }
+}
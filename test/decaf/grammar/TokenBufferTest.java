@@ -0,0 +1,61 @@
+package decaf.grammar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class TokenBufferTest {
+    private static int addIdentifier(TokenBuffer tokenBuffer, int n) {
+        return tokenBuffer.add(TokenType.ID, 10 * n, 2, n, n + 1, "v" + n);
+    }
+
+    @Test
+    public void aBoundedBufferKeepsTheLastTokensAcrossTheWrap() {
+        var tokenBuffer = TokenBuffer.bounded(4);
+        for (int i = 0; i < 11; i++)
+            assertEquals(i, addIdentifier(tokenBuffer, i));
+
+        assertEquals(11, tokenBuffer.size());
+        for (int i = 7; i < 11; i++) {
+            assertEquals("v" + i, tokenBuffer.lexeme(i));
+            assertEquals(10 * i, tokenBuffer.offset(i));
+            assertEquals(i, tokenBuffer.line(i));
+            assertEquals(i + 1, tokenBuffer.column(i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> tokenBuffer.lexeme(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokenBuffer.lexeme(11));
+    }
+
+    @Test
+    public void aSlotReusedForAnOperatorDropsTheOldLexeme() {
+        var tokenBuffer = TokenBuffer.bounded(2);
+        addIdentifier(tokenBuffer, 0);
+        addIdentifier(tokenBuffer, 1);
+        final int index = tokenBuffer.add(TokenType.PLUS, 20, 1, 2, 0, null);
+
+        assertEquals(TokenType.PLUS, tokenBuffer.tokenType(index));
+        assertEquals(DecafScanner.PLUS, tokenBuffer.lexeme(index));
+    }
+
+    @Test
+    public void anUnboundedBufferGrows() {
+        var tokenBuffer = new TokenBuffer();
+        for (int i = 0; i < 3000; i++)
+            addIdentifier(tokenBuffer, i);
+
+        assertEquals("v0", tokenBuffer.lexeme(0));
+        assertEquals("v2999", tokenBuffer.lexeme(2999));
+
+        tokenBuffer.clear();
+        assertEquals(0, tokenBuffer.size());
+        tokenBuffer.add(TokenType.EOF, 0, 0, 0, 0, null);
+        assertEquals(DecafScanner.EOF, tokenBuffer.lexeme(0));
+    }
+
+    @Test
+    public void theCapacityOfABoundedBufferIsAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> TokenBuffer.bounded(6));
+        assertThrows(IllegalArgumentException.class, () -> TokenBuffer.bounded(0));
+    }
+}
@@ -0,0 +1,95 @@
+package decaf.regalloc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import decaf.codegen.InstructionList;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.common.TestProgram;
+import decaf.dataflow.DataflowOptimizer;
+import decaf.ssa.SSA;
+
+public class InterferenceGraphTest {
+    static final String PROGRAM = """
+            import printf;
+            int g[8];
+            int x;
+            int f(int n, int k) {
+              int i, s, t;
+              s = 0;
+              t = k;
+              for (i = 0; i < n; i++) {
+                if (i % 3 == 0) {
+                  s = s + t;
+                  x = s;
+                } else {
+                  t = s - i;
+                }
+                g[i % 8] = s + t;
+              }
+              return s * t + x;
+            }
+            void main() {
+              int a, b, c;
+              a = f(10, 2);
+              b = a;
+              c = b + f(a, 3);
+              printf("%d %d %d\\n", a, b, c);
+            }
+            """;
+
+    private static LiveInterval interval(int startPoint, int endPoint) {
+        return new LiveInterval(null, startPoint, endPoint, new InstructionList(), null);
+    }
+
+    @Test
+    public void intervalsInterfereWhenTheirHalfOpenRangesOverlap() {
+        assertTrue(LiveIntervalsManager.liveIntervalsInterfere(interval(0, 3), interval(2, 4)));
+        assertTrue(LiveIntervalsManager.liveIntervalsInterfere(interval(0, 6), interval(2, 4)));
+        assertFalse(LiveIntervalsManager.liveIntervalsInterfere(interval(0, 3), interval(3, 5)));
+        assertFalse(LiveIntervalsManager.liveIntervalsInterfere(interval(3, 5), interval(0, 3)));
+        // a value which is never used is still written at its start point
+        assertTrue(LiveIntervalsManager.liveIntervalsInterfere(interval(2, 2), interval(1, 3)));
+        assertFalse(LiveIntervalsManager.liveIntervalsInterfere(interval(2, 2), interval(3, 4)));
+    }
+
+    @Test
+    public void sweepFindsTheSameEdgesAsComparingEveryPair() {
+        var testProgram = new TestProgram(PROGRAM).optimize(DataflowOptimizer.PASSES)
+                                                  .deconstructSsa();
+        var liveIntervalsManager = new LiveIntervalsManager(testProgram.getProgramIr());
+        for (var method : testProgram.getProgramIr()
+                                     .getMethods()) {
+            var interferenceGraph = new InterferenceGraph(liveIntervalsManager, method);
+            var nEdges = 0;
+            for (int u = 0; u < interferenceGraph.size(); u++) {
+                for (int v = u + 1; v < interferenceGraph.size(); v++) {
+                    var a = interferenceGraph.getNode(u);
+                    var b = interferenceGraph.getNode(v);
+                    var interfere = LiveIntervalsManager.liveIntervalsInterfere(a, b);
+                    assertEquals(a + " " + b, interfere, interferenceGraph.containsEdge(a, b));
+                    if (interfere)
+                        nEdges++;
+                }
+            }
+            assertEquals(nEdges, interferenceGraph.getUniqueInterferenceGraphEdges()
+                                                  .size());
+        }
+    }
+
+    @Test
+    public void onlyCopiesBetweenRegistersAreMoveRelated() {
+        // without optimization the store to the global x is still a copy
+        var testProgram = new TestProgram(PROGRAM);
+        var programIr = testProgram.getProgramIr();
+        for (var method : programIr.getMethods()) {
+            SSA.deconstruct(method, programIr, testProgram.getCompilationContext());
+            var interferenceGraph = new InterferenceGraph(new LiveIntervalsManager(method, programIr), method);
+            for (var liveInterval : interferenceGraph.getMoveNodes())
+                assertTrue(liveInterval.irSsaRegister() instanceof IrSsaRegister);
+        }
+    }
+}
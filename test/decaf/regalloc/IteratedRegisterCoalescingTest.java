@@ -0,0 +1,121 @@
+package decaf.regalloc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import decaf.asm.X86Register;
+import decaf.codegen.codes.GetAddress;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrValue;
+import decaf.common.TestProgram;
+import decaf.dataflow.DataflowOptimizer;
+
+public class IteratedRegisterCoalescingTest {
+    private static final List<X86Register> THREE_REGISTERS = List.of(X86Register.R11, X86Register.R12, X86Register.R13);
+
+    // n is read in the inner loop, k only once the loops are done, yet both stay live across them
+    private static final String NESTED_LOOPS = """
+            import printf;
+            int g[4];
+            void main() {
+              int i, j, s, n, k;
+              n = g[0];
+              k = g[1];
+              s = 0;
+              for (i = 0; i < n; i++) {
+                for (j = 0; j < n; j++) {
+                  s = s * 3 + i * j;
+                }
+              }
+              printf("%d\\n", s + k);
+            }
+            """;
+
+    private static TestProgram compile(String sourceCode) {
+        return new TestProgram(sourceCode).optimize(DataflowOptimizer.PASSES)
+                                          .deconstructSsa();
+    }
+
+    /**
+     * @return the address loaded from {@code g[index]} in {@code main}
+     */
+    private static IrValue loadOfG(Method method, int index) {
+        return method.getEntryBlock()
+                     .getInstructionList()
+                     .stream()
+                     .filter(instruction -> instruction instanceof GetAddress)
+                     .map(instruction -> ((GetAddress) instruction).getDestination())
+                     .toList()
+                     .get(index);
+    }
+
+    private static int nodeOf(InterferenceGraph interferenceGraph, IrValue irValue) {
+        for (int node = 0; node < interferenceGraph.size(); node++)
+            if (interferenceGraph.getNode(node)
+                                 .irSsaRegister()
+                                 .equals(irValue))
+                return node;
+        throw new IllegalArgumentException(irValue + " has no live interval");
+    }
+
+    @Test
+    public void spillCostWeighsEachUseByItsLoopDepth() {
+        var testProgram = compile(NESTED_LOOPS);
+        var method = testProgram.getMethod("main");
+        var interferenceGraph = new InterferenceGraph(new LiveIntervalsManager(testProgram.getProgramIr()), method);
+        var spillCosts = IteratedRegisterCoalescing.computeSpillCosts(method, interferenceGraph);
+
+        // k is defined and used once each, outside the loops
+        assertEquals(2.0, spillCosts[nodeOf(interferenceGraph, loadOfG(method, 1))], 0.0);
+        // n is defined outside the loops, then read by the condition of the outer loop and of the inner loop
+        assertEquals(1.0 + 10.0 + 100.0, spillCosts[nodeOf(interferenceGraph, loadOfG(method, 0))], 0.0);
+    }
+
+    @Test
+    public void theCheapestValueIsSpilled() {
+        var testProgram = compile(NESTED_LOOPS);
+        var method = testProgram.getMethod("main");
+        var iteratedRegisterCoalescing = new IteratedRegisterCoalescing(THREE_REGISTERS,
+                new LiveIntervalsManager(testProgram.getProgramIr()));
+        iteratedRegisterCoalescing.allocate();
+        var varToReg = iteratedRegisterCoalescing.getVariableToRegisterMapping()
+                                                 .get(method);
+        assertEquals(X86Register.STACK, varToReg.get(loadOfG(method, 1)));
+        assertNotEquals(X86Register.STACK, varToReg.get(loadOfG(method, 0)));
+    }
+
+    @Test
+    public void interferingIntervalsNeverShareARegister() {
+        for (var sourceCode : List.of(InterferenceGraphTest.PROGRAM, NESTED_LOOPS)) {
+            assertNoInterferingIntervalsShareARegister(sourceCode, X86Register.regsToAllocate);
+            assertNoInterferingIntervalsShareARegister(sourceCode, THREE_REGISTERS);
+        }
+    }
+
+    /**
+     * The two sides of a move edge may share a register: they only overlap at the copy, which then becomes a no-op
+     */
+    private static void assertNoInterferingIntervalsShareARegister(String sourceCode, List<X86Register> registers) {
+        var testProgram = compile(sourceCode);
+        var liveIntervalsManager = new LiveIntervalsManager(testProgram.getProgramIr());
+        var iteratedRegisterCoalescing = new IteratedRegisterCoalescing(registers, liveIntervalsManager);
+        iteratedRegisterCoalescing.allocate();
+        for (var method : testProgram.getProgramIr()
+                                     .getMethods()) {
+            var interferenceGraph = new InterferenceGraph(liveIntervalsManager, method);
+            var varToReg = iteratedRegisterCoalescing.getVariableToRegisterMapping()
+                                                     .get(method);
+            for (var edge : interferenceGraph.getUniqueInterferenceGraphEdges()) {
+                var register = varToReg.get(edge.first()
+                                                .irSsaRegister());
+                if (register != X86Register.STACK && !interferenceGraph.isMoveEdge(edge.first(), edge.second()))
+                    assertNotEquals(edge.toString(), register, varToReg.get(edge.second()
+                                                                                .irSsaRegister()));
+            }
+        }
+    }
+}
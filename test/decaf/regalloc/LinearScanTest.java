@@ -0,0 +1,137 @@
+package decaf.regalloc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import decaf.asm.X86Register;
+import decaf.ast.Type;
+import decaf.codegen.InstructionList;
+import decaf.codegen.codes.CopyInstruction;
+import decaf.codegen.codes.Method;
+import decaf.codegen.names.IrIntegerConstant;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.codegen.names.IrValue;
+import decaf.common.TestProgram;
+import decaf.dataflow.DataflowOptimizer;
+
+public class LinearScanTest {
+    private static final List<X86Register> THREE_REGISTERS = List.of(X86Register.R11, X86Register.R12, X86Register.R13);
+
+    private final IrSsaRegister x = new IrSsaRegister("x", Type.Int);
+    private final IrSsaRegister y = new IrSsaRegister("y", Type.Int);
+    private final IrSsaRegister z = new IrSsaRegister("z", Type.Int);
+    private final InstructionList instructionList = new InstructionList();
+
+    /**
+     * Each call adds one instruction which references {@code irSsaRegister}; the instructions only count uses, the
+     * intervals themselves are given explicitly
+     */
+    private void use(IrSsaRegister irSsaRegister, int nUses) {
+        for (int i = 0; i < nUses; i++)
+            instructionList.add(CopyInstruction.noAstConstructor(irSsaRegister, new IrIntegerConstant(0L, Type.Int)));
+    }
+
+    private LiveInterval interval(IrSsaRegister irSsaRegister, int startPoint, int endPoint) {
+        return new LiveInterval(irSsaRegister, startPoint, endPoint, instructionList, null);
+    }
+
+    private static Map<IrValue, X86Register> allocate(List<X86Register> registers, LiveInterval... liveIntervals) {
+        var methodToLiveIntervals = new HashMap<Method, List<LiveInterval>>();
+        methodToLiveIntervals.put(null, new ArrayList<>(List.of(liveIntervals)));
+        var linearScan = new LinearScan(registers, methodToLiveIntervals);
+        linearScan.allocate();
+        return linearScan.getVariableToRegisterMapping()
+                         .get(null);
+    }
+
+    @Test
+    public void theLessDenseIntervalIsSpilled() {
+        // x: 2 uses over 10 instructions, y: 2 uses over 2 instructions
+        use(x, 2);
+        use(y, 2);
+        var registers = allocate(List.of(X86Register.R11), interval(x, 0, 10), interval(y, 1, 3));
+        assertEquals(X86Register.STACK, registers.get(x));
+        assertEquals(X86Register.R11, registers.get(y));
+    }
+
+    @Test
+    public void theNewIntervalIsSpilledWhenItIsTheLeastDense() {
+        use(x, 4);
+        use(y, 1);
+        var registers = allocate(List.of(X86Register.R11), interval(x, 0, 4), interval(y, 1, 11));
+        assertEquals(X86Register.R11, registers.get(x));
+        assertEquals(X86Register.STACK, registers.get(y));
+    }
+
+    @Test
+    public void equallyDenseIntervalsSpillTheOneWhichEndsLast() {
+        // both have a use density of 0.2
+        use(x, 2);
+        use(y, 1);
+        var registers = allocate(List.of(X86Register.R11), interval(x, 0, 10), interval(y, 1, 6));
+        assertEquals(X86Register.STACK, registers.get(x));
+        assertEquals(X86Register.R11, registers.get(y));
+
+        registers = allocate(List.of(X86Register.R11), interval(x, 0, 5), interval(y, 1, 11));
+        assertEquals(X86Register.R11, registers.get(x));
+        assertEquals(X86Register.STACK, registers.get(y));
+    }
+
+    @Test
+    public void findLeastDenseBreaksTiesByTheFurthestEndPoint() {
+        // x and z are active with a use density of 0.2; y is denser and takes the register of the one ending last
+        use(x, 2);
+        use(z, 1);
+        use(y, 2);
+        var registers = allocate(List.of(X86Register.R11, X86Register.R12),
+                interval(x, 0, 10), interval(z, 0, 5), interval(y, 1, 3));
+        assertEquals(X86Register.STACK, registers.get(x));
+        assertNotEquals(X86Register.STACK, registers.get(z));
+        assertNotEquals(X86Register.STACK, registers.get(y));
+        assertNotEquals(registers.get(z), registers.get(y));
+    }
+
+    @Test
+    public void anIntervalFreesItsRegisterOnceItsEndPointHasPassed() {
+        use(x, 1);
+        use(y, 1);
+        var registers = allocate(List.of(X86Register.R11), interval(x, 0, 3), interval(y, 4, 6));
+        assertEquals(X86Register.R11, registers.get(x));
+        assertEquals(X86Register.R11, registers.get(y));
+    }
+
+    @Test
+    public void interferingIntervalsNeverShareARegister() {
+        assertNoInterferingIntervalsShareARegister(X86Register.regsToAllocate);
+        assertNoInterferingIntervalsShareARegister(THREE_REGISTERS);
+    }
+
+    private static void assertNoInterferingIntervalsShareARegister(List<X86Register> registers) {
+        var testProgram = new TestProgram(InterferenceGraphTest.PROGRAM).optimize(DataflowOptimizer.PASSES)
+                                                                       .deconstructSsa();
+        var liveIntervalsManager = new LiveIntervalsManager(testProgram.getProgramIr());
+        var linearScan = new LinearScan(registers, liveIntervalsManager.methodToLiveIntervalsMap);
+        linearScan.allocate();
+        for (var entry : liveIntervalsManager.methodToLiveIntervalsMap.entrySet()) {
+            var varToReg = linearScan.getVariableToRegisterMapping()
+                                     .get(entry.getKey());
+            var liveIntervals = entry.getValue();
+            for (int i = 0; i < liveIntervals.size(); i++) {
+                for (int j = i + 1; j < liveIntervals.size(); j++) {
+                    var a = liveIntervals.get(i);
+                    var b = liveIntervals.get(j);
+                    var register = varToReg.get(a.irSsaRegister());
+                    if (register != X86Register.STACK && LiveIntervalsManager.liveIntervalsInterfere(a, b))
+                        assertNotEquals(a + " " + b, register, varToReg.get(b.irSsaRegister()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package decaf.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CompilationServerTest {
+    private static final String PROGRAM = """
+            import printf;
+            void main() {
+                printf("%d\\n", 42);
+            }
+            """;
+    // x is never declared
+    private static final String UNDECLARED = """
+            void main() {
+                x = 1;
+            }
+            """;
+
+    private CompilationServer server;
+
+    private record Response(String id, String status, String assembly, String diagnostics) {
+    }
+
+    private static String request(String id, String source) {
+        return String.format("%s %s %d\n%s",
+                             CompilationServer.COMPILE,
+                             id,
+                             source.getBytes(StandardCharsets.UTF_8).length,
+                             source);
+    }
+
+    private static ByteArrayInputStream input(String... lines) {
+        return new ByteArrayInputStream(String.join("", lines)
+                                              .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Response> parse(byte[] output) {
+        var responses = new ArrayList<Response>();
+        int position = 0;
+        while (position < output.length) {
+            int newline = position;
+            while (output[newline] != '\n')
+                newline++;
+            var fields = new String(output, position, newline - position, StandardCharsets.UTF_8).split(" ");
+            assertEquals(CompilationServer.RESULT, fields[0]);
+            final int assemblyLength = Integer.parseInt(fields[3]);
+            final int diagnosticsLength = Integer.parseInt(fields[4]);
+            position = newline + 1;
+            var assembly = new String(output, position, assemblyLength, StandardCharsets.UTF_8);
+            position += assemblyLength;
+            var diagnostics = new String(output, position, diagnosticsLength, StandardCharsets.UTF_8);
+            position += diagnosticsLength;
+            responses.add(new Response(fields[1], fields[2], assembly, diagnostics));
+        }
+        return responses;
+    }
+
+    private static CompilationServer.CompilationResult echo(String source) {
+        return new CompilationServer.CompilationResult(true, "asm of " + source, "");
+    }
+
+    @After
+    public void shutdown() {
+        if (server != null)
+            server.shutdown();
+    }
+
+    @Test
+    public void answersInterleavedRequestsAsTheyFinish() throws IOException {
+        // "slow" cannot finish before the answer to "fast" has reached the client
+        var fastAnswered = new CountDownLatch(1);
+        server = new CompilationServer(3, source -> {
+            if (source.equals("slow")) {
+                try {
+                    assertTrue(fastAnswered.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return echo(source);
+        });
+        var output = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void flush() {
+                if (new String(toByteArray(), StandardCharsets.UTF_8).contains("asm of fast"))
+                    fastAnswered.countDown();
+            }
+        };
+
+        server.serve(input(request("1", "slow"), request("2", "fast"), request("3", "other")), output);
+
+        var responses = parse(output.toByteArray());
+        assertEquals(3, responses.size());
+        assertTrue(responses.indexOf(new Response("2", CompilationServer.OK, "asm of fast", "")) <
+                           responses.indexOf(new Response("1", CompilationServer.OK, "asm of slow", "")));
+        assertTrue(responses.contains(new Response("3", CompilationServer.OK, "asm of other", "")));
+    }
+
+    @Test
+    public void aMalformedHeaderEndsTheSessionAfterAnsweringEarlierRequests() {
+        server = new CompilationServer(1, CompilationServerTest::echo);
+        var output = new ByteArrayOutputStream();
+
+        assertThrows(IOException.class,
+                     () -> server.serve(input(request("1", "a"), "COMPILE 2\nb"), output));
+        assertThrows(IOException.class,
+                     () -> server.serve(input("COMPILE 3 -1\n"), new ByteArrayOutputStream()));
+        assertThrows(IOException.class,
+                     () -> server.serve(input("COMPILE 4 10\nshort"), new ByteArrayOutputStream()));
+
+        assertEquals(List.of(new Response("1", CompilationServer.OK, "asm of a", "")), parse(output.toByteArray()));
+    }
+
+    @Test
+    public void aCompileErrorIsReportedAsAnError() throws IOException {
+        server = new CompilationServer(2);
+        var output = new ByteArrayOutputStream();
+
+        server.serve(input(request("good", PROGRAM), request("bad", UNDECLARED)), output);
+
+        var responses = parse(output.toByteArray());
+        assertEquals(2, responses.size());
+        for (var response : responses) {
+            if (response.id()
+                        .equals("good")) {
+                assertEquals(CompilationServer.OK, response.status());
+                assertTrue(response.assembly()
+                                   .contains("main"));
+            } else {
+                assertEquals(CompilationServer.ERROR, response.status());
+                assertEquals("", response.assembly());
+                assertFalse(response.diagnostics()
+                                    .isEmpty());
+                // the diagnostics are sent without terminal colors
+                assertFalse(response.diagnostics()
+                                    .contains("\u001B["));
+            }
+        }
+    }
+
+    @Test
+    public void shutdownAnswersPendingRequestsAndIgnoresTheRest() throws IOException {
+        server = new CompilationServer(2, source -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return echo(source);
+        });
+        var output = new ByteArrayOutputStream();
+
+        server.serve(input(request("1", "a"),
+                           request("2", "b"),
+                           CompilationServer.SHUTDOWN + "\n",
+                           request("3", "c")), output);
+
+        var responses = parse(output.toByteArray());
+        assertEquals(2, responses.size());
+        assertTrue(responses.contains(new Response("1", CompilationServer.OK, "asm of a", "")));
+        assertTrue(responses.contains(new Response("2", CompilationServer.OK, "asm of b", "")));
+    }
+}
@@ -0,0 +1,129 @@
+package decaf.ssa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import decaf.cfg.BasicBlock;
+import decaf.codegen.codes.HasOperand;
+import decaf.codegen.codes.StoreInstruction;
+import decaf.codegen.names.IrSsaRegister;
+import decaf.common.StronglyConnectedComponentsTarjan;
+import decaf.common.TestProgram;
+import decaf.dataflow.dominator.DominatorTree;
+
+public class SSATest {
+    // the join after the if defines i twice, once in its phi and once in i += 1
+    private static final String BRANCH_IN_LOOP = """
+            import printf;
+            void main() {
+                int i, s;
+                s = 0;
+                i = 0;
+                while (i < 100) {
+                    if (i % 7 == 0) {
+                        s = s + i;
+                    } else {
+                        s = s - 1;
+                    }
+                    i += 1;
+                }
+                printf("%d\\n", s);
+            }
+            """;
+    // the only locals the loop header merges are a and b
+    private static final String SWAP_IN_LOOP = """
+            import printf;
+            int g[4];
+            void main() {
+                int a, b, t;
+                a = g[0] + 1;
+                b = g[1] + 2;
+                while (g[2] < 5) {
+                    t = a;
+                    a = b;
+                    b = t;
+                    g[2] = g[2] + 1;
+                }
+                printf("%d %d\\n", a, b);
+            }
+            """;
+
+    @Test
+    public void everyUseIsDominatedByItsDefinition() {
+        var method = new TestProgram(BRANCH_IN_LOOP).getMethod("main");
+        var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock());
+        var dominatorTree = new DominatorTree(method.getEntryBlock());
+        var definingBlocks = new HashMap<IrSsaRegister, BasicBlock>();
+        for (var basicBlock : basicBlocks)
+            for (var storeInstruction : basicBlock.getStoreInstructions())
+                if (storeInstruction.getDestination() instanceof IrSsaRegister irSsaRegister)
+                    definingBlocks.put(irSsaRegister, basicBlock);
+
+        for (var basicBlock : basicBlocks) {
+            var definedSoFar = new HashSet<IrSsaRegister>();
+            for (var instruction : basicBlock.getInstructionList()) {
+                if (instruction instanceof Phi phi) {
+                    // a phi operand is used at the end of the predecessor it flows in from
+                    for (var predecessor : basicBlock.getPredecessors())
+                        if (phi.getVariableForB(predecessor) instanceof IrSsaRegister operand)
+                            assertTrue(phi.syntaxHighlightedToString(),
+                                    dominatorTree.dom(definingBlocks.get(operand), predecessor));
+                } else if (instruction instanceof HasOperand hasOperand) {
+                    for (var operand : hasOperand.genOperandIrValuesFiltered(IrSsaRegister.class)) {
+                        var definingBlock = definingBlocks.get(operand);
+                        assertTrue(instruction.syntaxHighlightedToString(),
+                                definingBlock == basicBlock ? definedSoFar.contains(operand)
+                                        : dominatorTree.dom(definingBlock, basicBlock));
+                    }
+                }
+                if (instruction instanceof StoreInstruction storeInstruction &&
+                        storeInstruction.getDestination() instanceof IrSsaRegister irSsaRegister)
+                    definedSoFar.add(irSsaRegister);
+            }
+        }
+    }
+
+    @Test
+    public void aCycleOfPhiCopiesSavesTheValueItOverwritesFirst() {
+        var testProgram = new TestProgram(SWAP_IN_LOOP);
+        var method = testProgram.getMethod("main");
+        var basicBlocks = StronglyConnectedComponentsTarjan.getReversePostOrder(method.getEntryBlock());
+        var header = basicBlocks.stream()
+                                .filter(BasicBlock::phiPresent)
+                                .findFirst()
+                                .orElseThrow();
+        var latch = header.getPredecessors()
+                          .stream()
+                          .filter(predecessor -> basicBlocks.indexOf(predecessor) > basicBlocks.indexOf(header))
+                          .findFirst()
+                          .orElseThrow();
+        var phis = header.getPhiFunctions();
+        assertEquals(2, phis.size());
+        // make the back edge a swap, a = phi(a.1, b) and b = phi(b.1, a), which the copies on it can only do through a
+        // temporary
+        var a = phis.get(0);
+        var b = phis.get(1);
+        a.replaceValue(a.getVariableForB(latch), b.getDestination()
+                                                   .copy());
+        b.replaceValue(b.getVariableForB(latch), a.getDestination()
+                                                   .copy());
+
+        testProgram.deconstructSsa();
+
+        var written = new HashSet<IrSsaRegister>();
+        for (var basicBlock : basicBlocks)
+            for (var storeInstruction : basicBlock.getStoreInstructions())
+                if (storeInstruction.getDestination() instanceof IrSsaRegister irSsaRegister)
+                    written.add(irSsaRegister);
+        for (var basicBlock : basicBlocks)
+            for (var instruction : basicBlock.getInstructionList())
+                if (instruction instanceof HasOperand hasOperand)
+                    for (var operand : hasOperand.genOperandIrValuesFiltered(IrSsaRegister.class))
+                        assertTrue(instruction.syntaxHighlightedToString(), written.contains(operand));
+    }
+}